@@ -0,0 +1,189 @@
+package ru.mts.depositservice.benchmark;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mts.depositservice.entity.*;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.property.BulkOpeningProperty;
+import ru.mts.depositservice.property.ConfirmationProperty;
+import ru.mts.depositservice.property.DepositOpeningProperty;
+import ru.mts.depositservice.property.DepositProperty;
+import ru.mts.depositservice.property.IdempotencyProperty;
+import ru.mts.depositservice.property.ReplicaProperty;
+import ru.mts.depositservice.repository.*;
+import ru.mts.depositservice.service.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Граф сервисов для бенчмарков, собранный без Spring-контекста.
+ * <p>
+ * Репозитории хранят данные в памяти, а {@code account-service} и {@code customer-service} заменены заглушками,
+ * поэтому измеряется только собственный код сервиса
+ */
+public class BenchmarkFixtures {
+
+    public static final String CHANNEL_TOKEN = "benchmark-token";
+    private static final String BENCHMARK_CHANNEL = "benchmark";
+
+    public final InMemoryRepository<Request, Integer> requests =
+            new InMemoryRepository<>(Request::getId, Request::setId);
+    public final InMemoryRepository<Deposit, Integer> deposits =
+            new InMemoryRepository<>(Deposit::getId, Deposit::setId);
+    public final InMemoryRepository<CurrentRequestStatus, CurrentRequestStatusKey> statusHistory =
+            new InMemoryRepository<>(CurrentRequestStatus::getId, null);
+    public final InMemorySagaRepository openingSagas = new InMemorySagaRepository();
+    public final InMemoryOutboxRepository accountOutbox = new InMemoryOutboxRepository();
+
+    public final StubAccountClient accountClient = new StubAccountClient();
+    public final StubCustomerClient customerClient = new StubCustomerClient();
+    public final InMemoryConfirmationCodeStore confirmationCodeStore =
+            new InMemoryConfirmationCodeStore(new ConfirmationProperty());
+    public final SmsConfirmationServiceImpl smsConfirmationService =
+            new SmsConfirmationServiceImpl(confirmationCodeStore);
+
+    public final InterestRateQuoteEngine quoteEngine;
+    public final ReferenceDataRegistry referenceDataRegistry;
+    public final RequestStatusService requestStatusService;
+    public final DepositService depositService;
+    public final DepositOpeningSagaService openingSaga;
+    public final RequestConfirmationService requestConfirmationService;
+    public final BulkDepositOpeningService bulkOpeningService;
+
+    public BenchmarkFixtures() {
+        RequestRepository requestRepository = requests.as(RequestRepository.class);
+        DepositRepository depositRepository = deposits.as(DepositRepository.class);
+
+        quoteEngine = new InterestRateQuoteEngine(depositProperty(new BigDecimal("5")));
+
+        referenceDataRegistry = new ReferenceDataRegistry(
+                new InMemoryRepository<RequestStatus, Integer>(RequestStatus::getId, RequestStatus::setId)
+                        .seed(
+                                new RequestStatus(null, RequestStatusEnum.CONFIRMING),
+                                new RequestStatus(null, RequestStatusEnum.CONFIRMED),
+                                new RequestStatus(null, RequestStatusEnum.APPROVED),
+                                new RequestStatus(null, RequestStatusEnum.REJECTED))
+                        .as(RequestStatusRepository.class),
+                new InMemoryRepository<DepositTypes, Integer>(DepositTypes::getId, DepositTypes::setId)
+                        .seed(
+                                new DepositTypes(null, DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS),
+                                new DepositTypes(null, DepositTypeEnum.DEPOSITS_AND_NO_WITHDRAWALS),
+                                new DepositTypes(null, DepositTypeEnum.NO_DEPOSITS_AND_WITHDRAWALS))
+                        .as(DepositTypesRepository.class),
+                new InMemoryRepository<TypesPercentPayment, Integer>(TypesPercentPayment::getId, TypesPercentPayment::setId)
+                        .seed(
+                                new TypesPercentPayment(null, PercentPaymentTypeEnum.MONTHLY),
+                                new TypesPercentPayment(null, PercentPaymentTypeEnum.END_OF_TERM))
+                        .as(PercentPaymentTypesRepository.class)
+        );
+        referenceDataRegistry.reload();
+
+        requestStatusService = new RequestStatusService(
+                statusHistory.as(CurrentRequestStatusRepository.class),
+                requestRepository
+        );
+
+        depositService = new DepositService(
+                depositRepository,
+                accountOutbox,
+                requestRepository,
+                quoteEngine,
+                referenceDataRegistry,
+                smsConfirmationService
+        );
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+
+        openingSaga = new DepositOpeningSagaService(
+                openingSagas,
+                depositService,
+                accountClient,
+                customerClient,
+                requestRepository,
+                requestStatusService,
+                referenceDataRegistry,
+                transactionTemplate,
+                new DepositOpeningProperty()
+        );
+
+        requestConfirmationService = new RequestConfirmationService(
+                accountClient,
+                depositService,
+                depositRepository,
+                requestRepository,
+                requestStatusService,
+                referenceDataRegistry,
+                smsConfirmationService,
+                openingSaga,
+                transactionTemplate,
+                accountOutbox,
+                new ReadYourWritesTracker(new ReplicaProperty())
+        );
+
+        bulkOpeningService = new BulkDepositOpeningService(
+                depositService,
+                accountClient,
+                customerClient,
+                requestRepository,
+                depositRepository,
+                requestStatusService,
+                referenceDataRegistry,
+                openingSagas,
+                transactionTemplate,
+                new ReadYourWritesTracker(new ReplicaProperty()),
+                bulkOpeningProperty(),
+                new IdempotencyProperty()
+        );
+    }
+
+    /**
+     * Очищает данные, накопленные за итерацию бенчмарка
+     */
+    public void reset() {
+        requests.clear();
+        deposits.clear();
+        statusHistory.clear();
+        openingSagas.clear();
+        accountOutbox.clear();
+    }
+
+    /**
+     * Менеджер транзакций без базы данных: транзакции бенчмарка ничего не фиксируют
+     */
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    private static BulkOpeningProperty bulkOpeningProperty() {
+        BulkOpeningProperty bulkOpeningProperty = new BulkOpeningProperty();
+        bulkOpeningProperty.setChannels(Map.of(BENCHMARK_CHANNEL, CHANNEL_TOKEN));
+        return bulkOpeningProperty;
+    }
+
+    public static DepositProperty depositProperty(BigDecimal baseRate) {
+        DepositProperty depositProperty = new DepositProperty();
+        depositProperty.setBaseRate(baseRate);
+        return depositProperty;
+    }
+}
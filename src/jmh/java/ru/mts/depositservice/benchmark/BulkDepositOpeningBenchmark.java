@@ -0,0 +1,89 @@
+package ru.mts.depositservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.BulkOpeningResponse;
+import ru.mts.depositservice.model.OpenDepositRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Открытие 10 000 вкладов одним запросом {@code POST /deposit/open/batch} и тех же вкладов по одному
+ * через подтверждение заявки кодом.
+ * <p>
+ * Результат - количество открытых вкладов в секунду. Репозитории хранят данные в памяти, поэтому измеряется
+ * собственный код сервиса; выигрыш от пакетных вставок в базу данных измеряет {@link HibernateBatchingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(BulkDepositOpeningBenchmark.OPENINGS)
+public class BulkDepositOpeningBenchmark {
+
+    static final int OPENINGS = 10_000;
+
+    private static final int CUSTOMERS = 1000;
+    private static final BigDecimal DEPOSIT_AMOUNT = new BigDecimal("150000.00");
+
+    private BenchmarkFixtures fixtures;
+    private List<OpenDepositRequest> openRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixtures = new BenchmarkFixtures();
+        openRequests = new ArrayList<>(OPENINGS);
+        for (int i = 0; i < OPENINGS; i++) {
+            openRequests.add(openRequest(i % CUSTOMERS + 1));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void resetStorage() {
+        fixtures.reset();
+    }
+
+    @Benchmark
+    public BulkOpeningResponse openInBulk() {
+        // Хранилище очищается перед каждым вызовом, поэтому один ключ не возвращает результаты прошлых вызовов
+        return fixtures.bulkOpeningService.openDeposits(BenchmarkFixtures.CHANNEL_TOKEN, "benchmark", openRequests);
+    }
+
+    @Benchmark
+    public int openOneByOne() {
+        int opened = 0;
+        for (OpenDepositRequest template : openRequests) {
+            Request request = new Request();
+            request.setCustomer(fixtures.customerClient.findCustomer(template.getCustomerId()));
+            request.setAmount(DEPOSIT_AMOUNT);
+            request.setRequestDate(new Date());
+            fixtures.requests.seed(request);
+
+            OpenDepositRequest openRequest = openRequest(template.getCustomerId());
+            openRequest.setRequestId(request.getId());
+            openRequest.setConfirmationCode(fixtures.smsConfirmationService.sendConfirmationCode(
+                    request.getId(), ConfirmationOperationEnum.OPEN));
+            fixtures.requestConfirmationService.confirmOpenRequest(openRequest);
+            opened++;
+        }
+        return opened;
+    }
+
+    private static OpenDepositRequest openRequest(Integer customerId) {
+        OpenDepositRequest openRequest = new OpenDepositRequest();
+        openRequest.setCustomerId(customerId);
+        openRequest.setDepositAmount(DEPOSIT_AMOUNT);
+        openRequest.setDepositType(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS);
+        openRequest.setDuration(DepositDurationEnum.YEAR);
+        openRequest.setIsCapitalized(false);
+        openRequest.setPercentPaymentType(PercentPaymentTypeEnum.MONTHLY);
+        return openRequest;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.mts.depositservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.OpenDepositRequest;
+import ru.mts.depositservice.model.RequestResponse;
+import ru.mts.depositservice.service.RequestConfirmationService;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный сценарий подтверждения заявки на открытие вклада: проверка кода, смена статусов,
+ * открытие вклада и формирование ответа
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfirmOpenRequestBenchmark {
+
+    private static final Integer CUSTOMER_ID = 1;
+    private static final BigDecimal DEPOSIT_AMOUNT = new BigDecimal("150000.00");
+
+    private BenchmarkFixtures fixtures;
+    private RequestConfirmationService requestConfirmationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixtures = new BenchmarkFixtures();
+        requestConfirmationService = fixtures.requestConfirmationService;
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStorage() {
+        fixtures.reset();
+    }
+
+    @Benchmark
+    public RequestResponse confirmOpenRequest() {
+        Request request = new Request();
+        request.setCustomer(fixtures.customerClient.findCustomer(CUSTOMER_ID));
+        request.setAmount(DEPOSIT_AMOUNT);
+        request.setRequestDate(new Date());
+        fixtures.requests.seed(request);
+        String confirmationCode = fixtures.smsConfirmationService.sendConfirmationCode(
+                request.getId(), ConfirmationOperationEnum.OPEN);
+
+        OpenDepositRequest openRequest = new OpenDepositRequest();
+        openRequest.setRequestId(request.getId());
+        openRequest.setCustomerId(CUSTOMER_ID);
+        openRequest.setConfirmationCode(confirmationCode);
+        openRequest.setDepositType(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS);
+        openRequest.setDuration(DepositDurationEnum.YEAR);
+        openRequest.setIsCapitalized(false);
+        openRequest.setPercentPaymentType(PercentPaymentTypeEnum.MONTHLY);
+
+        return requestConfirmationService.confirmOpenRequest(openRequest);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.mts.depositservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.property.ConfirmationProperty;
+import ru.mts.depositservice.service.InMemoryConfirmationCodeStore;
+import ru.mts.depositservice.service.SmsConfirmationServiceImpl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Генерация кода подтверждения и полный цикл выдачи и проверки кода по заявке,
+ * в одном потоке и при конкурентном обращении
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConfirmationCodeBenchmark {
+
+    private SmsConfirmationServiceImpl smsConfirmationService;
+    private AtomicInteger requestIds;
+
+    @Setup
+    public void setUp() {
+        smsConfirmationService = new SmsConfirmationServiceImpl(new InMemoryConfirmationCodeStore(new ConfirmationProperty()));
+        requestIds = new AtomicInteger();
+    }
+
+    @Benchmark
+    public String generateVerificationCode() {
+        return smsConfirmationService.generateVerificationCode();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String generateVerificationCodeConcurrently() {
+        return smsConfirmationService.generateVerificationCode();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean sendAndCheckConfirmationCodeConcurrently() {
+        Integer requestId = requestIds.incrementAndGet();
+        String code = smsConfirmationService.sendConfirmationCode(requestId, ConfirmationOperationEnum.OPEN);
+        return smsConfirmationService.checkConfirmationCode(requestId, ConfirmationOperationEnum.OPEN, code);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.mts.depositservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.model.OpenDepositRequest;
+import ru.mts.depositservice.service.DepositService;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчёт процентной ставки и проверка минимальной суммы вклада - путь запроса {@code /deposit/check}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DepositServiceBenchmark {
+
+    @Param({"15000", "150000.50", "450000"})
+    public String depositAmount;
+
+    private DepositService depositService;
+    private OpenDepositRequest request;
+
+    @Setup
+    public void setUp() {
+        depositService = new BenchmarkFixtures().depositService;
+
+        request = new OpenDepositRequest();
+        request.setDepositAmount(new BigDecimal(depositAmount));
+        request.setDepositType(DepositTypeEnum.DEPOSITS_AND_NO_WITHDRAWALS);
+        request.setDuration(DepositDurationEnum.MONTH_6);
+        request.setIsCapitalized(true);
+    }
+
+    @Benchmark
+    public BigDecimal calculateInterestRate() {
+        return depositService.calculateInterestRate(request);
+    }
+
+    @Benchmark
+    public BigDecimal validateMinimumDepositAmount() {
+        depositService.validateMinimumDepositAmount(request.getDepositAmount());
+        return request.getDepositAmount();
+    }
+}
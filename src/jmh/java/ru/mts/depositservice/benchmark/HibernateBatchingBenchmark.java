@@ -0,0 +1,163 @@
+package ru.mts.depositservice.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import ru.mts.depositservice.entity.CurrentRequestStatus;
+import ru.mts.depositservice.entity.CurrentRequestStatusKey;
+import ru.mts.depositservice.entity.Customer;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.entity.RequestStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Создание пачки заявок с записью в историю статусов и запись истории статусов для существующих заявок
+ * через Hibernate с пакетной вставкой ({@code batchSize} = 50) и без нее ({@code batchSize} = 1).
+ * <p>
+ * Без пакетной вставки каждая строка отправляется отдельным запросом, как это было при
+ * {@code GenerationType.IDENTITY}. Транзакция откатывается после {@code flush}, чтобы таблицы не росли между
+ * итерациями. Для запуска нужен Docker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HibernateBatchingBenchmark {
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    @Param({"500"})
+    public int requests;
+
+    private PostgreSQLContainer<?> postgres;
+    private SingleConnectionDataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private int customerId;
+    private int confirmingStatusId;
+    private int approvedStatusId;
+    private List<Integer> existingRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+        postgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("shardCount", "16"))
+                .load()
+                .migrate();
+
+        dataSource = new SingleConnectionDataSource(
+                postgres.getJdbcUrl() + "&reWriteBatchedInserts=true",
+                postgres.getUsername(),
+                postgres.getPassword(),
+                true
+        );
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        customerId = jdbcTemplate.queryForObject("SELECT min(id_customer) FROM customers", Integer.class);
+        confirmingStatusId = statusId(jdbcTemplate, "CONFIRMING");
+        approvedStatusId = statusId(jdbcTemplate, "APPROVED");
+        existingRequests = jdbcTemplate.queryForList(
+                "INSERT INTO requests (request_date, deposit_amount, customer_id) " +
+                        "SELECT current_date, 10000, ? FROM generate_series(1, ?) " +
+                        "RETURNING id_request",
+                Integer.class,
+                customerId, requests
+        );
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("ru.mts.depositservice.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                "hibernate.jdbc.batch_size", batchSize,
+                "hibernate.order_inserts", true,
+                "hibernate.order_updates", true,
+                "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName()
+        ));
+        factory.afterPropertiesSet();
+        entityManagerFactory = factory.getObject();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactory.close();
+        dataSource.destroy();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public void createRequests() {
+        inRolledBackTransaction(entityManager -> {
+            Customer customer = entityManager.getReference(Customer.class, customerId);
+            RequestStatus confirming = entityManager.getReference(RequestStatus.class, confirmingStatusId);
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < requests; i++) {
+                Request request = new Request();
+                request.setCustomer(customer);
+                request.setAmount(BigDecimal.valueOf(10_000));
+                request.setRequestDate(new Date());
+                request.setCurrentStatusId(confirmingStatusId);
+                request.setCurrentStatusChangedAt(now);
+                entityManager.persist(request);
+                entityManager.persist(history(request, confirming, now));
+            }
+        });
+    }
+
+    @Benchmark
+    public void writeStatusHistory() {
+        inRolledBackTransaction(entityManager -> {
+            RequestStatus approved = entityManager.getReference(RequestStatus.class, approvedStatusId);
+            LocalDateTime now = LocalDateTime.now();
+            for (Integer requestId : existingRequests) {
+                entityManager.persist(history(entityManager.getReference(Request.class, requestId), approved, now));
+            }
+        });
+    }
+
+    private void inRolledBackTransaction(Consumer<EntityManager> work) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            work.accept(entityManager);
+            entityManager.flush();
+        } finally {
+            entityManager.getTransaction().rollback();
+            entityManager.close();
+        }
+    }
+
+    private static CurrentRequestStatus history(Request request, RequestStatus status, LocalDateTime now) {
+        CurrentRequestStatus history = new CurrentRequestStatus();
+        history.setId(new CurrentRequestStatusKey(request.getId(), status.getId()));
+        history.setRequest(request);
+        history.setStatus(status);
+        history.setUpdateTime(now);
+        return history;
+    }
+
+    private static int statusId(JdbcTemplate jdbcTemplate, String statusName) {
+        return jdbcTemplate.queryForObject(
+                "SELECT id_request_status FROM request_statuses WHERE request_status_name = ?",
+                Integer.class,
+                statusName
+        );
+    }
+}
@@ -0,0 +1,43 @@
+package ru.mts.depositservice.benchmark;
+
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.repository.AccountOutboxRepository;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbox операций со счетами без базы данных: операции только подсчитываются
+ */
+public class InMemoryOutboxRepository extends AccountOutboxRepository {
+
+    private final LongAdder enqueued = new LongAdder();
+
+    public InMemoryOutboxRepository() {
+        super(null);
+    }
+
+    @Override
+    public void enqueue(AccountOperationTypeEnum type, Request request, BigDecimal amount) {
+        enqueued.increment();
+    }
+
+    @Override
+    public void enqueueDepositRefill(Request request, BigDecimal amount, BigDecimal rateDelta) {
+        enqueued.increment();
+    }
+
+    @Override
+    public boolean lockDepositAndCheckPendingRefill(Integer depositId) {
+        return false;
+    }
+
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    public void clear() {
+        enqueued.reset();
+    }
+}
@@ -0,0 +1,136 @@
+package ru.mts.depositservice.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Хранилище в памяти, реализующее интерфейс Spring Data репозитория через динамический прокси.
+ * <p>
+ * Поддерживает базовые CRUD-методы; производные запросы репозитория задаются через {@link #query}
+ *
+ * @param <T> Тип сущности
+ * @param <K> Тип идентификатора сущности
+ */
+public class InMemoryRepository<T, K> implements InvocationHandler {
+
+    private final Map<K, T> rows = new ConcurrentHashMap<>();
+    private final Map<String, Function<Object[], Object>> queries = new HashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private final Function<T, K> idGetter;
+    private final BiConsumer<T, Integer> idSetter;
+
+    /**
+     * @param idGetter Возвращает идентификатор сущности
+     * @param idSetter Присваивает сгенерированный идентификатор; {@code null}, если идентификатор задается заранее
+     */
+    public InMemoryRepository(Function<T, K> idGetter, BiConsumer<T, Integer> idSetter) {
+        this.idGetter = idGetter;
+        this.idSetter = idSetter;
+    }
+
+    public InMemoryRepository<T, K> query(String methodName, Function<Object[], Object> answer) {
+        queries.put(methodName, answer);
+        return this;
+    }
+
+    @SafeVarargs
+    public final InMemoryRepository<T, K> seed(T... entities) {
+        for (T entity : entities) {
+            save(entity);
+        }
+        return this;
+    }
+
+    public <R> R as(Class<R> repositoryType) {
+        return repositoryType.cast(Proxy.newProxyInstance(
+                repositoryType.getClassLoader(),
+                new Class<?>[]{repositoryType},
+                this
+        ));
+    }
+
+    public Collection<T> rows() {
+        return rows.values();
+    }
+
+    public void clear() {
+        rows.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        Function<Object[], Object> query = queries.get(method.getName());
+        if (query != null) {
+            return query.apply(args);
+        }
+
+        switch (method.getName()) {
+            case "save":
+            case "saveAndFlush":
+                return save((T) args[0]);
+            case "saveAll":
+                List<T> saved = new ArrayList<>();
+                for (Object entity : (Iterable<?>) args[0]) {
+                    saved.add(save((T) entity));
+                }
+                return saved;
+            case "findById":
+                return Optional.ofNullable(rows.get((K) args[0]));
+            case "getReferenceById":
+            case "getById":
+                return rows.get((K) args[0]);
+            case "existsById":
+                return rows.containsKey((K) args[0]);
+            case "findAll":
+                return new ArrayList<>(rows.values());
+            case "findAllById":
+                List<T> found = new ArrayList<>();
+                for (Object id : (Iterable<?>) args[0]) {
+                    T row = rows.get((K) id);
+                    if (row != null) {
+                        found.add(row);
+                    }
+                }
+                return found;
+            case "count":
+                return (long) rows.size();
+            case "delete":
+                rows.remove(idGetter.apply((T) args[0]));
+                return null;
+            case "deleteById":
+                rows.remove((K) args[0]);
+                return null;
+            case "flush":
+                return null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "InMemoryRepository" + rows.keySet();
+            default:
+                throw new UnsupportedOperationException(method.toString());
+        }
+    }
+
+    private T save(T entity) {
+        if (idSetter != null && idGetter.apply(entity) == null) {
+            idSetter.accept(entity, sequence.incrementAndGet());
+        }
+        rows.put(idGetter.apply(entity), entity);
+        return entity;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.mts.depositservice.benchmark;
+
+import ru.mts.depositservice.enums.DepositOpeningStateEnum;
+import ru.mts.depositservice.model.DepositOpeningSaga;
+import ru.mts.depositservice.repository.DepositOpeningSagaRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранение состояний открытия вкладов в памяти, без базы данных
+ */
+public class InMemorySagaRepository extends DepositOpeningSagaRepository {
+
+    private final Map<Integer, DepositOpeningSaga> sagas = new ConcurrentHashMap<>();
+    private final Map<String, Integer> clientItemIds = new ConcurrentHashMap<>();
+
+    public InMemorySagaRepository() {
+        super(null);
+    }
+
+    @Override
+    public void insert(DepositOpeningSaga saga) {
+        sagas.put(saga.getRequestId(), saga);
+    }
+
+    @Override
+    public Optional<DepositOpeningSaga> findByRequestId(Integer requestId) {
+        return Optional.ofNullable(sagas.get(requestId));
+    }
+
+    @Override
+    public boolean transition(Integer requestId, DepositOpeningStateEnum from, DepositOpeningStateEnum to, String error) {
+        DepositOpeningSaga saga = sagas.get(requestId);
+        if (saga == null || saga.getState() != from) {
+            return false;
+        }
+        saga.setState(to);
+        saga.setLastError(error);
+        return true;
+    }
+
+    @Override
+    public void insertAll(List<DepositOpeningSaga> sagas) {
+        sagas.forEach(this::insert);
+    }
+
+    @Override
+    public int transitionAll(List<Integer> requestIds, DepositOpeningStateEnum from, DepositOpeningStateEnum to,
+                             String error) {
+        return (int) requestIds.stream()
+                .filter(requestId -> transition(requestId, from, to, error))
+                .count();
+    }
+
+    @Override
+    public boolean complete(Integer requestId, Integer depositId) {
+        if (!transition(requestId, DepositOpeningStateEnum.WITHDRAWN, DepositOpeningStateEnum.COMPLETED, null)) {
+            return false;
+        }
+        sagas.get(requestId).setDepositId(depositId);
+        return true;
+    }
+
+    @Override
+    public int completeAll(Map<Integer, Integer> depositIds) {
+        return (int) depositIds.entrySet()
+                .stream()
+                .filter(entry -> complete(entry.getKey(), entry.getValue()))
+                .count();
+    }
+
+    @Override
+    public void recordError(Integer requestId, String error) {
+        sagas.computeIfPresent(requestId, (id, saga) -> {
+            saga.setLastError(error);
+            return saga;
+        });
+    }
+
+    @Override
+    public void insertClientItemIds(Map<String, Integer> requestIds) {
+        clientItemIds.putAll(requestIds);
+    }
+
+    @Override
+    public Map<String, DepositOpeningSaga> findByClientItemIds(Collection<String> ids) {
+        Map<String, DepositOpeningSaga> found = new HashMap<>();
+        for (String id : ids) {
+            Integer requestId = clientItemIds.get(id);
+            if (requestId != null && sagas.containsKey(requestId)) {
+                found.put(id, sagas.get(requestId));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<DepositOpeningSaga> claimStale(Duration staleAfter, int maxAttempts, int limit) {
+        return List.of();
+    }
+
+    public void clear() {
+        sagas.clear();
+        clientItemIds.clear();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.mts.depositservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.mts.depositservice.entity.*;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.ApprovedRequestResponse;
+import ru.mts.depositservice.model.DepositAccountResponse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация ответов сервиса тем же {@link ObjectMapper}, который настраивает Spring MVC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "50"})
+    public int depositCount;
+
+    private ObjectMapper objectMapper;
+    private Deposit deposit;
+    private DepositAccountResponse depositAccountResponse;
+    private ApprovedRequestResponse approvedRequestResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        Customer customer = new Customer(1, "89174108831",
+                new BankAccount(1, new BigDecimal("12345678901234567890"), new BigDecimal("5000.00")));
+
+        List<Deposit> deposits = new ArrayList<>();
+        List<Request> rejectedRequests = new ArrayList<>();
+        for (int i = 1; i <= depositCount; i++) {
+            Deposit current = deposit(i, customer);
+            deposits.add(current);
+            rejectedRequests.add(new Request(i, new Date(), new BigDecimal("15000.00"), customer, null));
+        }
+        deposit = deposits.get(0);
+
+        depositAccountResponse = new DepositAccountResponse();
+        depositAccountResponse.setDepositList(deposits);
+        depositAccountResponse.setRejectedRequests(rejectedRequests);
+
+        approvedRequestResponse = ApprovedRequestResponse.builder()
+                .requestId(1)
+                .depositTypeEnum(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS)
+                .amount(new BigDecimal("150000.00"))
+                .requestDate(new Date())
+                .percentageRate(new BigDecimal("5.41"))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serializeDeposit() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(deposit);
+    }
+
+    @Benchmark
+    public byte[] serializeDepositAccountResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(depositAccountResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeApprovedRequestResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(approvedRequestResponse);
+    }
+
+    private static Deposit deposit(int id, Customer customer) {
+        BankAccount bankAccount = customer.getBankAccount();
+        LocalDate startDate = LocalDate.of(2024, 6, 1);
+
+        Deposit deposit = new Deposit();
+        deposit.setId(id);
+        deposit.setDepositRefill(true);
+        deposit.setDepositWithdraw(true);
+        deposit.setDepositAmount(new BigDecimal("150000.00"));
+        deposit.setStartDate(startDate);
+        deposit.setEndDate(startDate.plusMonths(12));
+        deposit.setDepositRate(new BigDecimal("5.40"));
+        deposit.setPercentPaymentDate(startDate.plusMonths(1));
+        deposit.setBankAccount(bankAccount);
+        deposit.setDepositType(new DepositTypes(1, DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS));
+        deposit.setTypePercentPayment(new TypesPercentPayment(1, PercentPaymentTypeEnum.MONTHLY));
+        deposit.setPercentPaymentAccount(bankAccount);
+        deposit.setDepositRefundAccount(bankAccount);
+        deposit.setCustomer(customer);
+        return deposit;
+    }
+}
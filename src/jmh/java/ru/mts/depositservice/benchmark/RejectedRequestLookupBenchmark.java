@@ -0,0 +1,127 @@
+package ru.mts.depositservice.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск отклоненных заявок клиента по истории статусов {@code current_request_status} и по столбцу
+ * {@code requests.current_status_id} на таблице из {@code rows} заявок.
+ * <p>
+ * Для запуска нужен Docker: база поднимается в Testcontainers и заполняется один раз на запуск.
+ * План запроса по {@code current_status_id} выводится при подготовке
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RejectedRequestLookupBenchmark {
+
+    private static final String HISTORY_JOIN =
+            "SELECT r.id_request FROM requests r " +
+                    "INNER JOIN current_request_status crs ON crs.request_id = r.id_request " +
+                    "WHERE r.customer_id = ? AND crs.request_status_id = ? " +
+                    "ORDER BY r.id_request";
+    private static final String CURRENT_STATUS_COLUMN =
+            "SELECT r.id_request FROM requests r " +
+                    "WHERE r.customer_id = ? AND r.current_status_id = ? " +
+                    "ORDER BY r.id_request";
+
+    @Param({"2000000"})
+    public int rows;
+
+    @Param({"10000"})
+    public int customers;
+
+    private PostgreSQLContainer<?> postgres;
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private int firstCustomerId;
+    private int rejectedStatusId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+        postgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("shardCount", "16"))
+                .load()
+                .migrate();
+
+        dataSource = new SingleConnectionDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        rejectedStatusId = statusId("REJECTED");
+        seed();
+
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN " + CURRENT_STATUS_COLUMN.replaceFirst("\\?", String.valueOf(firstCustomerId))
+                        .replaceFirst("\\?", String.valueOf(rejectedStatusId)),
+                String.class
+        );
+        plan.forEach(System.out::println);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public List<Integer> historyJoin() {
+        return jdbcTemplate.queryForList(HISTORY_JOIN, Integer.class, randomCustomer(), rejectedStatusId);
+    }
+
+    @Benchmark
+    public List<Integer> currentStatusColumn() {
+        return jdbcTemplate.queryForList(CURRENT_STATUS_COLUMN, Integer.class, randomCustomer(), rejectedStatusId);
+    }
+
+    private int randomCustomer() {
+        return firstCustomerId + ThreadLocalRandom.current().nextInt(customers);
+    }
+
+    private void seed() {
+        firstCustomerId = jdbcTemplate.queryForObject("SELECT coalesce(max(id_customer), 0) + 1 FROM customers", Integer.class);
+        jdbcTemplate.update(
+                "INSERT INTO customers (phone_number, password, bank_account_id) " +
+                        "SELECT lpad(g::text, 11, '0'), 'benchmark-' || g, 1 FROM generate_series(1, ?) g",
+                customers
+        );
+
+        // Каждая десятая заявка отклонена, остальные одобрены; в истории у каждой заявки два статуса
+        jdbcTemplate.update(
+                "INSERT INTO requests (request_date, deposit_amount, customer_id, current_status_id, current_status_changed_at) " +
+                        "SELECT current_date, 10000, ? + g % ?, CASE WHEN g % 10 = 0 THEN ? ELSE ? END, now() " +
+                        "FROM generate_series(1, ?) g",
+                firstCustomerId, customers, rejectedStatusId, statusId("APPROVED"), rows
+        );
+        jdbcTemplate.update(
+                "INSERT INTO current_request_status (request_id, request_status_id, change_datetime) " +
+                        "SELECT id_request, ?, now() - interval '1 hour' FROM requests",
+                statusId("CONFIRMING")
+        );
+        jdbcTemplate.update(
+                "INSERT INTO current_request_status (request_id, request_status_id, change_datetime) " +
+                        "SELECT id_request, current_status_id, current_status_changed_at FROM requests"
+        );
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private int statusId(String statusName) {
+        return jdbcTemplate.queryForObject(
+                "SELECT id_request_status FROM request_statuses WHERE request_status_name = ?",
+                Integer.class,
+                statusName
+        );
+    }
+}
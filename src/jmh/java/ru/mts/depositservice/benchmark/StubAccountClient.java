@@ -0,0 +1,56 @@
+package ru.mts.depositservice.benchmark;
+
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.DepositRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Заглушка {@link AccountClient}: на счетах всегда достаточно средств, переводы только подсчитываются
+ */
+public class StubAccountClient extends AccountClient {
+
+    private static final BigDecimal ACCOUNT_MONEY = BigDecimal.valueOf(1_000_000);
+
+    private final LongAdder transfers = new LongAdder();
+
+    public StubAccountClient() {
+        super(null, null, null, null);
+    }
+
+    @Override
+    public boolean checkEnoughMoney(DepositRequest depositRequest) {
+        return true;
+    }
+
+    @Override
+    public BigDecimal getAccountMoney(Integer customerId) {
+        return ACCOUNT_MONEY;
+    }
+
+    @Override
+    public void withdrawMoneyFromAccount(DepositRequest depositRequest) {
+        transfers.increment();
+    }
+
+    @Override
+    public void refillAccount(DepositRequest depositRequest) {
+        transfers.increment();
+    }
+
+    @Override
+    public List<AccountOperationResult> executeOperations(List<AccountOperation> operations) {
+        transfers.add(operations.size());
+        return operations.stream()
+                .map(operation -> new AccountOperationResult(operation.getOperationId(), true, null))
+                .toList();
+    }
+
+    public long getTransfers() {
+        return transfers.sum();
+    }
+}
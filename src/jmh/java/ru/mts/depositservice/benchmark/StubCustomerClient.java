@@ -0,0 +1,31 @@
+package ru.mts.depositservice.benchmark;
+
+import ru.mts.depositservice.client.CustomerClient;
+import ru.mts.depositservice.entity.BankAccount;
+import ru.mts.depositservice.entity.Customer;
+import ru.mts.depositservice.property.CustomerCacheProperty;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Заглушка {@link CustomerClient}, возвращающая клиентов из памяти без обращения к {@code customer-service}
+ */
+public class StubCustomerClient extends CustomerClient {
+
+    private final Map<Integer, Customer> customers = new ConcurrentHashMap<>();
+
+    public StubCustomerClient() {
+        super(null, new CustomerCacheProperty());
+    }
+
+    @Override
+    public Customer findCustomer(Integer customerId) {
+        return customers.computeIfAbsent(customerId, id -> new Customer(
+                id,
+                String.format("8917%07d", id),
+                new BankAccount(id, BigDecimal.valueOf(10_000_000_000L + id), BigDecimal.valueOf(1_000_000))
+        ));
+    }
+}
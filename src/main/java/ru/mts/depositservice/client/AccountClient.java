@@ -2,25 +2,30 @@ package ru.mts.depositservice.client;
 
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.http.*;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
-import ru.mts.depositservice.entity.BankAccount;
-import ru.mts.depositservice.entity.Customer;
 import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
 import ru.mts.depositservice.exception.CustomException;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
 import ru.mts.depositservice.model.DepositRequest;
 import ru.mts.depositservice.model.InfoResponse;
 import ru.mts.depositservice.model.UserRequest;
 import ru.mts.depositservice.repository.RequestRepository;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
+/**
+ * Операции с банковскими счетами клиентов в {@code account-service}.
+ * <p>
+ * При {@code app.account-batch.enabled} проверки, списания и пополнения отправляются пакетами
+ * через {@link AccountOperationBatcher}, иначе - отдельным запросом на каждую операцию
+ */
 @Service
 @RequiredArgsConstructor
 public class AccountClient {
@@ -30,20 +35,18 @@ public class AccountClient {
     private static final String GET_ACCOUNT_MONEY = "/account/{accountId}";
     private static final String WITHDRAW_MONEY = "/account/withdraw";
     private static final String REFILL_MONEY = "/account/refill";
+    private static final String NOT_ENOUGH_MONEY = "Недостаточно средств на счете";
 
-    private final RestTemplate restTemplate;
+    private final DownstreamTransports downstreamTransports;
     private final CustomerClient customerClient;
-    private final DiscoveryClient discoveryClient;
     private final RequestRepository requestRepository;
+    private final AccountOperationBatcher operationBatcher;
 
-    private ServiceInstance serviceInstance;
+    private DownstreamTransport transport;
 
     @PostConstruct
     void init() {
-        serviceInstance = discoveryClient.getInstances(ACCOUNT_SERVICE_NAME)
-                .stream()
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException(ACCOUNT_SERVICE_NAME + " сервис недоступен"));
+        transport = downstreamTransports.forService(ACCOUNT_SERVICE_NAME);
     }
 
     /**
@@ -54,17 +57,18 @@ public class AccountClient {
      */
     public boolean checkEnoughMoney(DepositRequest depositRequest) {
         Request request = requestRepository.findById(depositRequest.getRequestId()).get();
-        Customer customer = customerClient.findCustomer(request.getCustomer().getId());
+        Integer accountId = findAccountId(request);
 
-        UserRequest userRequest = createUserRequest(customer.getBankAccount().getId(), request.getAmount());
+        if (operationBatcher.isEnabled()) {
+            return operationBatcher.execute(AccountOperationTypeEnum.CHECK, accountId, request.getAmount()).isSuccess();
+        }
 
-        ResponseEntity<Boolean> response = restTemplate.postForEntity(
-                buildUri(CHECK_ENOUGH_MONEY),
-                userRequest,
-                Boolean.class
-        );
+        UserRequest userRequest = createUserRequest(accountId, request.getAmount());
+
+        // Проверка не меняет состояние счета, поэтому ее можно повторять
+        Boolean enoughMoney = transport.post(CHECK_ENOUGH_MONEY, userRequest, Boolean.class, true);
 
-        return Boolean.TRUE.equals(response.getBody());
+        return Boolean.TRUE.equals(enoughMoney);
     }
 
     /**
@@ -74,14 +78,9 @@ public class AccountClient {
      * @return Сумма на банковском счету клиента
      */
     public BigDecimal getAccountMoney(Integer customerId) {
-        ResponseEntity<InfoResponse> response = restTemplate.exchange(
-                buildUri(GET_ACCOUNT_MONEY, customerId),
-                HttpMethod.GET,
-                null,
-                InfoResponse.class
-        );
+        InfoResponse response = transport.get(GET_ACCOUNT_MONEY, InfoResponse.class, customerId);
 
-        return Objects.requireNonNull(response.getBody()).getAmount();
+        return Objects.requireNonNull(response).getAmount();
     }
 
     /**
@@ -90,7 +89,7 @@ public class AccountClient {
      * @param depositRequest Объект запроса на снятие денег с указанием суммы
      */
     public void withdrawMoneyFromAccount(DepositRequest depositRequest) {
-        executePatchRequest(WITHDRAW_MONEY, depositRequest);
+        executeMoneyOperation(AccountOperationTypeEnum.WITHDRAW, depositRequest);
     }
 
     /**
@@ -99,27 +98,111 @@ public class AccountClient {
      * @param depositRequest Объект запроса на пополнение баланса с указанием суммы
      */
     public void refillAccount(DepositRequest depositRequest) {
-        executePatchRequest(REFILL_MONEY, depositRequest);
+        executeMoneyOperation(AccountOperationTypeEnum.REFILL, depositRequest);
     }
 
-    private void executePatchRequest(String endpointPath, DepositRequest depositRequest) {
-        Request request = requestRepository.findById(depositRequest.getRequestId()).get();
-        Customer customer = customerClient.findCustomer(request.getCustomer().getId());
-        BankAccount bankAccount = customerClient.findCustomer(customer.getId()).getBankAccount();
-        UserRequest userRequest = createUserRequest(bankAccount.getId(), depositRequest.getDepositAmount());
+    public boolean isBatchingEnabled() {
+        return operationBatcher.isEnabled();
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+    /**
+     * Находит банковский счет клиента
+     *
+     * @param customerId Идентификатор клиента
+     * @return Идентификатор банковского счета
+     */
+    public Integer findAccountId(Integer customerId) {
+        return customerClient.findCustomer(customerId).getBankAccount().getId();
+    }
 
-        HttpEntity<UserRequest> requestEntity = new HttpEntity<>(userRequest, headers);
+    /**
+     * Выполняет операцию со счетом, сохраняя ее идентификатор.
+     * <p>
+     * Без пакетной отправки идентификатор операции передается в заголовке {@code Idempotency-Key}, поэтому
+     * {@code account-service} не выполнит повторно отправленное списание или пополнение второй раз.
+     * <p>
+     * Отказ {@code account-service} возвращается как неуспешный результат; исключение выбрасывается,
+     * только если результат операции неизвестен и ее можно повторить
+     *
+     * @param operation Операция со счетом
+     * @return Результат операции
+     */
+    public AccountOperationResult executeOperation(AccountOperation operation) {
+        if (operationBatcher.isEnabled()) {
+            return operationBatcher.execute(operation);
+        }
 
+        UserRequest userRequest = createUserRequest(operation.getAccountId(), operation.getMoney());
+        if (operation.getType() == AccountOperationTypeEnum.CHECK) {
+            boolean enoughMoney = Boolean.TRUE.equals(transport.post(CHECK_ENOUGH_MONEY, userRequest, Boolean.class, true));
+            return new AccountOperationResult(operation.getOperationId(), enoughMoney, enoughMoney ? null : NOT_ENOUGH_MONEY);
+        }
         try {
-            restTemplate.exchange(
-                    buildUri(endpointPath),
-                    HttpMethod.PATCH,
-                    requestEntity,
-                    InfoResponse.class
+            // Идентификатор операции передается как ключ идемпотентности: повтор не выполнится дважды
+            transport.patch(
+                    operation.getType() == AccountOperationTypeEnum.WITHDRAW ? WITHDRAW_MONEY : REFILL_MONEY,
+                    userRequest,
+                    InfoResponse.class,
+                    operation.getOperationId()
             );
+        } catch (HttpClientErrorException e) {
+            return new AccountOperationResult(operation.getOperationId(), false, e.getMessage());
+        }
+        return new AccountOperationResult(operation.getOperationId(), true, null);
+    }
+
+    /**
+     * Выполняет операции со счетами пакетами через {@link AccountOperationBatcher} при
+     * {@code app.account-batch.enabled}, иначе - по одной через {@link #executeOperation(AccountOperation)}.
+     * <p>
+     * Если выброшено исключение, часть операций могла быть выполнена, поэтому повторять их нужно
+     * с теми же идентификаторами
+     *
+     * @param operations Операции со счетами
+     * @return Результаты операций в порядке операций
+     */
+    public List<AccountOperationResult> executeOperations(List<AccountOperation> operations) {
+        if (operationBatcher.isEnabled()) {
+            return operationBatcher.executeAll(operations);
+        }
+
+        List<AccountOperationResult> results = new ArrayList<>(operations.size());
+        for (AccountOperation operation : operations) {
+            results.add(executeOperation(operation));
+        }
+        return results;
+    }
+
+    private void executeMoneyOperation(AccountOperationTypeEnum type, DepositRequest depositRequest) {
+        Request request = requestRepository.findById(depositRequest.getRequestId()).get();
+        Integer accountId = findAccountId(request);
+
+        if (operationBatcher.isEnabled()) {
+            AccountOperationResult result = operationBatcher.execute(type, accountId, depositRequest.getDepositAmount());
+            if (!result.isSuccess()) {
+                reject(result);
+            }
+            return;
+        }
+
+        UserRequest userRequest = createUserRequest(accountId, depositRequest.getDepositAmount());
+        sendPatchRequest(type == AccountOperationTypeEnum.WITHDRAW ? WITHDRAW_MONEY : REFILL_MONEY, userRequest);
+    }
+
+    private Integer findAccountId(Request request) {
+        return findAccountId(request.getCustomer().getId());
+    }
+
+    private static void reject(AccountOperationResult result) {
+        throw new CustomException(
+                HttpStatus.BAD_REQUEST.toString(),
+                result.getMessage()
+        );
+    }
+
+    private void sendPatchRequest(String endpointPath, UserRequest userRequest) {
+        try {
+            transport.patch(endpointPath, userRequest, InfoResponse.class);
         } catch (HttpClientErrorException e) {
             if (e.getStatusCode() == HttpStatus.BAD_REQUEST) {
                 throw new CustomException(
@@ -130,12 +213,6 @@ public class AccountClient {
         }
     }
 
-    private String buildUri(String endpointPath, Object... uriVariables) {
-        return UriComponentsBuilder.fromHttpUrl(serviceInstance.getUri().toString() + endpointPath)
-                .buildAndExpand(uriVariables)
-                .toUriString();
-    }
-
     private UserRequest createUserRequest(Integer accountId, BigDecimal money) {
         UserRequest userRequest = new UserRequest();
         userRequest.setAccountId(accountId);
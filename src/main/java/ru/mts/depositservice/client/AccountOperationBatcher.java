@@ -0,0 +1,251 @@
+package ru.mts.depositservice.client;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.exception.CustomException;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.property.AccountBatchProperty;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Отправляет операции со счетами в {@code account-service} пакетами через {@code POST /account/batch}.
+ * <p>
+ * Операции, поступившие из разных потоков, накапливаются в течение {@code app.account-batch.window} или
+ * до {@code max-batch-size} операций и отправляются одним запросом; результат каждой операции возвращается
+ * вызвавшему ее потоку по идентификатору операции. Пакеты отправляются не более чем в {@code concurrency}
+ * потоков: если все они заняты, новый пакет отправляет поток накопления, и очередь операций растет до
+ * {@code max-pending}, после чего операция отправляется отдельным пакетом в вызывающем потоке
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountOperationBatcher {
+
+    private static final String ACCOUNT_SERVICE_NAME = "account-service";
+    private static final String BATCH_OPERATIONS = "/account/batch";
+
+    private final DownstreamTransports downstreamTransports;
+    private final AccountBatchProperty batchProperty;
+
+    private DownstreamTransport transport;
+    private BlockingQueue<PendingOperation> pending;
+    private ExecutorService sender;
+    private Thread collector;
+    private volatile boolean running;
+
+    @PostConstruct
+    void init() {
+        transport = downstreamTransports.forService(ACCOUNT_SERVICE_NAME);
+        if (!batchProperty.isEnabled()) {
+            return;
+        }
+
+        pending = new LinkedBlockingQueue<>(batchProperty.getMaxPending());
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = new ThreadPoolExecutor(
+                batchProperty.getConcurrency(), batchProperty.getConcurrency(),
+                0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(batchProperty.getConcurrency()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "account-batch-sender-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        running = true;
+        collector = new Thread(this::collect, "account-batch-collector");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        collector.interrupt();
+        try {
+            collector.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sender.shutdown();
+
+        List<PendingOperation> remaining = new ArrayList<>();
+        pending.drainTo(remaining);
+        remaining.forEach(operation -> operation.result().completeExceptionally(unavailable()));
+    }
+
+    public boolean isEnabled() {
+        return batchProperty.isEnabled();
+    }
+
+    /**
+     * Выполняет операцию в составе пакета с операциями других потоков
+     *
+     * @param type      Тип операции
+     * @param accountId Идентификатор счета
+     * @param money     Сумма операции
+     * @return Результат операции
+     */
+    public AccountOperationResult execute(AccountOperationTypeEnum type, Integer accountId, BigDecimal money) {
+        return execute(new AccountOperation(UUID.randomUUID().toString(), type, accountId, money));
+    }
+
+    /**
+     * Выполняет операцию с заданным идентификатором в составе пакета с операциями других потоков
+     *
+     * @param accountOperation Операция со счетом
+     * @return Результат операции
+     */
+    public AccountOperationResult execute(AccountOperation accountOperation) {
+        PendingOperation operation = new PendingOperation(accountOperation, new CompletableFuture<>());
+
+        if (!running || !pending.offer(operation)) {
+            send(List.of(operation));                                           // накопление выключено или очередь переполнена
+        } else if (!running && pending.remove(operation)) {
+            send(List.of(operation));                                           // отправка остановлена после постановки в очередь
+        }
+        return await(operation.result());
+    }
+
+    /**
+     * Выполняет операции пакетами по {@code max-batch-size} в вызывающем потоке
+     *
+     * @param operations Операции со счетами
+     * @return Результаты операций в порядке операций
+     */
+    public List<AccountOperationResult> executeAll(List<AccountOperation> operations) {
+        List<AccountOperationResult> results = new ArrayList<>(operations.size());
+        for (int from = 0; from < operations.size(); from += batchProperty.getMaxBatchSize()) {
+            List<PendingOperation> batch = operations
+                    .subList(from, Math.min(from + batchProperty.getMaxBatchSize(), operations.size()))
+                    .stream()
+                    .map(operation -> new PendingOperation(operation, new CompletableFuture<>()))
+                    .toList();
+            send(batch);
+            batch.forEach(operation -> results.add(await(operation.result())));
+        }
+        return results;
+    }
+
+    private void collect() {
+        List<PendingOperation> batch = new ArrayList<>(batchProperty.getMaxBatchSize());
+        while (running) {
+            try {
+                PendingOperation first = pending.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + batchProperty.getWindow().toNanos();
+                while (batch.size() < batchProperty.getMaxBatchSize()) {
+                    pending.drainTo(batch, batchProperty.getMaxBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchProperty.getMaxBatchSize() || remaining <= 0) {
+                        break;
+                    }
+                    PendingOperation next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                List<PendingOperation> ready = List.copyOf(batch);
+                batch.clear();
+                sender.execute(() -> send(ready));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(operation -> operation.result().completeExceptionally(unavailable()));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Не удалось отправить пакет операций со счетами", e);
+                batch.forEach(operation -> operation.result().completeExceptionally(e));
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<PendingOperation> batch) {
+        List<AccountOperation> operations = batch.stream()
+                .map(PendingOperation::operation)
+                .toList();
+        // Пакет только из проверок не меняет состояние счетов, поэтому его можно повторять
+        boolean idempotent = operations.stream()
+                .allMatch(operation -> operation.getType() == AccountOperationTypeEnum.CHECK);
+
+        try {
+            AccountOperationResult[] response = transport.post(
+                    BATCH_OPERATIONS,
+                    operations,
+                    AccountOperationResult[].class,
+                    idempotent
+            );
+            Map<String, AccountOperationResult> results = Arrays.stream(response == null
+                            ? new AccountOperationResult[0]
+                            : response)
+                    .collect(Collectors.toMap(AccountOperationResult::getOperationId, Function.identity(), (a, b) -> a));
+
+            for (PendingOperation operation : batch) {
+                AccountOperationResult result = results.get(operation.operation().getOperationId());
+                if (result == null) {
+                    operation.result().completeExceptionally(new CustomException(
+                            "ACCOUNT_OPERATION_UNKNOWN",
+                            "Нет результата операции " + operation.operation().getOperationId()
+                    ));
+                } else {
+                    operation.result().complete(result);
+                }
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(operation -> operation.result().completeExceptionally(e));
+        }
+    }
+
+    private static AccountOperationResult await(CompletableFuture<AccountOperationResult> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static ServiceUnavailableException unavailable() {
+        return new ServiceUnavailableException(
+                "SERVICE_UNAVAILABLE",
+                "Отправка операций со счетами остановлена"
+        );
+    }
+
+    private record PendingOperation(AccountOperation operation, CompletableFuture<AccountOperationResult> result) {
+    }
+}
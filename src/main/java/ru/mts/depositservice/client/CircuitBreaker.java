@@ -0,0 +1,132 @@
+package ru.mts.depositservice.client;
+
+import ru.mts.depositservice.property.HttpClientProperty.CircuitBreakerProperty;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Размыкатель цепи для обращений к одному сервису.
+ * <p>
+ * Оценивает долю ошибок среди последних {@code sliding-window-size} вызовов. При превышении порога вызовы
+ * отклоняются без обращения к сервису на время {@code open-duration}, после чего пропускается
+ * {@code half-open-calls} пробных вызовов: если все они успешны, цепь замыкается, иначе снова размыкается
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,         // вызовы пропускаются
+        OPEN,           // вызовы отклоняются
+        HALF_OPEN       // пропускаются пробные вызовы
+    }
+
+    private final CircuitBreakerProperty property;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] outcomes;                                           // true - вызов завершился ошибкой
+    private int position;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(CircuitBreakerProperty property) {
+        this(property, System::nanoTime);
+    }
+
+    CircuitBreaker(CircuitBreakerProperty property, LongSupplier nanoClock) {
+        this.property = property;
+        this.nanoClock = nanoClock;
+        this.outcomes = new boolean[property.getSlidingWindowSize()];
+    }
+
+    /**
+     * Проверяет, можно ли выполнить вызов
+     *
+     * @return {@code true}, если вызов разрешен; {@code false}, если цепь разомкнута
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < property.getOpenDuration().toNanos()) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = property.getHalfOpenCalls();
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * Фиксирует успешный вызов
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= property.getHalfOpenCalls()) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * Фиксирует вызов, завершившийся ошибкой
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.OPEN) {
+            return;                                                             // вызов начат до размыкания
+        }
+        record(true);
+        if (recorded >= property.getMinimumCalls()
+                && failures * 100 >= property.getFailureRateThreshold() * recorded) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (recorded == outcomes.length) {
+            if (outcomes[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % outcomes.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
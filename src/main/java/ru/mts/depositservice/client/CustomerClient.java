@@ -2,14 +2,19 @@ package ru.mts.depositservice.client;
 
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 import ru.mts.depositservice.entity.Customer;
+import ru.mts.depositservice.model.CustomerCacheStats;
+import ru.mts.depositservice.property.CustomerCacheProperty;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @RequiredArgsConstructor
@@ -18,36 +23,120 @@ public class CustomerClient {
     private static final String CUSTOMER_SERVICE_NAME = "customer-service";
     private static final String FIND_CUSTOMER = "/customer/{customerId}";
 
-    private final DiscoveryClient discoveryClient;
-    private final RestTemplate restTemplate;
+    private final DownstreamTransports downstreamTransports;
+    private final CustomerCacheProperty cacheProperty;
+
+    private final ConcurrentMap<Integer, CachedCustomer> cache = new ConcurrentHashMap<>();
+    private final Queue<LoadedCustomer> loadOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger loadedCount = new AtomicInteger();          // длина очереди загруженных клиентов
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
 
-    private ServiceInstance serviceInstance;
+    private DownstreamTransport transport;
 
     @PostConstruct
     void init() {
-        serviceInstance = discoveryClient.getInstances(CUSTOMER_SERVICE_NAME)
-                .stream()
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException(CUSTOMER_SERVICE_NAME + " сервис недоступен"));
+        transport = downstreamTransports.forService(CUSTOMER_SERVICE_NAME);
     }
 
     /**
      * Находит клиента по его идентификатору, обращаясь к сервису {@code customer-service}
+     * <p>
+     * Результат кэшируется на время {@code app.customer-cache.ttl}. Одновременные запросы одного и того же
+     * клиента ожидают завершения единственного HTTP-запроса, а не выполняют собственный.
+     * Срок хранения у всех записей одинаковый, поэтому при переполнении кэша за постоянное время вытесняется
+     * запись, загруженная раньше остальных
      *
      * @param customerId Идентификатор клиента для поиска.
      * @return Объект {@link Customer}, найденный по идентификатору
      */
     public Customer findCustomer(Integer customerId) {
-        UriComponentsBuilder uriComponentsBuilder = UriComponentsBuilder
-                .fromHttpUrl(serviceInstance.getUri().toString() + FIND_CUSTOMER);
+        long now = System.nanoTime();
+
+        CachedCustomer cached = cache.get(customerId);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                hits.increment();
+                return await(cached.customer());
+            }
+            if (cache.remove(customerId, cached)) {
+                evictions.increment();                                          // запись устарела
+            }
+        }
 
-        ResponseEntity<Customer> response = restTemplate.exchange(
-                uriComponentsBuilder.buildAndExpand(customerId).toUri(),
-                HttpMethod.GET,
-                null,
-                Customer.class
-        );
+        CompletableFuture<Customer> loading = new CompletableFuture<>();
+        CachedCustomer fresh = new CachedCustomer(loading, now + cacheProperty.getTtl().toNanos());
+
+        CachedCustomer existing = cache.putIfAbsent(customerId, fresh);
+        if (existing != null) {
+            hits.increment();                                                   // клиента уже загружает другой поток
+            return await(existing.customer());
+        }
+
+        misses.increment();
+        try {
+            Customer customer = fetchCustomer(customerId);
+            loading.complete(customer);
+            if (customer == null) {
+                cache.remove(customerId, fresh);                                // пустой ответ не кэшируем
+            } else {
+                evictIfFull(customerId, fresh);
+            }
+            return customer;
+        } catch (RuntimeException e) {
+            cache.remove(customerId, fresh);                                    // ошибки не кэшируем
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает статистику работы кэша клиентов
+     *
+     * @return Количество попаданий, промахов, вытеснений и текущий размер кэша
+     */
+    public CustomerCacheStats getCacheStats() {
+        return new CustomerCacheStats(hits.sum(), misses.sum(), evictions.sum(), cache.size());
+    }
+
+    private Customer fetchCustomer(Integer customerId) {
+        return transport.get(FIND_CUSTOMER, Customer.class, customerId);
+    }
+
+    private void evictIfFull(Integer customerId, CachedCustomer loaded) {
+        loadOrder.offer(new LoadedCustomer(customerId, loaded));                // клиент встает в конец очереди
+        loadedCount.incrementAndGet();
+
+        // В начале очереди стоит запись, которая устареет раньше остальных. Записи, уже удаленные из кэша,
+        // только освобождают место в очереди
+        LoadedCustomer oldest;
+        while (loadedCount.get() > cacheProperty.getMaxSize() && (oldest = loadOrder.poll()) != null) {
+            loadedCount.decrementAndGet();
+            if (cache.remove(oldest.customerId(), oldest.cached())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private Customer await(CompletableFuture<Customer> customer) {
+        try {
+            return customer.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record CachedCustomer(CompletableFuture<Customer> customer, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
 
-        return response.getBody();
+    private record LoadedCustomer(Integer customerId, CachedCustomer cached) {
     }
 }
@@ -0,0 +1,435 @@
+package ru.mts.depositservice.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.mts.depositservice.client.InstanceBalancer.Instance;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.property.HttpClientProperty.ServiceProperty;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Обращения к одному сервису, зарегистрированному в Eureka.
+ * <p>
+ * Экземпляр сервиса для каждого вызова выбирает {@link InstanceBalancer}; список экземпляров обновляется
+ * из {@link DiscoveryClient} периодически и при отсутствии известных экземпляров, поэтому сервис может быть
+ * зарегистрирован позже, чем запущено приложение. Вызов выполняется через {@link CircuitBreaker}: при разомкнутой
+ * цепи сразу выбрасывается {@link ServiceUnavailableException}, и потоки Tomcat не ждут медленный сервис.
+ * Идемпотентные вызовы повторяются при сетевых ошибках и ответах 5xx с экспоненциальной паузой со случайным
+ * разбросом, пока не исчерпаны попытки, бюджет повторов {@link RetryBudget} или общий срок вызова
+ * {@code call-timeout}. Неидемпотентные вызовы повторяются, только если соединение не было установлено и запрос
+ * не мог дойти до сервиса.
+ * <p>
+ * Если задан {@code hedge-delay}, GET-запрос, не получивший ответа за это время, дублируется на другой экземпляр,
+ * и используется первый успешный ответ. Дублирующие запросы расходуют бюджет повторов
+ */
+@Slf4j
+public class DownstreamTransport {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final String serviceName;
+    private final DiscoveryClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final ServiceProperty serviceProperty;
+    private final ExecutorService hedgeExecutor;
+    private final InstanceBalancer balancer;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBudget retryBudget;
+    private final MeterRegistry meterRegistry;
+
+    private final Counter retries;
+    private final Counter retriesRejected;
+    private final Counter shortCircuited;
+    private final Counter hedges;
+
+    public DownstreamTransport(String serviceName,
+                               DiscoveryClient discoveryClient,
+                               RestTemplate restTemplate,
+                               ServiceProperty serviceProperty,
+                               ExecutorService hedgeExecutor,
+                               MeterRegistry meterRegistry) {
+        this.serviceName = serviceName;
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplate;
+        this.serviceProperty = serviceProperty;
+        this.hedgeExecutor = hedgeExecutor;
+        this.balancer = new InstanceBalancer(serviceProperty.getReadTimeout().toNanos());
+        this.circuitBreaker = new CircuitBreaker(serviceProperty.getCircuitBreaker());
+        this.retryBudget = new RetryBudget(serviceProperty.getRetry());
+        this.meterRegistry = meterRegistry;
+
+        this.retries = meterRegistry.counter("http.client.retries", "service", serviceName);
+        this.retriesRejected = meterRegistry.counter("http.client.retries.rejected", "service", serviceName);
+        this.shortCircuited = meterRegistry.counter("http.client.short.circuited", "service", serviceName);
+        this.hedges = meterRegistry.counter("http.client.hedges", "service", serviceName);
+        Gauge.builder("http.client.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 - замкнута, 1 - разомкнута, 2 - пробные вызовы")
+                .tag("service", serviceName)
+                .register(meterRegistry);
+        Gauge.builder("http.client.instances", balancer, instanceBalancer -> instanceBalancer.getInstances().size())
+                .tag("service", serviceName)
+                .register(meterRegistry);
+
+        refreshInstances();
+    }
+
+    /**
+     * Выполняет идемпотентный GET-запрос
+     *
+     * @param path         Шаблон пути эндпоинта
+     * @param responseType Тип тела ответа
+     * @param uriVariables Значения переменных шаблона пути
+     * @return Тело ответа
+     */
+    public <T> T get(String path, Class<T> responseType, Object... uriVariables) {
+        return execute(HttpMethod.GET, path, null, responseType, true, uriVariables);
+    }
+
+    /**
+     * Выполняет POST-запрос
+     *
+     * @param path         Путь эндпоинта
+     * @param body         Тело запроса
+     * @param responseType Тип тела ответа
+     * @param idempotent   Признак того, что запрос можно безопасно повторить
+     * @return Тело ответа
+     */
+    public <T> T post(String path, Object body, Class<T> responseType, boolean idempotent) {
+        return execute(HttpMethod.POST, path, body, responseType, idempotent);
+    }
+
+    /**
+     * Выполняет неидемпотентный PATCH-запрос
+     *
+     * @param path         Путь эндпоинта
+     * @param body         Тело запроса
+     * @param responseType Тип тела ответа
+     * @return Тело ответа
+     */
+    public <T> T patch(String path, Object body, Class<T> responseType) {
+        return execute(HttpMethod.PATCH, path, body, responseType, false);
+    }
+
+    /**
+     * Выполняет PATCH-запрос с заголовком {@code Idempotency-Key}. Сервис не выполняет повторно запрос с уже
+     * полученным ключом, поэтому запрос повторяется так же, как идемпотентный
+     *
+     * @param path           Путь эндпоинта
+     * @param body           Тело запроса
+     * @param responseType   Тип тела ответа
+     * @param idempotencyKey Ключ идемпотентности, не меняющийся между попытками
+     * @return Тело ответа
+     */
+    public <T> T patch(String path, Object body, Class<T> responseType, String idempotencyKey) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(IDEMPOTENCY_KEY, idempotencyKey);
+        return execute(HttpMethod.PATCH, path, new HttpEntity<>(body, headers), responseType, true);
+    }
+
+    /**
+     * Обновляет список экземпляров сервиса из Eureka
+     */
+    public void refreshInstances() {
+        try {
+            balancer.update(discoveryClient.getInstances(serviceName));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить список экземпляров {}", serviceName, e);
+        }
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public List<Instance> getInstances() {
+        return balancer.getInstances();
+    }
+
+    /**
+     * Выполняет вызов с повторами и записывает его длительность в {@code http.client.calls}
+     * с тегами сервиса, метода, шаблона пути и результата вызова
+     */
+    private <T> T execute(HttpMethod method,
+                          String path,
+                          Object body,
+                          Class<T> responseType,
+                          boolean idempotent,
+                          Object... uriVariables) {
+        long startedAt = System.nanoTime();
+        String outcome = "UNKNOWN";
+        try {
+            T response = executeWithRetries(method, path, body, responseType, idempotent, uriVariables);
+            outcome = "SUCCESS";
+            return response;
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            Timer.builder("http.client.calls")
+                    .tag("service", serviceName)
+                    .tag("method", method.name())
+                    .tag("endpoint", path)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private <T> T executeWithRetries(HttpMethod method,
+                                     String path,
+                                     Object body,
+                                     Class<T> responseType,
+                                     boolean idempotent,
+                                     Object... uriVariables) {
+        long deadline = System.nanoTime() + serviceProperty.getCallTimeout().toNanos();
+        retryBudget.onRequest();
+        boolean hedged = method == HttpMethod.GET && serviceProperty.getHedgeDelay() != null;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return hedged
+                        ? exchangeHedged(path, responseType, uriVariables)
+                        : exchange(choose(null), method, path, body, responseType, uriVariables);
+            } catch (HttpServerErrorException | ResourceAccessException e) {
+                long backoff = backoff(attempt);
+                if (!isRetryable(e, idempotent)
+                        || attempt >= serviceProperty.getRetry().getMaxAttempts()
+                        || System.nanoTime() + backoff >= deadline) {
+                    throw e;
+                }
+                if (!retryBudget.tryRetry()) {
+                    retriesRejected.increment();
+                    throw e;
+                }
+                retries.increment();
+                log.debug("Повтор {} обращения к {} {} через {} мс", attempt, serviceName, path,
+                        TimeUnit.NANOSECONDS.toMillis(backoff));
+                sleep(backoff);
+            }
+        }
+    }
+
+    private <T> T exchange(Instance instance,
+                           HttpMethod method,
+                           String path,
+                           Object body,
+                           Class<T> responseType,
+                           Object... uriVariables) {
+        if (!circuitBreaker.tryAcquire()) {
+            shortCircuited.increment();
+            throw unavailable();
+        }
+
+        URI uri = UriComponentsBuilder.fromUri(instance.getUri())
+                .path(path)
+                .buildAndExpand(uriVariables)
+                .toUri();
+        long startedAt = instance.start();
+        boolean success = false;
+        try {
+            T response = restTemplate.exchange(uri, method, entity(body), responseType).getBody();
+            success = true;
+            return response;
+        } catch (HttpServerErrorException | ResourceAccessException e) {
+            throw e;
+        } catch (RestClientException e) {
+            success = true;                                                     // сервис доступен, ошибка в запросе
+            throw e;
+        } finally {
+            instance.finish(startedAt, success);
+            if (success) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        }
+    }
+
+    private <T> T exchangeHedged(String path, Class<T> responseType, Object... uriVariables) {
+        Instance primary = choose(null);
+        HedgedCall<T> call = new HedgedCall<>(path, responseType, uriVariables);
+        if (!call.launch(primary)) {
+            return exchange(primary, HttpMethod.GET, path, null, responseType, uriVariables);
+        }
+
+        try {
+            try {
+                return call.result.get(serviceProperty.getHedgeDelay().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                Instance secondary = balancer.choose(primary);
+                if (secondary != null && retryBudget.tryRetry() && call.launch(secondary)) {
+                    hedges.increment();
+                }
+            }
+            return call.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ResourceAccessException(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Ожидание ответа прервано");
+        } finally {
+            call.cancel();
+        }
+    }
+
+    private Instance choose(Instance excluded) {
+        Instance instance = balancer.choose(excluded);
+        if (instance == null) {
+            refreshInstances();                                                 // сервис мог зарегистрироваться позже
+            instance = balancer.choose(excluded);
+        }
+        if (instance == null) {
+            throw unavailable();
+        }
+        return instance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpEntity<Object> entity(Object body) {
+        if (body == null) {
+            return null;
+        }
+        if (body instanceof HttpEntity<?> entity) {
+            return (HttpEntity<Object>) entity;                                // заголовки заданы вызывающим
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(body, headers);
+    }
+
+    private static boolean isRetryable(RestClientException e, boolean idempotent) {
+        if (idempotent) {
+            return true;
+        }
+        // Запрос не был отправлен, если не удалось установить соединение
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String outcome(RuntimeException e) {
+        if (e instanceof HttpClientErrorException) {
+            return "CLIENT_ERROR";
+        }
+        if (e instanceof HttpServerErrorException) {
+            return "SERVER_ERROR";
+        }
+        if (e instanceof ResourceAccessException) {
+            return "IO_ERROR";
+        }
+        if (e instanceof ServiceUnavailableException) {
+            return "UNAVAILABLE";
+        }
+        return "UNKNOWN";
+    }
+
+    private long backoff(int attempt) {
+        long initial = serviceProperty.getRetry().getInitialBackoff().toNanos();
+        long max = serviceProperty.getRetry().getMaxBackoff().toNanos();
+        long ceiling = Math.min(max, initial << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);              // пауза со случайным разбросом от 0
+    }
+
+    private ServiceUnavailableException unavailable() {
+        return new ServiceUnavailableException(
+                "SERVICE_UNAVAILABLE",
+                serviceName + " сервис недоступен"
+        );
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Ожидание повтора прервано");
+        }
+    }
+
+    /**
+     * GET-запрос, отправленный на один или несколько экземпляров: результат - первый успешный ответ,
+     * ошибка - только если ошибкой завершились все запросы
+     */
+    private class HedgedCall<T> {
+
+        private final String path;
+        private final Class<T> responseType;
+        private final Object[] uriVariables;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final List<Future<?>> tasks = new CopyOnWriteArrayList<>();
+        private volatile RuntimeException failure;
+
+        HedgedCall(String path, Class<T> responseType, Object[] uriVariables) {
+            this.path = path;
+            this.responseType = responseType;
+            this.uriVariables = uriVariables;
+        }
+
+        boolean launch(Instance instance) {
+            running.incrementAndGet();
+            try {
+                tasks.add(hedgeExecutor.submit(() -> {
+                    try {
+                        result.complete(exchange(instance, HttpMethod.GET, path, null, responseType, uriVariables));
+                    } catch (RuntimeException e) {
+                        failure = e;
+                        onFinished();
+                    }
+                }));
+                return true;
+            } catch (RejectedExecutionException e) {
+                onFinished();                                                   // пул занят, запрос не дублируем
+                return false;
+            }
+        }
+
+        private void onFinished() {
+            if (running.decrementAndGet() == 0 && failure != null) {
+                result.completeExceptionally(failure);
+            }
+        }
+
+        void cancel() {
+            // Начатые запросы не прерываются: они завершатся по таймауту и будут учтены в статистике экземпляра
+            tasks.forEach(task -> task.cancel(false));
+        }
+    }
+}
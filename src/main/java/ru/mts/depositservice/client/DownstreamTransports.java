@@ -0,0 +1,228 @@
+package ru.mts.depositservice.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriTemplate;
+import ru.mts.depositservice.property.HttpClientProperty;
+import ru.mts.depositservice.property.HttpClientProperty.ServiceProperty;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Создает {@link DownstreamTransport} для сервисов, зарегистрированных в Eureka.
+ * <p>
+ * Для каждого сервиса создается собственный пул соединений, чтобы медленный сервис не занимал соединения,
+ * нужные для обращений к остальным. Размер пула, таймауты и время ожидания ответа для отдельных эндпоинтов
+ * задаются в {@code app.http.services.<имя сервиса>}. Списки экземпляров сервисов обновляются из Eureka
+ * каждые {@code app.http.refresh-interval}
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DownstreamTransports {
+
+    private final DiscoveryClient discoveryClient;
+    private final HttpClientProperty httpClientProperty;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, DownstreamTransport> transports = new ConcurrentHashMap<>();
+    private final List<CloseableHttpClient> httpClients = new CopyOnWriteArrayList<>();
+
+    private ExecutorService hedgeExecutor;
+
+    /**
+     * Создает пул потоков для GET-запросов с дублированием. Очереди нет: если все потоки заняты,
+     * запрос выполняется в вызывающем потоке без дублирования
+     */
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        hedgeExecutor = new ThreadPoolExecutor(
+                0, httpClientProperty.getHedgeThreads(),
+                60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "http-hedge-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Возвращает транспорт для обращения к сервису, создавая его при первом вызове
+     *
+     * @param serviceName Имя сервиса в Eureka
+     * @return Транспорт для обращения к сервису
+     */
+    public DownstreamTransport forService(String serviceName) {
+        return transports.computeIfAbsent(serviceName, this::createTransport);
+    }
+
+    /**
+     * Обновляет списки экземпляров всех сервисов, к которым уже были обращения
+     */
+    @Scheduled(fixedDelayString = "${app.http.refresh-interval:PT30S}")
+    public void refreshInstances() {
+        transports.values().forEach(DownstreamTransport::refreshInstances);
+    }
+
+    @PreDestroy
+    void close() {
+        hedgeExecutor.shutdown();
+        for (CloseableHttpClient httpClient : httpClients) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть HTTP-клиент", e);
+            }
+        }
+    }
+
+    private DownstreamTransport createTransport(String serviceName) {
+        ServiceProperty serviceProperty = httpClientProperty.getService(serviceName);
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(serviceProperty.getMaxConnectionsPerRoute())
+                .setMaxConnTotal(serviceProperty.getMaxConnectionsTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(timeout(serviceProperty.getConnectTimeout()))
+                        .setSocketTimeout(timeout(serviceProperty.getReadTimeout()))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, serviceName).bindTo(meterRegistry);
+
+        RequestConfig defaultRequestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(timeout(serviceProperty.getConnectionRequestTimeout()))
+                .setResponseTimeout(timeout(serviceProperty.getReadTimeout()))
+                .build();
+        TimeValue keepAlive = TimeValue.ofMilliseconds(serviceProperty.getKeepAlive().toMillis());
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig)
+                .setKeepAliveStrategy((response, context) -> keepAlive)
+                .evictIdleConnections(keepAlive)
+                .evictExpiredConnections()
+                .disableAutomaticRetries()                                      // повторами управляет DownstreamTransport
+                .build();
+        httpClients.add(httpClient);
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        List<EndpointConfig> endpointConfigs = endpointConfigs(serviceProperty, defaultRequestConfig);
+        requestFactory.setHttpContextFactory((method, uri) -> {
+            RequestConfig requestConfig = requestConfig(endpointConfigs, method.name(), uri.getPath());
+            if (requestConfig == null) {
+                return null;                                                    // настройки клиента по умолчанию
+            }
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(requestConfig);
+            return context;
+        });
+
+        return new DownstreamTransport(
+                serviceName,
+                discoveryClient,
+                new RestTemplate(requestFactory),
+                serviceProperty,
+                hedgeExecutor,
+                meterRegistry
+        );
+    }
+
+    /**
+     * Создает настройки эндпоинтов в порядке проверки: сначала пути без переменных, затем шаблоны с меньшим
+     * количеством переменных и более длинным постоянным началом; при равенстве - эндпоинты с указанным методом.
+     * Поэтому {@code /account/batch} не перекрывается шаблоном {@code /account/{accountId}} независимо от
+     * порядка настроек
+     *
+     * @param serviceProperty      Настройки сервиса
+     * @param defaultRequestConfig Настройки запроса по умолчанию
+     * @return Настройки эндпоинтов в порядке проверки
+     */
+    static List<EndpointConfig> endpointConfigs(ServiceProperty serviceProperty, RequestConfig defaultRequestConfig) {
+        List<EndpointConfig> endpointConfigs = new ArrayList<>();
+        serviceProperty.getEndpoints().forEach((endpoint, readTimeout) -> {
+            int separator = endpoint.indexOf(' ');
+            String path = endpoint.substring(separator + 1).trim();
+            endpointConfigs.add(new EndpointConfig(
+                    separator < 0 ? null : endpoint.substring(0, separator).toUpperCase(Locale.ROOT),
+                    new UriTemplate(path),
+                    path.indexOf('{') < 0 ? path.length() : path.indexOf('{'),
+                    RequestConfig.copy(defaultRequestConfig)
+                            .setResponseTimeout(timeout(readTimeout))
+                            .build()
+            ));
+        });
+        endpointConfigs.sort(Comparator
+                .comparingInt((EndpointConfig config) -> config.template().getVariableNames().size())
+                .thenComparing(EndpointConfig::literalPrefix, Comparator.reverseOrder())
+                .thenComparing(config -> config.method() == null));
+        return endpointConfigs;
+    }
+
+    /**
+     * Возвращает настройки первого подходящего эндпоинта
+     *
+     * @param endpointConfigs Настройки эндпоинтов в порядке проверки
+     * @param method          Метод запроса
+     * @param path            Путь запроса
+     * @return Настройки запроса; {@code null}, если для пути нет настроек
+     */
+    static RequestConfig requestConfig(List<EndpointConfig> endpointConfigs, String method, String path) {
+        for (EndpointConfig endpointConfig : endpointConfigs) {
+            if ((endpointConfig.method() == null || endpointConfig.method().equals(method))
+                    && endpointConfig.template().matches(path)) {
+                return endpointConfig.requestConfig();
+            }
+        }
+        return null;
+    }
+
+    private static Timeout timeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    /**
+     * Настройки запроса для эндпоинта
+     *
+     * @param method        Метод запроса; {@code null} - любой метод
+     * @param template      Шаблон пути
+     * @param literalPrefix Длина постоянного начала шаблона
+     * @param requestConfig Настройки запроса
+     */
+    record EndpointConfig(String method, UriTemplate template, int literalPrefix, RequestConfig requestConfig) {
+    }
+}
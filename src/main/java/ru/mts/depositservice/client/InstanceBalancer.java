@@ -0,0 +1,167 @@
+package ru.mts.depositservice.client;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Выбор экземпляра сервиса для очередного вызова.
+ * <p>
+ * Для каждого экземпляра учитываются количество выполняющихся вызовов и экспоненциально сглаженное время
+ * ответа. Из двух случайно выбранных экземпляров выбирается тот, у которого произведение этих величин меньше:
+ * так медленный или перегруженный экземпляр получает меньше вызовов, а нагрузка не переходит на один самый
+ * быстрый экземпляр целиком. Вызов, завершившийся ошибкой, учитывается со временем ответа не меньше
+ * {@code failurePenalty}. Время ответа экземпляра, к которому давно не обращались, постепенно забывается,
+ * чтобы восстановившийся экземпляр снова начал получать вызовы
+ */
+public class InstanceBalancer {
+
+    private static final double EWMA_WEIGHT = 0.3;                              // вес нового замера времени ответа
+    private static final double DECAY_NANOS = 10_000_000_000.0;                 // время забывания замеров
+
+    private final long failurePenaltyNanos;
+
+    private volatile List<Instance> instances = List.of();
+
+    public InstanceBalancer(long failurePenaltyNanos) {
+        this.failurePenaltyNanos = failurePenaltyNanos;
+    }
+
+    /**
+     * Обновляет список экземпляров, сохраняя статистику тех, что остались в списке
+     *
+     * @param serviceInstances Экземпляры сервиса, полученные из Eureka
+     */
+    public synchronized void update(List<ServiceInstance> serviceInstances) {
+        Map<URI, Instance> current = instances.stream()
+                .collect(Collectors.toMap(Instance::getUri, Function.identity()));
+
+        List<Instance> updated = new ArrayList<>(serviceInstances.size());
+        for (ServiceInstance serviceInstance : serviceInstances) {
+            URI uri = serviceInstance.getUri();
+            if (updated.stream().noneMatch(instance -> instance.getUri().equals(uri))) {
+                updated.add(current.getOrDefault(uri, new Instance(uri)));
+            }
+        }
+        instances = List.copyOf(updated);
+    }
+
+    /**
+     * Выбирает экземпляр для вызова
+     *
+     * @param excluded Экземпляр, который выбирать не следует, если есть другие; может быть {@code null}
+     * @return Выбранный экземпляр или {@code null}, если экземпляров нет
+     */
+    public Instance choose(Instance excluded) {
+        List<Instance> candidates = instances;
+        if (excluded != null && candidates.size() > 1) {
+            candidates = candidates.stream()
+                    .filter(instance -> instance != excluded)
+                    .toList();
+        }
+
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Instance a = candidates.get(first);
+        Instance b = candidates.get(second);
+        return a.score() <= b.score() ? a : b;
+    }
+
+    public List<Instance> getInstances() {
+        return instances;
+    }
+
+    /**
+     * Экземпляр сервиса со статистикой вызовов
+     */
+    public final class Instance {
+
+        private final URI uri;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong latencyNanos = new AtomicLong();               // 0 - ответов еще не было
+        private volatile long measuredAt;
+
+        private Instance(URI uri) {
+            this.uri = uri;
+        }
+
+        public URI getUri() {
+            return uri;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * Возвращает сглаженное время ответа с учетом забывания
+         *
+         * @return Время ответа в наносекундах; 0, если ответов еще не было
+         */
+        public long getLatencyNanos() {
+            return decayed(latencyNanos.get(), System.nanoTime());
+        }
+
+        /**
+         * Фиксирует начало вызова
+         *
+         * @return Время начала вызова для {@link #finish(long, boolean)}
+         */
+        public long start() {
+            outstanding.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        /**
+         * Фиксирует завершение вызова
+         *
+         * @param startedAt Время начала вызова
+         * @param success   {@code false}, если вызов завершился ошибкой сервиса
+         */
+        public void finish(long startedAt, boolean success) {
+            outstanding.decrementAndGet();
+
+            long now = System.nanoTime();
+            long sample = now - startedAt;
+            if (!success) {
+                sample = Math.max(sample, failurePenaltyNanos);
+            }
+            long observed = Math.max(1, sample);
+            latencyNanos.updateAndGet(latency -> {
+                long previous = decayed(latency, now);
+                return previous == 0 ? observed : previous + Math.round(EWMA_WEIGHT * (observed - previous));
+            });
+            measuredAt = now;
+        }
+
+        private double score() {
+            return (double) (getLatencyNanos() + 1) * (outstanding.get() + 1);
+        }
+
+        private long decayed(long latency, long now) {
+            if (latency == 0) {
+                return 0;
+            }
+            return Math.max(1, Math.round(latency * Math.exp(-(now - measuredAt) / DECAY_NANOS)));
+        }
+    }
+}
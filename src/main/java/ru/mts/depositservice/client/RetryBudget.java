@@ -0,0 +1,62 @@
+package ru.mts.depositservice.client;
+
+import ru.mts.depositservice.property.HttpClientProperty.RetryProperty;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Бюджет повторных вызовов одного сервиса.
+ * <p>
+ * Каждый вызов пополняет бюджет на {@code budget-ratio} повтора, кроме того, бюджет пополняется на
+ * {@code min-retries-per-second} повторов в секунду. Повтор расходует один повтор из бюджета. Так количество
+ * повторов ограничено долей от общего числа вызовов, и при отказе сервиса повторы не умножают нагрузку на него
+ */
+public class RetryBudget {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int MAX_BALANCE_SECONDS = 10;                          // запас бюджета в секундах пополнения
+
+    private final RetryProperty property;
+    private final LongSupplier nanoClock;
+    private final double maxBalance;
+
+    private double balance;
+    private long refilledAt;
+
+    public RetryBudget(RetryProperty property) {
+        this(property, System::nanoTime);
+    }
+
+    RetryBudget(RetryProperty property, LongSupplier nanoClock) {
+        this.property = property;
+        this.nanoClock = nanoClock;
+        this.maxBalance = Math.max(1, property.getMinRetriesPerSecond()) * MAX_BALANCE_SECONDS;
+        this.balance = property.getMinRetriesPerSecond();
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * Фиксирует вызов сервиса
+     */
+    public synchronized void onRequest() {
+        balance = Math.min(maxBalance, balance + property.getBudgetRatio());
+    }
+
+    /**
+     * Расходует повтор из бюджета
+     *
+     * @return {@code true}, если повтор разрешен; {@code false}, если бюджет исчерпан
+     */
+    public synchronized boolean tryRetry() {
+        long now = nanoClock.getAsLong();
+        double refill = (double) (now - refilledAt) * property.getMinRetriesPerSecond() / NANOS_PER_SECOND;
+        balance = Math.min(maxBalance, balance + refill);
+        refilledAt = now;
+
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+}
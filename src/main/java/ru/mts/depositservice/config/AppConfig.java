@@ -3,24 +3,46 @@ package ru.mts.depositservice.config;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.web.client.RestTemplate;
+import ru.mts.depositservice.property.FanOutProperty;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 @RequiredArgsConstructor
 public class AppConfig {
     /**
-     * Создает и настраивает бин {@link RestTemplate} с использованием {@link HttpComponentsClientHttpRequestFactory}
+     * Создает пул потоков для параллельного выполнения независимых частей одного запроса
      * <p>
-     * Используется для выполнения HTTP-запросов к внешним сервисам
+     * Пул ограничен {@code app.fan-out.max-concurrency} потоками и очередью {@code app.fan-out.queue-capacity}:
+     * при перегрузке задача отклоняется, а не накапливается. Задачи не используют {@link ThreadLocal} и
+     * блокировки монитора, поэтому пул можно заменить на виртуальные потоки без изменения вызывающего кода
      *
-     * @return Бин {@link RestTemplate}, настроенный для выполнения HTTP-запросов
+     * @param fanOutProperty Настройки параллельного выполнения
+     * @return Бин {@link ExecutorService} для параллельного выполнения частей запроса
      */
-    @Bean
-    RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
-        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
-        restTemplate.setRequestFactory(requestFactory);
-        return restTemplate;
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService fanOutExecutor(FanOutProperty fanOutProperty) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "fan-out-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                fanOutProperty.getMaxConcurrency(),
+                fanOutProperty.getMaxConcurrency(),
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(fanOutProperty.getQueueCapacity()),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 }
@@ -0,0 +1,81 @@
+package ru.mts.depositservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.mts.depositservice.property.ReplicaProperty;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.replica", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    /**
+     * Создает пул соединений с основной базой данных по настройкам {@code spring.datasource}
+     *
+     * @param dataSourceProperties Настройки основной базы данных
+     * @return Пул соединений с основной базой данных
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Создает пул соединений с репликой по настройкам {@code app.replica}. Соединения открываются
+     * только для чтения
+     *
+     * @param replicaProperty Настройки реплики
+     * @return Пул соединений с репликой
+     */
+    @Bean
+    HikariDataSource replicaDataSource(ReplicaProperty replicaProperty) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(replicaProperty.getUrl());
+        dataSource.setUsername(replicaProperty.getUsername());
+        dataSource.setPassword(replicaProperty.getPassword());
+        dataSource.setMaximumPoolSize(replicaProperty.getMaxPoolSize());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    ReplicationLagMonitor replicationLagMonitor(HikariDataSource replicaDataSource, ReplicaProperty replicaProperty) {
+        return new ReplicationLagMonitor(replicaDataSource, replicaProperty);
+    }
+
+    /**
+     * Создает источник данных приложения, который направляет read-only транзакции на реплику
+     * ({@link ReplicaRoutingDataSource}). Соединение берется при первом запросе в транзакции, когда уже
+     * известно, что транзакция read-only
+     *
+     * @return Основной бин {@link DataSource}
+     */
+    @Bean
+    @Primary
+    DataSource dataSource(HikariDataSource primaryDataSource,
+                          HikariDataSource replicaDataSource,
+                          ReplicationLagMonitor replicationLagMonitor) {
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(replicationLagMonitor);
+        routingDataSource.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Target.PRIMARY, primaryDataSource,
+                ReplicaRoutingDataSource.Target.REPLICA, replicaDataSource
+        ));
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.mts.depositservice.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Направляет соединения read-only транзакций на реплику, остальные - на основную базу данных.
+ * <p>
+ * Реплика не используется, пока {@link ReplicationLagMonitor} считает ее отставание недопустимым, и внутри
+ * {@link #onPrimary(Supplier)}. Решение принимается при получении соединения, поэтому источник данных должен
+ * быть обернут в {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: иначе
+ * соединение берется в начале транзакции, до того как известно, что она read-only
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private final ReplicationLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(ReplicationLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    /**
+     * Выполняет чтение на основной базе данных, даже если оно выполняется в read-only транзакции
+     *
+     * @param read Чтение
+     * @return Результат чтения
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            } else {
+                PRIMARY_FORCED.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (PRIMARY_FORCED.get() == null
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && lagMonitor.isReplicaUsable()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+}
@@ -0,0 +1,88 @@
+package ru.mts.depositservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import ru.mts.depositservice.property.ReplicaProperty;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Следит за отставанием реплики от основной базы данных.
+ * <p>
+ * Отставание - время с момента последней примененной на реплике транзакции; если реплика применила весь
+ * полученный журнал, отставание считается нулевым, чтобы простой основной базы не выглядел как отставание.
+ * Применение всего полученного журнала означает актуальность реплики, только пока она получает журнал
+ * от основной базы: если процесс получения журнала не находится в состоянии {@code streaming}, отставание
+ * считается неизвестным (без роли {@code pg_read_all_stats} состояние не видно, и проверяется только наличие
+ * процесса получения журнала). Реплика используется для чтения, пока отставание не превышает
+ * {@code app.replica.max-lag}; реплика, которая не отвечает или потеряла связь с основной базой, не используется
+ * до следующей успешной проверки
+ */
+@Slf4j
+public class ReplicationLagMonitor {
+
+    private static final String REPLICATION_LAG = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() THEN 0
+                       WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver
+                                        WHERE coalesce(status, 'streaming') = 'streaming') THEN NULL
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE coalesce(extract(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END
+            """;
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final ReplicaProperty replicaProperty;
+
+    private volatile boolean replicaUsable;
+
+    public ReplicationLagMonitor(DataSource replicaDataSource, ReplicaProperty replicaProperty) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.replicaProperty = replicaProperty;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * Проверяет отставание реплики
+     */
+    @Scheduled(fixedDelayString = "${app.replica.lag-check-interval:PT1S}")
+    public void check() {
+        Duration lag;
+        try {
+            Double seconds = replicaJdbcTemplate.queryForObject(REPLICATION_LAG, Double.class);
+            if (seconds == null) {
+                log.warn("Реплика не получает журнал от основной базы данных, отставание неизвестно");
+                lag = null;
+            } else {
+                lag = Duration.ofMillis(Math.round(seconds * 1000));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось проверить отставание реплики: {}", e.getMessage());
+            lag = null;
+        }
+        record(lag);
+    }
+
+    /**
+     * Обновляет доступность реплики по измеренному отставанию
+     *
+     * @param lag Отставание реплики; {@code null}, если реплика не ответила или не получает журнал
+     */
+    void record(Duration lag) {
+        boolean usable = lag != null && lag.compareTo(replicaProperty.getMaxLag()) <= 0;
+        if (usable != replicaUsable) {
+            if (usable) {
+                log.info("Чтение переключено на реплику, отставание {}", lag);
+            } else {
+                log.warn("Чтение переключено на основную базу данных, отставание реплики {}",
+                        lag == null ? "неизвестно" : lag);
+            }
+        }
+        replicaUsable = usable;
+    }
+}
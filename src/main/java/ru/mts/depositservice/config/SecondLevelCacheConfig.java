@@ -0,0 +1,73 @@
+package ru.mts.depositservice.config;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.mts.depositservice.property.SecondLevelCacheProperty;
+import ru.mts.depositservice.property.SecondLevelCacheProperty.RegionProperty;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.Map;
+import java.util.UUID;
+
+@Configuration
+public class SecondLevelCacheConfig {
+
+    /**
+     * Создает кэши второго уровня Hibernate по настройкам {@code app.second-level-cache.regions}.
+     * <p>
+     * Каждый регион ограничен {@code max-entries} записями в куче; при переполнении вытесняются записи,
+     * к которым давно не обращались. Hibernate не создает регионы сам ({@code missing_cache_strategy: fail}),
+     * поэтому регион без настроек обнаруживается при старте, а не становится неограниченным кэшем
+     *
+     * @param cacheProperty Настройки регионов
+     * @return Бин {@link CacheManager} с регионами кэша второго уровня
+     */
+    @Bean(destroyMethod = "close")
+    CacheManager secondLevelCacheManager(SecondLevelCacheProperty cacheProperty) {
+        EhcacheCachingProvider provider =
+                (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        // Отдельный URI, чтобы несколько контекстов в одной JVM (например, в тестах) не делили регионы
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("urn:deposit-service:second-level-cache:" + UUID.randomUUID()),
+                new DefaultConfiguration(SecondLevelCacheConfig.class.getClassLoader())
+        );
+
+        for (Map.Entry<String, RegionProperty> region : cacheProperty.getRegions().entrySet()) {
+            RegionProperty regionProperty = region.getValue();
+            CacheConfigurationBuilder<Object, Object> configuration = CacheConfigurationBuilder
+                    .newCacheConfigurationBuilder(
+                            Object.class,
+                            Object.class,
+                            ResourcePoolsBuilder.heap(regionProperty.getMaxEntries())
+                    )
+                    .withExpiry(regionProperty.getTtl() == null
+                            ? ExpiryPolicyBuilder.noExpiration()
+                            : ExpiryPolicyBuilder.timeToLiveExpiration(regionProperty.getTtl()));
+
+            cacheManager.createCache(region.getKey(), Eh107Configuration.fromEhcacheCacheConfiguration(configuration));
+            cacheManager.enableStatistics(region.getKey(), regionProperty.isStatistics());
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Передает Hibernate {@link CacheManager} с настроенными регионами вместо создания собственного
+     *
+     * @param secondLevelCacheManager Регионы кэша второго уровня
+     * @return Бин {@link HibernatePropertiesCustomizer}
+     */
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+}
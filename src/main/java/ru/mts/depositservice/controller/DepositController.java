@@ -3,12 +3,16 @@ package ru.mts.depositservice.controller;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.mts.depositservice.entity.Deposit;
-import ru.mts.depositservice.entity.Request;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.mts.depositservice.model.*;
+import ru.mts.depositservice.service.BulkDepositOpeningService;
+import ru.mts.depositservice.service.CustomerPortfolioService;
+import ru.mts.depositservice.service.DepositOverviewService;
 import ru.mts.depositservice.service.DepositService;
+import ru.mts.depositservice.service.RateCardService;
 import ru.mts.depositservice.service.RequestConfirmationService;
 import ru.mts.depositservice.service.RequestService;
 
@@ -20,9 +24,15 @@ import java.util.List;
 @RequestMapping("/deposit")
 public class DepositController {
 
+    public static final String CHANNEL_TOKEN = "X-Channel-Token";
+
     private final DepositService depositService;
     private final RequestService requestService;
     private final RequestConfirmationService confirmationService;
+    private final DepositOverviewService depositOverviewService;
+    private final CustomerPortfolioService portfolioService;
+    private final BulkDepositOpeningService bulkOpeningService;
+    private final RateCardService rateCardService;
 
     /**
      * Обрабатывает запрос пользователя для вычисления процентной ставки
@@ -38,6 +48,35 @@ public class DepositController {
         return ResponseEntity.ok(rate);
     }
 
+    /**
+     * Возвращает таблицу процентных ставок по всем условиям вклада.
+     * <p>
+     * Ответ кешируется клиентом и CDN: {@code ETag} совпадает с версией таблицы, которая меняется вместе
+     * с базовой ставкой, поэтому на запрос с {@code If-None-Match} той же версии возвращается 304 без тела
+     *
+     * @return Таблица ставок
+     */
+    @GetMapping("/rates")
+    public ResponseEntity<RateCard> showRateCard() {
+        RateCard rateCard = rateCardService.getRateCard();
+
+        return ResponseEntity.ok()
+                .eTag(rateCard.getVersion())
+                .cacheControl(rateCardService.getCacheControl())
+                .body(rateCard);
+    }
+
+    /**
+     * Рассчитывает процентные ставки для нескольких вариантов вклада одним запросом
+     *
+     * @param requests Условия вкладов
+     * @return Процентные ставки в порядке запросов
+     */
+    @PostMapping("/check/batch")
+    public ResponseEntity<List<BigDecimal>> checkDepositTermsBatch(@RequestBody List<OpenDepositRequest> requests) {
+        return ResponseEntity.ok(rateCardService.quote(requests));
+    }
+
     /**
      * Обрабатывает запрос пользователя по созданию заявки для открытия вклада:
      * <div>
@@ -66,6 +105,7 @@ public class DepositController {
      *     <li>перевод денежной суммы со счета на открытий вклад (при достаточном количестве денежной суммы)</li>
      *   </ul>
      * </div>
+     * Повтор запроса с тем же заголовком {@code Idempotency-Key} получает ответ первого запроса ({@link IdempotencyFilter})
      *
      * @param openDepositRequest Объект запроса с данными для подтверждения открытия вклада
      * @return Ответ на подтверждение заявки
@@ -77,6 +117,28 @@ public class DepositController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    /**
+     * Открывает пачку вкладов без подтверждения кодом по запросу доверенного канала.
+     * <p>
+     * Запросы проверяются все сразу; запросы, не прошедшие проверку, не прерывают открытие остальных вкладов.
+     * Результат возвращается для каждого запроса в порядке запросов. Повтор с тем же ключом идемпотентности
+     * возвращает результаты уже созданных заявок
+     *
+     * @param channelToken        Токен канала
+     * @param idempotencyKey      Ключ идемпотентности пачки
+     * @param openDepositRequests Запросы на открытие вкладов
+     * @return Результаты открытия вкладов
+     */
+    @PostMapping("/open/batch")
+    public ResponseEntity<BulkOpeningResponse> openDeposits(
+            @RequestHeader(name = CHANNEL_TOKEN, required = false) String channelToken,
+            @RequestHeader(name = IdempotencyFilter.IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestBody List<OpenDepositRequest> openDepositRequests) {
+        BulkOpeningResponse response = bulkOpeningService.openDeposits(channelToken, idempotencyKey, openDepositRequests);
+
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Обрабатывает запрос пользователя, который отображает список его открытых вкладов
      * и отклоненных заявок
@@ -86,15 +148,66 @@ public class DepositController {
      */
     @GetMapping("/{customerId}")
     public ResponseEntity<DepositAccountResponse> showDepositsAndRejectedRequests(@PathVariable Integer customerId) {
-        DepositAccountResponse depositAccountResponse = new DepositAccountResponse();
+        DepositAccountResponse depositAccountResponse = depositOverviewService.findDepositsAndRejectedRequests(customerId);
+
+        return new ResponseEntity<>(depositAccountResponse, HttpStatus.FOUND);
+    }
+
+    /**
+     * Возвращает страницу вкладов клиента
+     *
+     * @param customerId Идентификатор клиента
+     * @param afterId    Значение {@code nextAfterId} из предыдущей страницы; не задается для первой страницы
+     * @param limit      Размер страницы
+     * @return Страница вкладов
+     */
+    @GetMapping(value = "/{customerId}/deposits", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<PortfolioPage<DepositView>> showDepositsPage(@PathVariable Integer customerId,
+                                                                       @RequestParam(required = false) Integer afterId,
+                                                                       @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(portfolioService.findDepositsPage(customerId, afterId, limit));
+    }
 
-        List<Request> requests = requestService.findRejectedRequests(customerId);
-        List<Deposit> deposits = depositService.findOpenedDeposits(customerId);
+    /**
+     * Возвращает все вклады клиента потоком NDJSON: по одному вкладу в строке, по мере чтения из базы
+     *
+     * @param customerId Идентификатор клиента
+     * @return Поток вкладов
+     */
+    @GetMapping(value = "/{customerId}/deposits", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDeposits(@PathVariable Integer customerId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(output -> portfolioService.streamDeposits(customerId, output));
+    }
 
-        depositAccountResponse.setRejectedRequests(requests);
-        depositAccountResponse.setDepositList(deposits);
+    /**
+     * Возвращает страницу отклоненных заявок клиента
+     *
+     * @param customerId Идентификатор клиента
+     * @param afterId    Значение {@code nextAfterId} из предыдущей страницы; не задается для первой страницы
+     * @param limit      Размер страницы
+     * @return Страница отклоненных заявок
+     */
+    @GetMapping(value = "/{customerId}/rejected-requests", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<PortfolioPage<RejectedRequestView>> showRejectedRequestsPage(
+            @PathVariable Integer customerId,
+            @RequestParam(required = false) Integer afterId,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(portfolioService.findRejectedRequestsPage(customerId, afterId, limit));
+    }
 
-        return new ResponseEntity<>(depositAccountResponse, HttpStatus.FOUND);
+    /**
+     * Возвращает все отклоненные заявки клиента потоком NDJSON
+     *
+     * @param customerId Идентификатор клиента
+     * @return Поток отклоненных заявок
+     */
+    @GetMapping(value = "/{customerId}/rejected-requests", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRejectedRequests(@PathVariable Integer customerId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(output -> portfolioService.streamRejectedRequests(customerId, output));
     }
 
     /**
@@ -104,11 +217,13 @@ public class DepositController {
      *     <li>высылается СМС сообщение с кодом подтверждения (оно выводится в консоль)</li>
      *   </ul>
      * </div>
+     *
+     * @param requestId Идентификатор заявки, по которой был открыт вклад
      */
     @GetMapping("/refill")
     @ResponseStatus(HttpStatus.OK)
-    public void requestRefillDepositAccount() {
-        requestService.refillRequest();
+    public void requestRefillDepositAccount(@RequestParam Integer requestId) {
+        requestService.refillRequest(requestId);
     }
 
     /**
@@ -119,6 +234,7 @@ public class DepositController {
      *     <li>перевод денежной суммы со счета на открытий вклад (при достаточном количестве денежной суммы)</li>
      *   </ul>
      * </div>
+     * Повтор запроса с тем же заголовком {@code Idempotency-Key} получает ответ первого запроса ({@link IdempotencyFilter})
      *
      * @param refillDepositRequest Объект запроса с данными для пополнения вклада
      * @return Ответ на пополнение вклада
@@ -137,11 +253,13 @@ public class DepositController {
      *     <li>высылается СМС сообщение с кодом подтверждения (оно выводится в консоль)</li>
      *   </ul>
      * </div>
+     *
+     * @param requestId Идентификатор заявки, по которой был открыт вклад
      */
     @GetMapping("/close")
     @ResponseStatus(HttpStatus.OK)
-    public void applicationForClosingDepositAccount() {
-        requestService.closeRequest();
+    public void applicationForClosingDepositAccount(@RequestParam Integer requestId) {
+        requestService.closeRequest(requestId);
     }
 
     /**
@@ -152,6 +270,7 @@ public class DepositController {
      *     <li>перевод всей денежной суммы с вклада на банковский счет</li>
      *   </ul>
      * </div>
+     * Повтор запроса с тем же заголовком {@code Idempotency-Key} получает ответ первого запроса ({@link IdempotencyFilter})
      *
      * @param closeDepositRequest Объект запроса с данными для закрытия вклада
      */
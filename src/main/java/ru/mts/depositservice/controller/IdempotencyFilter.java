@@ -0,0 +1,204 @@
+package ru.mts.depositservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.exception.IdempotencyKeyException;
+import ru.mts.depositservice.model.ExceptionData;
+import ru.mts.depositservice.model.ExceptionResponse;
+import ru.mts.depositservice.model.IdempotentResponse;
+import ru.mts.depositservice.property.IdempotencyProperty;
+import ru.mts.depositservice.service.IdempotencyService;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Обрабатывает заголовок {@code Idempotency-Key} на эндпоинтах подтверждения заявок.
+ * <p>
+ * Запрос с ключом выполняется один раз: повторы получают сохраненный ответ первого запроса с заголовком
+ * {@code Idempotent-Replayed: true}. Ответы со статусом 5xx и запросы, завершившиеся исключением, не
+ * сохраняются, чтобы повтор выполнил запрос заново. Запросы без заголовка обрабатываются как обычно.
+ * Если ответ не удалось сохранить, клиент все равно получает его, а ключ остается занятым до истечения аренды
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final Map<String, ConfirmationOperationEnum> CONFIRM_ENDPOINTS = Map.of(
+            "/deposit/open/confirm", ConfirmationOperationEnum.OPEN,
+            "/deposit/refill/confirm", ConfirmationOperationEnum.REFILL,
+            "/deposit/close/confirm", ConfirmationOperationEnum.CLOSE
+    );
+
+    private final IdempotencyService idempotencyService;
+    private final IdempotencyProperty idempotencyProperty;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || request.getHeader(IDEMPOTENCY_KEY) == null
+                || operation(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ConfirmationOperationEnum operation = operation(request);
+        String key = request.getHeader(IDEMPOTENCY_KEY);
+        if (key.isBlank() || key.length() > idempotencyProperty.getMaxKeyLength()) {
+            writeError(response, HttpStatus.BAD_REQUEST, new IdempotencyKeyException(
+                    "INVALID_IDEMPOTENCY_KEY",
+                    "Длина заголовка " + IDEMPOTENCY_KEY + " должна быть от 1 до " + idempotencyProperty.getMaxKeyLength()
+            ));
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        String fingerprint = IdempotencyService.fingerprint(body);
+
+        Optional<IdempotentResponse> stored;
+        try {
+            stored = idempotencyService.acquire(operation, key, fingerprint);
+        } catch (IdempotencyKeyException e) {
+            writeError(response, IdempotencyService.KEY_IN_PROGRESS.equals(e.getCode())
+                    ? HttpStatus.CONFLICT
+                    : HttpStatus.UNPROCESSABLE_ENTITY, e);
+            return;
+        }
+        if (stored.isPresent()) {
+            replay(response, stored.get());
+            return;
+        }
+
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), responseWrapper);
+        } catch (IOException | ServletException | RuntimeException e) {
+            idempotencyService.release(operation, key);
+            throw e;
+        }
+
+        try {
+            if (responseWrapper.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                idempotencyService.release(operation, key);
+            } else {
+                idempotencyService.complete(operation, key, new IdempotentResponse(
+                        fingerprint,
+                        responseWrapper.getStatus(),
+                        responseWrapper.getContentType(),
+                        responseWrapper.getContentAsByteArray()
+                ));
+            }
+        } catch (RuntimeException e) {
+            // Запрос уже выполнен, поэтому клиент должен получить ответ, даже если его не удалось сохранить
+            log.error("Не удалось сохранить ответ для ключа идемпотентности {} операции {}", key, operation, e);
+        }
+        responseWrapper.copyBodyToResponse();
+    }
+
+    private static ConfirmationOperationEnum operation(HttpServletRequest request) {
+        return CONFIRM_ENDPOINTS.get(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    private static void replay(HttpServletResponse response, IdempotentResponse stored) throws IOException {
+        response.setStatus(stored.getStatus());
+        response.setHeader(IDEMPOTENT_REPLAYED, "true");
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        if (stored.getBody() != null && stored.getBody().length > 0) {
+            response.setContentLength(stored.getBody().length);
+            response.getOutputStream().write(stored.getBody());
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, IdempotencyKeyException e)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(
+                response.getOutputStream(),
+                new ExceptionResponse<>(new ExceptionData(e.getCode(), e.getMessage()))
+        );
+    }
+
+    /**
+     * Запрос, тело которого уже прочитано для вычисления хэша
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // Тело уже в памяти: все данные доступны сразу
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
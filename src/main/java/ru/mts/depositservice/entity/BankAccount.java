@@ -4,18 +4,23 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "bank-accounts")
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "bank_accounts", schema = "public")
 public class BankAccount {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bank_accounts_id_bank_account_seq")
+    @SequenceGenerator(name = "bank_accounts_id_bank_account_seq", sequenceName = "bank_accounts_id_bank_account_seq", allocationSize = 50)
     @Column(name = "id_bank_account")
     private Integer id;
 
@@ -3,19 +3,28 @@ package ru.mts.depositservice.entity;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 
+/**
+ * Запись истории статусов заявки.
+ * <p>
+ * Идентификатор записи задается при создании, поэтому {@link Persistable#isNew()} определяется не по
+ * идентификатору, а по тому, была ли запись сохранена или загружена: новая запись сохраняется через
+ * {@code persist} без предварительного чтения и попадает в пакетную вставку
+ */
 @Data
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "current_request_status", schema = "public")
-public class CurrentRequestStatus {
+public class CurrentRequestStatus implements Persistable<CurrentRequestStatusKey> {
 
     @EmbeddedId
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private CurrentRequestStatusKey id;
 
     @MapsId(value = "requestId")
@@ -30,4 +39,20 @@ public class CurrentRequestStatus {
 
     @Column(name = "change_datetime")
     private LocalDateTime updateTime;
+
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;                              // запись сохранена или загружена из базы данных
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
@@ -4,16 +4,21 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customers")
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "customers", schema = "public")
 public class Customer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customers_id_customer_seq")
+    @SequenceGenerator(name = "customers_id_customer_seq", sequenceName = "customers_id_customer_seq", allocationSize = 50)
     @Column(name = "id_customer")
     private Integer id;
 
@@ -16,7 +16,8 @@ import java.time.LocalDate;
 public class Deposit {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "deposits_id_deposit_seq")
+    @SequenceGenerator(name = "deposits_id_deposit_seq", sequenceName = "deposits_id_deposit_seq", allocationSize = 50)
     @Column(name = "id_deposit")
     private Integer id;
 
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Date;
 
 @Data
@@ -16,7 +17,8 @@ import java.util.Date;
 public class Request {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "requests_id_request_seq")
+    @SequenceGenerator(name = "requests_id_request_seq", sequenceName = "requests_id_request_seq", allocationSize = 50)
     @Column(name = "id_request")
     private Integer id;
 
@@ -33,4 +35,10 @@ public class Request {
     @OneToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "deposit_id")
     private Deposit deposit;
+
+    @Column(name = "current_status_id")
+    private Integer currentStatusId;                        // последний статус из current_request_status
+
+    @Column(name = "current_status_changed_at")
+    private LocalDateTime currentStatusChangedAt;
 }
@@ -4,10 +4,14 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "percent-payment-types")
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "types_percent_payment", schema = "public")
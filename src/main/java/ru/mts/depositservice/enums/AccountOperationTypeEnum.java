@@ -0,0 +1,7 @@
+package ru.mts.depositservice.enums;
+
+public enum AccountOperationTypeEnum {
+    CHECK,          // проверка достаточности средств
+    WITHDRAW,       // списание со счета
+    REFILL          // пополнение счета
+}
@@ -0,0 +1,8 @@
+package ru.mts.depositservice.enums;
+
+public enum BulkOpeningStatusEnum {
+    OPENED,         // вклад открыт
+    REJECTED,       // заявка отклонена: на счете недостаточно денег или списание отклонено
+    INVALID,        // запрос не прошел проверку, заявка не создана
+    FAILED          // вклад не открыт из-за ошибки; заявка, если создана, будет сверена или отменена
+}
@@ -0,0 +1,7 @@
+package ru.mts.depositservice.enums;
+
+public enum ConfirmationOperationEnum {
+    OPEN,       // открытие вклада
+    REFILL,     // пополнение вклада
+    CLOSE       // закрытие вклада
+}
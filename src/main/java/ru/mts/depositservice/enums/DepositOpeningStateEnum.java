@@ -0,0 +1,11 @@
+package ru.mts.depositservice.enums;
+
+public enum DepositOpeningStateEnum {
+    CONFIRMED,      // заявка подтверждена кодом, деньги не списаны
+    WITHDRAWING,    // заявка одобрена, отправлено списание со счета
+    WITHDRAWN,      // деньги списаны, вклад еще не создан
+    COMPLETED,      // вклад открыт
+    REJECTED,       // заявка отклонена, деньги не списаны
+    COMPENSATING,   // вклад не создан, деньги возвращаются на счет
+    COMPENSATED     // деньги возвращены на счет, заявка отклонена
+}
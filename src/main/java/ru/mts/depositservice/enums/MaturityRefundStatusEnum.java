@@ -0,0 +1,7 @@
+package ru.mts.depositservice.enums;
+
+public enum MaturityRefundStatusEnum {
+    PENDING,        // вклад закрыт, деньги еще не возвращены или результат возврата неизвестен
+    REFUNDED,       // деньги возвращены на счет
+    FAILED          // account-service отказал в возврате, требуется разбор вручную
+}
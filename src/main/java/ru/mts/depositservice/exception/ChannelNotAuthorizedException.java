@@ -0,0 +1,7 @@
+package ru.mts.depositservice.exception;
+
+public class ChannelNotAuthorizedException extends CustomException {
+    public ChannelNotAuthorizedException(String code, String message) {
+        super(code, message);
+    }
+}
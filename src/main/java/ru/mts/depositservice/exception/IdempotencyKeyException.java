@@ -0,0 +1,7 @@
+package ru.mts.depositservice.exception;
+
+public class IdempotencyKeyException extends CustomException {
+    public IdempotencyKeyException(String code, String message) {
+        super(code, message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.mts.depositservice.exception;
+
+public class ServiceUnavailableException extends CustomException {
+    public ServiceUnavailableException(String code, String message) {
+        super(code, message);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountOperation {
+    private String operationId;
+    private AccountOperationTypeEnum type;
+    private Integer accountId;
+    private BigDecimal money;
+}
@@ -0,0 +1,14 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountOperationResult {
+    private String operationId;
+    private boolean success;        // для проверки - достаточно ли средств
+    private String message;
+}
@@ -0,0 +1,21 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ответ на открытие пачки вкладов: результаты в порядке запросов и их количество по статусам
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOpeningResponse {
+    private int opened;
+    private int rejected;
+    private int invalid;
+    private int failed;
+    private List<BulkOpeningResult> results;
+}
@@ -0,0 +1,26 @@
+package ru.mts.depositservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.mts.depositservice.enums.BulkOpeningStatusEnum;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат открытия одного вклада из пачки
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkOpeningResult {
+    private int index;                      // позиция запроса в пачке
+    private BulkOpeningStatusEnum status;
+    private Integer requestId;              // нет - заявка не создана
+    private Integer depositId;
+    private BigDecimal percentageRate;
+    private String errorCode;
+    private String message;
+}
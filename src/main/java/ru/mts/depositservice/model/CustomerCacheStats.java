@@ -0,0 +1,13 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CustomerCacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private int size;
+}
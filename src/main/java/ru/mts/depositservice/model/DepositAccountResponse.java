@@ -1,13 +1,14 @@
 package ru.mts.depositservice.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
-import ru.mts.depositservice.entity.Deposit;
-import ru.mts.depositservice.entity.Request;
 
 import java.util.List;
 
 @Data
 public class DepositAccountResponse {
-    private List<Deposit> depositList;
-    private List<Request> rejectedRequests;
+    private List<DepositView> depositList;
+    private List<RejectedRequestView> rejectedRequests;
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> unavailableParts;                  // части ответа, не полученные вовремя
 }
@@ -0,0 +1,51 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositOpeningStateEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+
+import java.math.BigDecimal;
+
+/**
+ * Состояние открытия вклада по заявке.
+ * <p>
+ * Хранит выбранные клиентом условия вклада, чтобы незавершенное открытие можно было довести до конца
+ * или отменить без исходного запроса клиента
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepositOpeningSaga {
+    private Integer requestId;
+    private Integer customerId;
+    private DepositOpeningStateEnum state;
+    private DepositTypeEnum depositType;
+    private DepositDurationEnum duration;
+    private boolean capitalized;
+    private PercentPaymentTypeEnum percentPaymentType;
+    private BigDecimal amount;
+    private Integer depositId;
+    private int attempts;                   // количество попыток восстановления
+    private String lastError;
+
+    /**
+     * Восстанавливает запрос на открытие вклада по сохраненным условиям
+     *
+     * @return Запрос на открытие вклада
+     */
+    public OpenDepositRequest toOpenDepositRequest() {
+        OpenDepositRequest openRequest = new OpenDepositRequest();
+        openRequest.setRequestId(requestId);
+        openRequest.setDepositAmount(amount);
+        openRequest.setCustomerId(customerId);
+        openRequest.setDepositType(depositType);
+        openRequest.setDuration(duration);
+        openRequest.setIsCapitalized(capitalized);
+        openRequest.setPercentPaymentType(percentPaymentType);
+        return openRequest;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Вклад в сводке по вкладам клиента: только поля, которые отдаются клиенту
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepositView {
+    private Integer id;
+    private DepositTypeEnum depositType;
+    private boolean depositRefill;
+    private boolean depositWithdraw;
+    private boolean capitalization;
+    private BigDecimal depositAmount;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private BigDecimal depositRate;
+    private LocalDate percentPaymentDate;
+    private PercentPaymentTypeEnum percentPaymentType;
+    private BigDecimal depositAccountNumber;
+    private BigDecimal percentPaymentAccountNumber;
+    private BigDecimal depositRefundAccountNumber;
+}
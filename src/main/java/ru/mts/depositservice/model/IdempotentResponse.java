@@ -0,0 +1,22 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ответ на запрос с заголовком {@code Idempotency-Key}, сохраненный для повторов
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotentResponse {
+    private String fingerprint;             // SHA-256 тела запроса
+    private Integer status;                 // null, пока первый запрос выполняется
+    private String contentType;
+    private byte[] body;
+
+    public boolean isCompleted() {
+        return status != null;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Вклад, по которому наступила дата выплаты процентов.
+ * <p>
+ * Содержит только поля, необходимые для расчёта и перевода процентов
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InterestPayout {
+    private Integer depositId;
+    private BigDecimal depositAmount;
+    private BigDecimal depositRate;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private LocalDate percentPaymentDate;
+    private PercentPaymentTypeEnum percentPaymentType;
+    private Integer percentPaymentAccountId;
+}
@@ -0,0 +1,22 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Закрытый по окончании срока вклад, деньги с которого возвращаются на счет клиента.
+ * <p>
+ * Содержит только поля, необходимые для возврата денег
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaturedDeposit {
+    private Integer depositId;
+    private Integer customerId;
+    private BigDecimal depositAmount;
+    private Integer refundAccountId;
+}
@@ -0,0 +1,20 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Вклад, срок которого закончился, но который еще не закрыт.
+ * <p>
+ * Содержит только ключ постраничного чтения {@code (end_date, id_deposit)}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaturingDeposit {
+    private Integer depositId;
+    private LocalDate endDate;
+}
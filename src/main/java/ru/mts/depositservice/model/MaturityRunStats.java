@@ -0,0 +1,21 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class MaturityRunStats {
+    private LocalDate closeDate;
+    private long closed;                    // вклады, закрытые за проход
+    private long refunded;                  // возвраты, выполненные за проход, включая отложенные с прошлых проходов
+    private long deferred;                  // возвраты с неизвестным результатом, будут повторены
+    private long failed;                    // возвраты, отклоненные account-service
+    private long chunks;
+    private BigDecimal refundedAmount;
+    private long durationMillis;
+    private double depositsPerSecond;
+}
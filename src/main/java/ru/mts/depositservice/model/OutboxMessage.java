@@ -0,0 +1,24 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+
+import java.math.BigDecimal;
+
+/**
+ * Операция со счетом клиента, ожидающая отправки в {@code account-service}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+    private Long id;
+    private String operationId;             // не меняется между попытками отправки
+    private AccountOperationTypeEnum type;
+    private Integer requestId;
+    private Integer customerId;
+    private BigDecimal amount;
+    private int attempts;                   // количество попыток, включая текущую
+}
@@ -0,0 +1,26 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Позиция, до которой выполнена выплата процентов за день по одному шарду вкладов.
+ * <p>
+ * Пара {@code lastPaymentDate}, {@code lastDepositId} - ключ последнего обработанного вклада
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayoutCheckpoint {
+    private LocalDate payoutDate;
+    private int shard;
+    private LocalDate lastPaymentDate;
+    private Integer lastDepositId;
+    private long processed;
+    private BigDecimal paidAmount;
+    private boolean completed;
+}
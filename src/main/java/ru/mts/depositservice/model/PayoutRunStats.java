@@ -0,0 +1,18 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class PayoutRunStats {
+    private LocalDate payoutDate;
+    private long processed;
+    private long chunks;
+    private BigDecimal paidAmount;
+    private long durationMillis;
+    private double depositsPerSecond;
+}
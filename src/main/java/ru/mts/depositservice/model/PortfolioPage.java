@@ -0,0 +1,20 @@
+package ru.mts.depositservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница списка из сводки по вкладам клиента
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioPage<T> {
+    private List<T> items;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer nextAfterId;            // значение afterId для следующей страницы; нет - страница последняя
+}
@@ -0,0 +1,23 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Таблица процентных ставок по всем условиям вклада.
+ * <p>
+ * Ставка для суммы вклада - ставка строки с теми же условиями, в диапазон суммы которой попадает сумма.
+ * Для сумм вне диапазонов таблицы ставку нужно запрашивать у сервиса
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateCard {
+    private String version;                 // меняется вместе с любой ставкой таблицы
+    private BigDecimal baseRate;
+    private List<RateCardEntry> rates;
+}
@@ -0,0 +1,24 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+
+import java.math.BigDecimal;
+
+/**
+ * Процентная ставка для одного сочетания условий вклада и диапазона суммы
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateCardEntry {
+    private DepositTypeEnum depositType;
+    private DepositDurationEnum duration;
+    private Boolean isCapitalized;
+    private BigDecimal amountFrom;          // включительно
+    private BigDecimal amountTo;            // не включительно
+    private BigDecimal percentageRate;
+}
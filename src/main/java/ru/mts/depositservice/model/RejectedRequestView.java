@@ -0,0 +1,21 @@
+package ru.mts.depositservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Отклоненная заявка в сводке по вкладам клиента
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RejectedRequestView {
+    private Integer id;
+    private LocalDate requestDate;
+    private BigDecimal amount;
+    private Integer depositId;
+}
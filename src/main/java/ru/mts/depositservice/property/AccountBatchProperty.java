@@ -0,0 +1,57 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.account-batch")
+public class AccountBatchProperty {
+
+    private boolean enabled = false;                                    // операции со счетами отправляются пакетами
+    private Duration window = Duration.ofMillis(5);                     // время накопления пакета
+    private int maxBatchSize = 100;                                     // операций в одном пакете
+    private int maxPending = 10_000;                                    // операций, ожидающих отправки
+    private int concurrency = 4;                                        // одновременно отправляемых пакетов
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    public void setMaxPending(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+}
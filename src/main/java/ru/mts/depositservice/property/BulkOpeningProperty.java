@@ -0,0 +1,49 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.bulk-opening")
+public class BulkOpeningProperty {
+
+    private int maxItems = 10_000;                      // наибольшее количество вкладов в одном запросе
+    private int chunkSize = 1000;                       // количество вкладов, сохраняемых в одной транзакции
+    private int accountBatchSize = 100;                 // количество операций в одном запросе к account-service
+    private Map<String, String> channels = new HashMap<>(); // токены по имени канала; без каналов открытие запрещено
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public void setMaxItems(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getAccountBatchSize() {
+        return accountBatchSize;
+    }
+
+    public void setAccountBatchSize(int accountBatchSize) {
+        this.accountBatchSize = accountBatchSize;
+    }
+
+    public Map<String, String> getChannels() {
+        return channels;
+    }
+
+    public void setChannels(Map<String, String> channels) {
+        this.channels = channels;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.confirmation")
+public class ConfirmationProperty {
+
+    private String store = "memory";                                    // хранилище кодов: memory или jdbc
+    private Duration ttl = Duration.ofMinutes(5);                       // время действия кода подтверждения
+    private int maxAttempts = 3;                                        // количество попыток ввода кода
+    private int maxEntries = 100_000;                                   // максимальное количество кодов в памяти
+
+    public String getStore() {
+        return store;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.customer-cache")
+public class CustomerCacheProperty {
+
+    private Duration ttl = Duration.ofMinutes(5);                       // время жизни записи в кэше
+    private int maxSize = 10_000;                                       // максимальное количество записей
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
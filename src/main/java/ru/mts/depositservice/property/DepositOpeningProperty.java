@@ -0,0 +1,48 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.deposit-opening")
+public class DepositOpeningProperty {
+
+    private Duration recoveryInterval = Duration.ofMinutes(1);          // период поиска незавершенных открытий вкладов
+    private Duration staleAfter = Duration.ofMinutes(5);                // время без изменений, после которого открытие считается прерванным
+    private int recoveryBatchSize = 100;                                // количество открытий, восстанавливаемых за один проход
+    private int maxRecoveryAttempts = 20;                               // попыток восстановления до передачи открытия на ручную сверку
+
+    public Duration getRecoveryInterval() {
+        return recoveryInterval;
+    }
+
+    public void setRecoveryInterval(Duration recoveryInterval) {
+        this.recoveryInterval = recoveryInterval;
+    }
+
+    public Duration getStaleAfter() {
+        return staleAfter;
+    }
+
+    public void setStaleAfter(Duration staleAfter) {
+        this.staleAfter = staleAfter;
+    }
+
+    public int getRecoveryBatchSize() {
+        return recoveryBatchSize;
+    }
+
+    public void setRecoveryBatchSize(int recoveryBatchSize) {
+        this.recoveryBatchSize = recoveryBatchSize;
+    }
+
+    public int getMaxRecoveryAttempts() {
+        return maxRecoveryAttempts;
+    }
+
+    public void setMaxRecoveryAttempts(int maxRecoveryAttempts) {
+        this.maxRecoveryAttempts = maxRecoveryAttempts;
+    }
+}
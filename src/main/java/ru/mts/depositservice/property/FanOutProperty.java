@@ -0,0 +1,48 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.fan-out")
+public class FanOutProperty {
+
+    private int maxConcurrency = 64;                                    // максимальное количество одновременно выполняемых частей
+    private int queueCapacity = 256;                                    // количество частей, ожидающих выполнения
+    private Duration deadline = Duration.ofSeconds(2);                  // время ожидания всех частей одного запроса
+    private boolean partialResults = true;                              // отдавать ответ без частей, не успевших выполниться
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(Duration deadline) {
+        this.deadline = deadline;
+    }
+
+    public boolean isPartialResults() {
+        return partialResults;
+    }
+
+    public void setPartialResults(boolean partialResults) {
+        this.partialResults = partialResults;
+    }
+}
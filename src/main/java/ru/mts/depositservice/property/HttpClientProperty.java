@@ -0,0 +1,252 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.http")
+public class HttpClientProperty {
+
+    private Map<String, ServiceProperty> services = new HashMap<>();   // настройки по имени сервиса в Eureka
+    private Duration refreshInterval = Duration.ofSeconds(30);      // обновление списка экземпляров из Eureka
+    private int hedgeThreads = 64;                                  // потоков для параллельных запросов GET
+
+    public Map<String, ServiceProperty> getServices() {
+        return services;
+    }
+
+    public void setServices(Map<String, ServiceProperty> services) {
+        this.services = services;
+    }
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public int getHedgeThreads() {
+        return hedgeThreads;
+    }
+
+    public void setHedgeThreads(int hedgeThreads) {
+        this.hedgeThreads = hedgeThreads;
+    }
+
+    /**
+     * Возвращает настройки обращения к сервису; для сервиса без настроек - значения по умолчанию
+     *
+     * @param serviceName Имя сервиса в Eureka
+     * @return Настройки обращения к сервису
+     */
+    public ServiceProperty getService(String serviceName) {
+        return services.computeIfAbsent(serviceName, name -> new ServiceProperty());
+    }
+
+    public static class ServiceProperty {
+
+        private int maxConnectionsPerRoute = 50;                        // соединений с одним экземпляром сервиса
+        private int maxConnectionsTotal = 200;                          // соединений со всеми экземплярами сервиса
+        private Duration connectTimeout = Duration.ofMillis(500);       // установка соединения
+        private Duration connectionRequestTimeout = Duration.ofMillis(200); // ожидание свободного соединения в пуле
+        private Duration readTimeout = Duration.ofSeconds(2);           // ожидание ответа, если не задано для эндпоинта
+        private Duration keepAlive = Duration.ofSeconds(30);            // время жизни простаивающего соединения
+        private Duration callTimeout = Duration.ofSeconds(5);           // общий срок вызова с учетом повторов
+        private Duration hedgeDelay;                                    // задержка дублирующего GET; не задано - без дублирования
+        private Map<String, Duration> endpoints = new HashMap<>();      // ожидание ответа: "/path" или "GET /path"
+        private RetryProperty retry = new RetryProperty();
+        private CircuitBreakerProperty circuitBreaker = new CircuitBreakerProperty();
+
+        public int getMaxConnectionsPerRoute() {
+            return maxConnectionsPerRoute;
+        }
+
+        public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        }
+
+        public int getMaxConnectionsTotal() {
+            return maxConnectionsTotal;
+        }
+
+        public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+            this.maxConnectionsTotal = maxConnectionsTotal;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getConnectionRequestTimeout() {
+            return connectionRequestTimeout;
+        }
+
+        public void setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public Duration getCallTimeout() {
+            return callTimeout;
+        }
+
+        public void setCallTimeout(Duration callTimeout) {
+            this.callTimeout = callTimeout;
+        }
+
+        public Duration getHedgeDelay() {
+            return hedgeDelay;
+        }
+
+        public void setHedgeDelay(Duration hedgeDelay) {
+            this.hedgeDelay = hedgeDelay;
+        }
+
+        public Map<String, Duration> getEndpoints() {
+            return endpoints;
+        }
+
+        public void setEndpoints(Map<String, Duration> endpoints) {
+            this.endpoints = endpoints;
+        }
+
+        public RetryProperty getRetry() {
+            return retry;
+        }
+
+        public void setRetry(RetryProperty retry) {
+            this.retry = retry;
+        }
+
+        public CircuitBreakerProperty getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        public void setCircuitBreaker(CircuitBreakerProperty circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+        }
+    }
+
+    public static class RetryProperty {
+
+        private int maxAttempts = 3;                                    // попыток вместе с первой
+        private Duration initialBackoff = Duration.ofMillis(50);        // пауза перед первым повтором
+        private Duration maxBackoff = Duration.ofSeconds(1);            // предельная пауза между повторами
+        private double budgetRatio = 0.1;                               // доля повторов от числа вызовов
+        private int minRetriesPerSecond = 5;                            // повторы, доступные при малом числе вызовов
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public void setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        public int getMinRetriesPerSecond() {
+            return minRetriesPerSecond;
+        }
+
+        public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+            this.minRetriesPerSecond = minRetriesPerSecond;
+        }
+    }
+
+    public static class CircuitBreakerProperty {
+
+        private int slidingWindowSize = 20;                             // количество последних вызовов для оценки
+        private int minimumCalls = 10;                                  // вызовов до первой оценки
+        private int failureRateThreshold = 50;                          // процент ошибок для размыкания
+        private Duration openDuration = Duration.ofSeconds(10);         // время в разомкнутом состоянии
+        private int halfOpenCalls = 3;                                  // пробных вызовов после размыкания
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public int getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public int getHalfOpenCalls() {
+            return halfOpenCalls;
+        }
+
+        public void setHalfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+        }
+    }
+}
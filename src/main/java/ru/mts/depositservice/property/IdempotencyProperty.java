@@ -0,0 +1,66 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperty {
+
+    private Duration ttl = Duration.ofHours(24);                        // время хранения результата запроса
+    private int cacheSize = 10_000;                                     // количество результатов, хранимых в памяти
+    private Duration lease = Duration.ofSeconds(30);                    // время, после которого незавершенный запрос может выполнить другой экземпляр
+    private Duration waitTimeout = Duration.ofSeconds(10);              // время ожидания повтором выполнения первого запроса
+    private Duration pollInterval = Duration.ofMillis(100);             // пауза между проверками запроса, выполняемого другим экземпляром
+    private int maxKeyLength = 255;                                     // максимальная длина ключа
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public Duration getLease() {
+        return lease;
+    }
+
+    public void setLease(Duration lease) {
+        this.lease = lease;
+    }
+
+    public Duration getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    public void setWaitTimeout(Duration waitTimeout) {
+        this.waitTimeout = waitTimeout;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+
+    public void setMaxKeyLength(int maxKeyLength) {
+        this.maxKeyLength = maxKeyLength;
+    }
+}
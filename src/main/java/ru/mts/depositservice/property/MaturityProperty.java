@@ -0,0 +1,37 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.maturity")
+public class MaturityProperty {
+
+    private String cron = "0 30 1 * * *";                              // расписание закрытия вкладов, после выплаты процентов
+    private int chunkSize = 500;                                        // количество вкладов, закрываемых в одной транзакции
+    private int refundBatchSize = 100;                                  // количество возвратов в одном обращении к account-service
+
+    public String getCron() {
+        return cron;
+    }
+
+    public void setCron(String cron) {
+        this.cron = cron;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getRefundBatchSize() {
+        return refundBatchSize;
+    }
+
+    public void setRefundBatchSize(int refundBatchSize) {
+        this.refundBatchSize = refundBatchSize;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.outbox")
+public class OutboxProperty {
+
+    private boolean enabled = true;                                     // отправлять операции из outbox с этого экземпляра
+    private int threads = 2;                                            // количество потоков отправки
+    private int batchSize = 100;                                        // количество операций, захватываемых за один запрос
+    private Duration pollInterval = Duration.ofMillis(200);             // пауза, если операций для отправки нет
+    private Duration lease = Duration.ofSeconds(30);                    // время, на которое захваченные операции скрыты от других потоков
+    private Duration initialBackoff = Duration.ofSeconds(1);            // пауза перед первым повтором
+    private Duration maxBackoff = Duration.ofMinutes(5);                // наибольшая пауза между повторами
+    private int maxAttempts = 20;                                       // количество попыток до перевода операции в FAILED
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public Duration getLease() {
+        return lease;
+    }
+
+    public void setLease(Duration lease) {
+        this.lease = lease;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(Duration initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.rate-card")
+public class RateCardProperty {
+
+    private Duration maxAge = Duration.ofMinutes(5);    // время, в течение которого клиент и CDN не перепроверяют таблицу
+    private int maxQuotes = 1000;                       // наибольшее количество расчетов в одном запросе
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public int getMaxQuotes() {
+        return maxQuotes;
+    }
+
+    public void setMaxQuotes(int maxQuotes) {
+        this.maxQuotes = maxQuotes;
+    }
+}
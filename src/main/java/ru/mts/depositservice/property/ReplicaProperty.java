@@ -0,0 +1,93 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.replica")
+public class ReplicaProperty {
+
+    private boolean enabled = false;                                    // чтение в read-only транзакциях с реплики
+    private String url;                                                 // JDBC URL реплики
+    private String username;
+    private String password;
+    private int maxPoolSize = 10;                                       // соединений с репликой
+    private Duration maxLag = Duration.ofSeconds(5);                    // отставание, после которого чтение идет с основной базы
+    private Duration lagCheckInterval = Duration.ofSeconds(1);          // проверка отставания реплики
+    private Duration readYourWritesWindow = Duration.ofSeconds(10);     // чтение с основной базы после изменений клиента
+    private int readYourWritesMaxEntries = 100_000;                     // отслеживаемых клиентов, после которых удаляются истекшие
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    public void setMaxLag(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public Duration getLagCheckInterval() {
+        return lagCheckInterval;
+    }
+
+    public void setLagCheckInterval(Duration lagCheckInterval) {
+        this.lagCheckInterval = lagCheckInterval;
+    }
+
+    public Duration getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public void setReadYourWritesWindow(Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    public int getReadYourWritesMaxEntries() {
+        return readYourWritesMaxEntries;
+    }
+
+    public void setReadYourWritesMaxEntries(int readYourWritesMaxEntries) {
+        this.readYourWritesMaxEntries = readYourWritesMaxEntries;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.second-level-cache")
+public class SecondLevelCacheProperty {
+
+    private Map<String, RegionProperty> regions = new HashMap<>();      // настройки по имени региона кэша Hibernate
+
+    public Map<String, RegionProperty> getRegions() {
+        return regions;
+    }
+
+    public void setRegions(Map<String, RegionProperty> regions) {
+        this.regions = regions;
+    }
+
+    public static class RegionProperty {
+
+        private long maxEntries = 1_000;                                // максимальное количество записей в регионе
+        private Duration ttl;                                           // время жизни записи; не задано - без истечения
+        private boolean statistics = true;                              // сбор статистики JCache по региону
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public boolean isStatistics() {
+            return statistics;
+        }
+
+        public void setStatistics(boolean statistics) {
+            this.statistics = statistics;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.mts.depositservice.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperty {
+
+    private int shardCount = 16;                                        // количество шардов вкладов, одинаковое на всех экземплярах
+    private int lockNamespace = 7_001;                                  // первый ключ advisory-блокировки шарда
+    private Duration heartbeatInterval = Duration.ofSeconds(10);        // период продления аренды шардов
+    private Duration nodeTtl = Duration.ofSeconds(30);                  // экземпляр без продления дольше этого срока считается ушедшим
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public int getLockNamespace() {
+        return lockNamespace;
+    }
+
+    public void setLockNamespace(int lockNamespace) {
+        this.lockNamespace = lockNamespace;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getNodeTtl() {
+        return nodeTtl;
+    }
+
+    public void setNodeTtl(Duration nodeTtl) {
+        this.nodeTtl = nodeTtl;
+    }
+}
@@ -0,0 +1,188 @@
+package ru.mts.depositservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.model.OutboxMessage;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outbox операций со счетами клиентов.
+ * <p>
+ * Операция записывается в той же транзакции, что и изменение вклада, и отправляется в {@code account-service}
+ * позже {@link ru.mts.depositservice.service.AccountOutboxDispatcher}. Операции захватываются пачками через
+ * {@code FOR UPDATE SKIP LOCKED} на время {@code lease}, поэтому потоки и экземпляры сервиса, отправляющие
+ * операции одновременно, не получают одну и ту же операцию
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountOutboxRepository {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final String INSERT =
+            "INSERT INTO account_outbox (operation_id, operation_type, request_id, customer_id, amount, status, " +
+                    "next_attempt_at, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, 'PENDING', now(), now())";
+    private static final String INSERT_DEPOSIT_REFILL =
+            "INSERT INTO account_outbox (operation_id, operation_type, request_id, customer_id, amount, status, " +
+                    "next_attempt_at, created_at, deposit_id, deposit_rate_delta) " +
+                    "VALUES (?, 'WITHDRAW', ?, ?, ?, 'PENDING', now(), now(), ?, ?)";
+    private static final String CLAIM =
+            "UPDATE account_outbox SET attempts = attempts + 1, next_attempt_at = now() + make_interval(secs => ?) " +
+                    "WHERE id IN (" +
+                    "SELECT id FROM account_outbox " +
+                    "WHERE status = 'PENDING' AND next_attempt_at <= now() " +
+                    "ORDER BY next_attempt_at, id " +
+                    "LIMIT ? " +
+                    "FOR UPDATE SKIP LOCKED) " +
+                    "RETURNING id, operation_id, operation_type, request_id, customer_id, amount, attempts";
+    private static final String MARK_SENT =
+            "UPDATE account_outbox SET status = 'SENT', sent_at = now(), last_error = NULL WHERE id = ?";
+    private static final String RETRY =
+            "UPDATE account_outbox SET next_attempt_at = now() + make_interval(secs => ?), last_error = ? " +
+                    "WHERE id = ? AND status = 'PENDING'";
+    private static final String MARK_FAILED =
+            "UPDATE account_outbox SET status = 'FAILED', last_error = ? WHERE id = ?";
+    private static final String FAIL_AND_REVERT_REFILL =
+            "WITH failed AS (" +
+                    "UPDATE account_outbox SET status = 'FAILED', last_error = ? " +
+                    "WHERE id = ? AND status = 'PENDING' " +
+                    "RETURNING deposit_id, amount, deposit_rate_delta) " +
+                    "UPDATE deposits d SET deposit_amount = d.deposit_amount - f.amount, " +
+                    "deposit_rate = d.deposit_rate - f.deposit_rate_delta " +
+                    "FROM failed f " +
+                    "WHERE d.id_deposit = f.deposit_id";
+    private static final String LOCK_DEPOSIT_HAS_PENDING_REFILL =
+            "SELECT EXISTS (SELECT 1 FROM account_outbox o " +
+                    "WHERE o.deposit_id = d.id_deposit AND o.status = 'PENDING') " +
+                    "FROM deposits d WHERE d.id_deposit = ? " +
+                    "FOR UPDATE OF d";
+
+    private static final RowMapper<OutboxMessage> MESSAGE_MAPPER = (rs, rowNum) -> new OutboxMessage(
+            rs.getLong("id"),
+            rs.getString("operation_id"),
+            AccountOperationTypeEnum.valueOf(rs.getString("operation_type")),
+            rs.getInt("request_id"),
+            rs.getInt("customer_id"),
+            rs.getBigDecimal("amount"),
+            rs.getInt("attempts")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Записывает операцию со счетом клиента, оставившего заявку.
+     * Вызывается в транзакции, в которой меняется вклад
+     *
+     * @param type    Тип операции
+     * @param request Заявка, по которой выполняется операция
+     * @param amount  Сумма операции
+     */
+    public void enqueue(AccountOperationTypeEnum type, Request request, BigDecimal amount) {
+        jdbcTemplate.update(INSERT,
+                UUID.randomUUID().toString(),
+                type.name(),
+                request.getId(),
+                request.getCustomer().getId(),
+                amount
+        );
+    }
+
+    /**
+     * Записывает списание денег для пополнения вклада вместе с изменением вклада, которое нужно отменить,
+     * если {@code account-service} отклонит списание.
+     * Вызывается в транзакции, в которой пополняется вклад
+     *
+     * @param request   Заявка пополняемого вклада
+     * @param amount    Сумма пополнения
+     * @param rateDelta Изменение процентной ставки вклада из-за пополнения
+     */
+    public void enqueueDepositRefill(Request request, BigDecimal amount, BigDecimal rateDelta) {
+        jdbcTemplate.update(INSERT_DEPOSIT_REFILL,
+                UUID.randomUUID().toString(),
+                request.getId(),
+                request.getCustomer().getId(),
+                amount,
+                request.getDeposit().getId(),
+                rateDelta
+        );
+    }
+
+    /**
+     * Захватывает операции, время отправки которых наступило
+     *
+     * @param limit Наибольшее количество операций
+     * @param lease Время, на которое операции скрываются от других потоков
+     * @return Захваченные операции
+     */
+    public List<OutboxMessage> claim(int limit, Duration lease) {
+        return jdbcTemplate.query(CLAIM, MESSAGE_MAPPER, seconds(lease), limit);
+    }
+
+    public void markSent(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(MARK_SENT, ids, ids.size(), (ps, id) -> ps.setLong(1, id));
+    }
+
+    /**
+     * Откладывает повторную отправку операции
+     *
+     * @param id    Идентификатор операции в outbox
+     * @param delay Пауза до повтора
+     * @param error Причина неудачной отправки
+     */
+    public void retry(Long id, Duration delay, String error) {
+        jdbcTemplate.update(RETRY, seconds(delay), truncate(error), id);
+    }
+
+    public void markFailed(Long id, String error) {
+        jdbcTemplate.update(MARK_FAILED, truncate(error), id);
+    }
+
+    /**
+     * Переводит отклоненное списание для пополнения вклада в {@code FAILED} и в той же команде возвращает сумму
+     * и процентную ставку вклада к значениям до пополнения
+     *
+     * @param id    Идентификатор операции в outbox
+     * @param error Причина отклонения
+     * @return {@code true}, если пополнение вклада отменено; {@code false}, если вклад уже закрыт,
+     * операция уже не ожидает отправки или записана без изменения вклада
+     */
+    public boolean failAndRevertRefill(Long id, String error) {
+        return jdbcTemplate.update(FAIL_AND_REVERT_REFILL, truncate(error), id) == 1;
+    }
+
+    /**
+     * Блокирует вклад до конца транзакции и проверяет, есть ли у него неотправленное списание для пополнения.
+     * <p>
+     * Пока списание не выполнено, пополнение может быть отменено, поэтому такой вклад нельзя закрыть.
+     * Блокировка не дает параллельному пополнению записать новое списание до закрытия вклада
+     *
+     * @param depositId Идентификатор вклада
+     * @return {@code true}, если списание для пополнения вклада еще не выполнено
+     */
+    public boolean lockDepositAndCheckPendingRefill(Integer depositId) {
+        return jdbcTemplate.query(LOCK_DEPOSIT_HAS_PENDING_REFILL, (rs, rowNum) -> rs.getBoolean(1), depositId)
+                .stream()
+                .findFirst()
+                .orElse(false);
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
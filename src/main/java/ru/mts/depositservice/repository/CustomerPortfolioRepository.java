@@ -0,0 +1,195 @@
+package ru.mts.depositservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.DepositView;
+import ru.mts.depositservice.model.RejectedRequestView;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Чтение сводки по вкладам клиента.
+ * <p>
+ * В отличие от {@link DepositRepository} и {@link RequestRepository}, сущности со связями не загружаются:
+ * каждый список читается одним запросом, который выбирает только отдаваемые клиенту столбцы
+ */
+@Repository
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class CustomerPortfolioRepository {
+
+    private static final String DEPOSIT_VIEWS =
+            "SELECT d.id_deposit, dt.deposit_type_name, d.deposit_refill, d.deposit_withdraw, d.capitalization, " +
+                    "d.deposit_amount, d.start_date, d.end_date, d.deposit_rate, d.percent_payment_date, " +
+                    "tp.type_percent_payment_period, " +
+                    "da.num_bank_account AS deposit_account, " +
+                    "pa.num_bank_account AS percent_payment_account, " +
+                    "ra.num_bank_account AS deposit_refund_account " +
+                    "FROM deposits d " +
+                    "INNER JOIN deposit_types dt ON dt.id_deposit_type = d.deposit_type_id " +
+                    "INNER JOIN bank_accounts da ON da.id_bank_account = d.deposit_account_id " +
+                    "INNER JOIN bank_accounts ra ON ra.id_bank_account = d.deposit_refund_account_id " +
+                    "LEFT JOIN types_percent_payment tp ON tp.id_type_percent_payment = d.type_percent_payment_id " +
+                    "LEFT JOIN bank_accounts pa ON pa.id_bank_account = d.percent_payment_account_id ";
+    private static final String SELECT_DEPOSITS = DEPOSIT_VIEWS +
+            "WHERE d.customer_id = ? " +
+            "ORDER BY d.id_deposit";
+    private static final String SELECT_DEPOSITS_PAGE = DEPOSIT_VIEWS +
+            "WHERE d.customer_id = ? AND d.id_deposit > ? " +
+            "ORDER BY d.id_deposit " +
+            "LIMIT ?";
+    private static final String REJECTED_REQUEST_VIEWS =
+            "SELECT r.id_request, r.request_date, r.deposit_amount, r.deposit_id " +
+                    "FROM requests r ";
+    private static final String SELECT_REJECTED_REQUESTS = REJECTED_REQUEST_VIEWS +
+            "WHERE r.customer_id = ? AND r.current_status_id = ? " +
+            "ORDER BY r.id_request";
+    private static final String SELECT_REJECTED_REQUESTS_PAGE = REJECTED_REQUEST_VIEWS +
+            "WHERE r.customer_id = ? AND r.current_status_id = ? AND r.id_request > ? " +
+            "ORDER BY r.id_request " +
+            "LIMIT ?";
+
+    private static final RowMapper<DepositView> DEPOSIT_VIEW_MAPPER = (rs, rowNum) -> {
+        String percentPaymentType = rs.getString("type_percent_payment_period");
+        Date percentPaymentDate = rs.getDate("percent_payment_date");
+        return new DepositView(
+                rs.getInt("id_deposit"),
+                DepositTypeEnum.valueOf(rs.getString("deposit_type_name")),
+                rs.getBoolean("deposit_refill"),
+                rs.getBoolean("deposit_withdraw"),
+                rs.getBoolean("capitalization"),
+                rs.getBigDecimal("deposit_amount"),
+                rs.getDate("start_date").toLocalDate(),
+                rs.getDate("end_date").toLocalDate(),
+                rs.getBigDecimal("deposit_rate"),
+                percentPaymentDate == null ? null : percentPaymentDate.toLocalDate(),
+                percentPaymentType == null ? null : PercentPaymentTypeEnum.valueOf(percentPaymentType),
+                rs.getBigDecimal("deposit_account"),
+                rs.getBigDecimal("percent_payment_account"),
+                rs.getBigDecimal("deposit_refund_account")
+        );
+    };
+
+    private static final RowMapper<RejectedRequestView> REJECTED_REQUEST_VIEW_MAPPER = (rs, rowNum) ->
+            new RejectedRequestView(
+                    rs.getInt("id_request"),
+                    rs.getDate("request_date").toLocalDate(),
+                    rs.getBigDecimal("deposit_amount"),
+                    rs.getObject("deposit_id", Integer.class)
+            );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Находит вклады клиента
+     *
+     * @param customerId Идентификатор клиента
+     * @return Вклады клиента в порядке идентификаторов
+     */
+    public List<DepositView> findDeposits(Integer customerId) {
+        return jdbcTemplate.query(SELECT_DEPOSITS, DEPOSIT_VIEW_MAPPER, customerId);
+    }
+
+    /**
+     * Находит отклоненные заявки клиента
+     *
+     * @param customerId       Идентификатор клиента
+     * @param rejectedStatusId Идентификатор статуса {@code REJECTED}
+     * @return Отклоненные заявки клиента в порядке идентификаторов
+     */
+    public List<RejectedRequestView> findRejectedRequests(Integer customerId, Integer rejectedStatusId) {
+        return jdbcTemplate.query(SELECT_REJECTED_REQUESTS, REJECTED_REQUEST_VIEW_MAPPER, customerId, rejectedStatusId);
+    }
+
+    /**
+     * Находит страницу вкладов клиента с идентификаторами больше {@code afterId}.
+     * Страница читается по индексу {@code (customer_id, id_deposit)} без пропуска предыдущих строк,
+     * поэтому время чтения не зависит от номера страницы
+     *
+     * @param customerId Идентификатор клиента
+     * @param afterId    Идентификатор последнего вклада предыдущей страницы; 0 для первой страницы
+     * @param limit      Наибольшее количество вкладов
+     * @return Вклады клиента в порядке идентификаторов
+     */
+    public List<DepositView> findDepositsPage(Integer customerId, int afterId, int limit) {
+        return jdbcTemplate.query(SELECT_DEPOSITS_PAGE, DEPOSIT_VIEW_MAPPER, customerId, afterId, limit);
+    }
+
+    /**
+     * Находит страницу отклоненных заявок клиента с идентификаторами больше {@code afterId}
+     *
+     * @param customerId       Идентификатор клиента
+     * @param rejectedStatusId Идентификатор статуса {@code REJECTED}
+     * @param afterId          Идентификатор последней заявки предыдущей страницы; 0 для первой страницы
+     * @param limit            Наибольшее количество заявок
+     * @return Отклоненные заявки клиента в порядке идентификаторов
+     */
+    public List<RejectedRequestView> findRejectedRequestsPage(Integer customerId,
+                                                              Integer rejectedStatusId,
+                                                              int afterId,
+                                                              int limit) {
+        return jdbcTemplate.query(
+                SELECT_REJECTED_REQUESTS_PAGE,
+                REJECTED_REQUEST_VIEW_MAPPER,
+                customerId, rejectedStatusId, afterId, limit
+        );
+    }
+
+    /**
+     * Передает вклады клиента в {@code consumer} по мере чтения.
+     * Строки читаются из курсора по {@code fetchSize}, поэтому в памяти не держится весь список.
+     * Драйвер Postgres использует курсор только вне режима автофиксации, поэтому метод нужно вызывать в транзакции
+     *
+     * @param customerId Идентификатор клиента
+     * @param fetchSize  Количество строк, читаемых из курсора за одно обращение к базе
+     * @param consumer   Получатель вкладов в порядке идентификаторов
+     */
+    public void streamDeposits(Integer customerId, int fetchSize, Consumer<DepositView> consumer) {
+        stream(SELECT_DEPOSITS, fetchSize, DEPOSIT_VIEW_MAPPER, consumer, customerId);
+    }
+
+    /**
+     * Передает отклоненные заявки клиента в {@code consumer} по мере чтения из курсора
+     *
+     * @param customerId       Идентификатор клиента
+     * @param rejectedStatusId Идентификатор статуса {@code REJECTED}
+     * @param fetchSize        Количество строк, читаемых из курсора за одно обращение к базе
+     * @param consumer         Получатель заявок в порядке идентификаторов
+     */
+    public void streamRejectedRequests(Integer customerId,
+                                       Integer rejectedStatusId,
+                                       int fetchSize,
+                                       Consumer<RejectedRequestView> consumer) {
+        stream(SELECT_REJECTED_REQUESTS, fetchSize, REJECTED_REQUEST_VIEW_MAPPER, consumer, customerId, rejectedStatusId);
+    }
+
+    private <T> void stream(String sql, int fetchSize, RowMapper<T> mapper, Consumer<T> consumer, Object... args) {
+        AtomicInteger rowNum = new AtomicInteger();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            sql,
+                            ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY
+                    );
+                    statement.setFetchSize(fetchSize);
+                    for (int i = 0; i < args.length; i++) {
+                        statement.setObject(i + 1, args[i]);
+                    }
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, rowNum.getAndIncrement()))
+        );
+    }
+}
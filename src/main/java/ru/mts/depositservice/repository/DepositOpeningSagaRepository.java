@@ -0,0 +1,262 @@
+package ru.mts.depositservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositOpeningStateEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.DepositOpeningSaga;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранение состояний открытия вкладов.
+ * <p>
+ * Состояние меняется только из ожидаемого предыдущего состояния, поэтому шаг, уже выполненный другим потоком
+ * или экземпляром сервиса, повторно не выполняется
+ */
+@Repository
+@RequiredArgsConstructor
+public class DepositOpeningSagaRepository {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final String INSERT =
+            "INSERT INTO deposit_opening_sagas (request_id, customer_id, state, deposit_type, duration, capitalization, " +
+                    "percent_payment_type, deposit_amount, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, now(), now())";
+    private static final String SELECT =
+            "SELECT request_id, customer_id, state, deposit_type, duration, capitalization, percent_payment_type, " +
+                    "deposit_amount, deposit_id, attempts, last_error " +
+                    "FROM deposit_opening_sagas WHERE request_id = ?";
+    private static final String TRANSITION =
+            "UPDATE deposit_opening_sagas SET state = ?, last_error = ?, updated_at = now() " +
+                    "WHERE request_id = ? AND state = ?";
+    private static final String COMPLETE =
+            "UPDATE deposit_opening_sagas SET state = 'COMPLETED', deposit_id = ?, last_error = NULL, updated_at = now() " +
+                    "WHERE request_id = ? AND state = 'WITHDRAWN'";
+    private static final String RECORD_ERROR =
+            "UPDATE deposit_opening_sagas SET last_error = ?, updated_at = now() WHERE request_id = ?";
+    private static final String CLAIM_STALE =
+            "UPDATE deposit_opening_sagas SET attempts = attempts + 1, updated_at = now() " +
+                    "WHERE request_id IN (" +
+                    "SELECT request_id FROM deposit_opening_sagas " +
+                    "WHERE state IN ('WITHDRAWING', 'WITHDRAWN', 'COMPENSATING') " +
+                    "AND updated_at < now() - make_interval(secs => ?) " +
+                    "AND attempts < ? " +
+                    "ORDER BY updated_at " +
+                    "LIMIT ? " +
+                    "FOR UPDATE SKIP LOCKED) " +
+                    "RETURNING request_id, customer_id, state, deposit_type, duration, capitalization, " +
+                    "percent_payment_type, deposit_amount, deposit_id, attempts, last_error";
+
+    private static final String INSERT_CLIENT_ITEM =
+            "INSERT INTO bulk_opening_items (client_item_id, request_id) VALUES (?, ?)";
+    private static final String SELECT_BY_CLIENT_ITEM_IDS =
+            "SELECT b.client_item_id, s.request_id, s.customer_id, s.state, s.deposit_type, s.duration, " +
+                    "s.capitalization, s.percent_payment_type, s.deposit_amount, s.deposit_id, s.attempts, s.last_error " +
+                    "FROM bulk_opening_items b " +
+                    "JOIN deposit_opening_sagas s ON s.request_id = b.request_id " +
+                    "WHERE b.client_item_id = ANY(?)";
+
+    private static final RowMapper<DepositOpeningSaga> SAGA_MAPPER = (rs, rowNum) -> {
+        String percentPaymentType = rs.getString("percent_payment_type");
+        return new DepositOpeningSaga(
+                rs.getInt("request_id"),
+                rs.getInt("customer_id"),
+                DepositOpeningStateEnum.valueOf(rs.getString("state")),
+                DepositTypeEnum.valueOf(rs.getString("deposit_type")),
+                DepositDurationEnum.valueOf(rs.getString("duration")),
+                rs.getBoolean("capitalization"),
+                percentPaymentType == null ? null : PercentPaymentTypeEnum.valueOf(percentPaymentType),
+                rs.getBigDecimal("deposit_amount"),
+                (Integer) rs.getObject("deposit_id"),
+                rs.getInt("attempts"),
+                rs.getString("last_error")
+        );
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(DepositOpeningSaga saga) {
+        jdbcTemplate.update(INSERT, ps -> bindInsert(ps, saga));
+    }
+
+    /**
+     * Сохраняет состояния открытия нескольких вкладов одним пакетным запросом
+     *
+     * @param sagas Состояния открытия вкладов
+     */
+    public void insertAll(List<DepositOpeningSaga> sagas) {
+        if (sagas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, sagas, sagas.size(), DepositOpeningSagaRepository::bindInsert);
+    }
+
+    public Optional<DepositOpeningSaga> findByRequestId(Integer requestId) {
+        return jdbcTemplate.query(SELECT, SAGA_MAPPER, requestId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Переводит открытие вклада в новое состояние
+     *
+     * @param requestId Идентификатор заявки
+     * @param from      Ожидаемое текущее состояние
+     * @param to        Новое состояние
+     * @param error     Причина перехода; {@code null}, если ошибки не было
+     * @return {@code true}, если состояние изменено; {@code false}, если текущее состояние уже другое
+     */
+    public boolean transition(Integer requestId, DepositOpeningStateEnum from, DepositOpeningStateEnum to, String error) {
+        return jdbcTemplate.update(TRANSITION, to.name(), truncate(error), requestId, from.name()) == 1;
+    }
+
+    /**
+     * Завершает открытие вклада, для которого списаны деньги
+     *
+     * @param requestId Идентификатор заявки
+     * @param depositId Идентификатор открытого вклада
+     * @return {@code true}, если открытие завершено; {@code false}, если оно уже не в состоянии {@code WITHDRAWN}
+     */
+    public boolean complete(Integer requestId, Integer depositId) {
+        return jdbcTemplate.update(COMPLETE, depositId, requestId) == 1;
+    }
+
+    /**
+     * Переводит открытие нескольких вкладов в новое состояние одним пакетным запросом
+     *
+     * @param requestIds Идентификаторы заявок
+     * @param from       Ожидаемое текущее состояние
+     * @param to         Новое состояние
+     * @param error      Причина перехода; {@code null}, если ошибки не было
+     * @return Количество открытий, состояние которых изменено
+     */
+    public int transitionAll(List<Integer> requestIds, DepositOpeningStateEnum from, DepositOpeningStateEnum to,
+                             String error) {
+        if (requestIds.isEmpty()) {
+            return 0;
+        }
+        return updated(jdbcTemplate.batchUpdate(TRANSITION, requestIds, requestIds.size(), (ps, requestId) -> {
+            ps.setString(1, to.name());
+            ps.setString(2, truncate(error));
+            ps.setInt(3, requestId);
+            ps.setString(4, from.name());
+        }));
+    }
+
+    /**
+     * Завершает открытие нескольких вкладов одним пакетным запросом
+     *
+     * @param depositIds Идентификаторы открытых вкладов по идентификаторам заявок
+     * @return Количество завершенных открытий
+     */
+    public int completeAll(Map<Integer, Integer> depositIds) {
+        if (depositIds.isEmpty()) {
+            return 0;
+        }
+        return updated(jdbcTemplate.batchUpdate(COMPLETE, depositIds.entrySet(), depositIds.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setInt(2, entry.getKey());
+        }));
+    }
+
+    /**
+     * Связывает идентификаторы вкладов пакетного открытия, заданные клиентом, с заявками одним пакетным запросом.
+     * <p>
+     * Идентификатор клиента уникален, поэтому параллельный повтор того же пакета не сохранит вторую заявку
+     *
+     * @param requestIds Идентификаторы заявок по идентификаторам вкладов клиента
+     */
+    public void insertClientItemIds(Map<String, Integer> requestIds) {
+        if (requestIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_CLIENT_ITEM, requestIds.entrySet(), requestIds.size(), (ps, entry) -> {
+            ps.setString(1, entry.getKey());
+            ps.setInt(2, entry.getValue());
+        });
+    }
+
+    /**
+     * Находит открытия вкладов пакетного открытия по идентификаторам, заданным клиентом
+     *
+     * @param clientItemIds Идентификаторы вкладов клиента
+     * @return Состояния открытия по идентификаторам вкладов клиента; отсутствующих идентификаторов в результате нет
+     */
+    public Map<String, DepositOpeningSaga> findByClientItemIds(Collection<String> clientItemIds) {
+        Map<String, DepositOpeningSaga> sagas = new HashMap<>();
+        if (clientItemIds.isEmpty()) {
+            return sagas;
+        }
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(SELECT_BY_CLIENT_ITEM_IDS);
+                    statement.setArray(1, connection.createArrayOf("varchar", clientItemIds.toArray()));
+                    return statement;
+                },
+                rs -> {
+                    sagas.put(rs.getString("client_item_id"), SAGA_MAPPER.mapRow(rs, 0));
+                }
+        );
+        return sagas;
+    }
+
+    public void recordError(Integer requestId, String error) {
+        jdbcTemplate.update(RECORD_ERROR, truncate(error), requestId);
+    }
+
+    /**
+     * Захватывает незавершенные открытия вкладов, которые не менялись дольше {@code staleAfter}.
+     * <p>
+     * Время изменения захваченных открытий обновляется, поэтому до истечения {@code staleAfter}
+     * их не захватит другой экземпляр сервиса. Открытия, захваченные {@code maxAttempts} раз, больше не захватываются
+     *
+     * @param staleAfter  Время без изменений
+     * @param maxAttempts Наибольшее количество попыток восстановления
+     * @param limit       Наибольшее количество открытий
+     * @return Захваченные открытия вкладов
+     */
+    public List<DepositOpeningSaga> claimStale(Duration staleAfter, int maxAttempts, int limit) {
+        return jdbcTemplate.query(CLAIM_STALE, SAGA_MAPPER, staleAfter.toMillis() / 1000.0, maxAttempts, limit);
+    }
+
+    private static void bindInsert(PreparedStatement ps, DepositOpeningSaga saga) throws SQLException {
+        ps.setInt(1, saga.getRequestId());
+        ps.setInt(2, saga.getCustomerId());
+        ps.setString(3, saga.getState().name());
+        ps.setString(4, saga.getDepositType().name());
+        ps.setString(5, saga.getDuration().name());
+        ps.setBoolean(6, saga.isCapitalized());
+        if (saga.getPercentPaymentType() == null) {
+            ps.setNull(7, Types.VARCHAR);
+        } else {
+            ps.setString(7, saga.getPercentPaymentType().name());
+        }
+        ps.setBigDecimal(8, saga.getAmount());
+    }
+
+    private static int updated(int[][] counts) {
+        return Arrays.stream(counts)
+                .flatMapToInt(Arrays::stream)
+                .map(count -> count > 0 ? count : 0)
+                .sum();
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -2,12 +2,11 @@ package ru.mts.depositservice.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
-import ru.mts.depositservice.entity.Customer;
 import ru.mts.depositservice.entity.Deposit;
 
 import java.util.List;
 
 @Repository
 public interface DepositRepository extends JpaRepository<Deposit, Integer> {
-    List<Deposit> findDepositsByCustomer(Customer customer);
+    List<Deposit> findDepositsByCustomerId(Integer customerId);
 }
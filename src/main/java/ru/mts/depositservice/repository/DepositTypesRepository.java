@@ -1,6 +1,9 @@
 package ru.mts.depositservice.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import ru.mts.depositservice.entity.DepositTypes;
 import ru.mts.depositservice.enums.DepositTypeEnum;
@@ -9,5 +12,6 @@ import java.util.Optional;
 
 @Repository
 public interface DepositTypesRepository extends JpaRepository<DepositTypes, Integer> {
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<DepositTypes> findDepositTypesByTypeName(DepositTypeEnum depositTypeEnum);
 }
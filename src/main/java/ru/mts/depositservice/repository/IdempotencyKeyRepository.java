@@ -0,0 +1,98 @@
+package ru.mts.depositservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.model.IdempotentResponse;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Результаты запросов с заголовком {@code Idempotency-Key}.
+ * <p>
+ * Запись создается до выполнения запроса и закрепляет его за экземпляром сервиса на время {@code lease};
+ * после выполнения в нее записывается ответ, который хранится до {@code expires_at}
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    private static final String ACQUIRE =
+            "INSERT INTO idempotency_keys (idempotency_key, operation, fingerprint, locked_until, expires_at) " +
+                    "VALUES (?, ?, ?, now() + make_interval(secs => ?), now() + make_interval(secs => ?)) " +
+                    "ON CONFLICT (idempotency_key, operation) DO UPDATE " +
+                    "SET fingerprint = EXCLUDED.fingerprint, response_status = NULL, content_type = NULL, " +
+                    "response_body = NULL, locked_until = EXCLUDED.locked_until, expires_at = EXCLUDED.expires_at " +
+                    "WHERE idempotency_keys.expires_at <= now() " +
+                    "OR (idempotency_keys.response_status IS NULL AND idempotency_keys.locked_until <= now())";
+    private static final String FIND =
+            "SELECT fingerprint, response_status, content_type, response_body FROM idempotency_keys " +
+                    "WHERE idempotency_key = ? AND operation = ? AND expires_at > now()";
+    private static final String COMPLETE =
+            "UPDATE idempotency_keys SET response_status = ?, content_type = ?, response_body = ? " +
+                    "WHERE idempotency_key = ? AND operation = ? AND response_status IS NULL";
+    private static final String RELEASE =
+            "DELETE FROM idempotency_keys " +
+                    "WHERE idempotency_key = ? AND operation = ? AND response_status IS NULL";
+    private static final String REMOVE_EXPIRED =
+            "DELETE FROM idempotency_keys WHERE expires_at <= now()";
+
+    private static final RowMapper<IdempotentResponse> RESPONSE_MAPPER = (rs, rowNum) -> new IdempotentResponse(
+            rs.getString("fingerprint"),
+            (Integer) rs.getObject("response_status"),
+            rs.getString("content_type"),
+            rs.getBytes("response_body")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Закрепляет ключ за вызывающим экземпляром. Ключ можно закрепить, если его еще нет, если срок хранения
+     * результата истек или если выполнявший запрос экземпляр не завершил его за {@code lease}
+     *
+     * @param key         Значение заголовка {@code Idempotency-Key}
+     * @param operation   Подтверждаемая операция
+     * @param fingerprint SHA-256 тела запроса
+     * @param lease       Время, на которое ключ закрепляется
+     * @param ttl         Время хранения результата
+     * @return {@code true}, если запрос должен выполнить вызывающий экземпляр
+     */
+    public boolean tryAcquire(String key, ConfirmationOperationEnum operation, String fingerprint,
+                              Duration lease, Duration ttl) {
+        return jdbcTemplate.update(ACQUIRE, key, operation.name(), fingerprint, seconds(lease), seconds(ttl)) == 1;
+    }
+
+    public Optional<IdempotentResponse> find(String key, ConfirmationOperationEnum operation) {
+        return jdbcTemplate.query(FIND, RESPONSE_MAPPER, key, operation.name())
+                .stream()
+                .findFirst();
+    }
+
+    public void complete(String key, ConfirmationOperationEnum operation, IdempotentResponse response) {
+        jdbcTemplate.update(COMPLETE,
+                response.getStatus(),
+                response.getContentType(),
+                response.getBody(),
+                key,
+                operation.name()
+        );
+    }
+
+    /**
+     * Удаляет незавершенный ключ, чтобы повтор запроса выполнил его заново
+     */
+    public void release(String key, ConfirmationOperationEnum operation) {
+        jdbcTemplate.update(RELEASE, key, operation.name());
+    }
+
+    public void removeExpired() {
+        jdbcTemplate.update(REMOVE_EXPIRED);
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,188 @@
+package ru.mts.depositservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.InterestPayout;
+import ru.mts.depositservice.model.PayoutCheckpoint;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Доступ к вкладам для пакетной выплаты процентов.
+ * <p>
+ * Вклады читаются страницами по ключу {@code (percent_payment_date, id_deposit)}, который поддерживается
+ * индексом {@code deposits_percent_payment_date_idx}: каждая страница читается за одинаковое время
+ * независимо от того, сколько вкладов уже обработано
+ */
+@Repository
+@RequiredArgsConstructor
+public class InterestPayoutRepository {
+
+    // Количество шардов подставляется в текст запроса: только так условие совпадает с выражением индекса
+    // из R__create_shard_indexes.sql
+    private static final String SELECT_DUE =
+            "SELECT d.id_deposit, d.deposit_amount, d.deposit_rate, d.start_date, d.end_date, " +
+                    "d.percent_payment_date, t.type_percent_payment_period, d.percent_payment_account_id " +
+                    "FROM deposits d " +
+                    "INNER JOIN types_percent_payment t ON t.id_type_percent_payment = d.type_percent_payment_id " +
+                    "WHERE d.percent_payment_date <= ? " +
+                    "AND mod(d.id_deposit, %d) = ? ";
+    private static final String FIRST_PAGE =
+            SELECT_DUE +
+                    "ORDER BY d.percent_payment_date, d.id_deposit " +
+                    "LIMIT ?";
+    private static final String NEXT_PAGE =
+            SELECT_DUE +
+                    "AND (d.percent_payment_date, d.id_deposit) > (?, ?) " +
+                    "ORDER BY d.percent_payment_date, d.id_deposit " +
+                    "LIMIT ?";
+    private static final String MOVE_PAYMENT_DATE =
+            "UPDATE deposits SET percent_payment_date = ? " +
+                    "WHERE id_deposit = ? AND percent_payment_date = ?";
+    private static final String INSERT_DECLINED =
+            "INSERT INTO declined_interest_payouts " +
+                    "(id_deposit, payment_date, account_id, interest, error, declined_at) " +
+                    "VALUES (?, ?, ?, ?, left(?, 500), now()) " +
+                    "ON CONFLICT (id_deposit, payment_date) DO NOTHING";
+    private static final String SELECT_CHECKPOINT =
+            "SELECT payout_date, shard, last_payment_date, last_deposit_id, processed, paid_amount, completed " +
+                    "FROM payout_checkpoints WHERE payout_date = ? AND shard = ?";
+    private static final String UPSERT_CHECKPOINT =
+            "INSERT INTO payout_checkpoints " +
+                    "(payout_date, shard, last_payment_date, last_deposit_id, processed, paid_amount, completed, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, now()) " +
+                    "ON CONFLICT (payout_date, shard) DO UPDATE " +
+                    "SET last_payment_date = EXCLUDED.last_payment_date, last_deposit_id = EXCLUDED.last_deposit_id, " +
+                    "processed = EXCLUDED.processed, paid_amount = EXCLUDED.paid_amount, " +
+                    "completed = EXCLUDED.completed, updated_at = EXCLUDED.updated_at";
+
+    private static final RowMapper<InterestPayout> PAYOUT_MAPPER = (rs, rowNum) -> new InterestPayout(
+            rs.getInt("id_deposit"),
+            rs.getBigDecimal("deposit_amount"),
+            rs.getBigDecimal("deposit_rate"),
+            rs.getDate("start_date").toLocalDate(),
+            rs.getDate("end_date").toLocalDate(),
+            rs.getDate("percent_payment_date").toLocalDate(),
+            PercentPaymentTypeEnum.valueOf(rs.getString("type_percent_payment_period")),
+            (Integer) rs.getObject("percent_payment_account_id")
+    );
+
+    private static final RowMapper<PayoutCheckpoint> CHECKPOINT_MAPPER = (rs, rowNum) -> new PayoutCheckpoint(
+            rs.getDate("payout_date").toLocalDate(),
+            rs.getInt("shard"),
+            toLocalDate(rs.getDate("last_payment_date")),
+            (Integer) rs.getObject("last_deposit_id"),
+            rs.getLong("processed"),
+            rs.getBigDecimal("paid_amount"),
+            rs.getBoolean("completed")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Возвращает очередную страницу вкладов шарда, дата выплаты процентов по которым не позже указанной
+     *
+     * @param payoutDate      Дата выплаты
+     * @param shard           Номер шарда
+     * @param shardCount      Количество шардов
+     * @param lastPaymentDate Дата выплаты последнего прочитанного вклада; {@code null} для первой страницы
+     * @param lastDepositId   Идентификатор последнего прочитанного вклада; {@code null} для первой страницы
+     * @param limit           Размер страницы
+     * @return Вклады в порядке {@code (percent_payment_date, id_deposit)}
+     */
+    public List<InterestPayout> findDuePayouts(LocalDate payoutDate,
+                                               int shard,
+                                               int shardCount,
+                                               LocalDate lastPaymentDate,
+                                               Integer lastDepositId,
+                                               int limit) {
+        if (lastPaymentDate == null || lastDepositId == null) {
+            return jdbcTemplate.query(FIRST_PAGE.formatted(shardCount), PAYOUT_MAPPER,
+                    Date.valueOf(payoutDate), shard, limit);
+        }
+        return jdbcTemplate.query(NEXT_PAGE.formatted(shardCount), PAYOUT_MAPPER,
+                Date.valueOf(payoutDate), shard, Date.valueOf(lastPaymentDate), lastDepositId, limit);
+    }
+
+    /**
+     * Переносит дату выплаты процентов одним пакетом JDBC.
+     * <p>
+     * Дата переносится, только если она не была изменена с момента чтения вклада
+     *
+     * @param payouts          Обработанные вклады
+     * @param nextPaymentDates Новые даты выплаты в том же порядке; {@code null}, если выплат больше не будет
+     */
+    public void movePaymentDates(List<InterestPayout> payouts, List<LocalDate> nextPaymentDates) {
+        jdbcTemplate.batchUpdate(MOVE_PAYMENT_DATE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                InterestPayout payout = payouts.get(i);
+                LocalDate nextPaymentDate = nextPaymentDates.get(i);
+                if (nextPaymentDate == null) {
+                    ps.setNull(1, Types.DATE);
+                } else {
+                    ps.setDate(1, Date.valueOf(nextPaymentDate));
+                }
+                ps.setInt(2, payout.getDepositId());
+                ps.setDate(3, Date.valueOf(payout.getPercentPaymentDate()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payouts.size();
+            }
+        });
+    }
+
+    /**
+     * Сохраняет выплату, отклоненную {@code account-service}, для разбора.
+     * <p>
+     * Повторное сохранение выплаты за ту же дату ничего не меняет
+     *
+     * @param payout   Вклад
+     * @param interest Сумма процентов
+     * @param error    Причина отказа
+     */
+    public void saveDeclined(InterestPayout payout, BigDecimal interest, String error) {
+        jdbcTemplate.update(INSERT_DECLINED,
+                payout.getDepositId(),
+                Date.valueOf(payout.getPercentPaymentDate()),
+                payout.getPercentPaymentAccountId(),
+                interest,
+                error
+        );
+    }
+
+    public Optional<PayoutCheckpoint> findCheckpoint(LocalDate payoutDate, int shard) {
+        return jdbcTemplate.query(SELECT_CHECKPOINT, CHECKPOINT_MAPPER, Date.valueOf(payoutDate), shard)
+                .stream()
+                .findFirst();
+    }
+
+    public void saveCheckpoint(PayoutCheckpoint checkpoint) {
+        jdbcTemplate.update(UPSERT_CHECKPOINT,
+                Date.valueOf(checkpoint.getPayoutDate()),
+                checkpoint.getShard(),
+                checkpoint.getLastPaymentDate() == null ? null : Date.valueOf(checkpoint.getLastPaymentDate()),
+                checkpoint.getLastDepositId(),
+                checkpoint.getProcessed(),
+                checkpoint.getPaidAmount(),
+                checkpoint.isCompleted()
+        );
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+}
@@ -0,0 +1,186 @@
+package ru.mts.depositservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.mts.depositservice.model.MaturedDeposit;
+import ru.mts.depositservice.model.MaturingDeposit;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Доступ к вкладам, срок которых закончился.
+ * <p>
+ * Закрытые вклады переносятся из {@code deposits} в {@code matured_deposits}, где хранится состояние возврата
+ * денег на счет клиента. Вклад удаляется из {@code deposits} вместе с заявкой, как при закрытии вклада клиентом
+ */
+@Repository
+@RequiredArgsConstructor
+public class MaturedDepositRepository {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    // Количество шардов подставляется в текст запроса: только так условие совпадает с выражением индекса
+    // из R__create_shard_indexes.sql
+    private static final String SELECT_MATURED =
+            "SELECT id_deposit, end_date FROM deposits " +
+                    "WHERE end_date < ? " +
+                    "AND percent_payment_date IS NULL " +
+                    "AND mod(id_deposit, %d) = ? ";
+    private static final String FIRST_MATURED_PAGE =
+            SELECT_MATURED +
+                    "ORDER BY end_date, id_deposit " +
+                    "LIMIT ?";
+    private static final String NEXT_MATURED_PAGE =
+            SELECT_MATURED +
+                    "AND (end_date, id_deposit) > (?, ?) " +
+                    "ORDER BY end_date, id_deposit " +
+                    "LIMIT ?";
+    private static final String LOCK_DEPOSITS =
+            "SELECT id_deposit FROM deposits WHERE id_deposit = ANY (?) ORDER BY id_deposit FOR UPDATE";
+    private static final String ARCHIVE =
+            "WITH closed AS (" +
+                    "DELETE FROM deposits " +
+                    "WHERE id_deposit = ANY (?) " +
+                    "AND end_date < ? " +
+                    "AND percent_payment_date IS NULL " +
+                    "AND NOT EXISTS (SELECT 1 FROM account_outbox o " +
+                    "WHERE o.deposit_id = deposits.id_deposit AND o.status = 'PENDING') " +
+                    "RETURNING id_deposit, customer_id, deposit_amount, deposit_rate, start_date, end_date, " +
+                    "deposit_refund_account_id) " +
+                    "INSERT INTO matured_deposits (id_deposit, customer_id, deposit_amount, deposit_rate, start_date, " +
+                    "end_date, deposit_refund_account_id, refund_status, closed_at) " +
+                    "SELECT id_deposit, customer_id, deposit_amount, deposit_rate, start_date, end_date, " +
+                    "deposit_refund_account_id, 'PENDING', now() FROM closed " +
+                    "ON CONFLICT (id_deposit) DO NOTHING " +
+                    "RETURNING id_deposit, customer_id, deposit_amount, deposit_refund_account_id";
+    private static final String SELECT_PENDING =
+            "SELECT id_deposit, customer_id, deposit_amount, deposit_refund_account_id FROM matured_deposits " +
+                    "WHERE refund_status = 'PENDING' " +
+                    "AND mod(id_deposit, %d) = ? " +
+                    "AND id_deposit > ? " +
+                    "ORDER BY id_deposit " +
+                    "LIMIT ?";
+    private static final String MARK_REFUNDED =
+            "UPDATE matured_deposits SET refund_status = 'REFUNDED', last_error = NULL, refunded_at = now() " +
+                    "WHERE id_deposit = ? AND refund_status = 'PENDING'";
+    private static final String MARK_FAILED =
+            "UPDATE matured_deposits SET refund_status = 'FAILED', last_error = ? " +
+                    "WHERE id_deposit = ? AND refund_status = 'PENDING'";
+    private static final String RECORD_ERROR =
+            "UPDATE matured_deposits SET last_error = ? WHERE id_deposit = ?";
+
+    private static final RowMapper<MaturingDeposit> MATURING_DEPOSIT_MAPPER = (rs, rowNum) -> new MaturingDeposit(
+            rs.getInt("id_deposit"),
+            rs.getDate("end_date").toLocalDate()
+    );
+    private static final RowMapper<MaturedDeposit> MATURED_DEPOSIT_MAPPER = (rs, rowNum) -> new MaturedDeposit(
+            rs.getInt("id_deposit"),
+            rs.getInt("customer_id"),
+            rs.getBigDecimal("deposit_amount"),
+            rs.getInt("deposit_refund_account_id")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Читает страницу вкладов шарда, срок которых закончился до {@code closeDate}.
+     * <p>
+     * Вклады выбираются по индексу {@code deposits_shard_end_date_idx} с продолжением от последнего прочитанного
+     * вклада, поэтому каждая страница читается отдельным коротким запросом. Вклады, проценты по которым еще
+     * не выплачены, пропускаются
+     *
+     * @param closeDate     Дата закрытия
+     * @param shard         Номер шарда
+     * @param shardCount    Количество шардов
+     * @param lastEndDate   Дата окончания последнего прочитанного вклада; {@code null} для первой страницы
+     * @param lastDepositId Идентификатор последнего прочитанного вклада; {@code null} для первой страницы
+     * @param limit         Размер страницы
+     * @return Вклады в порядке {@code (end_date, id_deposit)}
+     */
+    public List<MaturingDeposit> findMaturedDeposits(LocalDate closeDate,
+                                                     int shard,
+                                                     int shardCount,
+                                                     LocalDate lastEndDate,
+                                                     Integer lastDepositId,
+                                                     int limit) {
+        if (lastEndDate == null || lastDepositId == null) {
+            return jdbcTemplate.query(FIRST_MATURED_PAGE.formatted(shardCount), MATURING_DEPOSIT_MAPPER,
+                    Date.valueOf(closeDate), shard, limit);
+        }
+        return jdbcTemplate.query(NEXT_MATURED_PAGE.formatted(shardCount), MATURING_DEPOSIT_MAPPER,
+                Date.valueOf(closeDate), shard, Date.valueOf(lastEndDate), lastDepositId, limit);
+    }
+
+    /**
+     * Переносит вклады в {@code matured_deposits} одним запросом.
+     * <p>
+     * Вклад, который уже закрыт клиентом или другим экземпляром сервиса, не переносится и не возвращается,
+     * поэтому деньги по нему не будут возвращены повторно. Вклад, списание для пополнения которого еще
+     * не выполнено, остается до следующего прохода: если списание отклонят, пополнение будет отменено.
+     * Вклады сначала блокируются, чтобы перенос увидел списания параллельных пополнений, поэтому метод
+     * нужно вызывать в транзакции
+     *
+     * @param depositIds Идентификаторы вкладов
+     * @param closeDate  Дата закрытия
+     * @return Перенесенные вклады
+     */
+    public List<MaturedDeposit> archive(List<Integer> depositIds, LocalDate closeDate) {
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(LOCK_DEPOSITS);
+                    statement.setArray(1, connection.createArrayOf("integer", depositIds.toArray()));
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> {
+                }
+        );
+        return jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(ARCHIVE);
+                    statement.setArray(1, connection.createArrayOf("integer", depositIds.toArray()));
+                    statement.setDate(2, Date.valueOf(closeDate));
+                    return statement;
+                },
+                MATURED_DEPOSIT_MAPPER
+        );
+    }
+
+    /**
+     * Находит закрытые вклады шарда, деньги по которым еще не возвращены.
+     * Вклады читаются страницами по идентификатору
+     *
+     * @param shard      Номер шарда
+     * @param shardCount Количество шардов
+     * @param afterId    Идентификатор последнего вклада предыдущей страницы; 0 для первой страницы
+     * @param limit      Размер страницы
+     * @return Вклады в порядке идентификаторов
+     */
+    public List<MaturedDeposit> findPendingRefunds(int shard, int shardCount, int afterId, int limit) {
+        return jdbcTemplate.query(SELECT_PENDING.formatted(shardCount), MATURED_DEPOSIT_MAPPER, shard, afterId, limit);
+    }
+
+    public void markRefunded(List<Integer> depositIds) {
+        if (depositIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(MARK_REFUNDED, depositIds, depositIds.size(), (ps, depositId) -> ps.setInt(1, depositId));
+    }
+
+    public void markFailed(Integer depositId, String error) {
+        jdbcTemplate.update(MARK_FAILED, truncate(error), depositId);
+    }
+
+    public void recordError(Integer depositId, String error) {
+        jdbcTemplate.update(RECORD_ERROR, truncate(error), depositId);
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
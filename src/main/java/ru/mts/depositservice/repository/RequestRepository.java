@@ -13,10 +13,10 @@ public interface RequestRepository extends JpaRepository<Request, Integer> {
 
     @Query(nativeQuery = true, value =
             "SELECT * FROM requests " +
-                    "INNER JOIN current_request_status crs on requests.id_request = crs.request_id " +
                     "WHERE customer_id = :customerId " +
                     "AND " +
-                    "request_status_id = 4"
+                    "current_status_id = :statusId"
     )
-    List<Request> findRequestsByCustomerId(@Param("customerId") Integer integer);
+    List<Request> findRequestsByCustomerIdAndStatusId(@Param("customerId") Integer customerId,
+                                                      @Param("statusId") Integer statusId);
 }
@@ -1,11 +1,15 @@
 package ru.mts.depositservice.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import ru.mts.depositservice.entity.RequestStatus;
 import ru.mts.depositservice.enums.RequestStatusEnum;
 
 @Repository
 public interface RequestStatusRepository extends JpaRepository<RequestStatus, Integer> {
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     RequestStatus findRequestStatusByStatusName(RequestStatusEnum requestStatus);
 }
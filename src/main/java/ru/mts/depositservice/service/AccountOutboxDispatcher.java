@@ -0,0 +1,213 @@
+package ru.mts.depositservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.OutboxMessage;
+import ru.mts.depositservice.property.OutboxProperty;
+import ru.mts.depositservice.repository.AccountOutboxRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отправляет операции со счетами из outbox в {@code account-service}.
+ * <p>
+ * Каждый из {@code app.outbox.threads} потоков захватывает пачку операций, время отправки которых наступило,
+ * и отправляет ее одним пакетом через {@link AccountClient#executeOperations(List)} при
+ * {@code app.account-batch.enabled}, иначе - по одной операции с идентификатором в заголовке
+ * {@code Idempotency-Key}. Идентификатор операции не меняется между попытками, поэтому повторно отправленную
+ * операцию {@code account-service} распознает по нему и не выполняет второй раз.
+ * Отклоненная операция переводится в {@code FAILED}; если отклонено списание для пополнения вклада, в той же
+ * команде отменяется пополнение, иначе операция требует разбора вручную. Операция, результат которой
+ * неизвестен, повторяется с экспоненциально растущей паузой до {@code max-attempts} попыток
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountOutboxDispatcher {
+
+    private final AccountOutboxRepository outboxRepository;
+    private final AccountClient accountClient;
+    private final OutboxProperty outboxProperty;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (!outboxProperty.isEnabled()) {
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= outboxProperty.getThreads(); i++) {
+            Thread worker = new Thread(this::poll, "account-outbox-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Захватывает и отправляет одну пачку операций
+     *
+     * @return Количество захваченных операций
+     */
+    public int dispatchBatch() {
+        List<OutboxMessage> messages = outboxRepository.claim(outboxProperty.getBatchSize(), outboxProperty.getLease());
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxMessage> ready = new ArrayList<>(messages.size());
+        List<AccountOperation> operations = new ArrayList<>(messages.size());
+        Map<Integer, Integer> accountIds = new HashMap<>();
+        for (OutboxMessage message : messages) {
+            try {
+                Integer accountId = accountIds.computeIfAbsent(message.getCustomerId(), accountClient::findAccountId);
+                operations.add(toOperation(message, accountId));
+                ready.add(message);
+            } catch (RuntimeException e) {
+                retryOrFail(message, e);
+            }
+        }
+
+        if (accountClient.isBatchingEnabled()) {
+            sendBatch(ready, operations);
+        } else {
+            for (int i = 0; i < ready.size(); i++) {
+                sendOne(ready.get(i), operations.get(i));
+            }
+        }
+        return messages.size();
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                if (dispatchBatch() == 0) {
+                    Thread.sleep(outboxProperty.getPollInterval().toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Захваченные операции вернутся к отправке после истечения lease
+                log.error("Не удалось отправить операции со счетами из outbox", e);
+                sleepQuietly(outboxProperty.getPollInterval());
+            }
+        }
+    }
+
+    private void sendBatch(List<OutboxMessage> messages, List<AccountOperation> operations) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        List<AccountOperationResult> results;
+        try {
+            results = accountClient.executeOperations(operations);
+        } catch (RuntimeException e) {
+            messages.forEach(message -> retryOrFail(message, e));
+            return;
+        }
+
+        List<Long> sent = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            if (results.get(i).isSuccess()) {
+                sent.add(messages.get(i).getId());
+            } else {
+                decline(messages.get(i), results.get(i));
+            }
+        }
+        outboxRepository.markSent(sent);
+    }
+
+    private void sendOne(OutboxMessage message, AccountOperation operation) {
+        AccountOperationResult result;
+        try {
+            result = accountClient.executeOperation(operation);
+        } catch (RuntimeException e) {
+            retryOrFail(message, e);
+            return;
+        }
+
+        if (result.isSuccess()) {
+            outboxRepository.markSent(List.of(message.getId()));
+        } else {
+            decline(message, result);
+        }
+    }
+
+    private void decline(OutboxMessage message, AccountOperationResult result) {
+        log.error("account-service отклонил операцию {} {} по заявке {} на сумму {}: {}",
+                message.getOperationId(), message.getType(), message.getRequestId(), message.getAmount(),
+                result.getMessage());
+        if (message.getType() != AccountOperationTypeEnum.WITHDRAW) {
+            outboxRepository.markFailed(message.getId(), result.getMessage());
+        } else if (outboxRepository.failAndRevertRefill(message.getId(), result.getMessage())) {
+            log.warn("Пополнение вклада по заявке {} на сумму {} отменено", message.getRequestId(), message.getAmount());
+        } else {
+            log.error("Пополнение вклада по заявке {} на сумму {} не отменено: вклад уже закрыт, требуется разбор вручную",
+                    message.getRequestId(), message.getAmount());
+        }
+    }
+
+    private void retryOrFail(OutboxMessage message, RuntimeException e) {
+        if (message.getAttempts() >= outboxProperty.getMaxAttempts()) {
+            log.error("Операция {} {} по заявке {} не отправлена за {} попыток",
+                    message.getOperationId(), message.getType(), message.getRequestId(), message.getAttempts(), e);
+            outboxRepository.markFailed(message.getId(), e.getMessage());
+            return;
+        }
+        log.warn("Операция {} будет отправлена повторно: {}", message.getOperationId(), e.getMessage());
+        outboxRepository.retry(message.getId(), backoff(message.getAttempts()), e.getMessage());
+    }
+
+    /**
+     * Пауза перед следующей попыткой: {@code initial-backoff}, удваиваемая с каждой попыткой
+     * до {@code max-backoff}
+     */
+    Duration backoff(int attempts) {
+        Duration maxBackoff = outboxProperty.getMaxBackoff();
+        int shift = Math.min(Math.max(attempts - 1, 0), 30);
+        Duration backoff = outboxProperty.getInitialBackoff().multipliedBy(1L << shift);
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private static AccountOperation toOperation(OutboxMessage message, Integer accountId) {
+        return new AccountOperation(message.getOperationId(), message.getType(), accountId, message.getAmount());
+    }
+
+    private static void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package ru.mts.depositservice.service;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.client.CustomerClient;
+import ru.mts.depositservice.entity.Customer;
+import ru.mts.depositservice.entity.Deposit;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.enums.BulkOpeningStatusEnum;
+import ru.mts.depositservice.enums.DepositOpeningStateEnum;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.exception.ChannelNotAuthorizedException;
+import ru.mts.depositservice.exception.CustomException;
+import ru.mts.depositservice.exception.IdempotencyKeyException;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.BulkOpeningResponse;
+import ru.mts.depositservice.model.BulkOpeningResult;
+import ru.mts.depositservice.model.DepositOpeningSaga;
+import ru.mts.depositservice.model.OpenDepositRequest;
+import ru.mts.depositservice.property.BulkOpeningProperty;
+import ru.mts.depositservice.property.IdempotencyProperty;
+import ru.mts.depositservice.repository.DepositOpeningSagaRepository;
+import ru.mts.depositservice.repository.DepositRepository;
+import ru.mts.depositservice.repository.RequestRepository;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ru.mts.depositservice.enums.DepositOpeningStateEnum.*;
+
+/**
+ * Открытие пачки вкладов одним запросом.
+ * <p>
+ * Вклады открываются без подтверждения кодом, поэтому пачку принимают только от каналов, токены которых заданы
+ * в {@code app.bulk-opening.channels}. Каждый вклад пачки получает идентификатор {@code канал:ключ:позиция},
+ * построенный по ключу идемпотентности пачки; идентификатор сохраняется вместе с заявкой, и повтор пачки с тем же
+ * ключом возвращает состояние уже созданных заявок, а не открывает вклады заново.
+ * <p>
+ * Все запросы проверяются до обращений к другим сервисам, каждый клиент запрашивается в {@code customer-service}
+ * один раз, а проверка и списание денег отправляются в {@code account-service} пакетами по
+ * {@code app.bulk-opening.account-batch-size} операций. Вклады открываются частями по {@code chunk-size}:
+ * заявки, история статусов, состояния открытия и вклады каждой части сохраняются пакетными вставками в коротких
+ * транзакциях, а списание выполняется вне транзакции. Ошибка одного вклада не прерывает открытие остальных,
+ * результат возвращается для каждого запроса.
+ * <p>
+ * Списание идет с идентификатором операции, построенным по заявке, и отражается в {@code deposit_opening_sagas}
+ * так же, как при открытии одного вклада, поэтому прерванные открытия доводит до конца {@link DepositOpeningSagaService}
+ */
+@Slf4j
+@Service
+@Timed(value = "deposit.service", histogram = true)
+@RequiredArgsConstructor
+public class BulkDepositOpeningService {
+
+    private static final String REJECTION_REASON = "Недостаточно средств для открытия вклада";
+
+    private final DepositService depositService;
+    private final AccountClient accountClient;
+    private final CustomerClient customerClient;
+    private final RequestRepository requestRepository;
+    private final DepositRepository depositRepository;
+    private final RequestStatusService requestStatusService;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final DepositOpeningSagaRepository sagaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final BulkOpeningProperty bulkProperty;
+    private final IdempotencyProperty idempotencyProperty;
+
+    /**
+     * Открывает вклады по пачке запросов без подтверждения кодом
+     *
+     * @param channelToken   Токен канала, которому разрешено пакетное открытие
+     * @param idempotencyKey Ключ идемпотентности пачки; повтор с тем же ключом не открывает вклады повторно
+     * @param openRequests   Запросы на открытие вкладов; идентификатор заявки и код подтверждения не используются
+     * @return Результаты открытия в порядке запросов
+     */
+    public BulkOpeningResponse openDeposits(String channelToken, String idempotencyKey,
+                                            List<OpenDepositRequest> openRequests) {
+        String channel = authorize(channelToken);
+        if (idempotencyKey == null || idempotencyKey.isBlank()
+                || idempotencyKey.length() > idempotencyProperty.getMaxKeyLength()) {
+            throw new IdempotencyKeyException(
+                    "INVALID_IDEMPOTENCY_KEY",
+                    "Длина ключа идемпотентности должна быть от 1 до " + idempotencyProperty.getMaxKeyLength()
+            );
+        }
+        if (openRequests.size() > bulkProperty.getMaxItems()) {
+            throw new CustomException(
+                    "BULK_LIMIT_EXCEEDED",
+                    "За один запрос можно открыть не более " + bulkProperty.getMaxItems() + " вкладов"
+            );
+        }
+        log.info("Канал {} открывает {} вкладов по ключу {}", channel, openRequests.size(), idempotencyKey);
+
+        BulkOpeningResult[] results = new BulkOpeningResult[openRequests.size()];
+        List<Item> items = validate(channel + ":" + idempotencyKey + ":", openRequests, results);
+        items = resolveCustomers(replay(items, results), results);
+
+        for (int from = 0; from < items.size(); from += bulkProperty.getChunkSize()) {
+            open(items.subList(from, Math.min(from + bulkProperty.getChunkSize(), items.size())), results);
+        }
+        return response(results);
+    }
+
+    /**
+     * Находит канал по токену
+     *
+     * @return Имя канала
+     */
+    private String authorize(String channelToken) {
+        if (channelToken != null) {
+            byte[] token = channelToken.getBytes(StandardCharsets.UTF_8);
+            for (Map.Entry<String, String> channel : bulkProperty.getChannels().entrySet()) {
+                // Сравнение за постоянное время не раскрывает токен по времени ответа
+                if (MessageDigest.isEqual(token, channel.getValue().getBytes(StandardCharsets.UTF_8))) {
+                    return channel.getKey();
+                }
+            }
+        }
+        throw new ChannelNotAuthorizedException(
+                "CHANNEL_NOT_AUTHORIZED",
+                "Канал не имеет права открывать вклады без подтверждения кодом"
+        );
+    }
+
+    private List<Item> validate(String clientItemIdPrefix, List<OpenDepositRequest> openRequests,
+                                BulkOpeningResult[] results) {
+        List<Item> items = new ArrayList<>(openRequests.size());
+        for (int index = 0; index < openRequests.size(); index++) {
+            OpenDepositRequest openRequest = openRequests.get(index);
+            try {
+                validate(openRequest);
+                items.add(new Item(index, clientItemIdPrefix + index, openRequest));
+            } catch (CustomException e) {
+                results[index] = new BulkOpeningResult(
+                        index, BulkOpeningStatusEnum.INVALID, null, null, null, e.getCode(), e.getMessage());
+            }
+        }
+        return items;
+    }
+
+    private void validate(OpenDepositRequest openRequest) {
+        if (openRequest == null
+                || openRequest.getCustomerId() == null
+                || openRequest.getDepositAmount() == null
+                || openRequest.getDepositType() == null
+                || openRequest.getDuration() == null
+                || openRequest.getIsCapitalized() == null
+                || (!openRequest.getIsCapitalized() && openRequest.getPercentPaymentType() == null)) {
+            throw new CustomException(
+                    "INVALID_REQUEST",
+                    "Не заданы клиент, сумма или условия вклада"
+            );
+        }
+        depositService.validateMinimumDepositAmount(openRequest.getDepositAmount());
+    }
+
+    /**
+     * Возвращает результаты вкладов, заявки по которым созданы предыдущей попыткой с тем же ключом
+     *
+     * @return Вклады, заявок по которым еще нет
+     */
+    private List<Item> replay(List<Item> items, BulkOpeningResult[] results) {
+        if (items.isEmpty()) {
+            return items;
+        }
+        Map<String, DepositOpeningSaga> sagas = sagaRepository.findByClientItemIds(
+                items.stream().map(item -> item.clientItemId).toList());
+        if (sagas.isEmpty()) {
+            return items;
+        }
+
+        Map<Integer, BigDecimal> rates = depositRepository.findAllById(sagas.values()
+                        .stream()
+                        .map(DepositOpeningSaga::getDepositId)
+                        .filter(Objects::nonNull)
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(Deposit::getId, Deposit::getDepositRate));
+
+        List<Item> remaining = new ArrayList<>(items.size() - sagas.size());
+        for (Item item : items) {
+            DepositOpeningSaga saga = sagas.get(item.clientItemId);
+            if (saga == null) {
+                remaining.add(item);
+            } else {
+                results[item.index] = replayed(item, saga, rates.get(saga.getDepositId()));
+            }
+        }
+        return remaining;
+    }
+
+    private static BulkOpeningResult replayed(Item item, DepositOpeningSaga saga, BigDecimal rate) {
+        if (!saga.getCustomerId().equals(item.openRequest.getCustomerId())
+                || saga.getAmount().compareTo(item.openRequest.getDepositAmount()) != 0) {
+            return new BulkOpeningResult(item.index, BulkOpeningStatusEnum.INVALID, saga.getRequestId(), null, null,
+                    "IDEMPOTENCY_KEY_REUSED", "Ключ идемпотентности уже использован для другого вклада");
+        }
+        return switch (saga.getState()) {
+            case COMPLETED -> new BulkOpeningResult(item.index, BulkOpeningStatusEnum.OPENED, saga.getRequestId(),
+                    saga.getDepositId(), rate, null, null);
+            case REJECTED -> new BulkOpeningResult(item.index, BulkOpeningStatusEnum.REJECTED, saga.getRequestId(),
+                    null, null, "INSUFFICIENT_FUNDS", REJECTION_REASON);
+            case COMPENSATED -> new BulkOpeningResult(item.index, BulkOpeningStatusEnum.FAILED, saga.getRequestId(),
+                    null, null, "DEPOSIT_NOT_OPENED", saga.getLastError());
+            default -> new BulkOpeningResult(item.index, BulkOpeningStatusEnum.FAILED, saga.getRequestId(),
+                    null, null, "OPENING_IN_PROGRESS", "Открытие вклада еще не завершено");
+        };
+    }
+
+    /**
+     * Запрашивает каждого клиента один раз, сколько бы вкладов он ни открывал
+     */
+    private List<Item> resolveCustomers(List<Item> items, BulkOpeningResult[] results) {
+        Map<Integer, Customer> customers = new HashMap<>();
+        Map<Integer, RuntimeException> errors = new HashMap<>();
+
+        List<Item> resolved = new ArrayList<>(items.size());
+        for (Item item : items) {
+            Integer customerId = item.openRequest.getCustomerId();
+            if (!customers.containsKey(customerId) && !errors.containsKey(customerId)) {
+                try {
+                    customers.put(customerId, customerClient.findCustomer(customerId));
+                } catch (RuntimeException e) {
+                    errors.put(customerId, e);
+                }
+            }
+
+            Customer customer = customers.get(customerId);
+            if (customer != null && customer.getBankAccount() != null) {
+                item.customer = customer;
+                resolved.add(item);
+            } else if (errors.containsKey(customerId)) {
+                results[item.index] = failed(item, errors.get(customerId));
+            } else {
+                results[item.index] = new BulkOpeningResult(item.index, BulkOpeningStatusEnum.INVALID, null, null, null,
+                        "CUSTOMER_NOT_FOUND", "Клиент с идентификатором " + customerId + " не найден!");
+            }
+        }
+        return resolved;
+    }
+
+    private void open(List<Item> chunk, BulkOpeningResult[] results) {
+        // Проверяем, достаточно ли денег на счетах клиентов
+        List<Outcome> checks = execute(chunk, AccountOperationTypeEnum.CHECK, item -> UUID.randomUUID().toString());
+        List<Item> approved = new ArrayList<>();
+        List<Item> rejected = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Item item = chunk.get(i);
+            Outcome check = checks.get(i);
+            if (check.error() != null) {
+                results[item.index] = failed(item, check.error());
+            } else if (check.result().isSuccess()) {
+                approved.add(item);
+            } else {
+                rejected.add(item);
+            }
+        }
+        if (approved.isEmpty() && rejected.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> createRequests(approved, rejected));
+        } catch (RuntimeException e) {
+            log.error("Не удалось сохранить {} заявок на открытие вкладов", approved.size() + rejected.size(), e);
+            for (Item item : concat(approved, rejected)) {
+                item.request = null;                                                    // заявки не сохранены
+                results[item.index] = failed(item, e);
+            }
+            return;
+        }
+        concat(approved, rejected).stream()
+                .map(item -> item.openRequest.getCustomerId())
+                .distinct()
+                .forEach(readYourWritesTracker::markWritten);
+        rejected.forEach(item -> results[item.index] = rejected(item, REJECTION_REASON));
+
+        withdraw(approved, results);
+    }
+
+    /**
+     * Сохраняет заявки с историей статусов и состояния открытия вкладов
+     */
+    private void createRequests(List<Item> approved, List<Item> rejected) {
+        RequestStatus confirmed = referenceDataRegistry.getRequestStatus(RequestStatusEnum.CONFIRMED);
+        saveRequests(approved, List.of(confirmed, referenceDataRegistry.getRequestStatus(RequestStatusEnum.APPROVED)));
+        saveRequests(rejected, List.of(confirmed, referenceDataRegistry.getRequestStatus(RequestStatusEnum.REJECTED)));
+        requestRepository.flush();                                                      // состояния открытия ссылаются на заявки
+
+        List<DepositOpeningSaga> sagas = new ArrayList<>(approved.size() + rejected.size());
+        approved.forEach(item -> sagas.add(saga(item, WITHDRAWING)));
+        rejected.forEach(item -> sagas.add(saga(item, REJECTED)));
+        sagaRepository.insertAll(sagas);
+
+        Map<String, Integer> clientItemIds = new LinkedHashMap<>();
+        concat(approved, rejected).forEach(item -> clientItemIds.put(item.clientItemId, item.request.getId()));
+        sagaRepository.insertClientItemIds(clientItemIds);
+    }
+
+    private void saveRequests(List<Item> items, List<RequestStatus> statuses) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Date requestDate = new Date();
+        List<Request> requests = new ArrayList<>(items.size());
+        for (Item item : items) {
+            Request request = new Request();
+            request.setCustomer(item.customer);
+            request.setAmount(item.openRequest.getDepositAmount());
+            request.setRequestDate(requestDate);
+            requests.add(request);
+        }
+
+        List<Request> saved = requestStatusService.createRequests(requests, statuses);
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).request = saved.get(i);
+        }
+    }
+
+    private void withdraw(List<Item> approved, BulkOpeningResult[] results) {
+        if (approved.isEmpty()) {
+            return;
+        }
+        // Идентификатор списания строится по заявке, чтобы account-service не выполнил повтор дважды
+        List<Outcome> withdrawals = execute(approved, AccountOperationTypeEnum.WITHDRAW,
+                item -> DepositOpeningSagaService.withdrawalOperationId(item.request.getId()));
+        List<Item> withdrawn = new ArrayList<>();
+        List<Item> declined = new ArrayList<>();
+        for (int i = 0; i < approved.size(); i++) {
+            Item item = approved.get(i);
+            Outcome withdrawal = withdrawals.get(i);
+            if (withdrawal.error() != null) {
+                // Ответ на списание не получен: открытие остается в состоянии WITHDRAWING, списание повторит recover()
+                log.error("Не получен ответ на списание по заявке {}", item.request.getId(), withdrawal.error());
+                sagaRepository.recordError(item.request.getId(), withdrawal.error().getMessage());
+                results[item.index] = failed(item, withdrawal.error());
+            } else if (withdrawal.result().isSuccess()) {
+                withdrawn.add(item);
+            } else {
+                declined.add(item);
+                results[item.index] = rejected(item, withdrawal.result().getMessage());
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                sagaRepository.transitionAll(requestIds(withdrawn), WITHDRAWING, WITHDRAWN, null);
+                if (!declined.isEmpty()) {
+                    sagaRepository.transitionAll(requestIds(declined), WITHDRAWING, REJECTED, REJECTION_REASON);
+                    requestStatusService.changeCurrentRequestStatuses(
+                            requestRepository.findAllById(requestIds(declined)),
+                            referenceDataRegistry.getRequestStatus(RequestStatusEnum.REJECTED)
+                    );
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Не удалось сохранить результат списания по {} заявкам", withdrawn.size() + declined.size(), e);
+            concat(withdrawn, declined).forEach(item -> results[item.index] = failed(item, e));
+            return;
+        }
+
+        createDeposits(withdrawn, results);
+    }
+
+    /**
+     * Создает вклады, деньги для которых списаны. Если вклады создать не удалось, открытия переводятся
+     * в состояние {@code COMPENSATING}, и деньги возвращает {@link DepositOpeningSagaService#recover()}
+     */
+    private void createDeposits(List<Item> withdrawn, BulkOpeningResult[] results) {
+        if (withdrawn.isEmpty()) {
+            return;
+        }
+
+        List<Deposit> deposits;
+        try {
+            deposits = transactionTemplate.execute(status -> saveDeposits(withdrawn));
+        } catch (RuntimeException e) {
+            log.error("Не удалось создать {} вкладов, деньги будут возвращены на счета", withdrawn.size(), e);
+            try {
+                sagaRepository.transitionAll(requestIds(withdrawn), WITHDRAWN, COMPENSATING, e.getMessage());
+            } catch (RuntimeException transitionError) {
+                log.error("Открытия вкладов остались в состоянии WITHDRAWN и будут завершены повторно", transitionError);
+            }
+            withdrawn.forEach(item -> results[item.index] = failed(item, e));
+            return;
+        }
+
+        for (int i = 0; i < withdrawn.size(); i++) {
+            Item item = withdrawn.get(i);
+            Deposit deposit = deposits.get(i);
+            results[item.index] = new BulkOpeningResult(item.index, BulkOpeningStatusEnum.OPENED, item.request.getId(),
+                    deposit.getId(), deposit.getDepositRate(), null, null);
+        }
+    }
+
+    private List<Deposit> saveDeposits(List<Item> withdrawn) {
+        Map<Integer, Request> requests = requestRepository.findAllById(requestIds(withdrawn))
+                .stream()
+                .collect(Collectors.toMap(Request::getId, Function.identity()));
+
+        List<Deposit> deposits = new ArrayList<>(withdrawn.size());
+        for (Item item : withdrawn) {
+            deposits.add(depositService.buildDeposit(item.openRequest, item.customer, item.request.getAmount()));
+        }
+        deposits = depositRepository.saveAll(deposits);
+
+        Map<Integer, Integer> depositIds = new LinkedHashMap<>();
+        for (int i = 0; i < withdrawn.size(); i++) {
+            Integer requestId = withdrawn.get(i).request.getId();
+            requests.get(requestId).setDeposit(deposits.get(i));                       // связываем заявку с созданным вкладом
+            depositIds.put(requestId, deposits.get(i).getId());
+        }
+        requestRepository.saveAll(requests.values());
+
+        if (sagaRepository.completeAll(depositIds) != withdrawn.size()) {
+            throw new IllegalStateException("Часть открытий вкладов уже завершена или отменяется");
+        }
+        return deposits;
+    }
+
+    /**
+     * Выполняет операции со счетами пакетами. Если пакет завершился ошибкой, ошибка возвращается для каждой его операции
+     *
+     * @return Результаты в порядке вкладов
+     */
+    private List<Outcome> execute(List<Item> items, AccountOperationTypeEnum type, Function<Item, String> operationId) {
+        List<Outcome> outcomes = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += bulkProperty.getAccountBatchSize()) {
+            List<Item> batch = items.subList(from, Math.min(from + bulkProperty.getAccountBatchSize(), items.size()));
+            List<AccountOperation> operations = batch.stream()
+                    .map(item -> new AccountOperation(
+                            operationId.apply(item),
+                            type,
+                            item.customer.getBankAccount().getId(),
+                            item.openRequest.getDepositAmount()
+                    ))
+                    .toList();
+            try {
+                accountClient.executeOperations(operations)
+                        .forEach(result -> outcomes.add(new Outcome(result, null)));
+            } catch (RuntimeException e) {
+                batch.forEach(item -> outcomes.add(new Outcome(null, e)));
+            }
+        }
+        return outcomes;
+    }
+
+    private static DepositOpeningSaga saga(Item item, DepositOpeningStateEnum state) {
+        OpenDepositRequest openRequest = item.openRequest;
+        return new DepositOpeningSaga(
+                item.request.getId(),
+                openRequest.getCustomerId(),
+                state,
+                openRequest.getDepositType(),
+                openRequest.getDuration(),
+                openRequest.getIsCapitalized(),
+                openRequest.getPercentPaymentType(),
+                item.request.getAmount(),
+                null,
+                0,
+                null
+        );
+    }
+
+    private static List<Item> concat(List<Item> first, List<Item> second) {
+        List<Item> items = new ArrayList<>(first.size() + second.size());
+        items.addAll(first);
+        items.addAll(second);
+        return items;
+    }
+
+    private static List<Integer> requestIds(List<Item> items) {
+        return items.stream()
+                .map(item -> item.request.getId())
+                .toList();
+    }
+
+    private static BulkOpeningResult rejected(Item item, String reason) {
+        return new BulkOpeningResult(item.index, BulkOpeningStatusEnum.REJECTED, item.request.getId(), null, null,
+                "INSUFFICIENT_FUNDS", reason);
+    }
+
+    private static BulkOpeningResult failed(Item item, RuntimeException e) {
+        String code = e instanceof CustomException customException ? customException.getCode() : "DEPOSIT_NOT_OPENED";
+        return new BulkOpeningResult(item.index, BulkOpeningStatusEnum.FAILED,
+                item.request == null ? null : item.request.getId(), null, null, code, e.getMessage());
+    }
+
+    private static BulkOpeningResponse response(BulkOpeningResult[] results) {
+        Map<BulkOpeningStatusEnum, Long> counts = Arrays.stream(results)
+                .collect(Collectors.groupingBy(BulkOpeningResult::getStatus, Collectors.counting()));
+        return new BulkOpeningResponse(
+                counts.getOrDefault(BulkOpeningStatusEnum.OPENED, 0L).intValue(),
+                counts.getOrDefault(BulkOpeningStatusEnum.REJECTED, 0L).intValue(),
+                counts.getOrDefault(BulkOpeningStatusEnum.INVALID, 0L).intValue(),
+                counts.getOrDefault(BulkOpeningStatusEnum.FAILED, 0L).intValue(),
+                List.of(results)
+        );
+    }
+
+    /**
+     * Вклад из пачки на пути к открытию
+     */
+    private static final class Item {
+
+        private final int index;
+        private final String clientItemId;
+        private final OpenDepositRequest openRequest;
+        private Customer customer;
+        private Request request;
+
+        private Item(int index, String clientItemId, OpenDepositRequest openRequest) {
+            this.index = index;
+            this.clientItemId = clientItemId;
+            this.openRequest = openRequest;
+        }
+    }
+
+    private record Outcome(AccountOperationResult result, RuntimeException error) {
+    }
+}
@@ -0,0 +1,37 @@
+package ru.mts.depositservice.service;
+
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+
+/**
+ * Хранилище кодов подтверждения.
+ * <p>
+ * Код привязан к заявке и операции, действует ограниченное время и допускает ограниченное количество попыток ввода
+ */
+public interface ConfirmationCodeStore {
+    /**
+     * Сохраняет код подтверждения, заменяя ранее выданный код для той же заявки и операции
+     *
+     * @param requestId Идентификатор заявки
+     * @param operation Подтверждаемая операция
+     * @param code      Код подтверждения
+     */
+    void save(Integer requestId, ConfirmationOperationEnum operation, String code);
+
+    /**
+     * Проверяет код подтверждения.
+     * <p>
+     * Верный код может быть использован только один раз. Неверный ввод расходует попытку,
+     * после исчерпания попыток код удаляется
+     *
+     * @param requestId Идентификатор заявки
+     * @param operation Подтверждаемая операция
+     * @param code      Введенный код
+     * @return {@code true}, если код верный и еще действует; в противном случае {@code false}
+     */
+    boolean verify(Integer requestId, ConfirmationOperationEnum operation, String code);
+
+    /**
+     * Удаляет коды, срок действия которых истек
+     */
+    void removeExpired();
+}
@@ -1,5 +1,7 @@
 package ru.mts.depositservice.service;
 
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+
 public interface ConfirmationService {
     /**
      * Генерирует случайный код подтверждения
@@ -7,4 +9,23 @@ public interface ConfirmationService {
      * @return Строка, представляющая сгенерированный код подтверждения
      */
     String generateVerificationCode();
+
+    /**
+     * Генерирует код подтверждения операции по заявке и сохраняет его до проверки
+     *
+     * @param requestId Идентификатор заявки
+     * @param operation Подтверждаемая операция
+     * @return Выданный код подтверждения
+     */
+    String sendConfirmationCode(Integer requestId, ConfirmationOperationEnum operation);
+
+    /**
+     * Проверяет код подтверждения операции по заявке
+     *
+     * @param requestId Идентификатор заявки
+     * @param operation Подтверждаемая операция
+     * @param code      Введенный пользователем код
+     * @return {@code true}, если код верный; в противном случае {@code false}
+     */
+    boolean checkConfirmationCode(Integer requestId, ConfirmationOperationEnum operation, String code);
 }
@@ -0,0 +1,149 @@
+package ru.mts.depositservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.model.DepositView;
+import ru.mts.depositservice.model.PortfolioPage;
+import ru.mts.depositservice.model.RejectedRequestView;
+import ru.mts.depositservice.property.PortfolioProperty;
+import ru.mts.depositservice.repository.CustomerPortfolioRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Постраничное и потоковое чтение вкладов и отклоненных заявок клиента.
+ * <p>
+ * Страницы выбираются по курсору {@code afterId} - идентификатору последней строки предыдущей страницы,
+ * поэтому чтение любой страницы стоит одинаково, а вставки между запросами не сдвигают страницы.
+ * Потоковые варианты пишут строки в формате NDJSON (один JSON-объект на строку) по мере чтения из курсора.
+ * Чтение выполняется в read-only транзакциях и при включенной реплике идет на нее, кроме клиентов,
+ * недавно изменявших данные ({@link ReadYourWritesTracker})
+ */
+@Service
+@RequiredArgsConstructor
+public class CustomerPortfolioService {
+
+    private final CustomerPortfolioRepository portfolioRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final PortfolioProperty portfolioProperty;
+    private final ObjectMapper objectMapper;
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    /**
+     * Находит страницу вкладов клиента
+     *
+     * @param customerId Идентификатор клиента
+     * @param afterId    Курсор из предыдущей страницы; {@code null} для первой страницы
+     * @param limit      Размер страницы; {@code null} - размер по умолчанию
+     * @return Страница вкладов
+     */
+    public PortfolioPage<DepositView> findDepositsPage(Integer customerId, Integer afterId, Integer limit) {
+        int pageSize = pageSize(limit);
+        List<DepositView> deposits = readYourWritesTracker.read(customerId, () ->
+                portfolioRepository.findDepositsPage(customerId, cursor(afterId), pageSize + 1));
+        return page(deposits, pageSize, DepositView::getId);
+    }
+
+    /**
+     * Находит страницу отклоненных заявок клиента
+     *
+     * @param customerId Идентификатор клиента
+     * @param afterId    Курсор из предыдущей страницы; {@code null} для первой страницы
+     * @param limit      Размер страницы; {@code null} - размер по умолчанию
+     * @return Страница отклоненных заявок
+     */
+    public PortfolioPage<RejectedRequestView> findRejectedRequestsPage(Integer customerId, Integer afterId, Integer limit) {
+        int pageSize = pageSize(limit);
+        Integer rejectedStatusId = rejectedStatusId();
+        List<RejectedRequestView> requests = readYourWritesTracker.read(customerId, () ->
+                portfolioRepository.findRejectedRequestsPage(customerId, rejectedStatusId, cursor(afterId), pageSize + 1));
+        return page(requests, pageSize, RejectedRequestView::getId);
+    }
+
+    /**
+     * Пишет все вклады клиента в {@code output} в формате NDJSON
+     *
+     * @param customerId Идентификатор клиента
+     * @param output     Поток ответа; не закрывается
+     */
+    @Transactional(readOnly = true)
+    public void streamDeposits(Integer customerId, OutputStream output) {
+        writeNdjson(output, consumer -> readYourWritesTracker.read(customerId, () -> {
+            portfolioRepository.streamDeposits(customerId, portfolioProperty.getStreamFetchSize(), consumer);
+            return null;
+        }));
+    }
+
+    /**
+     * Пишет все отклоненные заявки клиента в {@code output} в формате NDJSON
+     *
+     * @param customerId Идентификатор клиента
+     * @param output     Поток ответа; не закрывается
+     */
+    @Transactional(readOnly = true)
+    public void streamRejectedRequests(Integer customerId, OutputStream output) {
+        Integer rejectedStatusId = rejectedStatusId();
+        writeNdjson(output, consumer -> readYourWritesTracker.read(customerId, () -> {
+            portfolioRepository.streamRejectedRequests(
+                    customerId,
+                    rejectedStatusId,
+                    portfolioProperty.getStreamFetchSize(),
+                    consumer
+            );
+            return null;
+        }));
+    }
+
+    private <T> void writeNdjson(OutputStream output, Consumer<Consumer<T>> source) {
+        // Сброс в поток ответа - по заполнении буфера генератора, а не после каждой строки
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);                              // строки разделяются только '\n'
+            source.accept(item -> {
+                try {
+                    writer.writeValue(generator, item);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);                          // клиент закрыл соединение
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> PortfolioPage<T> page(List<T> rows, int pageSize, Function<T, Integer> id) {
+        if (rows.size() <= pageSize) {
+            return new PortfolioPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new PortfolioPage<>(List.copyOf(items), id.apply(items.get(pageSize - 1)));
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return portfolioProperty.getPageSize();
+        }
+        return Math.max(1, Math.min(limit, portfolioProperty.getMaxPageSize()));
+    }
+
+    private static int cursor(Integer afterId) {
+        return afterId == null ? 0 : afterId;
+    }
+
+    private Integer rejectedStatusId() {
+        return referenceDataRegistry.getRequestStatus(RequestStatusEnum.REJECTED).getId();
+    }
+}
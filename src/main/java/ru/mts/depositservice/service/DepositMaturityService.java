@@ -0,0 +1,240 @@
+package ru.mts.depositservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.MaturedDeposit;
+import ru.mts.depositservice.model.MaturingDeposit;
+import ru.mts.depositservice.model.MaturityRunStats;
+import ru.mts.depositservice.property.MaturityProperty;
+import ru.mts.depositservice.repository.MaturedDepositRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Закрытие вкладов, срок которых закончился.
+ * <p>
+ * Экземпляр обрабатывает только шарды вкладов, арендованные им в {@link ShardLeaseManager}. Вклады шарда читаются
+ * страницами по {@code app.maturity.chunk-size} с продолжением от последнего прочитанного вклада: каждая страница
+ * читается коротким запросом и переносится в {@code matured_deposits} отдельной транзакцией, после чего деньги
+ * возвращаются на счет возврата вклада пакетами по {@code refund-batch-size}. Во время обращений к
+ * {@code account-service} ни транзакция, ни соединение с базой не удерживаются. В памяти одновременно находится
+ * не больше одной страницы, поэтому потребление памяти не зависит от количества вкладов.
+ * <p>
+ * Возврат отправляется с идентификатором операции, построенным по вкладу, после фиксации переноса. Возврат,
+ * результат которого неизвестен, а также возврат, не отправленный из-за сбоя после переноса, повторяется
+ * при следующем проходе с тем же идентификатором операции
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DepositMaturityService {
+
+    private static final String OPERATION_ID_PREFIX = "deposit-maturity-";
+
+    private final MaturedDepositRepository maturedRepository;
+    private final AccountClient accountClient;
+    private final MaturityProperty maturityProperty;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardLeaseManager shardLeaseManager;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong runProgress = new AtomicLong();
+
+    private TransactionTemplate chunkTransaction;
+    private volatile MaturityRunStats lastRunStats;
+
+    @PostConstruct
+    void init() {
+        // Части закрываются в собственных транзакциях, даже если проход запущен внутри транзакции
+        chunkTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Gauge.builder("deposit.maturity.progress", runProgress, AtomicLong::get)
+                .description("Вклады, обработанные текущим или последним проходом")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Закрывает вклады, срок которых закончился до сегодняшнего дня
+     */
+    @Scheduled(cron = "${app.maturity.cron:0 30 1 * * *}")
+    public void closeMaturedDeposits() {
+        closeMatured(LocalDate.now());
+    }
+
+    /**
+     * Закрывает вклады арендованных шардов, срок которых закончился до указанной даты, и повторяет
+     * незавершенные возвраты денег по закрытым ранее вкладам
+     *
+     * @param closeDate Дата закрытия
+     * @return Статистика выполнения
+     */
+    public MaturityRunStats closeMatured(LocalDate closeDate) {
+        long startedAt = System.nanoTime();
+        RunTotals totals = new RunTotals();
+        runProgress.set(0);
+
+        shardLeaseManager.runOnOwnedShards(shard -> {
+            retryPendingRefunds(shard, totals);
+            closeShard(closeDate, shard, totals);
+        });
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        MaturityRunStats stats = new MaturityRunStats(
+                closeDate,
+                totals.closed,
+                totals.refunded,
+                totals.deferred,
+                totals.failed,
+                totals.chunks,
+                totals.refundedAmount,
+                durationMillis,
+                durationMillis == 0 ? totals.closed : totals.closed * 1000.0 / durationMillis
+        );
+        lastRunStats = stats;
+
+        log.info("Закрытие вкладов за {}: закрыто {}, возвращено {} на сумму {}, отложено {}, отклонено {}, " +
+                        "частей {}, за {} мс ({} вкладов/с)",
+                closeDate, stats.getClosed(), stats.getRefunded(), stats.getRefundedAmount(), stats.getDeferred(),
+                stats.getFailed(), stats.getChunks(), stats.getDurationMillis(),
+                String.format("%.1f", stats.getDepositsPerSecond()));
+        return stats;
+    }
+
+    /**
+     * Возвращает статистику последнего выполненного прохода
+     *
+     * @return Статистика прохода; {@code null}, если закрытие еще не выполнялось
+     */
+    public MaturityRunStats getLastRunStats() {
+        return lastRunStats;
+    }
+
+    private void closeShard(LocalDate closeDate, int shard, RunTotals totals) {
+        // Вклады, которые не удалось закрыть, остаются в deposits, поэтому чтение продолжается после последнего
+        // прочитанного вклада, а не с начала шарда
+        LocalDate lastEndDate = null;
+        Integer lastDepositId = null;
+        List<MaturingDeposit> page;
+        while (!(page = maturedRepository.findMaturedDeposits(
+                closeDate,
+                shard,
+                shardLeaseManager.getShardCount(),
+                lastEndDate,
+                lastDepositId,
+                maturityProperty.getChunkSize())).isEmpty()) {
+            closeChunk(closeDate, page.stream().map(MaturingDeposit::getDepositId).toList(), totals);
+            MaturingDeposit last = page.get(page.size() - 1);
+            lastEndDate = last.getEndDate();
+            lastDepositId = last.getDepositId();
+        }
+    }
+
+    private void closeChunk(LocalDate closeDate, List<Integer> depositIds, RunTotals totals) {
+        List<MaturedDeposit> closed = chunkTransaction.execute(status -> maturedRepository.archive(depositIds, closeDate));
+        totals.closed += closed.size();
+        totals.chunks++;
+        meterRegistry.counter("deposit.maturity.closed").increment(closed.size());
+
+        refund(closed, totals);
+        runProgress.addAndGet(depositIds.size());
+    }
+
+    private void retryPendingRefunds(int shard, RunTotals totals) {
+        int afterId = 0;
+        List<MaturedDeposit> pending;
+        while (!(pending = maturedRepository.findPendingRefunds(
+                shard,
+                shardLeaseManager.getShardCount(),
+                afterId,
+                maturityProperty.getChunkSize())).isEmpty()) {
+            refund(pending, totals);
+            afterId = pending.get(pending.size() - 1).getDepositId();
+        }
+    }
+
+    private void refund(List<MaturedDeposit> deposits, RunTotals totals) {
+        int batchSize = maturityProperty.getRefundBatchSize();
+        for (int from = 0; from < deposits.size(); from += batchSize) {
+            refundBatch(deposits.subList(from, Math.min(from + batchSize, deposits.size())), totals);
+        }
+    }
+
+    private void refundBatch(List<MaturedDeposit> deposits, RunTotals totals) {
+        List<AccountOperation> operations = deposits.stream()
+                .map(deposit -> new AccountOperation(
+                        OPERATION_ID_PREFIX + deposit.getDepositId(),
+                        AccountOperationTypeEnum.REFILL,
+                        deposit.getRefundAccountId(),
+                        deposit.getDepositAmount()
+                ))
+                .toList();
+
+        List<AccountOperationResult> results;
+        try {
+            results = accountClient.executeOperations(operations);
+        } catch (RuntimeException e) {
+            // Результат возврата неизвестен: вклады остаются в PENDING и будут возвращены при следующем проходе
+            log.warn("Возврат {} закрытых вкладов будет повторен: {}", deposits.size(), e.getMessage());
+            chunkTransaction.executeWithoutResult(status -> deposits.forEach(
+                    deposit -> maturedRepository.recordError(deposit.getDepositId(), e.getMessage())));
+            totals.deferred += deposits.size();
+            meterRegistry.counter("deposit.maturity.refunds", "result", "deferred").increment(deposits.size());
+            return;
+        }
+
+        List<Integer> refunded = new ArrayList<>(deposits.size());
+        BigDecimal refundedAmount = BigDecimal.ZERO;
+        List<Integer> declined = new ArrayList<>();
+        for (int i = 0; i < deposits.size(); i++) {
+            MaturedDeposit deposit = deposits.get(i);
+            if (results.get(i).isSuccess()) {
+                refunded.add(deposit.getDepositId());
+                refundedAmount = refundedAmount.add(deposit.getDepositAmount());
+            } else {
+                log.error("account-service отклонил возврат {} по закрытому вкладу {} на счет {}: {}",
+                        deposit.getDepositAmount(), deposit.getDepositId(), deposit.getRefundAccountId(),
+                        results.get(i).getMessage());
+                declined.add(i);
+            }
+        }
+
+        chunkTransaction.executeWithoutResult(status -> {
+            maturedRepository.markRefunded(refunded);
+            for (Integer i : declined) {
+                maturedRepository.markFailed(deposits.get(i).getDepositId(), results.get(i).getMessage());
+            }
+        });
+
+        totals.refunded += refunded.size();
+        totals.failed += declined.size();
+        totals.refundedAmount = totals.refundedAmount.add(refundedAmount);
+        meterRegistry.counter("deposit.maturity.refunds", "result", "refunded").increment(refunded.size());
+        meterRegistry.counter("deposit.maturity.refunds", "result", "failed").increment(declined.size());
+    }
+
+    private static final class RunTotals {
+        private long closed;
+        private long refunded;
+        private long deferred;
+        private long failed;
+        private long chunks;
+        private BigDecimal refundedAmount = BigDecimal.ZERO;
+    }
+}
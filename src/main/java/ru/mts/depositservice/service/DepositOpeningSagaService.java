@@ -0,0 +1,289 @@
+package ru.mts.depositservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.client.CustomerClient;
+import ru.mts.depositservice.entity.Customer;
+import ru.mts.depositservice.entity.Deposit;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.enums.DepositOpeningStateEnum;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.exception.CustomException;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.DepositOpeningSaga;
+import ru.mts.depositservice.model.OpenDepositRequest;
+import ru.mts.depositservice.property.DepositOpeningProperty;
+import ru.mts.depositservice.repository.DepositOpeningSagaRepository;
+import ru.mts.depositservice.repository.RequestRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static ru.mts.depositservice.enums.DepositOpeningStateEnum.*;
+
+/**
+ * Открытие вклада по подтвержденной заявке короткими локальными транзакциями.
+ * <p>
+ * Списание денег в {@code account-service} выполняется вне транзакции, а каждое изменение состояния заявки
+ * сохраняется в {@code deposit_opening_sagas} отдельной транзакцией, поэтому соединение с базой не удерживается
+ * на время обращений к другим сервисам. Если после списания вклад создать не удалось, деньги возвращаются
+ * на счет клиента. Списание и возврат передаются с постоянными идентификаторами операций, поэтому прерванные
+ * открытия доводятся до конца по расписанию повтором той же операции: {@code account-service} не выполнит ее
+ * дважды. Открытия, не завершенные за {@code max-recovery-attempts} попыток, оставляются для ручной сверки
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DepositOpeningSagaService {
+
+    private static final String WITHDRAWAL_OPERATION_ID_PREFIX = "deposit-opening-";
+    private static final String REFUND_OPERATION_ID_PREFIX = "deposit-opening-refund-";
+
+    private final DepositOpeningSagaRepository sagaRepository;
+    private final DepositService depositService;
+    private final AccountClient accountClient;
+    private final CustomerClient customerClient;
+    private final RequestRepository requestRepository;
+    private final RequestStatusService requestStatusService;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final DepositOpeningProperty openingProperty;
+
+    /**
+     * Сохраняет условия вклада по заявке, подтвержденной кодом.
+     * Вызывается в транзакции, в которой меняется статус заявки
+     *
+     * @param request     Подтвержденная заявка
+     * @param openRequest Запрос на открытие вклада с выбранными условиями
+     */
+    public void start(Request request, OpenDepositRequest openRequest) {
+        sagaRepository.insert(new DepositOpeningSaga(
+                request.getId(),
+                openRequest.getCustomerId(),
+                CONFIRMED,
+                openRequest.getDepositType(),
+                openRequest.getDuration(),
+                Boolean.TRUE.equals(openRequest.getIsCapitalized()),
+                openRequest.getPercentPaymentType(),
+                request.getAmount(),
+                null,
+                0,
+                null
+        ));
+    }
+
+    /**
+     * Отклоняет заявку, для которой на счете недостаточно денег
+     *
+     * @param request Подтвержденная заявка
+     */
+    public void reject(Request request) {
+        transactionTemplate.executeWithoutResult(status -> {
+            sagaRepository.transition(request.getId(), CONFIRMED, REJECTED, null);
+            changeRequestStatus(request, RequestStatusEnum.REJECTED);
+        });
+    }
+
+    /**
+     * Одобряет заявку, списывает деньги со счета клиента и открывает вклад
+     *
+     * @param request     Подтвержденная заявка
+     * @param openRequest Запрос на открытие вклада
+     * @return Открытый вклад
+     */
+    public Deposit open(Request request, OpenDepositRequest openRequest) {
+        Customer customer = customerClient.findCustomer(openRequest.getCustomerId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            sagaRepository.transition(request.getId(), CONFIRMED, WITHDRAWING, null);
+            changeRequestStatus(request, RequestStatusEnum.APPROVED);
+        });
+
+        AccountOperationResult withdrawal;
+        try {
+            // списываем деньги с банковского счета
+            withdrawal = withdraw(request.getId(), customer, openRequest.getDepositAmount());
+        } catch (RuntimeException e) {
+            withdrawalOutcomeUnknown(request.getId(), e);
+            throw e;
+        }
+        if (!withdrawal.isSuccess()) {
+            // account-service отказал в списании - деньги не списаны
+            transactionTemplate.executeWithoutResult(status -> {
+                sagaRepository.transition(request.getId(), WITHDRAWING, REJECTED, withdrawal.getMessage());
+                changeRequestStatus(request, RequestStatusEnum.REJECTED);
+            });
+            throw new CustomException(HttpStatus.BAD_REQUEST.toString(), withdrawal.getMessage());
+        }
+        sagaRepository.transition(request.getId(), WITHDRAWING, WITHDRAWN, null);
+
+        return complete(openRequest, customer);
+    }
+
+    /**
+     * Идентификатор списания по заявке. По нему {@code account-service} не выполняет повторное списание
+     *
+     * @param requestId Идентификатор заявки
+     * @return Идентификатор операции списания
+     */
+    public static String withdrawalOperationId(Integer requestId) {
+        return WITHDRAWAL_OPERATION_ID_PREFIX + requestId;
+    }
+
+    /**
+     * Доводит до конца открытия вкладов, прерванные после списания денег
+     */
+    @Scheduled(fixedDelayString = "${app.deposit-opening.recovery-interval:PT1M}")
+    public void recover() {
+        int maxAttempts = openingProperty.getMaxRecoveryAttempts();
+        List<DepositOpeningSaga> sagas = sagaRepository.claimStale(
+                openingProperty.getStaleAfter(),
+                maxAttempts,
+                openingProperty.getRecoveryBatchSize()
+        );
+        for (DepositOpeningSaga saga : sagas) {
+            try {
+                recover(saga);
+            } catch (RuntimeException e) {
+                if (saga.getAttempts() >= maxAttempts) {
+                    log.error("Открытие вклада по заявке {} в состоянии {} не восстановлено за {} попыток: "
+                                    + "требуется сверка со счетом клиента {}",
+                            saga.getRequestId(), saga.getState(), saga.getAttempts(), saga.getCustomerId(), e);
+                } else {
+                    log.warn("Не удалось восстановить открытие вклада по заявке {}, попытка {}",
+                            saga.getRequestId(), saga.getAttempts(), e);
+                }
+            }
+        }
+    }
+
+    private void recover(DepositOpeningSaga saga) {
+        DepositOpeningStateEnum state = saga.getState();
+        switch (state) {
+            case WITHDRAWING -> recoverWithdrawal(saga);
+            case WITHDRAWN -> {
+                OpenDepositRequest openRequest = saga.toOpenDepositRequest();
+                complete(openRequest, customerClient.findCustomer(saga.getCustomerId()));
+            }
+            case COMPENSATING -> {
+                Customer customer = customerClient.findCustomer(saga.getCustomerId());
+                if (!refund(saga.getRequestId(), customer, saga.getAmount())) {
+                    throw new IllegalStateException("Деньги по заявке " + saga.getRequestId() + " не возвращены");
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Повторяет списание, ответ на которое не был получен. Операция передается с тем же идентификатором,
+     * поэтому если деньги уже списаны, {@code account-service} вернет прежний результат
+     */
+    private void recoverWithdrawal(DepositOpeningSaga saga) {
+        Integer requestId = saga.getRequestId();
+        Customer customer = customerClient.findCustomer(saga.getCustomerId());
+        AccountOperationResult withdrawal;
+        try {
+            withdrawal = withdraw(requestId, customer, saga.getAmount());
+        } catch (RuntimeException e) {
+            sagaRepository.recordError(requestId, e.getMessage());
+            throw e;
+        }
+        if (!withdrawal.isSuccess()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (sagaRepository.transition(requestId, WITHDRAWING, REJECTED, withdrawal.getMessage())) {
+                    Request request = requestRepository.findById(requestId).orElseThrow();
+                    changeRequestStatus(request, RequestStatusEnum.REJECTED);
+                }
+            });
+            return;
+        }
+        if (sagaRepository.transition(requestId, WITHDRAWING, WITHDRAWN, null)) {
+            complete(saga.toOpenDepositRequest(), customer);
+        }
+    }
+
+    private AccountOperationResult withdraw(Integer requestId, Customer customer, BigDecimal amount) {
+        return accountClient.executeOperation(new AccountOperation(
+                withdrawalOperationId(requestId),
+                AccountOperationTypeEnum.WITHDRAW,
+                customer.getBankAccount().getId(),
+                amount
+        ));
+    }
+
+    /**
+     * Ответ на списание не получен - неизвестно, списаны ли деньги. Открытие остается в состоянии
+     * {@code WITHDRAWING}, и списание с тем же идентификатором повторяется по расписанию
+     */
+    private void withdrawalOutcomeUnknown(Integer requestId, RuntimeException e) {
+        log.error("Не получен ответ на списание по заявке {}", requestId, e);
+        sagaRepository.recordError(requestId, e.getMessage());
+    }
+
+    private Deposit complete(OpenDepositRequest openRequest, Customer customer) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Deposit deposit = depositService.createDeposit(openRequest, customer);
+                if (!sagaRepository.complete(openRequest.getRequestId(), deposit.getId())) {
+                    throw new IllegalStateException(
+                            "Открытие вклада по заявке " + openRequest.getRequestId() + " уже завершено");
+                }
+                return deposit;
+            });
+        } catch (RuntimeException e) {
+            compensate(openRequest, customer, e);
+            throw e;
+        }
+    }
+
+    private void compensate(OpenDepositRequest openRequest, Customer customer, RuntimeException cause) {
+        if (!sagaRepository.transition(openRequest.getRequestId(), WITHDRAWN, COMPENSATING, cause.getMessage())) {
+            return;                                                                     // открытие уже завершено или отменяется
+        }
+        refund(openRequest.getRequestId(), customer, openRequest.getDepositAmount());
+    }
+
+    private boolean refund(Integer requestId, Customer customer, BigDecimal amount) {
+        String error;
+        try {
+            // возвращаем деньги на банковский счет; повтор возврата с тем же идентификатором не зачислит их дважды
+            AccountOperationResult refill = accountClient.executeOperation(new AccountOperation(
+                    REFUND_OPERATION_ID_PREFIX + requestId,
+                    AccountOperationTypeEnum.REFILL,
+                    customer.getBankAccount().getId(),
+                    amount
+            ));
+            error = refill.isSuccess() ? null : refill.getMessage();
+        } catch (RuntimeException e) {
+            log.error("Не удалось вернуть {} по заявке {}, возврат будет повторен", amount, requestId, e);
+            sagaRepository.recordError(requestId, e.getMessage());
+            return false;
+        }
+        if (error != null) {
+            log.error("account-service отклонил возврат {} по заявке {}: {}, возврат будет повторен",
+                    amount, requestId, error);
+            sagaRepository.recordError(requestId, error);
+            return false;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (sagaRepository.transition(requestId, COMPENSATING, COMPENSATED, null)) {
+                changeRequestStatus(requestRepository.findById(requestId).orElseThrow(), RequestStatusEnum.REJECTED);
+            }
+        });
+        return true;
+    }
+
+    private void changeRequestStatus(Request request, RequestStatusEnum statusName) {
+        requestStatusService.changeCurrentRequestStatus(request, referenceDataRegistry.getRequestStatus(statusName));
+    }
+}
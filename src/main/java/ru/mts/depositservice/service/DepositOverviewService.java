@@ -0,0 +1,106 @@
+package ru.mts.depositservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.model.DepositAccountResponse;
+import ru.mts.depositservice.model.DepositView;
+import ru.mts.depositservice.model.RejectedRequestView;
+import ru.mts.depositservice.property.FanOutProperty;
+import ru.mts.depositservice.repository.CustomerPortfolioRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Сводка по вкладам клиента.
+ * <p>
+ * Открытые вклады и отклоненные заявки не зависят друг от друга, поэтому запрашиваются параллельно,
+ * и время ответа определяется самой долгой частью, а не их суммой. Все части должны выполниться
+ * за {@code app.fan-out.deadline}; часть, не успевшая к сроку или завершившаяся ошибкой, при включенном
+ * {@code app.fan-out.partial-results} возвращается пустой и перечисляется в {@code unavailableParts}.
+ * Каждая часть читается одним SQL-запросом через {@link CustomerPortfolioRepository}; при включенной
+ * реплике - с реплики, кроме клиентов, недавно изменявших данные ({@link ReadYourWritesTracker})
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DepositOverviewService {
+
+    static final String DEPOSIT_LIST = "depositList";
+    static final String REJECTED_REQUESTS = "rejectedRequests";
+
+    private final CustomerPortfolioRepository portfolioRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final ExecutorService fanOutExecutor;
+    private final FanOutProperty fanOutProperty;
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    /**
+     * Находит открытые вклады и отклоненные заявки клиента
+     *
+     * @param customerId Идентификатор клиента
+     * @return Открытые вклады и отклоненные заявки
+     */
+    public DepositAccountResponse findDepositsAndRejectedRequests(Integer customerId) {
+        long deadline = System.nanoTime() + fanOutProperty.getDeadline().toNanos();
+
+        Integer rejectedStatusId = referenceDataRegistry.getRequestStatus(RequestStatusEnum.REJECTED).getId();
+
+        CompletableFuture<List<DepositView>> deposits = submit(() -> readYourWritesTracker.read(
+                customerId, () -> portfolioRepository.findDeposits(customerId)));
+        CompletableFuture<List<RejectedRequestView>> rejectedRequests = submit(() -> readYourWritesTracker.read(
+                customerId, () -> portfolioRepository.findRejectedRequests(customerId, rejectedStatusId)));
+
+        List<String> unavailableParts = new ArrayList<>();
+        DepositAccountResponse response = new DepositAccountResponse();
+        response.setDepositList(await(deposits, deadline, DEPOSIT_LIST, unavailableParts));
+        response.setRejectedRequests(await(rejectedRequests, deadline, REJECTED_REQUESTS, unavailableParts));
+        response.setUnavailableParts(unavailableParts);
+
+        if (!unavailableParts.isEmpty() && !fanOutProperty.isPartialResults()) {
+            throw new ServiceUnavailableException(
+                    "SERVICE_UNAVAILABLE",
+                    "Не удалось получить данные по вкладам клиента " + customerId + ": " + unavailableParts
+            );
+        }
+        return response;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> part) {
+        try {
+            return CompletableFuture.supplyAsync(part, fanOutExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);                           // пул перегружен
+        }
+    }
+
+    private <T> List<T> await(CompletableFuture<List<T>> part,
+                              long deadline,
+                              String partName,
+                              List<String> unavailableParts) {
+        try {
+            return part.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            part.cancel(true);
+            log.warn("Часть {} не выполнена за {}", partName, fanOutProperty.getDeadline());
+        } catch (ExecutionException e) {
+            log.warn("Часть {} завершилась ошибкой", partName, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            part.cancel(true);
+        }
+        unavailableParts.add(partName);
+        return Collections.emptyList();
+    }
+}
@@ -1,26 +1,22 @@
 package ru.mts.depositservice.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.mts.depositservice.client.AccountClient;
-import ru.mts.depositservice.client.CustomerClient;
 import ru.mts.depositservice.entity.Customer;
 import ru.mts.depositservice.entity.Deposit;
 import ru.mts.depositservice.entity.Request;
 import ru.mts.depositservice.enums.DepositDurationEnum;
-import ru.mts.depositservice.enums.DepositTypeEnum;
 import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
 import ru.mts.depositservice.exception.DepositNotFoundException;
 import ru.mts.depositservice.exception.MinDepositAmountException;
 import ru.mts.depositservice.exception.RefillDepositException;
 import ru.mts.depositservice.model.OpenDepositRequest;
 import ru.mts.depositservice.model.RefillDepositRequest;
-import ru.mts.depositservice.property.DepositProperty;
+import ru.mts.depositservice.repository.AccountOutboxRepository;
 import ru.mts.depositservice.repository.DepositRepository;
-import ru.mts.depositservice.repository.DepositTypesRepository;
-import ru.mts.depositservice.repository.PercentPaymentTypesRepository;
 import ru.mts.depositservice.repository.RequestRepository;
 
 import java.math.BigDecimal;
@@ -31,29 +27,33 @@ import java.util.Optional;
 
 @Slf4j
 @Service
+@Timed(value = "deposit.service", histogram = true)
 @RequiredArgsConstructor
 public class DepositService {
 
-    private final DepositProperty depositProperty;                                                // базовая процентная ставка
     private final DepositRepository depositRepository;
-    private final AccountClient accountClient;
-    private final CustomerClient customerClient;
+    private final AccountOutboxRepository outboxRepository;
     private final RequestRepository requestRepository;
-    private final DepositTypesRepository depositTypesRepository;
+    private final InterestRateQuoteEngine quoteEngine;                                            // таблица процентных ставок
+    private final ReferenceDataRegistry referenceDataRegistry;
     private final SmsConfirmationServiceImpl smsConfirmationService;
-    private final PercentPaymentTypesRepository percentPaymentTypesRepository;
 
     /**
      * Рассчитывает процентную ставку для вклада.
      * <p>
-     * Изменяет базовую процентную ставку на основе типа вклада, продолжительности, суммы и капитализации
+     * Изменяет базовую процентную ставку на основе типа вклада, продолжительности, суммы и капитализации.
+     * Ставки для всех условий рассчитаны заранее в {@link InterestRateQuoteEngine}
      *
      * @param request Запрос на открытие вклада с информацией для расчёта ставки
      * @return Расчётная процентная ставка
      */
     public BigDecimal calculateInterestRate(OpenDepositRequest request) {
-        BigDecimal rateAdjustment = BigDecimal.valueOf(adjustBaseRate(request));
-        return depositProperty.getBaseRate().add(rateAdjustment).setScale(2, RoundingMode.HALF_UP);
+        return quoteEngine.quote(
+                request.getDepositType(),
+                request.getDuration(),
+                request.getDepositAmount(),
+                request.getIsCapitalized()
+        );
     }
 
     /**
@@ -73,13 +73,36 @@ public class DepositService {
     }
 
     /**
-     * Открывает новый вклад.
+     * Создает вклад по заявке, деньги для которого уже списаны с банковского счета клиента.
+     * <p>
+     * Создаёт объект депозита, сохраняет его в репозитории и связывает с ним заявку.
+     * Метод не обращается к другим сервисам, поэтому транзакция, в которой он вызывается, остается короткой
+     *
+     * @param openDepositRequest Запрос на открытие вклада
+     * @param customer           Клиент, открывающий вклад
+     * @return Созданный вклад
+     */
+    public Deposit createDeposit(OpenDepositRequest openDepositRequest, Customer customer) {
+        Request request = requestRepository.findById(openDepositRequest.getRequestId()).get();
+
+        Deposit deposit = depositRepository.save(buildDeposit(openDepositRequest, customer, request.getAmount()));
+
+        request.setDeposit(deposit);
+        requestRepository.save(request);                                            // связываем заявку с созданным вкладом
+        return deposit;
+    }
+
+    /**
+     * Собирает вклад с выбранными клиентом условиями, не сохраняя его.
      * <p>
-     * Создаёт объект депозита, сохраняет его в репозитории и обновляет связанные запросы
+     * Используется, когда вклады сохраняются пачкой, а заявки уже загружены вызывающим кодом
      *
      * @param openDepositRequest Запрос на открытие вклада
+     * @param customer           Клиент, открывающий вклад
+     * @param amount             Сумма вклада из заявки
+     * @return Несохраненный вклад
      */
-    public void openDeposit(OpenDepositRequest openDepositRequest) {
+    public Deposit buildDeposit(OpenDepositRequest openDepositRequest, Customer customer, BigDecimal amount) {
         Deposit deposit = new Deposit();
 
         // Считываем выбор условий открытия вклада от пользователя
@@ -95,9 +118,6 @@ public class DepositService {
                 break;
         }
 
-        Request request = requestRepository.findById(openDepositRequest.getRequestId()).get();
-        Customer customer = customerClient.findCustomer(openDepositRequest.getCustomerId());
-
         // Рассчитываем по выбранным условиям процентную ставку для вклада
         BigDecimal interestRate = calculateInterestRate(openDepositRequest);
         // Рассчитываем даты начала и окончания договора вклада
@@ -108,8 +128,7 @@ public class DepositService {
         // Открываем вклад с выбранными условиями
         deposit.setCapitalization(openDepositRequest.getIsCapitalized());
 
-        deposit.setDepositAmount(request.getAmount());
-        accountClient.withdrawMoneyFromAccount(openDepositRequest);                 // списываем деньги с банковского счета
+        deposit.setDepositAmount(amount);
 
         deposit.setStartDate(startDate);
         deposit.setEndDate(endDate);
@@ -118,29 +137,28 @@ public class DepositService {
         // Если пользователь выбрал капитализацию вклада
         if (!openDepositRequest.getIsCapitalized()) {
             deposit.setPercentPaymentDate(calculatePercentPaymentDate(deposit, openDepositRequest.getPercentPaymentType()));
-            deposit.setTypePercentPayment(percentPaymentTypesRepository.findTypesPercentPaymentByTypeName(
-                    openDepositRequest.getPercentPaymentType()).get()
+            deposit.setTypePercentPayment(referenceDataRegistry.getPercentPaymentType(
+                    openDepositRequest.getPercentPaymentType())
             );
             deposit.setPercentPaymentAccount(customer.getBankAccount());
         }
 
-        deposit.setDepositType(depositTypesRepository.findDepositTypesByTypeName(
-                openDepositRequest.getDepositType()).get()
+        deposit.setDepositType(referenceDataRegistry.getDepositType(
+                openDepositRequest.getDepositType())
         );
         deposit.setBankAccount(customer.getBankAccount());
         deposit.setDepositRefundAccount(customer.getBankAccount());
         deposit.setCustomer(customer);
-
-        depositRepository.save(deposit);
-
-        request.setDeposit(deposit);
-        requestRepository.save(request);                                            // связываем заявку с созданным вкладом
+        return deposit;
     }
 
     /**
      * Пополняет существующий вклад.
      * <p>
-     * Изменяет сумму вклада и процентную ставку, сохраняет изменения в базу данных
+     * Изменяет сумму вклада и процентную ставку, сохраняет изменения в базу данных.
+     * Списание денег с банковского счета записывается в outbox в той же транзакции
+     * и отправляется в {@code account-service} {@link AccountOutboxDispatcher}. Если {@code account-service}
+     * отклонит списание, сумма и процентная ставка вклада возвращаются к значениям до пополнения
      *
      * @param refillRequest Запрос на пополнение вклада
      * @return Обновлённый объект депозита {@link Deposit}
@@ -154,23 +172,28 @@ public class DepositService {
                     "Заявка с идентификатором " + refillRequest.getRequestId() + " не найдена!"
             );
         }
-        Deposit deposit = optionalRequest.get().getDeposit();
+        Request request = optionalRequest.get();
+        Deposit deposit = request.getDeposit();
 
         // Проверяем условия вклада - можно ли его пополнить?
         if (deposit.isDepositRefill()) {
             BigDecimal currentAmount = deposit.getDepositAmount();                  // текущая сумма денег
             BigDecimal refillAmount = refillRequest.getDepositAmount();             // сумма для снятия
 
-            accountClient.withdrawMoneyFromAccount(refillRequest);                  // списываем деньги с банковского счета
             deposit.setDepositAmount(currentAmount.add(refillAmount));              // кладем деньги на вклад
 
             BigDecimal currentDepositRate = deposit.getDepositRate();               // текущая процентная ставка
             BigDecimal adjustedDepositRate =                                        // измененная процентная ставка
                     BigDecimal.valueOf(
-                            calculateAmountBasedAdjustment(
+                            quoteEngine.amountAdjustment(
                                     currentAmount.add(refillAmount))
                     );
-            deposit.setDepositRate(currentDepositRate.add(adjustedDepositRate));    // присваиваем новую процентную ставку
+            BigDecimal refilledDepositRate = currentDepositRate.add(adjustedDepositRate)
+                    .setScale(2, RoundingMode.HALF_UP);                             // ставка хранится с двумя знаками
+            deposit.setDepositRate(refilledDepositRate);                            // присваиваем новую процентную ставку
+
+            // списываем деньги с банковского счета; если списание отклонят, пополнение будет отменено
+            outboxRepository.enqueueDepositRefill(request, refillAmount, refilledDepositRate.subtract(currentDepositRate));
 
             return depositRepository.save(deposit);
         }
@@ -184,14 +207,14 @@ public class DepositService {
     /**
      * Найдет все открытые вклады для определённого клиента.
      * <p>
-     * Возвращает список всех открытых вкладов для указанного клиента
+     * Возвращает список всех открытых вкладов для указанного клиента. Вклады ищутся по идентификатору клиента,
+     * без обращения к {@code customer-service}
      *
      * @param customerId Идентификатор клиента
      * @return Список открытых вкладов
      */
     public List<Deposit> findOpenedDeposits(Integer customerId) {
-        Customer customer = customerClient.findCustomer(customerId);
-        return depositRepository.findDepositsByCustomer(customer);
+        return depositRepository.findDepositsByCustomerId(customerId);
     }
 
     private int getDepositMonthDuration(DepositDurationEnum duration) {
@@ -217,54 +240,4 @@ public class DepositService {
                 throw new IllegalArgumentException("Неподдерживаемый тип выплаты процентов: " + percentPaymentType);
         }
     }
-
-    private double adjustBaseRate(OpenDepositRequest request) {
-        double rateAdjustment = 0;
-        rateAdjustment += calculateTypeBasedAdjustment(request.getDepositType());
-        rateAdjustment += calculateDurationBasedAdjustment(request.getDuration());
-        rateAdjustment += calculateAmountBasedAdjustment(request.getDepositAmount());
-        rateAdjustment += calculatePercentageTypeBasedAdjustment(request.getIsCapitalized());
-        return rateAdjustment;
-    }
-
-    private double calculatePercentageTypeBasedAdjustment(boolean isCapitalized) {
-        if (isCapitalized) {
-            return 0.01;
-        }
-        return 0;
-    }
-
-    private double calculateAmountBasedAdjustment(BigDecimal depositAmount) {
-        int count = depositAmount.divide(BigDecimal.valueOf(100_000), RoundingMode.DOWN).intValue();
-        if (count == 1) {
-            return 0.25;
-        } else if (count >= 4) {
-            return 0.4;
-        }
-        return 0;
-    }
-
-    private double calculateDurationBasedAdjustment(DepositDurationEnum duration) {
-        switch (duration) {
-            case MONTH_6:
-                return 0.05;
-            case YEAR:
-                return 0.10;
-            default:
-                return 0;
-        }
-    }
-
-    private double calculateTypeBasedAdjustment(DepositTypeEnum depositType) {
-        switch (depositType) {
-            case DEPOSITS_AND_WITHDRAWALS:
-                return 0.05;
-            case DEPOSITS_AND_NO_WITHDRAWALS:
-                return 0.10;
-            case NO_DEPOSITS_AND_WITHDRAWALS:
-                return 0.20;
-            default:
-                return 0;
-        }
-    }
 }
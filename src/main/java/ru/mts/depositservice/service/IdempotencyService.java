@@ -0,0 +1,245 @@
+package ru.mts.depositservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.exception.IdempotencyKeyException;
+import ru.mts.depositservice.model.IdempotentResponse;
+import ru.mts.depositservice.property.IdempotencyProperty;
+import ru.mts.depositservice.repository.IdempotencyKeyRepository;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Однократное выполнение запросов с заголовком {@code Idempotency-Key}.
+ * <p>
+ * Первый запрос с ключом выполняется, и его ответ сохраняется в таблице {@code idempotency_keys} на время
+ * {@code app.idempotency.ttl}; повторы с тем же ключом получают сохраненный ответ. Последние
+ * {@code cache-size} ответов хранятся в памяти, поэтому повтор обычно не обращается к базе данных.
+ * Повтор, пришедший, пока первый запрос еще выполняется, ожидает его завершения: на том же экземпляре -
+ * без обращений к базе данных, на другом - проверяя запись каждые {@code poll-interval}.
+ * Повтор с тем же ключом, но другим телом запроса отклоняется
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String KEY_MISMATCH = "IDEMPOTENCY_KEY_MISMATCH";
+    public static final String KEY_IN_PROGRESS = "IDEMPOTENCY_KEY_IN_PROGRESS";
+
+    private final IdempotencyKeyRepository keyRepository;
+    private final IdempotencyProperty idempotencyProperty;
+
+    private final ConcurrentMap<Key, CompletableFuture<IdempotentResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, CachedResponse> completed = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CachedResponse> eldest) {
+            return size() > idempotencyProperty.getCacheSize();
+        }
+    };
+
+    /**
+     * Закрепляет выполнение запроса за вызывающим потоком или возвращает ответ на первый запрос с этим ключом.
+     * <p>
+     * Если выполнение закреплено, вызывающий поток должен завершить его через
+     * {@link #complete(ConfirmationOperationEnum, String, IdempotentResponse)} или
+     * {@link #release(ConfirmationOperationEnum, String)}
+     *
+     * @param operation   Подтверждаемая операция
+     * @param key         Значение заголовка {@code Idempotency-Key}
+     * @param fingerprint SHA-256 тела запроса
+     * @return Сохраненный ответ или пустой результат, если запрос должен выполнить вызывающий поток
+     */
+    public Optional<IdempotentResponse> acquire(ConfirmationOperationEnum operation, String key, String fingerprint) {
+        Key cacheKey = new Key(operation, key);
+        long deadline = System.nanoTime() + idempotencyProperty.getWaitTimeout().toNanos();
+
+        while (true) {
+            IdempotentResponse cached = cached(cacheKey);
+            if (cached != null) {
+                return Optional.of(matching(cached, fingerprint));
+            }
+
+            CompletableFuture<IdempotentResponse> execution = new CompletableFuture<>();
+            CompletableFuture<IdempotentResponse> running = inFlight.putIfAbsent(cacheKey, execution);
+            if (running != null) {
+                IdempotentResponse response = await(running, deadline);         // первый запрос выполняется здесь же
+                if (response != null) {
+                    return Optional.of(matching(response, fingerprint));
+                }
+                continue;                                                       // первый запрос завершился ошибкой
+            }
+
+            boolean acquired = false;
+            Optional<IdempotentResponse> stored = Optional.empty();
+            try {
+                acquired = keyRepository.tryAcquire(key, operation, fingerprint,
+                        idempotencyProperty.getLease(), idempotencyProperty.getTtl());
+                if (!acquired) {
+                    stored = keyRepository.find(key, operation);
+                }
+            } finally {
+                if (!acquired) {
+                    inFlight.remove(cacheKey, execution);
+                    execution.complete(stored.filter(IdempotentResponse::isCompleted).orElse(null));
+                }
+            }
+            if (acquired) {
+                return Optional.empty();
+            }
+
+            // Ключ уже есть в базе данных: запрос выполнен или выполняется другим экземпляром
+            if (stored.isPresent()) {
+                IdempotentResponse response = matching(stored.get(), fingerprint);
+                if (response.isCompleted()) {
+                    cache(cacheKey, response);
+                    return Optional.of(response);
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    throw inProgress();
+                }
+                sleep();
+            }
+        }
+    }
+
+    /**
+     * Сохраняет ответ на закрепленный запрос и передает его ожидающим повторам
+     */
+    public void complete(ConfirmationOperationEnum operation, String key, IdempotentResponse response) {
+        Key cacheKey = new Key(operation, key);
+        try {
+            keyRepository.complete(key, operation, response);
+            cache(cacheKey, response);
+        } finally {
+            CompletableFuture<IdempotentResponse> execution = inFlight.remove(cacheKey);
+            if (execution != null) {
+                execution.complete(response);
+            }
+        }
+    }
+
+    /**
+     * Освобождает ключ запроса, завершившегося ошибкой, чтобы повтор выполнил его заново
+     */
+    public void release(ConfirmationOperationEnum operation, String key) {
+        Key cacheKey = new Key(operation, key);
+        try {
+            keyRepository.release(key, operation);
+        } finally {
+            CompletableFuture<IdempotentResponse> execution = inFlight.remove(cacheKey);
+            if (execution != null) {
+                execution.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Удаляет ответы, срок хранения которых истек
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval:PT10M}")
+    public void removeExpired() {
+        long now = System.nanoTime();
+        synchronized (completed) {
+            completed.values().removeIf(cached -> cached.isExpired(now));
+        }
+        keyRepository.removeExpired();
+    }
+
+    /**
+     * Вычисляет SHA-256 тела запроса
+     *
+     * @param body Тело запроса
+     * @return Хэш в шестнадцатеричном виде
+     */
+    public static String fingerprint(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private IdempotentResponse cached(Key cacheKey) {
+        long now = System.nanoTime();
+        synchronized (completed) {
+            CachedResponse cached = completed.get(cacheKey);
+            if (cached == null) {
+                return null;
+            }
+            if (cached.isExpired(now)) {
+                completed.remove(cacheKey);
+                return null;
+            }
+            return cached.response();
+        }
+    }
+
+    private void cache(Key cacheKey, IdempotentResponse response) {
+        CachedResponse cached = new CachedResponse(response, System.nanoTime() + idempotencyProperty.getTtl().toNanos());
+        synchronized (completed) {
+            completed.put(cacheKey, cached);
+        }
+    }
+
+    private static IdempotentResponse matching(IdempotentResponse response, String fingerprint) {
+        if (!response.getFingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyException(
+                    KEY_MISMATCH,
+                    "Ключ идемпотентности уже использован для другого запроса"
+            );
+        }
+        return response;
+    }
+
+    private static IdempotentResponse await(CompletableFuture<IdempotentResponse> execution, long deadline) {
+        try {
+            return execution.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw inProgress();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(idempotencyProperty.getPollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress();
+        }
+    }
+
+    private static IdempotencyKeyException inProgress() {
+        return new IdempotencyKeyException(
+                KEY_IN_PROGRESS,
+                "Запрос с этим ключом идемпотентности еще выполняется"
+        );
+    }
+
+    private record Key(ConfirmationOperationEnum operation, String key) {
+    }
+
+    private record CachedResponse(IdempotentResponse response, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ru.mts.depositservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.property.ConfirmationProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Хранилище кодов подтверждения в памяти одного экземпляра сервиса.
+ * <p>
+ * Коды хранятся в {@link ConcurrentHashMap}, поэтому сохранение и проверка кодов не блокируют друг друга.
+ * Порядок выдачи кодов отдельно записывается в неблокирующую очередь. Срок действия у всех кодов одинаковый,
+ * поэтому первым в очереди стоит код, который истечет раньше остальных. Длина очереди ограничена
+ * {@code app.confirmation.max-entries}: при переполнении за постоянное время удаляется самый старый код,
+ * а периодическая очистка снимает просроченные коды с начала очереди. Использованные и перевыпущенные коды
+ * остаются в очереди, пока не дойдут до ее начала
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.confirmation", name = "store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryConfirmationCodeStore implements ConfirmationCodeStore {
+
+    private final ConfirmationProperty confirmationProperty;
+
+    private final ConcurrentMap<CodeKey, CodeEntry> codes = new ConcurrentHashMap<>();
+    private final Queue<IssuedCode> issueOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger issuedCount = new AtomicInteger();          // длина очереди выдачи кодов
+
+    @Override
+    public void save(Integer requestId, ConfirmationOperationEnum operation, String code) {
+        CodeKey key = new CodeKey(requestId, operation);
+        CodeEntry entry = new CodeEntry(code, System.nanoTime() + confirmationProperty.getTtl().toNanos(),
+                new AtomicInteger());
+        codes.put(key, entry);
+        issueOrder.offer(new IssuedCode(key, entry));                           // новый код встает в конец очереди
+
+        issuedCount.incrementAndGet();
+        IssuedCode oldest;
+        while (issuedCount.get() > confirmationProperty.getMaxEntries() && (oldest = issueOrder.poll()) != null) {
+            issuedCount.decrementAndGet();
+            codes.remove(oldest.key(), oldest.entry());                         // перевыпущенный код не удаляется
+        }
+    }
+
+    @Override
+    public boolean verify(Integer requestId, ConfirmationOperationEnum operation, String code) {
+        CodeKey key = new CodeKey(requestId, operation);
+        CodeEntry entry = codes.get(key);
+        if (entry == null) {
+            return false;
+        }
+
+        if (entry.isExpired(System.nanoTime())) {
+            codes.remove(key, entry);
+            return false;
+        }
+
+        if (entry.matches(code)) {
+            return codes.remove(key, entry);                                    // код одноразовый
+        }
+
+        if (entry.attempts().incrementAndGet() >= confirmationProperty.getMaxAttempts()) {
+            codes.remove(key, entry);                                           // попытки исчерпаны
+        }
+        return false;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.confirmation.cleanup-interval:PT1M}")
+    public void removeExpired() {
+        long now = System.nanoTime();
+        IssuedCode oldest;
+        while ((oldest = issueOrder.peek()) != null && oldest.entry().isExpired(now)) {
+            if (issueOrder.remove(oldest)) {
+                issuedCount.decrementAndGet();
+                codes.remove(oldest.key(), oldest.entry());
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество хранимых кодов
+     *
+     * @return Количество кодов
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    private record CodeKey(Integer requestId, ConfirmationOperationEnum operation) {
+    }
+
+    private record IssuedCode(CodeKey key, CodeEntry entry) {
+    }
+
+    private record CodeEntry(String code, long expiresAt, AtomicInteger attempts) {
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        boolean matches(String candidate) {
+            // Сравнение за постоянное время, чтобы код нельзя было подобрать по времени ответа
+            return MessageDigest.isEqual(
+                    code.getBytes(StandardCharsets.UTF_8),
+                    candidate.getBytes(StandardCharsets.UTF_8)
+            );
+        }
+    }
+}
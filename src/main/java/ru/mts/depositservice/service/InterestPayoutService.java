@@ -0,0 +1,333 @@
+package ru.mts.depositservice.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.InterestPayout;
+import ru.mts.depositservice.model.PayoutCheckpoint;
+import ru.mts.depositservice.model.PayoutRunStats;
+import ru.mts.depositservice.property.PayoutProperty;
+import ru.mts.depositservice.repository.InterestPayoutRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Пакетная выплата процентов по вкладам.
+ * <p>
+ * Экземпляр обрабатывает только шарды вкладов, арендованные им в {@link ShardLeaseManager}, поэтому
+ * при нескольких экземплярах выплата распределяется между ними и не выполняется дважды.
+ * Вклады, дата выплаты процентов по которым наступила, читаются страницами по {@code app.payout.chunk-size}.
+ * Для каждой страницы проценты переводятся в account-service пачками по {@code app.payout.transfer-batch-size},
+ * после чего в одной транзакции переносятся даты выплаты и сохраняется позиция обработки.
+ * В памяти одновременно находится не больше одной страницы, поэтому потребление памяти
+ * не зависит от количества вкладов. Прерванная выплата продолжается с сохраненной позиции шарда,
+ * в том числе на другом экземпляре, которому перешел шард.
+ * <p>
+ * Проценты переводятся до фиксации страницы, поэтому при сбое между переводом и фиксацией последняя страница
+ * отправляется повторно. Идентификатор перевода строится по вкладу и дате выплаты, поэтому повторный перевод
+ * {@code account-service} распознает и не выполняет второй раз. Отклоненный перевод сохраняется в
+ * {@code declined_interest_payouts} для разбора, а дата выплаты по вкладу переносится как у остальных вкладов
+ * страницы, чтобы один закрытый счет не останавливал выплату по шарду.
+ * <p>
+ * Ход выплаты публикуется в {@link MeterRegistry}: счетчики {@code deposit.payout.processed},
+ * {@code deposit.payout.declined} и {@code deposit.payout.chunks} и показатели последнего запуска
+ * {@code deposit.payout.last-run.*}
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InterestPayoutService {
+
+    private static final BigDecimal MONTHLY_DIVISOR = BigDecimal.valueOf(100 * 12);     // ставка в процентах годовых
+    private static final String OPERATION_ID_PREFIX = "interest-payout-";
+
+    private final InterestPayoutRepository payoutRepository;
+    private final AccountClient accountClient;
+    private final PayoutProperty payoutProperty;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardLeaseManager shardLeaseManager;
+    private final MeterRegistry meterRegistry;
+
+    private final LongAdder processedTotal = new LongAdder();
+    private final LongAdder declinedTotal = new LongAdder();
+    private final LongAdder chunksTotal = new LongAdder();
+
+    private volatile PayoutRunStats lastRunStats;
+
+    @PostConstruct
+    void init() {
+        FunctionCounter.builder("deposit.payout.processed", processedTotal, LongAdder::sum)
+                .description("Вклады, по которым выплачены проценты с момента запуска сервиса")
+                .register(meterRegistry);
+        FunctionCounter.builder("deposit.payout.declined", declinedTotal, LongAdder::sum)
+                .description("Переводы процентов, отклоненные account-service, с момента запуска сервиса")
+                .register(meterRegistry);
+        FunctionCounter.builder("deposit.payout.chunks", chunksTotal, LongAdder::sum)
+                .description("Страницы вкладов, обработанные с момента запуска сервиса")
+                .register(meterRegistry);
+
+        Gauge.builder("deposit.payout.last-run.processed", this,
+                        service -> service.lastRunValue(PayoutRunStats::getProcessed))
+                .description("Вклады, обработанные последней выплатой")
+                .register(meterRegistry);
+        Gauge.builder("deposit.payout.last-run.paid", this,
+                        service -> service.lastRunValue(stats -> stats.getPaidAmount().doubleValue()))
+                .description("Сумма процентов, выплаченная последней выплатой")
+                .register(meterRegistry);
+        Gauge.builder("deposit.payout.last-run.throughput", this,
+                        service -> service.lastRunValue(PayoutRunStats::getDepositsPerSecond))
+                .description("Вклады в секунду при последней выплате")
+                .register(meterRegistry);
+        TimeGauge.builder("deposit.payout.last-run.duration", this, TimeUnit.MILLISECONDS,
+                        service -> service.lastRunValue(PayoutRunStats::getDurationMillis))
+                .description("Длительность последней выплаты")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выплачивает проценты по вкладам, дата выплаты по которым наступила сегодня или раньше
+     */
+    @Scheduled(cron = "${app.payout.cron:0 0 1 * * *}")
+    public void payDueInterest() {
+        payInterest(LocalDate.now());
+    }
+
+    /**
+     * Выплачивает проценты по вкладам арендованных шардов на указанную дату.
+     * <p>
+     * Если выплата по шарду на эту дату уже начиналась, она продолжается с сохраненной позиции;
+     * завершенная выплата повторно не выполняется
+     *
+     * @param payoutDate Дата выплаты
+     * @return Статистика выполнения
+     */
+    public PayoutRunStats payInterest(LocalDate payoutDate) {
+        long startedAt = System.nanoTime();
+        RunTotals totals = new RunTotals();
+
+        shardLeaseManager.runOnOwnedShards(shard -> payShard(payoutDate, shard, totals));
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        PayoutRunStats stats = new PayoutRunStats(
+                payoutDate,
+                totals.processed,
+                totals.chunks,
+                totals.paidAmount,
+                durationMillis,
+                durationMillis == 0 ? totals.processed : totals.processed * 1000.0 / durationMillis
+        );
+        lastRunStats = stats;
+
+        log.info("Выплата процентов за {}: шардов {}, обработано вкладов {}, страниц {}, выплачено {}, за {} мс ({} вкладов/с)",
+                payoutDate, totals.shards, stats.getProcessed(), stats.getChunks(), stats.getPaidAmount(),
+                stats.getDurationMillis(), String.format("%.1f", stats.getDepositsPerSecond()));
+        return stats;
+    }
+
+    /**
+     * Возвращает статистику последней выполненной выплаты
+     *
+     * @return Статистика выплаты; {@code null}, если выплата еще не выполнялась
+     */
+    public PayoutRunStats getLastRunStats() {
+        return lastRunStats;
+    }
+
+    /**
+     * Возвращает количество вкладов, обработанных с момента запуска сервиса
+     *
+     * @return Количество вкладов
+     */
+    public long getProcessedTotal() {
+        return processedTotal.sum();
+    }
+
+    /**
+     * Возвращает количество страниц, обработанных с момента запуска сервиса
+     *
+     * @return Количество страниц
+     */
+    public long getChunksTotal() {
+        return chunksTotal.sum();
+    }
+
+    private void payShard(LocalDate payoutDate, int shard, RunTotals totals) {
+        PayoutCheckpoint checkpoint = payoutRepository.findCheckpoint(payoutDate, shard)
+                .orElseGet(() -> new PayoutCheckpoint(payoutDate, shard, null, null, 0, BigDecimal.ZERO, false));
+        if (checkpoint.isCompleted()) {
+            log.debug("Выплата процентов за {} по шарду {} уже выполнена", payoutDate, shard);
+            return;
+        }
+
+        long processedBefore = checkpoint.getProcessed();
+        BigDecimal paidBefore = checkpoint.getPaidAmount();
+
+        List<InterestPayout> payouts;
+        while (!(payouts = payoutRepository.findDuePayouts(
+                payoutDate,
+                shard,
+                shardLeaseManager.getShardCount(),
+                checkpoint.getLastPaymentDate(),
+                checkpoint.getLastDepositId(),
+                payoutProperty.getChunkSize())).isEmpty()) {
+            processChunk(checkpoint, payouts);
+            totals.chunks++;
+        }
+
+        checkpoint.setCompleted(true);
+        payoutRepository.saveCheckpoint(checkpoint);
+
+        totals.shards++;
+        totals.processed += checkpoint.getProcessed() - processedBefore;
+        totals.paidAmount = totals.paidAmount.add(checkpoint.getPaidAmount().subtract(paidBefore));
+    }
+
+    private void processChunk(PayoutCheckpoint checkpoint, List<InterestPayout> payouts) {
+        List<AccountOperation> transfers = new ArrayList<>(payouts.size());
+        Map<String, InterestPayout> payoutsByOperation = new HashMap<>();
+        List<LocalDate> nextPaymentDates = new ArrayList<>(payouts.size());
+        BigDecimal paidAmount = BigDecimal.ZERO;
+
+        for (InterestPayout payout : payouts) {
+            BigDecimal interest = calculateInterest(payout);
+            if (interest.signum() > 0 && payout.getPercentPaymentAccountId() != null) {
+                AccountOperation transfer = new AccountOperation(
+                        operationId(payout),
+                        AccountOperationTypeEnum.REFILL,
+                        payout.getPercentPaymentAccountId(),
+                        interest
+                );
+                transfers.add(transfer);
+                payoutsByOperation.put(transfer.getOperationId(), payout);
+                paidAmount = paidAmount.add(interest);
+            }
+            nextPaymentDates.add(nextPaymentDate(payout));
+        }
+
+        // Отклоненные переводы не останавливают страницу: они сохраняются для разбора вместе с ее фиксацией
+        List<AccountOperation> declinedTransfers = new ArrayList<>();
+        List<String> declineErrors = new ArrayList<>();
+        int batchSize = payoutProperty.getTransferBatchSize();
+        for (int from = 0; from < transfers.size(); from += batchSize) {
+            List<AccountOperation> batch = transfers.subList(from, Math.min(from + batchSize, transfers.size()));
+            List<AccountOperationResult> results = accountClient.executeOperations(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                AccountOperationResult result = results.get(i);
+                if (!result.isSuccess()) {
+                    AccountOperation transfer = batch.get(i);
+                    log.warn("account-service отклонил перевод процентов {}: {}",
+                            transfer.getOperationId(), result.getMessage());
+                    declinedTransfers.add(transfer);
+                    declineErrors.add(result.getMessage());
+                    paidAmount = paidAmount.subtract(transfer.getMoney());
+                }
+            }
+        }
+
+        InterestPayout last = payouts.get(payouts.size() - 1);
+        checkpoint.setLastPaymentDate(last.getPercentPaymentDate());
+        checkpoint.setLastDepositId(last.getDepositId());
+        checkpoint.setProcessed(checkpoint.getProcessed() + payouts.size());
+        checkpoint.setPaidAmount(checkpoint.getPaidAmount().add(paidAmount));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            payoutRepository.movePaymentDates(payouts, nextPaymentDates);
+            for (int i = 0; i < declinedTransfers.size(); i++) {
+                AccountOperation transfer = declinedTransfers.get(i);
+                payoutRepository.saveDeclined(
+                        payoutsByOperation.get(transfer.getOperationId()), transfer.getMoney(), declineErrors.get(i));
+            }
+            payoutRepository.saveCheckpoint(checkpoint);
+        });
+
+        processedTotal.add(payouts.size());
+        declinedTotal.add(declinedTransfers.size());
+        chunksTotal.increment();
+    }
+
+    /**
+     * Строит идентификатор перевода процентов, не меняющийся при повторной отправке страницы
+     *
+     * @param payout Вклад
+     * @return Идентификатор операции со счетом
+     */
+    static String operationId(InterestPayout payout) {
+        return OPERATION_ID_PREFIX + payout.getDepositId() + "-" + payout.getPercentPaymentDate();
+    }
+
+    /**
+     * Рассчитывает сумму процентов к выплате
+     *
+     * @param payout Вклад
+     * @return Сумма процентов с точностью до копейки
+     */
+    static BigDecimal calculateInterest(InterestPayout payout) {
+        BigDecimal amountByRate = payout.getDepositAmount().multiply(payout.getDepositRate());
+        switch (payout.getPercentPaymentType()) {
+            case MONTHLY:
+                return amountByRate.divide(MONTHLY_DIVISOR, 2, RoundingMode.HALF_EVEN);
+            case END_OF_TERM:
+                long months = ChronoUnit.MONTHS.between(payout.getStartDate(), payout.getEndDate());
+                return amountByRate.multiply(BigDecimal.valueOf(months)).divide(MONTHLY_DIVISOR, 2, RoundingMode.HALF_EVEN);
+            default:
+                throw new IllegalArgumentException("Неподдерживаемый тип выплаты процентов: " + payout.getPercentPaymentType());
+        }
+    }
+
+    /**
+     * Рассчитывает следующую дату выплаты процентов.
+     * <p>
+     * Ежемесячные даты отсчитываются от даты открытия вклада, чтобы день выплаты не смещался
+     * после коротких месяцев
+     *
+     * @param payout Вклад
+     * @return Следующая дата выплаты; {@code null}, если выплат по вкладу больше не будет
+     */
+    static LocalDate nextPaymentDate(InterestPayout payout) {
+        switch (payout.getPercentPaymentType()) {
+            case MONTHLY:
+                LocalDate nextPaymentDate = payout.getStartDate();
+                for (int month = 1; !nextPaymentDate.isAfter(payout.getPercentPaymentDate()); month++) {
+                    nextPaymentDate = payout.getStartDate().plusMonths(month);
+                }
+                return nextPaymentDate.isAfter(payout.getEndDate()) ? null : nextPaymentDate;
+            case END_OF_TERM:
+                return null;
+            default:
+                throw new IllegalArgumentException("Неподдерживаемый тип выплаты процентов: " + payout.getPercentPaymentType());
+        }
+    }
+
+    private double lastRunValue(ToDoubleFunction<PayoutRunStats> value) {
+        PayoutRunStats stats = lastRunStats;
+        return stats == null ? 0 : value.applyAsDouble(stats);
+    }
+
+    private static final class RunTotals {
+        private int shards;
+        private long processed;
+        private long chunks;
+        private BigDecimal paidAmount = BigDecimal.ZERO;
+    }
+}
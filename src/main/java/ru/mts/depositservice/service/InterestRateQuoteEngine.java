@@ -0,0 +1,242 @@
+package ru.mts.depositservice.service;
+
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.model.RateCard;
+import ru.mts.depositservice.model.RateCardEntry;
+import ru.mts.depositservice.property.DepositProperty;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Таблица процентных ставок по вкладам.
+ * <p>
+ * Ставка зависит только от типа вклада, срока, диапазона суммы и капитализации, поэтому итоговые значения
+ * для всех сочетаний условий рассчитываются заранее от базовой ставки {@code app.deposit.base_rate}.
+ * Получение ставки сводится к поиску в массиве и не создает новых объектов.
+ * <p>
+ * Вместе со ставками собирается {@link RateCard} - та же таблица в виде диапазонов сумм, по которой клиент
+ * может рассчитывать ставку сам
+ */
+@Service
+public class InterestRateQuoteEngine {
+
+    static final int AMOUNT_TIER_NONE = 0;                                      // надбавка за сумму не положена
+    static final int AMOUNT_TIER_FIRST = 1;                                     // от 100.000 до 200.000
+    static final int AMOUNT_TIER_TOP = 2;                                       // от 400.000
+    static final int AMOUNT_TIERS = 3;
+
+    private static final DepositTypeEnum[] DEPOSIT_TYPES = DepositTypeEnum.values();
+    private static final DepositDurationEnum[] DURATIONS = DepositDurationEnum.values();
+
+    private static final BigDecimal AMOUNT_STEP = BigDecimal.valueOf(100_000);
+    private static final BigDecimal FIRST_TIER_FROM = BigDecimal.valueOf(100_000);
+    private static final BigDecimal FIRST_TIER_TO = BigDecimal.valueOf(200_000);
+    private static final BigDecimal TOP_TIER_FROM = BigDecimal.valueOf(400_000);
+    // Начиная с этой суммы количество шагов по 100.000 не помещается в int
+    private static final BigDecimal INT_OVERFLOW_AMOUNT = AMOUNT_STEP.multiply(BigDecimal.valueOf(1L << 31));
+    // Меняется при изменении надбавок, чтобы клиенты не использовали закешированную таблицу со старыми ставками
+    private static final String RATE_CARD_FORMAT = "v1";
+
+    // Суммы от INT_OVERFLOW_AMOUNT в таблицу ставок не входят: их диапазон по-прежнему считается через деление
+    private static final List<AmountRange> RATE_CARD_AMOUNTS = List.of(
+            new AmountRange(BigDecimal.ZERO, FIRST_TIER_FROM, AMOUNT_TIER_NONE),
+            new AmountRange(FIRST_TIER_FROM, FIRST_TIER_TO, AMOUNT_TIER_FIRST),
+            new AmountRange(FIRST_TIER_TO, TOP_TIER_FROM, AMOUNT_TIER_NONE),
+            new AmountRange(TOP_TIER_FROM, INT_OVERFLOW_AMOUNT, AMOUNT_TIER_TOP)
+    );
+
+    private final DepositProperty depositProperty;
+
+    private volatile RateTable rateTable;
+
+    public InterestRateQuoteEngine(DepositProperty depositProperty) {
+        this.depositProperty = depositProperty;
+        this.rateTable = buildRateTable(depositProperty.getBaseRate());
+    }
+
+    /**
+     * Возвращает процентную ставку для указанных условий вклада
+     *
+     * @param depositType   Тип вклада
+     * @param duration      Срок вклада
+     * @param depositAmount Сумма вклада
+     * @param isCapitalized Признак капитализации процентов
+     * @return Процентная ставка с точностью до двух знаков после запятой
+     */
+    public BigDecimal quote(DepositTypeEnum depositType,
+                            DepositDurationEnum duration,
+                            BigDecimal depositAmount,
+                            boolean isCapitalized) {
+        return currentTable().rates()[index(depositType.ordinal(), duration.ordinal(), amountTier(depositAmount), isCapitalized)];
+    }
+
+    /**
+     * Возвращает таблицу ставок по всем условиям вклада для текущей базовой ставки.
+     * Таблица собирается один раз на базовую ставку, и повторные вызовы возвращают тот же объект
+     *
+     * @return Таблица ставок
+     */
+    public RateCard rateCard() {
+        return currentTable().rateCard();
+    }
+
+    /**
+     * Возвращает надбавку к процентной ставке, которая положена за сумму вклада
+     *
+     * @param depositAmount Сумма вклада
+     * @return Надбавка к процентной ставке
+     */
+    public double amountAdjustment(BigDecimal depositAmount) {
+        return tierAdjustment(amountTier(depositAmount));
+    }
+
+    /**
+     * Определяет диапазон суммы вклада, от которого зависит надбавка к ставке
+     *
+     * @param depositAmount Сумма вклада
+     * @return Номер диапазона
+     */
+    static int amountTier(BigDecimal depositAmount) {
+        // Для отрицательного масштаба и сумм, не помещающихся в int, считаем так же, как и раньше - через деление
+        if (depositAmount.scale() < 0
+                || depositAmount.compareTo(INT_OVERFLOW_AMOUNT) >= 0
+                || depositAmount.compareTo(INT_OVERFLOW_AMOUNT.negate()) <= 0) {
+            return countTier(depositAmount.divide(AMOUNT_STEP, RoundingMode.DOWN).intValue());
+        }
+
+        if (depositAmount.compareTo(TOP_TIER_FROM) >= 0) {
+            return AMOUNT_TIER_TOP;
+        }
+        if (depositAmount.compareTo(FIRST_TIER_FROM) >= 0 && depositAmount.compareTo(FIRST_TIER_TO) < 0) {
+            return AMOUNT_TIER_FIRST;
+        }
+        return AMOUNT_TIER_NONE;
+    }
+
+    private RateTable currentTable() {
+        RateTable table = rateTable;
+        if (table.baseRate() != depositProperty.getBaseRate()) {
+            table = rebuild();                                                  // базовая ставка была изменена
+        }
+        return table;
+    }
+
+    private synchronized RateTable rebuild() {
+        BigDecimal baseRate = depositProperty.getBaseRate();
+        if (rateTable.baseRate() != baseRate) {
+            rateTable = buildRateTable(baseRate);
+        }
+        return rateTable;
+    }
+
+    private static RateTable buildRateTable(BigDecimal baseRate) {
+        BigDecimal[] rates = new BigDecimal[DEPOSIT_TYPES.length * DURATIONS.length * AMOUNT_TIERS * 2];
+
+        for (DepositTypeEnum depositType : DEPOSIT_TYPES) {
+            for (DepositDurationEnum duration : DURATIONS) {
+                for (int tier = 0; tier < AMOUNT_TIERS; tier++) {
+                    for (boolean isCapitalized : new boolean[]{false, true}) {
+                        // Порядок сложения надбавок сохранен, чтобы результат совпадал с прежним расчётом до бита
+                        double rateAdjustment = 0;
+                        rateAdjustment += calculateTypeBasedAdjustment(depositType);
+                        rateAdjustment += calculateDurationBasedAdjustment(duration);
+                        rateAdjustment += tierAdjustment(tier);
+                        rateAdjustment += calculatePercentageTypeBasedAdjustment(isCapitalized);
+
+                        rates[index(depositType.ordinal(), duration.ordinal(), tier, isCapitalized)] = baseRate
+                                .add(BigDecimal.valueOf(rateAdjustment))
+                                .setScale(2, RoundingMode.HALF_UP);
+                    }
+                }
+            }
+        }
+        return new RateTable(baseRate, rates, buildRateCard(baseRate, rates));
+    }
+
+    private static RateCard buildRateCard(BigDecimal baseRate, BigDecimal[] rates) {
+        List<RateCardEntry> entries = new ArrayList<>(DEPOSIT_TYPES.length * DURATIONS.length * 2 * RATE_CARD_AMOUNTS.size());
+        for (DepositTypeEnum depositType : DEPOSIT_TYPES) {
+            for (DepositDurationEnum duration : DURATIONS) {
+                for (boolean isCapitalized : new boolean[]{false, true}) {
+                    for (AmountRange amounts : RATE_CARD_AMOUNTS) {
+                        entries.add(new RateCardEntry(
+                                depositType,
+                                duration,
+                                isCapitalized,
+                                amounts.from(),
+                                amounts.to(),
+                                rates[index(depositType.ordinal(), duration.ordinal(), amounts.tier(), isCapitalized)]
+                        ));
+                    }
+                }
+            }
+        }
+        return new RateCard(RATE_CARD_FORMAT + "-" + baseRate.toPlainString(), baseRate, List.copyOf(entries));
+    }
+
+    private static int index(int depositType, int duration, int amountTier, boolean isCapitalized) {
+        return ((depositType * DURATIONS.length + duration) * AMOUNT_TIERS + amountTier) * 2 + (isCapitalized ? 1 : 0);
+    }
+
+    private static int countTier(int count) {
+        if (count == 1) {
+            return AMOUNT_TIER_FIRST;
+        } else if (count >= 4) {
+            return AMOUNT_TIER_TOP;
+        }
+        return AMOUNT_TIER_NONE;
+    }
+
+    private static double tierAdjustment(int amountTier) {
+        switch (amountTier) {
+            case AMOUNT_TIER_FIRST:
+                return 0.25;
+            case AMOUNT_TIER_TOP:
+                return 0.4;
+            default:
+                return 0;
+        }
+    }
+
+    private static double calculatePercentageTypeBasedAdjustment(boolean isCapitalized) {
+        if (isCapitalized) {
+            return 0.01;
+        }
+        return 0;
+    }
+
+    private static double calculateDurationBasedAdjustment(DepositDurationEnum duration) {
+        switch (duration) {
+            case MONTH_6:
+                return 0.05;
+            case YEAR:
+                return 0.10;
+            default:
+                return 0;
+        }
+    }
+
+    private static double calculateTypeBasedAdjustment(DepositTypeEnum depositType) {
+        switch (depositType) {
+            case DEPOSITS_AND_WITHDRAWALS:
+                return 0.05;
+            case DEPOSITS_AND_NO_WITHDRAWALS:
+                return 0.10;
+            case NO_DEPOSITS_AND_WITHDRAWALS:
+                return 0.20;
+            default:
+                return 0;
+        }
+    }
+
+    private record RateTable(BigDecimal baseRate, BigDecimal[] rates, RateCard rateCard) {
+    }
+
+    private record AmountRange(BigDecimal from, BigDecimal to, int tier) {
+    }
+}
@@ -0,0 +1,64 @@
+package ru.mts.depositservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.property.ConfirmationProperty;
+
+/**
+ * Хранилище кодов подтверждения в таблице {@code confirmation_codes}.
+ * <p>
+ * Используется, когда запущено несколько экземпляров сервиса: код, выданный одним экземпляром,
+ * может быть подтвержден на любом другом
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.confirmation", name = "store", havingValue = "jdbc")
+public class JdbcConfirmationCodeStore implements ConfirmationCodeStore {
+
+    private static final String UPSERT_CODE =
+            "INSERT INTO confirmation_codes (request_id, operation, code, attempts, expires_at) " +
+                    "VALUES (?, ?, ?, 0, now() + ? * INTERVAL '1 millisecond') " +
+                    "ON CONFLICT (request_id, operation) DO UPDATE " +
+                    "SET code = EXCLUDED.code, attempts = 0, expires_at = EXCLUDED.expires_at";
+    private static final String CONSUME_CODE =
+            "DELETE FROM confirmation_codes " +
+                    "WHERE request_id = ? AND operation = ? AND code = ? AND expires_at > now()";
+    private static final String COUNT_ATTEMPT =
+            "UPDATE confirmation_codes SET attempts = attempts + 1 " +
+                    "WHERE request_id = ? AND operation = ?";
+    private static final String REMOVE_EXHAUSTED =
+            "DELETE FROM confirmation_codes " +
+                    "WHERE request_id = ? AND operation = ? AND (attempts >= ? OR expires_at <= now())";
+    private static final String REMOVE_EXPIRED =
+            "DELETE FROM confirmation_codes WHERE expires_at <= now()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConfirmationProperty confirmationProperty;
+
+    @Override
+    public void save(Integer requestId, ConfirmationOperationEnum operation, String code) {
+        jdbcTemplate.update(UPSERT_CODE, requestId, operation.name(), code, confirmationProperty.getTtl().toMillis());
+    }
+
+    @Override
+    public boolean verify(Integer requestId, ConfirmationOperationEnum operation, String code) {
+        // Верный код удаляется одним запросом, поэтому подтвердить его может только один экземпляр сервиса
+        if (jdbcTemplate.update(CONSUME_CODE, requestId, operation.name(), code) == 1) {
+            return true;
+        }
+
+        jdbcTemplate.update(COUNT_ATTEMPT, requestId, operation.name());
+        jdbcTemplate.update(REMOVE_EXHAUSTED, requestId, operation.name(), confirmationProperty.getMaxAttempts());
+        return false;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.confirmation.cleanup-interval:PT1M}")
+    public void removeExpired() {
+        jdbcTemplate.update(REMOVE_EXPIRED);
+    }
+}
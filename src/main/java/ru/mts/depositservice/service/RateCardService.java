@@ -0,0 +1,92 @@
+package ru.mts.depositservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.exception.CustomException;
+import ru.mts.depositservice.model.OpenDepositRequest;
+import ru.mts.depositservice.model.RateCard;
+import ru.mts.depositservice.property.RateCardProperty;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Процентные ставки для клиентов, рассчитывающих вклад до подачи заявки.
+ * <p>
+ * Таблица ставок зависит только от базовой ставки, поэтому кешируется клиентом и CDN по версии таблицы;
+ * ставки для нескольких вариантов вклада рассчитываются одним запросом
+ */
+@Service
+@RequiredArgsConstructor
+public class RateCardService {
+
+    private final InterestRateQuoteEngine quoteEngine;
+    private final RateCardProperty rateCardProperty;
+
+    /**
+     * Возвращает таблицу ставок по всем условиям вклада
+     *
+     * @return Таблица ставок
+     */
+    public RateCard getRateCard() {
+        return quoteEngine.rateCard();
+    }
+
+    /**
+     * Возвращает правила кеширования таблицы ставок
+     *
+     * @return Заголовок {@code Cache-Control} для таблицы ставок
+     */
+    public CacheControl getCacheControl() {
+        return CacheControl.maxAge(rateCardProperty.getMaxAge()).cachePublic();
+    }
+
+    /**
+     * Рассчитывает процентные ставки для нескольких вариантов вклада
+     *
+     * @param requests Условия вкладов
+     * @return Процентные ставки в порядке запросов
+     */
+    public List<BigDecimal> quote(List<OpenDepositRequest> requests) {
+        if (requests.size() > rateCardProperty.getMaxQuotes()) {
+            throw new CustomException(
+                    "QUOTE_LIMIT_EXCEEDED",
+                    "За один запрос можно рассчитать не более " + rateCardProperty.getMaxQuotes() + " ставок"
+            );
+        }
+
+        List<BigDecimal> rates = new ArrayList<>(requests.size());
+        for (int index = 0; index < requests.size(); index++) {
+            OpenDepositRequest request = requests.get(index);
+            validate(request, index);
+            rates.add(quoteEngine.quote(
+                    request.getDepositType(),
+                    request.getDuration(),
+                    request.getDepositAmount(),
+                    request.getIsCapitalized()
+            ));
+        }
+        return rates;
+    }
+
+    private static void validate(OpenDepositRequest request, int index) {
+        if (request == null
+                || request.getDepositAmount() == null
+                || request.getDepositType() == null
+                || request.getDuration() == null
+                || request.getIsCapitalized() == null) {
+            throw new CustomException(
+                    "INVALID_REQUEST",
+                    "Запрос " + index + ": не заданы сумма или условия вклада"
+            );
+        }
+        if (request.getDepositAmount().signum() <= 0) {
+            throw new CustomException(
+                    "INVALID_REQUEST",
+                    "Запрос " + index + ": нельзя оперировать отрицательной суммой денег"
+            );
+        }
+    }
+}
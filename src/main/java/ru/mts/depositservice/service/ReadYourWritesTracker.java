@@ -0,0 +1,67 @@
+package ru.mts.depositservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.config.ReplicaRoutingDataSource;
+import ru.mts.depositservice.property.ReplicaProperty;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Чтение своих записей при чтении с реплики.
+ * <p>
+ * После того как клиент подтвердил операцию, реплика может еще не содержать ее результат. Поэтому в течение
+ * {@code app.replica.read-your-writes-window} после изменения данные клиента читаются с основной базы данных.
+ * Время изменения хранится в памяти экземпляра, обработавшего подтверждение
+ */
+@Service
+@RequiredArgsConstructor
+public class ReadYourWritesTracker {
+
+    private final ReplicaProperty replicaProperty;
+
+    private final ConcurrentMap<Integer, Long> primaryUntil = new ConcurrentHashMap<>();
+
+    /**
+     * Отмечает, что данные клиента изменены
+     *
+     * @param customerId Идентификатор клиента
+     */
+    public void markWritten(Integer customerId) {
+        if (!replicaProperty.isEnabled() || customerId == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (primaryUntil.size() >= replicaProperty.getReadYourWritesMaxEntries()) {
+            primaryUntil.values().removeIf(until -> until - now <= 0);
+        }
+        primaryUntil.put(customerId, now + replicaProperty.getReadYourWritesWindow().toNanos());
+    }
+
+    /**
+     * Выполняет чтение данных клиента: на основной базе данных, если клиент недавно изменял данные,
+     * иначе - как обычно
+     *
+     * @param customerId Идентификатор клиента
+     * @param read       Чтение
+     * @return Результат чтения
+     */
+    public <T> T read(Integer customerId, Supplier<T> read) {
+        return isRecentlyWritten(customerId) ? ReplicaRoutingDataSource.onPrimary(read) : read.get();
+    }
+
+    private boolean isRecentlyWritten(Integer customerId) {
+        Long until = primaryUntil.get(customerId);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        primaryUntil.remove(customerId, until);
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+package ru.mts.depositservice.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.entity.DepositTypes;
+import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.entity.TypesPercentPayment;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.repository.DepositTypesRepository;
+import ru.mts.depositservice.repository.PercentPaymentTypesRepository;
+import ru.mts.depositservice.repository.RequestStatusRepository;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Справочники статусов заявок, типов вкладов и типов выплаты процентов.
+ * <p>
+ * Таблицы заполняются миграциями и не меняются во время работы сервиса, поэтому они загружаются
+ * один раз при старте и далее читаются из памяти без обращений к базе данных
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReferenceDataRegistry {
+
+    private final RequestStatusRepository requestStatusRepository;
+    private final DepositTypesRepository depositTypesRepository;
+    private final PercentPaymentTypesRepository percentPaymentTypesRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Загружает справочники из базы данных и атомарно заменяет ими текущие значения
+     */
+    @PostConstruct
+    public void reload() {
+        snapshot = new Snapshot(
+                index(RequestStatusEnum.class, requestStatusRepository.findAll(), RequestStatus::getStatusName),
+                index(DepositTypeEnum.class, depositTypesRepository.findAll(), DepositTypes::getTypeName),
+                index(PercentPaymentTypeEnum.class, percentPaymentTypesRepository.findAll(), TypesPercentPayment::getTypeName)
+        );
+        log.info("Справочники загружены: статусов заявок - {}, типов вкладов - {}, типов выплаты процентов - {}",
+                snapshot.requestStatuses().size(),
+                snapshot.depositTypes().size(),
+                snapshot.percentPaymentTypes().size()
+        );
+    }
+
+    /**
+     * Возвращает статус заявки по его названию
+     *
+     * @param statusName Название статуса
+     * @return Статус заявки {@link RequestStatus}
+     */
+    public RequestStatus getRequestStatus(RequestStatusEnum statusName) {
+        return snapshot.requestStatuses().get(statusName);
+    }
+
+    /**
+     * Возвращает тип вклада по его названию
+     *
+     * @param typeName Название типа вклада
+     * @return Тип вклада {@link DepositTypes}
+     */
+    public DepositTypes getDepositType(DepositTypeEnum typeName) {
+        return snapshot.depositTypes().get(typeName);
+    }
+
+    /**
+     * Возвращает тип выплаты процентов по его названию
+     *
+     * @param typeName Название типа выплаты процентов
+     * @return Тип выплаты процентов {@link TypesPercentPayment}
+     */
+    public TypesPercentPayment getPercentPaymentType(PercentPaymentTypeEnum typeName) {
+        return snapshot.percentPaymentTypes().get(typeName);
+    }
+
+    private static <E extends Enum<E>, T> Map<E, T> index(Class<E> keyType, List<T> rows, Function<T, E> key) {
+        EnumMap<E, T> index = new EnumMap<>(keyType);
+        for (T row : rows) {
+            index.put(key.apply(row), row);
+        }
+
+        // Каждому значению перечисления должна соответствовать строка справочника
+        for (E constant : keyType.getEnumConstants()) {
+            if (!index.containsKey(constant)) {
+                throw new IllegalStateException("В справочнике " + keyType.getSimpleName() + " отсутствует значение " + constant);
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    private record Snapshot(Map<RequestStatusEnum, RequestStatus> requestStatuses,
+                            Map<DepositTypeEnum, DepositTypes> depositTypes,
+                            Map<PercentPaymentTypeEnum, TypesPercentPayment> percentPaymentTypes) {
+    }
+}
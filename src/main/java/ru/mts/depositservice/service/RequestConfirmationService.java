@@ -1,25 +1,31 @@
 package ru.mts.depositservice.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.mts.depositservice.client.AccountClient;
 import ru.mts.depositservice.entity.Deposit;
 import ru.mts.depositservice.entity.Request;
 import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
 import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.exception.CustomException;
 import ru.mts.depositservice.exception.DepositNotFoundException;
 import ru.mts.depositservice.exception.InvalidConfirmationCodeException;
 import ru.mts.depositservice.exception.RequestNotFoundException;
 import ru.mts.depositservice.model.*;
+import ru.mts.depositservice.repository.AccountOutboxRepository;
 import ru.mts.depositservice.repository.DepositRepository;
 import ru.mts.depositservice.repository.RequestRepository;
-import ru.mts.depositservice.repository.RequestStatusRepository;
 
 import java.util.Date;
 import java.util.Optional;
 
 @Service
+@Timed(value = "deposit.service", histogram = true)
 @RequiredArgsConstructor
 public class RequestConfirmationService {
 
@@ -30,50 +36,30 @@ public class RequestConfirmationService {
     private final DepositRepository depositRepository;
     private final RequestRepository requestRepository;
     private final RequestStatusService requestStatusService;
-    private final RequestStatusRepository requestStatusRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
     private final SmsConfirmationServiceImpl smsConfirmationService;
+    private final DepositOpeningSagaService openingSaga;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountOutboxRepository outboxRepository;
+    private final ReadYourWritesTracker readYourWritesTracker;
 
     /**
      * Подтверждает заявку на открытие депозита.
      * <p>
-     * Проверяет наличие заявки, корректность кода подтверждения, достаточность средств на счете клиента и изменяет статус заявки соответственно
+     * Проверяет наличие заявки, корректность кода подтверждения, достаточность средств на счете клиента и изменяет статус заявки соответственно.
+     * Транзакция не удерживается на время обращений к другим сервисам: подтверждение заявки сохраняется
+     * отдельной короткой транзакцией, а списание денег и открытие вклада выполняет {@link DepositOpeningSagaService}
      *
      * @param openRequest Объект запроса на открытие депозита с подтверждающим кодом
      * @return Ответ на процесс подтверждения заявки {@link RequestResponse}
      */
-    @Transactional
     public RequestResponse confirmOpenRequest(OpenDepositRequest openRequest) {
-        // Находим заявку в базе данных
-        Optional<Request> optionalConfirmingRequest = requestRepository.findById(openRequest.getRequestId());
-        if (optionalConfirmingRequest.isEmpty()) {
-            throw new RequestNotFoundException(
-                    "REQUEST_NOT_FOUND",
-                    "Заявка с идентификатором " + openRequest.getRequestId() + " не найдена!"
-            );
-        }
-        Request confirmingRequest = optionalConfirmingRequest.get();
-
-        // Устанавливаем сумму в DTO заявке ту, которую пользователь указывал при создании заявки на открытие вклада
-        openRequest.setDepositAmount(confirmingRequest.getAmount());
-
-        // Проверяем код подтверждения на правильность
-        if (openRequest.getConfirmationCode().equals(smsConfirmationService.getOpenConfirmationCode())) {
-            RequestStatus confirmedStatus = requestStatusRepository.findRequestStatusByStatusName(RequestStatusEnum.CONFIRMED);
-            requestStatusService.changeCurrentRequestStatus(confirmingRequest, confirmedStatus);    // меняем статус заявки на "ПОДТВЕРЖДЕНО"
-        } else {
-            throw new InvalidConfirmationCodeException(
-                    "INVALID_SMS_CODE",
-                    "Неправильный код подтверждения!"
-            );
-        }
+        Request confirmingRequest = transactionTemplate.execute(status -> confirmRequest(openRequest));
+        readYourWritesTracker.markWritten(openRequest.getCustomerId());
 
         // Проверяем лежит ли необходимая сумма на банковском счете клиента
         if (accountClient.checkEnoughMoney(openRequest)) {
-            RequestStatus approvedStatus = requestStatusRepository
-                    .findRequestStatusByStatusName(RequestStatusEnum.APPROVED);
-            requestStatusService.changeCurrentRequestStatus(confirmingRequest, approvedStatus);     // меняем статус заявки на "ОДОБРЕНО"
-
-            depositService.openDeposit(openRequest);                                                // открываем вклад
+            openingSaga.open(confirmingRequest, openRequest);                                      // открываем вклад
 
             return ApprovedRequestResponse.builder()
                     .requestId(openRequest.getRequestId())
@@ -85,8 +71,7 @@ public class RequestConfirmationService {
         }
 
         // При отсутствии необходимой суммы на банковском счете клиента
-        RequestStatus rejectedStatus = requestStatusRepository.findRequestStatusByStatusName(RequestStatusEnum.REJECTED);
-        requestStatusService.changeCurrentRequestStatus(confirmingRequest, rejectedStatus);         // меняем статус заявки на "ОТКЛОНЕНО"
+        openingSaga.reject(confirmingRequest);                                                      // меняем статус заявки на "ОТКЛОНЕНО"
 
         return RejectedRequestResponse.builder()
                 .amount(accountClient.getAccountMoney(openRequest.getCustomerId()))
@@ -106,7 +91,8 @@ public class RequestConfirmationService {
     @Transactional
     public RequestResponse confirmRefillDeposit(RefillDepositRequest refillRequest) {
         // Проверяем код подтверждения на правильность
-        if (!refillRequest.getConfirmationCode().equals(smsConfirmationService.getRefillConfirmationCode())) {
+        if (!smsConfirmationService.checkConfirmationCode(
+                refillRequest.getRequestId(), ConfirmationOperationEnum.REFILL, refillRequest.getConfirmationCode())) {
             throw new InvalidConfirmationCodeException(
                     "INVALID_SMS_CODE",
                     "Неправильный код подтверждения!"
@@ -116,6 +102,7 @@ public class RequestConfirmationService {
         // Проверяем есть ли необходимая сумма денег на счету
         if (accountClient.checkEnoughMoney(refillRequest)) {
             Deposit deposit = depositService.refillDeposit(refillRequest);                          // пополнение вклада
+            readYourWritesTracker.markWritten(deposit.getCustomer().getId());
 
             return RequestResponse.builder()
                     .requestDate(new Date())
@@ -134,12 +121,15 @@ public class RequestConfirmationService {
      * Подтверждает заявку на закрытие депозита
      * <p>
      * Проверяет корректность кода подтверждения и находит соответствующую заявку в базе данных,
-     * после чего закрывает депозит
+     * после чего закрывает депозит. Возврат денег на банковский счет записывается в outbox в той же транзакции,
+     * что и удаление вклада. Вклад, списание для пополнения которого еще не выполнено, не закрывается:
+     * иначе клиенту вернулись бы деньги, которые могут так и не быть списаны с его счета
      */
     @Transactional
     public void confirmCloseDeposit(CloseDepositRequest closeRequest) {
         // Проверяем код подтверждения на правильность
-        if (!closeRequest.getConfirmationCode().equals(smsConfirmationService.getCloseConfirmationCode())) {
+        if (!smsConfirmationService.checkConfirmationCode(
+                closeRequest.getRequestId(), ConfirmationOperationEnum.CLOSE, closeRequest.getConfirmationCode())) {
             throw new InvalidConfirmationCodeException(
                     "INVALID_SMS_CODE",
                     "Неправильный код подтверждения!"
@@ -159,8 +149,44 @@ public class RequestConfirmationService {
 
         // Закрываем вклад
         Deposit deposit = request.getDeposit();                                                     // находим счет вклада
+        if (outboxRepository.lockDepositAndCheckPendingRefill(deposit.getId())) {
+            throw new CustomException(
+                    "REFILL_IN_PROGRESS",
+                    "Вклад нельзя закрыть, пока не завершено его пополнение. Повторите попытку позже"
+            );
+        }
         closeRequest.setDepositAmount(deposit.getDepositAmount());                                  // в запросе пишем, что снимаем все деньги
-        accountClient.refillAccount(closeRequest);                                                  // выполняется запрос на снятие денег
+        outboxRepository.enqueue(AccountOperationTypeEnum.REFILL, request, deposit.getDepositAmount()); // деньги возвращаются на счет
         depositRepository.delete(deposit);                                                          // закрывается счет вклада
+        readYourWritesTracker.markWritten(request.getCustomer().getId());
+    }
+
+    private Request confirmRequest(OpenDepositRequest openRequest) {
+        // Находим заявку в базе данных
+        Optional<Request> optionalConfirmingRequest = requestRepository.findById(openRequest.getRequestId());
+        if (optionalConfirmingRequest.isEmpty()) {
+            throw new RequestNotFoundException(
+                    "REQUEST_NOT_FOUND",
+                    "Заявка с идентификатором " + openRequest.getRequestId() + " не найдена!"
+            );
+        }
+        Request confirmingRequest = optionalConfirmingRequest.get();
+
+        // Устанавливаем сумму в DTO заявке ту, которую пользователь указывал при создании заявки на открытие вклада
+        openRequest.setDepositAmount(confirmingRequest.getAmount());
+
+        // Проверяем код подтверждения на правильность
+        if (!smsConfirmationService.checkConfirmationCode(
+                openRequest.getRequestId(), ConfirmationOperationEnum.OPEN, openRequest.getConfirmationCode())) {
+            throw new InvalidConfirmationCodeException(
+                    "INVALID_SMS_CODE",
+                    "Неправильный код подтверждения!"
+            );
+        }
+
+        RequestStatus confirmedStatus = referenceDataRegistry.getRequestStatus(RequestStatusEnum.CONFIRMED);
+        requestStatusService.changeCurrentRequestStatus(confirmingRequest, confirmedStatus);        // меняем статус заявки на "ПОДТВЕРЖДЕНО"
+        openingSaga.start(confirmingRequest, openRequest);                                          // сохраняем условия вклада
+        return confirmingRequest;
     }
 }
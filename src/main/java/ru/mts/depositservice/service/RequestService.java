@@ -1,5 +1,6 @@
 package ru.mts.depositservice.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -8,16 +9,17 @@ import ru.mts.depositservice.client.CustomerClient;
 import ru.mts.depositservice.entity.Customer;
 import ru.mts.depositservice.entity.Request;
 import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
 import ru.mts.depositservice.enums.RequestStatusEnum;
 import ru.mts.depositservice.model.OpenDepositRequest;
 import ru.mts.depositservice.repository.RequestRepository;
-import ru.mts.depositservice.repository.RequestStatusRepository;
 
 import java.util.Date;
 import java.util.List;
 
 @Slf4j
 @Service
+@Timed(value = "deposit.service", histogram = true)
 @RequiredArgsConstructor
 public class RequestService {
 
@@ -26,7 +28,7 @@ public class RequestService {
     private final CustomerClient customerClient;
     private final RequestRepository requestRepository;
     private final RequestStatusService requestStatusService;
-    private final RequestStatusRepository requestStatusRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
     private final SmsConfirmationServiceImpl smsConfirmationService;
 
     /**
@@ -42,12 +44,7 @@ public class RequestService {
         // Проверяем минимальную сумму для открытия вклада
         depositService.validateMinimumDepositAmount(openDepositRequest.getDepositAmount());
 
-        // Генерируем код подтверждения для открытия вклада
-        String openConfirmationCode = smsConfirmationService.generateVerificationCode();
-        smsConfirmationService.setOpenConfirmationCode(openConfirmationCode);
-        log.info("Код {} для операции открытия вклада", openConfirmationCode);
-
-        RequestStatus confirmingStatus = requestStatusRepository.findRequestStatusByStatusName(RequestStatusEnum.CONFIRMING);
+        RequestStatus confirmingStatus = referenceDataRegistry.getRequestStatus(RequestStatusEnum.CONFIRMING);
         Customer customer = customerClient.findCustomer(openDepositRequest.getCustomerId());
 
         // Создаем новую заявку для открытия вклада
@@ -59,24 +56,30 @@ public class RequestService {
         request = requestRepository.save(request);                                      // сохраняем заявку в базе данных
 
         requestStatusService.changeCurrentRequestStatus(request, confirmingStatus);     // устанавливаем статус "НА ПОДТВЕРЖДЕНИИ"
+
+        // Генерируем код подтверждения для открытия вклада по созданной заявке
+        String openConfirmationCode = smsConfirmationService.sendConfirmationCode(request.getId(), ConfirmationOperationEnum.OPEN);
+        log.info("Код {} для операции открытия вклада по заявке {}", openConfirmationCode, request.getId());
     }
 
     /**
      * Генерирует код подтверждения для операции пополнения вклада
+     *
+     * @param requestId Идентификатор заявки, по которой был открыт вклад
      */
-    public void refillRequest() {
-        String refillConfirmationCode = smsConfirmationService.generateVerificationCode();
-        smsConfirmationService.setRefillConfirmationCode(refillConfirmationCode);
-        log.info("Код {} для операции пополнения вклада", refillConfirmationCode);
+    public void refillRequest(Integer requestId) {
+        String refillConfirmationCode = smsConfirmationService.sendConfirmationCode(requestId, ConfirmationOperationEnum.REFILL);
+        log.info("Код {} для операции пополнения вклада по заявке {}", refillConfirmationCode, requestId);
     }
 
     /**
      * Генерирует код подтверждения для операции закрытия вклада
+     *
+     * @param requestId Идентификатор заявки, по которой был открыт вклад
      */
-    public void closeRequest() {
-        String closeConfirmationCode = smsConfirmationService.generateVerificationCode();
-        smsConfirmationService.setCloseConfirmationCode(closeConfirmationCode);
-        log.info("Код {} для операции закрытия вклада", closeConfirmationCode);
+    public void closeRequest(Integer requestId) {
+        String closeConfirmationCode = smsConfirmationService.sendConfirmationCode(requestId, ConfirmationOperationEnum.CLOSE);
+        log.info("Код {} для операции закрытия вклада по заявке {}", closeConfirmationCode, requestId);
     }
 
     /**
@@ -86,6 +89,7 @@ public class RequestService {
      * @return Список отклоненных заявок
      */
     public List<Request> findRejectedRequests(Integer customerId) {
-        return requestRepository.findRequestsByCustomerId(customerId);
+        Integer rejectedStatusId = referenceDataRegistry.getRequestStatus(RequestStatusEnum.REJECTED).getId();
+        return requestRepository.findRequestsByCustomerIdAndStatusId(customerId, rejectedStatusId);
     }
 }
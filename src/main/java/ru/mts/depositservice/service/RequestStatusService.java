@@ -8,30 +8,98 @@ import ru.mts.depositservice.entity.CurrentRequestStatusKey;
 import ru.mts.depositservice.entity.Request;
 import ru.mts.depositservice.entity.RequestStatus;
 import ru.mts.depositservice.repository.CurrentRequestStatusRepository;
+import ru.mts.depositservice.repository.RequestRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class RequestStatusService {
 
     private final CurrentRequestStatusRepository currentRequestStatusRepository;
+    private final RequestRepository requestRepository;
 
     /**
      * Изменяет текущий статус запроса.
      * <p>
-     * Метод используется для обновления статуса запроса на новый, сохраняя историю изменений статуса запроса
+     * Метод используется для обновления статуса запроса на новый, сохраняя историю изменений статуса запроса.
+     * Запись в истории и текущий статус в {@code requests.current_status_id} изменяются в одной транзакции,
+     * чтобы поиск заявок по статусу не читал историю
      *
      * @param request Запрос, статус которого нужно изменить
      * @param status  Новый статус запроса
      */
     @Transactional
     public void changeCurrentRequestStatus(Request request, RequestStatus status) {
+        LocalDateTime now = LocalDateTime.now();
+
+        currentRequestStatusRepository.save(historyRecord(request, status, now));
+
+        request.setCurrentStatusId(status.getId());
+        request.setCurrentStatusChangedAt(now);
+        requestRepository.save(request);
+    }
+
+    /**
+     * Изменяет текущий статус нескольких заявок.
+     * <p>
+     * Записи в истории и заявки сохраняются пачкой, поэтому Hibernate отправляет их пакетными запросами
+     *
+     * @param requests Заявки, статус которых нужно изменить
+     * @param status   Новый статус заявок
+     */
+    @Transactional
+    public void changeCurrentRequestStatuses(List<Request> requests, RequestStatus status) {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<CurrentRequestStatus> history = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            history.add(historyRecord(request, status, now));
+            request.setCurrentStatusId(status.getId());
+            request.setCurrentStatusChangedAt(now);
+        }
+        currentRequestStatusRepository.saveAll(history);
+        requestRepository.saveAll(requests);
+    }
+
+    /**
+     * Сохраняет новые заявки, уже прошедшие статусы {@code statuses}.
+     * <p>
+     * Текущим статусом заявок становится последний из статусов, а в историю записываются все. Статус задается
+     * до вставки заявок, поэтому каждая заявка сохраняется одной вставкой, без последующего обновления
+     *
+     * @param requests Новые заявки
+     * @param statuses Статусы заявок в порядке их смены
+     * @return Сохраненные заявки
+     */
+    @Transactional
+    public List<Request> createRequests(List<Request> requests, List<RequestStatus> statuses) {
+        LocalDateTime now = LocalDateTime.now();
+        RequestStatus currentStatus = statuses.get(statuses.size() - 1);
+        for (Request request : requests) {
+            request.setCurrentStatusId(currentStatus.getId());
+            request.setCurrentStatusChangedAt(now);
+        }
+        List<Request> saved = requestRepository.saveAll(requests);
+
+        List<CurrentRequestStatus> history = new ArrayList<>(saved.size() * statuses.size());
+        for (Request request : saved) {
+            for (RequestStatus status : statuses) {
+                history.add(historyRecord(request, status, now));
+            }
+        }
+        currentRequestStatusRepository.saveAll(history);
+        return saved;
+    }
+
+    private static CurrentRequestStatus historyRecord(Request request, RequestStatus status, LocalDateTime now) {
         CurrentRequestStatus currentRequestStatus = new CurrentRequestStatus();
         currentRequestStatus.setRequest(request);
         currentRequestStatus.setStatus(status);
-        currentRequestStatus.setUpdateTime(LocalDateTime.now());
+        currentRequestStatus.setUpdateTime(now);
         currentRequestStatus.setId(new CurrentRequestStatusKey(request.getId(), status.getId()));
-        currentRequestStatusRepository.save(currentRequestStatus);
+        return currentRequestStatus;
     }
 }
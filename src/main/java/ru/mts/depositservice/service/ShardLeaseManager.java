@@ -0,0 +1,236 @@
+package ru.mts.depositservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.mts.depositservice.property.ShardingProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Распределение шардов вкладов между экземплярами сервиса.
+ * <p>
+ * Пространство идентификаторов вкладов разбито на {@code app.sharding.shard-count} шардов по остатку от деления.
+ * Экземпляр арендует шард, захватывая advisory-блокировку Postgres {@code (lock-namespace, shard)} на отдельном
+ * соединении вне пула. Блокировка принадлежит сессии, поэтому при остановке экземпляра или обрыве соединения его шарды
+ * освобождаются автоматически, и два экземпляра не могут одновременно владеть одним шардом. Соединение из пула
+ * для этого не подходит: после закрытия оно возвращается в пул, сессия продолжается и блокировки остаются за ней.
+ * <p>
+ * Каждый экземпляр периодически отмечается в таблице {@code shard_nodes} и держит не больше
+ * {@code ceil(shard-count / живые экземпляры)} шардов: при появлении экземпляра остальные отпускают лишние шарды,
+ * при уходе - забирают освободившиеся
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShardLeaseManager {
+
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_lock(?, ?)";
+    private static final String UNLOCK = "SELECT pg_advisory_unlock(?, ?)";
+    private static final String HEARTBEAT =
+            "INSERT INTO shard_nodes (node_id, heartbeat_at) VALUES (?, now()) " +
+                    "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at";
+    private static final String REMOVE_STALE_NODES =
+            "DELETE FROM shard_nodes WHERE heartbeat_at < now() - ? * INTERVAL '1 millisecond'";
+    private static final String COUNT_NODES = "SELECT count(*) FROM shard_nodes";
+    private static final String REMOVE_NODE = "DELETE FROM shard_nodes WHERE node_id = ?";
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final ShardingProperty shardingProperty;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    // Читатели - обработка шардов, писатель - отпускание шардов при перераспределении
+    private final ReentrantReadWriteLock leaseLock = new ReentrantReadWriteLock();
+    private final Set<Integer> ownedShards = Collections.synchronizedSet(new TreeSet<>());
+
+    private volatile Connection leaseConnection;                                // соединение, которому принадлежат блокировки
+
+    /**
+     * Продлевает присутствие экземпляра и перераспределяет шарды
+     */
+    @Scheduled(fixedDelayString = "${app.sharding.heartbeat-interval:PT10S}")
+    public synchronized void heartbeat() {
+        try {
+            Connection connection = leaseConnection();
+            int liveNodes = registerHeartbeat(connection);
+            int target = (shardingProperty.getShardCount() + liveNodes - 1) / liveNodes;
+
+            if (!leaseLock.writeLock().tryLock(shardingProperty.getHeartbeatInterval().toMillis(), TimeUnit.MILLISECONDS)) {
+                return;                                                         // шард еще обрабатывается, перераспределим позже
+            }
+            try {
+                releaseExcess(connection, target);
+                acquireFree(connection, target);
+            } finally {
+                leaseLock.writeLock().unlock();
+            }
+        } catch (SQLException e) {
+            log.warn("Не удалось продлить аренду шардов, экземпляр {} отпускает шарды {}", nodeId, ownedShards, e);
+            dropConnection();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Выполняет задачу для каждого шарда, которым владеет экземпляр.
+     * <p>
+     * Пока задача обрабатывает шард, он не может быть отпущен. Перед обработкой шарда проверяется соединение,
+     * которому принадлежат блокировки: если оно потеряно, шарды считаются отпущенными. Ошибка обработки
+     * шарда записывается в журнал и не мешает обработке остальных шардов
+     *
+     * @param task Задача, принимающая номер шарда
+     */
+    public void runOnOwnedShards(IntConsumer task) {
+        for (Integer shard : getOwnedShards()) {
+            leaseLock.readLock().lock();
+            try {
+                if (ownedShards.contains(shard) && isLeaseValid()) {
+                    task.accept(shard);
+                }
+            } catch (RuntimeException e) {
+                log.error("Экземпляр {} не завершил обработку шарда {}", nodeId, shard, e);
+            } finally {
+                leaseLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Возвращает шарды, которыми владеет экземпляр
+     *
+     * @return Номера шардов по возрастанию
+     */
+    public Set<Integer> getOwnedShards() {
+        synchronized (ownedShards) {
+            return Collections.unmodifiableSet(new TreeSet<>(ownedShards));
+        }
+    }
+
+    public int getShardCount() {
+        return shardingProperty.getShardCount();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Отпускает все шарды и удаляет экземпляр из {@code shard_nodes}
+     */
+    @PreDestroy
+    public synchronized void leave() {
+        if (leaseConnection == null) {
+            return;
+        }
+        leaseLock.writeLock().lock();
+        try (PreparedStatement statement = leaseConnection.prepareStatement(REMOVE_NODE)) {
+            releaseExcess(leaseConnection, 0);
+            statement.setString(1, nodeId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            log.warn("Экземпляр {} не смог отпустить шарды, они освободятся при закрытии соединения", nodeId, e);
+        } finally {
+            dropConnection();
+            leaseLock.writeLock().unlock();
+        }
+    }
+
+    private Connection leaseConnection() throws SQLException {
+        if (leaseConnection == null) {
+            leaseConnection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword()
+            );
+            leaseConnection.setAutoCommit(true);
+        }
+        return leaseConnection;
+    }
+
+    private boolean isLeaseValid() {
+        Connection connection = leaseConnection;
+        try {
+            return connection != null && connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private int registerHeartbeat(Connection connection) throws SQLException {
+        try (PreparedStatement heartbeat = connection.prepareStatement(HEARTBEAT);
+             PreparedStatement removeStale = connection.prepareStatement(REMOVE_STALE_NODES);
+             PreparedStatement countNodes = connection.prepareStatement(COUNT_NODES)) {
+            heartbeat.setString(1, nodeId);
+            heartbeat.executeUpdate();
+
+            removeStale.setLong(1, shardingProperty.getNodeTtl().toMillis());
+            removeStale.executeUpdate();
+
+            try (ResultSet resultSet = countNodes.executeQuery()) {
+                resultSet.next();
+                return Math.max(1, resultSet.getInt(1));
+            }
+        }
+    }
+
+    private void releaseExcess(Connection connection, int target) throws SQLException {
+        while (ownedShards.size() > target) {
+            int shard = Collections.max(getOwnedShards());
+            executeLockFunction(connection, UNLOCK, shard);
+            ownedShards.remove(shard);
+            log.info("Экземпляр {} отпустил шард {}", nodeId, shard);
+        }
+    }
+
+    private void acquireFree(Connection connection, int target) throws SQLException {
+        int shardCount = shardingProperty.getShardCount();
+        int offset = Math.floorMod(nodeId.hashCode(), shardCount);               // экземпляры начинают поиск с разных шардов
+
+        for (int i = 0; i < shardCount && ownedShards.size() < target; i++) {
+            int shard = (offset + i) % shardCount;
+            if (!ownedShards.contains(shard) && executeLockFunction(connection, TRY_LOCK, shard)) {
+                ownedShards.add(shard);
+                log.info("Экземпляр {} арендовал шард {}", nodeId, shard);
+            }
+        }
+    }
+
+    private boolean executeLockFunction(Connection connection, String sql, int shard) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, shardingProperty.getLockNamespace());
+            statement.setInt(2, shard);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private void dropConnection() {
+        ownedShards.clear();
+        if (leaseConnection != null) {
+            try {
+                leaseConnection.close();                                        // блокировки снимаются с сессией
+            } catch (SQLException e) {
+                log.debug("Не удалось закрыть соединение аренды шардов", e);
+            }
+            leaseConnection = null;
+        }
+    }
+}
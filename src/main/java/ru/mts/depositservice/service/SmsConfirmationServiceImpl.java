@@ -1,45 +1,35 @@
 package ru.mts.depositservice.service;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
+@RequiredArgsConstructor
 public class SmsConfirmationServiceImpl implements ConfirmationService {
 
-    private String openConfirmationCode;                                       // код подтверждения для открытия заявки
-    private String closeConfirmationCode;                                      // код подтверждения для закрытия заявки
-    private String refillConfirmationCode;                                     // код подтверждения для пополнения заявки
-
-    private final Random random = new Random();
+    private final ConfirmationCodeStore confirmationCodeStore;                // коды подтверждения по заявкам
 
     @Override
     public String generateVerificationCode() {
-        int randomNumber = random.nextInt(10_000);
+        int randomNumber = ThreadLocalRandom.current().nextInt(10_000);
         return String.format("%04d", randomNumber);
     }
 
-    public String getOpenConfirmationCode() {
-        return openConfirmationCode;
-    }
-
-    public void setOpenConfirmationCode(String openConfirmationCode) {
-        this.openConfirmationCode = openConfirmationCode;
-    }
-
-    public String getCloseConfirmationCode() {
-        return closeConfirmationCode;
-    }
-
-    public void setCloseConfirmationCode(String closeConfirmationCode) {
-        this.closeConfirmationCode = closeConfirmationCode;
-    }
-
-    public String getRefillConfirmationCode() {
-        return refillConfirmationCode;
+    @Override
+    public String sendConfirmationCode(Integer requestId, ConfirmationOperationEnum operation) {
+        String code = generateVerificationCode();
+        confirmationCodeStore.save(requestId, operation, code);
+        return code;
     }
 
-    public void setRefillConfirmationCode(String refillConfirmationCode) {
-        this.refillConfirmationCode = refillConfirmationCode;
+    @Override
+    public boolean checkConfirmationCode(Integer requestId, ConfirmationOperationEnum operation, String code) {
+        if (requestId == null || code == null) {
+            return false;
+        }
+        return confirmationCodeStore.verify(requestId, operation, code);
     }
 }
@@ -1,5 +1,7 @@
 package ru.mts.depositservice.util;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -12,14 +14,19 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+import ru.mts.depositservice.exception.ChannelNotAuthorizedException;
 import ru.mts.depositservice.exception.CustomException;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
 import ru.mts.depositservice.model.ExceptionData;
 import ru.mts.depositservice.model.ExceptionResponse;
 
 @Slf4j
 @ControllerAdvice
+@RequiredArgsConstructor
 public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private final MeterRegistry meterRegistry;
+
     /**
      * Обрабатывает исключения типа {@link CustomException}.
      * <p>
@@ -38,10 +45,57 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
                 e.getCode(),
                 e.getMessage()
         );
+        countError(e.getClass().getSimpleName(), e.getCode());
 
         return new ResponseEntity<>(exceptionResponse, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Обрабатывает исключения типа {@link ServiceUnavailableException}.
+     * <p>
+     * Возвращает объект {@link ExceptionResponse<ExceptionData>} с информацией об ошибке и статусом HTTP 503 (SERVICE UNAVAILABLE)
+     *
+     * @param e Исключение, которое нужно обработать
+     * @return Ответ с информацией об ошибке и статусом HTTP
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ExceptionResponse<ExceptionData>> handleException(ServiceUnavailableException e) {
+        ExceptionResponse<ExceptionData> exceptionResponse =
+                new ExceptionResponse<>(new ExceptionData(e.getCode(), e.getMessage()));
+
+        log.error("Произошла ошибка: {}, Код ошибки: {}, Сообщение ошибки: {}",
+                e.getClass().getSimpleName(),
+                e.getCode(),
+                e.getMessage()
+        );
+        countError(e.getClass().getSimpleName(), e.getCode());
+
+        return new ResponseEntity<>(exceptionResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Обрабатывает исключения типа {@link ChannelNotAuthorizedException}.
+     * <p>
+     * Возвращает объект {@link ExceptionResponse<ExceptionData>} с информацией об ошибке и статусом HTTP 403 (FORBIDDEN)
+     *
+     * @param e Исключение, которое нужно обработать
+     * @return Ответ с информацией об ошибке и статусом HTTP
+     */
+    @ExceptionHandler(ChannelNotAuthorizedException.class)
+    public ResponseEntity<ExceptionResponse<ExceptionData>> handleException(ChannelNotAuthorizedException e) {
+        ExceptionResponse<ExceptionData> exceptionResponse =
+                new ExceptionResponse<>(new ExceptionData(e.getCode(), e.getMessage()));
+
+        log.error("Произошла ошибка: {}, Код ошибки: {}, Сообщение ошибки: {}",
+                e.getClass().getSimpleName(),
+                e.getCode(),
+                e.getMessage()
+        );
+        countError(e.getClass().getSimpleName(), e.getCode());
+
+        return new ResponseEntity<>(exceptionResponse, HttpStatus.FORBIDDEN);
+    }
+
     /**
      * Обрабатывает исключения типа ConstraintViolationException путем преобразования исключения
      * в соответствующий ответ с HTTP статусом BAD_REQUEST
@@ -70,7 +124,15 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
                 new ExceptionResponse<>(new ExceptionData("VALIDATION_ERROR", errorMessage));
 
         log.error("Произошла ошибка: {}, Код ошибки: {}, Сообщение ошибки: {}", e.getClass().getSimpleName(), "VALIDATION_ERROR", errorMessage);
+        countError(e.getClass().getSimpleName(), "VALIDATION_ERROR");
 
         return new ResponseEntity<>(exceptionResponse, HttpStatus.BAD_REQUEST);
     }
+
+    /**
+     * Увеличивает счетчик {@code deposit.errors} для кода ошибки
+     */
+    private void countError(String exception, String code) {
+        meterRegistry.counter("deposit.errors", "exception", exception, "code", code).increment();
+    }
 }
@@ -0,0 +1,18 @@
+-- Индексы для постраничного чтения вкладов одного шарда. Выражение mod(id_deposit, ${shardCount}) совпадает
+-- с условием запросов, поэтому шард читается по индексу, а не фильтруется после чтения всех вкладов.
+-- Скрипт выполняется повторно при изменении app.sharding.shard-count
+DROP INDEX IF EXISTS deposits_shard_percent_payment_date_idx;
+DROP INDEX IF EXISTS deposits_shard_end_date_idx;
+DROP INDEX IF EXISTS matured_deposits_shard_pending_idx;
+
+CREATE INDEX deposits_shard_percent_payment_date_idx
+    ON deposits (mod(id_deposit, ${shardCount}), percent_payment_date, id_deposit)
+    WHERE percent_payment_date IS NOT NULL;
+
+CREATE INDEX deposits_shard_end_date_idx
+    ON deposits (mod(id_deposit, ${shardCount}), end_date, id_deposit)
+    WHERE percent_payment_date IS NULL;
+
+CREATE INDEX matured_deposits_shard_pending_idx
+    ON matured_deposits (mod(id_deposit, ${shardCount}), id_deposit)
+    WHERE refund_status = 'PENDING';
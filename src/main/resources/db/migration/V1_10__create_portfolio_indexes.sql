@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS deposits_customer_id_idx ON deposits (customer_id, id_deposit);
+
+CREATE INDEX IF NOT EXISTS requests_customer_id_idx ON requests (customer_id, id_request);
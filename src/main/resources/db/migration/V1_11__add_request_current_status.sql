@@ -0,0 +1,22 @@
+ALTER TABLE requests
+    ADD COLUMN IF NOT EXISTS current_status_id         INT,
+    ADD COLUMN IF NOT EXISTS current_status_changed_at TIMESTAMPTZ;
+
+ALTER TABLE requests
+    ADD CONSTRAINT current_status_id_fk FOREIGN KEY (current_status_id) REFERENCES request_statuses (id_request_status);
+
+UPDATE requests r
+SET current_status_id         = latest.request_status_id,
+    current_status_changed_at = latest.change_datetime
+FROM (SELECT DISTINCT ON (request_id) request_id, request_status_id, change_datetime
+      FROM current_request_status
+      ORDER BY request_id, change_datetime DESC, request_status_id DESC) latest
+WHERE latest.request_id = r.id_request;
+
+DROP INDEX IF EXISTS requests_customer_id_idx;
+
+CREATE INDEX IF NOT EXISTS requests_customer_id_current_status_id_idx
+    ON requests (customer_id, current_status_id, id_request);
+
+CREATE INDEX IF NOT EXISTS current_request_status_request_status_id_idx
+    ON current_request_status (request_status_id, request_id);
@@ -0,0 +1,22 @@
+CREATE TABLE IF NOT EXISTS deposit_opening_sagas
+(
+    request_id           INT PRIMARY KEY,
+    customer_id          INT             NOT NULL,
+    state                VARCHAR(12)     NOT NULL,
+    deposit_type         VARCHAR(28)     NOT NULL,
+    duration             VARCHAR(7)      NOT NULL,
+    capitalization       BOOLEAN         NOT NULL,
+    percent_payment_type VARCHAR(13),
+    deposit_amount       NUMERIC(100, 2) NOT NULL,
+    deposit_id           INT,
+    attempts             INT             NOT NULL DEFAULT 0,
+    last_error           VARCHAR(500),
+    created_at           TIMESTAMPTZ     NOT NULL,
+    updated_at           TIMESTAMPTZ     NOT NULL,
+
+    CONSTRAINT saga_request_id_fk FOREIGN KEY (request_id) REFERENCES requests (id_request) ON DELETE CASCADE ON UPDATE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS deposit_opening_sagas_unfinished_idx
+    ON deposit_opening_sagas (updated_at)
+    WHERE state IN ('WITHDRAWING', 'WITHDRAWN', 'COMPENSATING');
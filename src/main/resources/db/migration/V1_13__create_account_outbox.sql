@@ -0,0 +1,19 @@
+CREATE TABLE IF NOT EXISTS account_outbox
+(
+    id              BIGSERIAL PRIMARY KEY,
+    operation_id    VARCHAR(36)     NOT NULL UNIQUE,
+    operation_type  VARCHAR(8)      NOT NULL,
+    request_id      INT             NOT NULL,
+    customer_id     INT             NOT NULL,
+    amount          NUMERIC(100, 2) NOT NULL,
+    status          VARCHAR(7)      NOT NULL,
+    attempts        INT             NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ     NOT NULL,
+    last_error      VARCHAR(500),
+    created_at      TIMESTAMPTZ     NOT NULL,
+    sent_at         TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS account_outbox_pending_idx
+    ON account_outbox (next_attempt_at, id)
+    WHERE status = 'PENDING';
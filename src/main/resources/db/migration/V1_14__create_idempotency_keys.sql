@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS idempotency_keys
+(
+    idempotency_key VARCHAR(255) NOT NULL,
+    operation       VARCHAR(6)   NOT NULL,
+    fingerprint     VARCHAR(64)  NOT NULL,
+    response_status INT,
+    content_type    VARCHAR(255),
+    response_body   BYTEA,
+    locked_until    TIMESTAMPTZ  NOT NULL,
+    expires_at      TIMESTAMPTZ  NOT NULL,
+
+    PRIMARY KEY (idempotency_key, operation)
+);
+
+CREATE INDEX IF NOT EXISTS idempotency_keys_expires_at_idx ON idempotency_keys (expires_at);
@@ -0,0 +1,4 @@
+ALTER SEQUENCE deposits_id_deposit_seq INCREMENT BY 50;
+ALTER SEQUENCE requests_id_request_seq INCREMENT BY 50;
+ALTER SEQUENCE bank_accounts_id_bank_account_seq INCREMENT BY 50;
+ALTER SEQUENCE customers_id_customer_seq INCREMENT BY 50;
@@ -0,0 +1,21 @@
+CREATE INDEX IF NOT EXISTS deposits_end_date_idx
+    ON deposits (end_date, id_deposit);
+
+CREATE TABLE IF NOT EXISTS matured_deposits
+(
+    id_deposit                INT PRIMARY KEY,
+    customer_id               INT             NOT NULL,
+    deposit_amount            NUMERIC(100, 2) NOT NULL,
+    deposit_rate              DECIMAL(4, 2)   NOT NULL,
+    start_date                DATE            NOT NULL,
+    end_date                  DATE            NOT NULL,
+    deposit_refund_account_id INT             NOT NULL,
+    refund_status             VARCHAR(8)      NOT NULL,
+    last_error                VARCHAR(500),
+    closed_at                 TIMESTAMPTZ     NOT NULL,
+    refunded_at               TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS matured_deposits_pending_idx
+    ON matured_deposits (id_deposit)
+    WHERE refund_status = 'PENDING';
@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS bulk_opening_items
+(
+    client_item_id VARCHAR(400) PRIMARY KEY,
+    request_id     INT          NOT NULL,
+
+    CONSTRAINT bulk_item_request_id_fk FOREIGN KEY (request_id) REFERENCES deposit_opening_sagas (request_id) ON DELETE CASCADE ON UPDATE CASCADE
+);
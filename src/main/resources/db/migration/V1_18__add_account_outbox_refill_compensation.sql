@@ -0,0 +1,3 @@
+ALTER TABLE account_outbox
+    ADD COLUMN IF NOT EXISTS deposit_id         INT,
+    ADD COLUMN IF NOT EXISTS deposit_rate_delta NUMERIC;
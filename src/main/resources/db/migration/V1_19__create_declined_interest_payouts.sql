@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS declined_interest_payouts
+(
+    id_deposit     INT             NOT NULL,
+    payment_date   DATE            NOT NULL,
+    account_id     INT             NOT NULL,
+    interest       NUMERIC(100, 2) NOT NULL,
+    error          VARCHAR(500),
+    declined_at    TIMESTAMPTZ     NOT NULL,
+    PRIMARY KEY (id_deposit, payment_date)
+);
@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS account_outbox_pending_refill_idx
+    ON account_outbox (deposit_id)
+    WHERE status = 'PENDING' AND deposit_id IS NOT NULL;
@@ -0,0 +1,12 @@
+CREATE TABLE IF NOT EXISTS confirmation_codes
+(
+    request_id INT         NOT NULL,
+    operation  VARCHAR(6)  NOT NULL,
+    code       VARCHAR(4)  NOT NULL,
+    attempts   INT         NOT NULL DEFAULT 0,
+    expires_at TIMESTAMPTZ NOT NULL,
+
+    PRIMARY KEY (request_id, operation)
+);
+
+CREATE INDEX IF NOT EXISTS confirmation_codes_expires_at_idx ON confirmation_codes (expires_at);
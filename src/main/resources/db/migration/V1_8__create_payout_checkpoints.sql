@@ -0,0 +1,14 @@
+CREATE INDEX IF NOT EXISTS deposits_percent_payment_date_idx
+    ON deposits (percent_payment_date, id_deposit)
+    WHERE percent_payment_date IS NOT NULL;
+
+CREATE TABLE IF NOT EXISTS payout_checkpoints
+(
+    payout_date       DATE PRIMARY KEY,
+    last_payment_date DATE,
+    last_deposit_id   INT,
+    processed         BIGINT          NOT NULL,
+    paid_amount       NUMERIC(100, 2) NOT NULL,
+    completed         BOOLEAN         NOT NULL,
+    updated_at        TIMESTAMPTZ     NOT NULL
+);
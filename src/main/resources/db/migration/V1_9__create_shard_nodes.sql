@@ -0,0 +1,12 @@
+CREATE TABLE IF NOT EXISTS shard_nodes
+(
+    node_id      VARCHAR(36) PRIMARY KEY,
+    heartbeat_at TIMESTAMPTZ NOT NULL
+);
+
+ALTER TABLE payout_checkpoints
+    ADD COLUMN IF NOT EXISTS shard INT NOT NULL DEFAULT 0;
+ALTER TABLE payout_checkpoints
+    DROP CONSTRAINT IF EXISTS payout_checkpoints_pkey;
+ALTER TABLE payout_checkpoints
+    ADD PRIMARY KEY (payout_date, shard);
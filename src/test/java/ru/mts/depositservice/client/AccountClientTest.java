@@ -0,0 +1,107 @@
+package ru.mts.depositservice.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.UserRequest;
+import ru.mts.depositservice.property.AccountBatchProperty;
+import ru.mts.depositservice.property.HttpClientProperty;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Операции со счетами при выключенной пакетной отправке: каждая операция отправляется отдельным запросом
+ * на локальную заглушку {@code account-service}, в которой нет {@code POST /account/batch}
+ */
+class AccountClientTest {
+
+    private static final String SERVICE_NAME = "account-service";
+    private static final BigDecimal BALANCE = BigDecimal.valueOf(1_000);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Queue<String> calls = new ConcurrentLinkedQueue<>();
+    private final Queue<String> idempotencyKeys = new ConcurrentLinkedQueue<>();
+
+    private StubHttpServer accountService;
+    private DownstreamTransports downstreamTransports;
+    private AccountClient accountClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        accountService = new StubHttpServer(Duration.ZERO);
+        accountService.handle("/account/check", exchange -> {
+            UserRequest request = read(exchange.getRequestBody().readAllBytes());
+            calls.add("check " + request.getAccountId());
+            StubHttpServer.respond(exchange, 200, String.valueOf(request.getMoney().compareTo(BALANCE) <= 0));
+        });
+        accountService.handle("/account/withdraw", moneyOperation("withdraw"));
+        accountService.handle("/account/refill", moneyOperation("refill"));
+
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances(SERVICE_NAME))
+                .thenReturn(List.of(accountService.toServiceInstance(SERVICE_NAME)));
+        downstreamTransports = new DownstreamTransports(discoveryClient, new HttpClientProperty(), new SimpleMeterRegistry());
+        downstreamTransports.init();
+
+        AccountOperationBatcher operationBatcher = new AccountOperationBatcher(downstreamTransports, new AccountBatchProperty());
+        operationBatcher.init();
+        accountClient = new AccountClient(downstreamTransports, null, null, operationBatcher);
+        accountClient.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        downstreamTransports.close();
+        accountService.close();
+    }
+
+    @Test
+    void executeOperations_sendsEachOperationWhenBatchingDisabled() {
+        List<AccountOperationResult> results = accountClient.executeOperations(List.of(
+                new AccountOperation("op-1", AccountOperationTypeEnum.CHECK, 1, BigDecimal.valueOf(500)),
+                new AccountOperation("op-2", AccountOperationTypeEnum.CHECK, 2, BigDecimal.valueOf(5_000)),
+                new AccountOperation("op-3", AccountOperationTypeEnum.WITHDRAW, 3, BigDecimal.valueOf(500)),
+                new AccountOperation("op-4", AccountOperationTypeEnum.WITHDRAW, 4, BigDecimal.valueOf(5_000)),
+                new AccountOperation("op-5", AccountOperationTypeEnum.REFILL, 5, BigDecimal.valueOf(5_000))
+        ));
+
+        assertFalse(accountClient.isBatchingEnabled());
+        assertEquals(List.of("check 1", "check 2", "withdraw 3", "withdraw 4", "refill 5"), List.copyOf(calls));
+        assertEquals(List.of("op-1", "op-2", "op-3", "op-4", "op-5"),
+                results.stream().map(AccountOperationResult::getOperationId).toList());
+        assertEquals(List.of(true, false, true, false, true),
+                results.stream().map(AccountOperationResult::isSuccess).toList());
+        // Списания и пополнения отправляются с идентификатором операции, чтобы повтор не выполнился дважды
+        assertEquals(List.of("op-3", "op-4", "op-5"), List.copyOf(idempotencyKeys));
+    }
+
+    private HttpHandler moneyOperation(String name) {
+        return exchange -> {
+            UserRequest request = read(exchange.getRequestBody().readAllBytes());
+            calls.add(name + " " + request.getAccountId());
+            idempotencyKeys.add(exchange.getRequestHeaders().getFirst(DownstreamTransport.IDEMPOTENCY_KEY));
+            boolean success = name.equals("refill") || request.getMoney().compareTo(BALANCE) <= 0;
+            StubHttpServer.respond(exchange, success ? 200 : 400, "{\"amount\":0}");
+        };
+    }
+
+    private UserRequest read(byte[] body) throws IOException {
+        return objectMapper.readValue(body, UserRequest.class);
+    }
+}
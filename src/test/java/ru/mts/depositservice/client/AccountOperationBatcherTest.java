@@ -0,0 +1,142 @@
+package ru.mts.depositservice.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.property.AccountBatchProperty;
+import ru.mts.depositservice.property.HttpClientProperty;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Пакетная отправка операций со счетами на локальную заглушку {@code POST /account/batch}
+ */
+class AccountOperationBatcherTest {
+
+    private static final String SERVICE_NAME = "account-service";
+    private static final BigDecimal BALANCE = BigDecimal.valueOf(1_000);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private StubHttpServer accountService;
+    private DownstreamTransports downstreamTransports;
+    private AccountBatchProperty batchProperty;
+    private AccountOperationBatcher operationBatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        accountService = new StubHttpServer(Duration.ZERO);
+        // Заглушка пакетного эндпоинта: списание и проверка успешны, если сумма не больше остатка на счете
+        accountService.handle("/account/batch", exchange -> {
+            List<AccountOperation> operations = objectMapper.readValue(
+                    exchange.getRequestBody().readAllBytes(),
+                    new TypeReference<>() {
+                    }
+            );
+            List<AccountOperationResult> results = operations.stream()
+                    .map(operation -> {
+                        boolean success = operation.getType() == AccountOperationTypeEnum.REFILL
+                                || operation.getMoney().compareTo(BALANCE) <= 0;
+                        return new AccountOperationResult(operation.getOperationId(), success,
+                                success ? null : "Недостаточно средств на счете " + operation.getAccountId());
+                    })
+                    .toList();
+            StubHttpServer.respond(exchange, 200, objectMapper.writeValueAsString(results));
+        });
+
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances(SERVICE_NAME))
+                .thenReturn(List.of(accountService.toServiceInstance(SERVICE_NAME)));
+        downstreamTransports = new DownstreamTransports(discoveryClient, new HttpClientProperty(), new SimpleMeterRegistry());
+        downstreamTransports.init();
+
+        batchProperty = new AccountBatchProperty();
+        batchProperty.setEnabled(true);
+        batchProperty.setWindow(Duration.ofMillis(50));
+        batchProperty.setMaxBatchSize(100);
+        operationBatcher = new AccountOperationBatcher(downstreamTransports, batchProperty);
+        operationBatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        operationBatcher.stop();
+        downstreamTransports.close();
+        accountService.close();
+    }
+
+    @Test
+    void execute_concurrentOperationsSentInFewBatches() throws Exception {
+        int callers = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<AccountOperationResult>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                BigDecimal money = BigDecimal.valueOf(i % 2 == 0 ? 100 : 5_000);
+                int accountId = i;
+                results.add(executor.submit(
+                        () -> operationBatcher.execute(AccountOperationTypeEnum.WITHDRAW, accountId, money)));
+            }
+
+            for (int i = 0; i < callers; i++) {
+                AccountOperationResult result = results.get(i).get(5, TimeUnit.SECONDS);
+                assertEquals(i % 2 == 0, result.isSuccess());                  // каждый поток получил свой результат
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(accountService.getRequests() < callers / 4, "batches=" + accountService.getRequests());
+    }
+
+    @Test
+    void executeAll_splitsOperationsByMaxBatchSize() {
+        List<AccountOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            operations.add(new AccountOperation(
+                    UUID.randomUUID().toString(), AccountOperationTypeEnum.CHECK, i, BigDecimal.valueOf(i * 10L)));
+        }
+
+        List<AccountOperationResult> results = operationBatcher.executeAll(operations);
+
+        assertEquals(3, accountService.getRequests());
+        assertEquals(250, results.size());
+        for (int i = 0; i < operations.size(); i++) {
+            assertEquals(operations.get(i).getOperationId(), results.get(i).getOperationId());
+            assertEquals(i * 10 <= 1_000, results.get(i).isSuccess());
+        }
+    }
+
+    @Test
+    void execute_sendsSingleOperationWhenBatchingDisabled() {
+        operationBatcher.stop();
+        batchProperty.setEnabled(false);
+        operationBatcher = new AccountOperationBatcher(downstreamTransports, batchProperty);
+        operationBatcher.init();
+
+        AccountOperationResult result = operationBatcher.execute(AccountOperationTypeEnum.REFILL, 1, BigDecimal.TEN);
+
+        assertTrue(result.isSuccess());
+        assertEquals(1, accountService.getRequests());
+    }
+}
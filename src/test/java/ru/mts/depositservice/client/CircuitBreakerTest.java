@@ -0,0 +1,106 @@
+package ru.mts.depositservice.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mts.depositservice.property.HttpClientProperty.CircuitBreakerProperty;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        CircuitBreakerProperty property = new CircuitBreakerProperty();
+        property.setSlidingWindowSize(4);
+        property.setMinimumCalls(4);
+        property.setFailureRateThreshold(50);
+        property.setOpenDuration(Duration.ofSeconds(10));
+        property.setHalfOpenCalls(2);
+
+        circuitBreaker = new CircuitBreaker(property, clock::get);
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        call(true);
+        call(false);
+        call(true);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        call(false);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void staysClosedUntilMinimumCalls() {
+        call(false);
+        call(false);
+        call(false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void failuresOutsideWindowIgnored() {
+        call(false);
+        for (int i = 0; i < 5; i++) {
+            call(true);                                                         // ошибка вытесняется из окна
+        }
+        call(false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void closesAfterSuccessfulTrialCalls() {
+        openCircuit();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());                               // пробных вызовов не больше half-open-calls
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void reopensAfterFailedTrialCall() {
+        openCircuit();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void call(boolean success) {
+        assertTrue(circuitBreaker.tryAcquire());
+        if (success) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onFailure();
+        }
+    }
+}
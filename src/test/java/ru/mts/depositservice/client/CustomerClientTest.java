@@ -0,0 +1,157 @@
+package ru.mts.depositservice.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.web.client.ResourceAccessException;
+import ru.mts.depositservice.entity.Customer;
+import ru.mts.depositservice.model.CustomerCacheStats;
+import ru.mts.depositservice.property.CustomerCacheProperty;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CustomerClientTest {
+
+    private static final String FIND_CUSTOMER = "/customer/{customerId}";
+
+    @Mock
+    DownstreamTransports downstreamTransports;
+    @Mock
+    DownstreamTransport transport;
+    @Mock
+    CustomerCacheProperty cacheProperty;
+
+    @InjectMocks
+    CustomerClient customerClient;
+
+    @BeforeEach
+    void setUp() {
+        when(downstreamTransports.forService("customer-service")).thenReturn(transport);
+        when(cacheProperty.getTtl()).thenReturn(Duration.ofMinutes(5));
+        when(cacheProperty.getMaxSize()).thenReturn(100);
+
+        customerClient.init();
+    }
+
+    @Test
+    void findCustomer_repeatedLookupServedFromCache() {
+        stubCustomerService();
+
+        Customer first = customerClient.findCustomer(1);
+        Customer second = customerClient.findCustomer(1);
+
+        assertSame(first, second);
+        verify(transport, times(1)).get(eq(FIND_CUSTOMER), eq(Customer.class), any());
+
+        CustomerCacheStats stats = customerClient.getCacheStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    void findCustomer_expiredEntryReloaded() {
+        when(cacheProperty.getTtl()).thenReturn(Duration.ZERO);
+        stubCustomerService();
+
+        customerClient.findCustomer(1);
+        customerClient.findCustomer(1);
+
+        verify(transport, times(2)).get(eq(FIND_CUSTOMER), eq(Customer.class), any());
+        assertEquals(1, customerClient.getCacheStats().getEvictions());
+    }
+
+    @Test
+    void findCustomer_sizeLimitEvictsEntries() {
+        when(cacheProperty.getMaxSize()).thenReturn(2);
+        stubCustomerService();
+
+        customerClient.findCustomer(1);
+        customerClient.findCustomer(2);
+        customerClient.findCustomer(3);
+
+        CustomerCacheStats stats = customerClient.getCacheStats();
+        assertEquals(2, stats.getSize());
+        assertEquals(1, stats.getEvictions());
+    }
+
+    @Test
+    void findCustomer_sizeLimitEvictsOldestLoadedEntry() {
+        when(cacheProperty.getMaxSize()).thenReturn(2);
+        stubCustomerService();
+
+        customerClient.findCustomer(1);
+        customerClient.findCustomer(2);
+        customerClient.findCustomer(3);
+        customerClient.findCustomer(2);
+        customerClient.findCustomer(3);
+
+        // клиент 1 загружен раньше остальных и вытеснен первым, клиенты 2 и 3 остались в кэше
+        verify(transport, times(3)).get(eq(FIND_CUSTOMER), eq(Customer.class), any());
+        customerClient.findCustomer(1);
+        verify(transport, times(2)).get(eq(FIND_CUSTOMER), eq(Customer.class), eq(1));
+        assertEquals(2, customerClient.getCacheStats().getSize());
+    }
+
+    @Test
+    void findCustomer_failureIsNotCached() {
+        when(transport.get(eq(FIND_CUSTOMER), eq(Customer.class), any()))
+                .thenThrow(new ResourceAccessException("timeout"))
+                .thenReturn(new Customer(1, "89174108831", null));
+
+        assertThrows(ResourceAccessException.class, () -> customerClient.findCustomer(1));
+        assertNotNull(customerClient.findCustomer(1));
+        assertEquals(0, customerClient.getCacheStats().getHits());
+    }
+
+    @Test
+    void findCustomer_concurrentLookupsShareSingleCall() throws Exception {
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+        when(transport.get(eq(FIND_CUSTOMER), eq(Customer.class), any()))
+                .thenAnswer(invocation -> {
+                    requestStarted.countDown();
+                    releaseResponse.await(5, TimeUnit.SECONDS);
+                    return new Customer(1, "89174108831", null);
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Customer> leader = executor.submit(() -> customerClient.findCustomer(1));
+            assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+            Future<Customer> follower1 = executor.submit(() -> customerClient.findCustomer(1));
+            Future<Customer> follower2 = executor.submit(() -> customerClient.findCustomer(1));
+            releaseResponse.countDown();
+
+            Customer customer = leader.get(5, TimeUnit.SECONDS);
+            assertSame(customer, follower1.get(5, TimeUnit.SECONDS));
+            assertSame(customer, follower2.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(transport, times(1)).get(eq(FIND_CUSTOMER), eq(Customer.class), any());
+    }
+
+    private void stubCustomerService() {
+        when(transport.get(eq(FIND_CUSTOMER), eq(Customer.class), any()))
+                .thenAnswer(invocation -> new Customer(1, "89174108831", null));
+    }
+}
@@ -0,0 +1,160 @@
+package ru.mts.depositservice.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.property.HttpClientProperty.ServiceProperty;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DownstreamTransportTest {
+
+    private static final String SERVICE_NAME = "account-service";
+
+    @Mock
+    DiscoveryClient discoveryClient;
+    @Mock
+    RestTemplate restTemplate;
+    @Mock
+    ServiceInstance serviceInstance;
+
+    private ServiceProperty serviceProperty;
+    private SimpleMeterRegistry meterRegistry;
+    private DownstreamTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        when(serviceInstance.getUri()).thenReturn(URI.create("http://localhost:8082"));
+        when(discoveryClient.getInstances(SERVICE_NAME)).thenReturn(List.of(serviceInstance));
+
+        serviceProperty = new ServiceProperty();
+        serviceProperty.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        serviceProperty.getRetry().setMaxBackoff(Duration.ofMillis(5));
+        serviceProperty.getCircuitBreaker().setMinimumCalls(2);
+        serviceProperty.getCircuitBreaker().setSlidingWindowSize(2);
+
+        meterRegistry = new SimpleMeterRegistry();
+        transport = new DownstreamTransport(SERVICE_NAME, discoveryClient, restTemplate, serviceProperty,
+                null, meterRegistry);
+    }
+
+    @Test
+    void get_retriedAfterServerError() {
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.GET), any(), eq(String.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+                .thenReturn(ResponseEntity.ok("100"));
+
+        assertEquals("100", transport.get("/account/{accountId}", String.class, 1));
+        verify(restTemplate, times(2)).exchange(
+                eq(URI.create("http://localhost:8082/account/1")), eq(HttpMethod.GET), any(), eq(String.class));
+    }
+
+    @Test
+    void get_notRetriedAfterClientError() {
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.GET), any(), eq(String.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        assertThrows(HttpClientErrorException.class, () -> transport.get("/account/{accountId}", String.class, 1));
+        verify(restTemplate, times(1)).exchange(any(URI.class), eq(HttpMethod.GET), any(), eq(String.class));
+        assertEquals(CircuitBreaker.State.CLOSED, transport.getCircuitState());
+    }
+
+    @Test
+    void patch_notRetriedAfterReadTimeout() {
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.PATCH), any(), eq(String.class)))
+                .thenThrow(new ResourceAccessException("timeout", new SocketTimeoutException("Read timed out")));
+
+        assertThrows(ResourceAccessException.class, () -> transport.patch("/account/refill", "{}", String.class));
+        verify(restTemplate, times(1)).exchange(any(URI.class), eq(HttpMethod.PATCH), any(), eq(String.class));
+    }
+
+    @Test
+    void patch_retriedWhenConnectionNotEstablished() {
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.PATCH), any(), eq(String.class)))
+                .thenThrow(new ResourceAccessException("refused", new ConnectException("Connection refused")))
+                .thenReturn(ResponseEntity.ok("ok"));
+
+        assertEquals("ok", transport.patch("/account/refill", "{}", String.class));
+        verify(restTemplate, times(2)).exchange(any(URI.class), eq(HttpMethod.PATCH), any(), eq(String.class));
+    }
+
+    @Test
+    void patchWithIdempotencyKey_retriedAfterReadTimeout() {
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.PATCH), any(), eq(String.class)))
+                .thenThrow(new ResourceAccessException("timeout", new SocketTimeoutException("Read timed out")))
+                .thenReturn(ResponseEntity.ok("ok"));
+
+        assertEquals("ok", transport.patch("/account/refill", "{}", String.class, "op-1"));
+        verify(restTemplate, times(2)).exchange(any(URI.class), eq(HttpMethod.PATCH),
+                argThat(entity -> entity != null
+                        && "op-1".equals(entity.getHeaders().getFirst(DownstreamTransport.IDEMPOTENCY_KEY))
+                        && "{}".equals(entity.getBody())),
+                eq(String.class));
+    }
+
+    @Test
+    void get_rejectedWithoutCallWhenCircuitOpen() {
+        serviceProperty.getRetry().setMaxAttempts(1);
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.GET), any(), eq(String.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        assertThrows(HttpServerErrorException.class, () -> transport.get("/account/{accountId}", String.class, 1));
+        assertThrows(HttpServerErrorException.class, () -> transport.get("/account/{accountId}", String.class, 1));
+        assertEquals(CircuitBreaker.State.OPEN, transport.getCircuitState());
+
+        assertThrows(ServiceUnavailableException.class, () -> transport.get("/account/{accountId}", String.class, 1));
+        verify(restTemplate, times(2)).exchange(any(URI.class), eq(HttpMethod.GET), any(), eq(String.class));
+    }
+
+    @Test
+    void get_failsWhenNoInstancesRegistered() {
+        when(discoveryClient.getInstances(SERVICE_NAME)).thenReturn(List.of());
+
+        assertThrows(ServiceUnavailableException.class, () -> transport.get("/account/{accountId}", String.class, 1));
+    }
+
+    @Test
+    void calls_timedByEndpointAndOutcome() {
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.GET), any(), eq(String.class)))
+                .thenReturn(ResponseEntity.ok("100"))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        transport.get("/account/{accountId}", String.class, 1);
+        assertThrows(HttpClientErrorException.class, () -> transport.get("/account/{accountId}", String.class, 2));
+
+        assertEquals(1, meterRegistry.get("http.client.calls")
+                .tags("service", SERVICE_NAME, "method", "GET", "endpoint", "/account/{accountId}", "outcome", "SUCCESS")
+                .timer()
+                .count());
+        assertEquals(1, meterRegistry.get("http.client.calls")
+                .tags("endpoint", "/account/{accountId}", "outcome", "CLIENT_ERROR")
+                .timer()
+                .count());
+    }
+}
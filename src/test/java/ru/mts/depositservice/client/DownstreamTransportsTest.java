@@ -0,0 +1,50 @@
+package ru.mts.depositservice.client;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Test;
+import ru.mts.depositservice.property.HttpClientProperty.ServiceProperty;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Выбор времени ожидания ответа по эндпоинту не зависит от порядка настроек
+ */
+class DownstreamTransportsTest {
+
+    private static final RequestConfig DEFAULT_CONFIG = RequestConfig.custom()
+            .setResponseTimeout(Timeout.ofSeconds(2))
+            .build();
+
+    @Test
+    void requestConfig_prefersExactPathsAndMethodSpecificTemplates() {
+        // шаблон с переменной объявлен первым и подходит под все пути /account/*
+        Map<String, Duration> endpoints = new LinkedHashMap<>();
+        endpoints.put("GET /account/{accountId}", Duration.ofMillis(500));
+        endpoints.put("/account/check", Duration.ofMillis(500));
+        endpoints.put("/account/batch", Duration.ofSeconds(3));
+        ServiceProperty serviceProperty = new ServiceProperty();
+        serviceProperty.setEndpoints(endpoints);
+
+        List<DownstreamTransports.EndpointConfig> configs =
+                DownstreamTransports.endpointConfigs(serviceProperty, DEFAULT_CONFIG);
+
+        assertEquals(3_000, responseTimeout(configs, "POST", "/account/batch"));
+        assertEquals(500, responseTimeout(configs, "POST", "/account/check"));
+        assertEquals(500, responseTimeout(configs, "GET", "/account/7"));
+        // списание и пополнение получают время ожидания сервиса по умолчанию
+        assertNull(DownstreamTransports.requestConfig(configs, "PATCH", "/account/withdraw"));
+        assertNull(DownstreamTransports.requestConfig(configs, "PATCH", "/account/refill"));
+    }
+
+    private static long responseTimeout(List<DownstreamTransports.EndpointConfig> configs,
+                                           String method,
+                                           String path) {
+        return DownstreamTransports.requestConfig(configs, method, path).getResponseTimeout().toMilliseconds();
+    }
+}
@@ -0,0 +1,128 @@
+package ru.mts.depositservice.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.property.HttpClientProperty;
+import ru.mts.depositservice.property.HttpClientProperty.ServiceProperty;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Балансировка между несколькими локальными экземплярами сервиса
+ */
+class InstanceBalancingTest {
+
+    private static final String SERVICE_NAME = "customer-service";
+    private static final String FIND_CUSTOMER = "/customer/{customerId}";
+
+    private final List<StubHttpServer> servers = new ArrayList<>();
+    private final List<ServiceInstance> registered = new CopyOnWriteArrayList<>();
+
+    private SimpleMeterRegistry meterRegistry;
+    private ServiceProperty serviceProperty;
+    private DownstreamTransports downstreamTransports;
+
+    @BeforeEach
+    void setUp() {
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        when(discoveryClient.getInstances(SERVICE_NAME)).thenAnswer(invocation -> List.copyOf(registered));
+
+        HttpClientProperty httpClientProperty = new HttpClientProperty();
+        serviceProperty = httpClientProperty.getService(SERVICE_NAME);
+        serviceProperty.setReadTimeout(Duration.ofSeconds(2));
+
+        meterRegistry = new SimpleMeterRegistry();
+        downstreamTransports = new DownstreamTransports(discoveryClient, httpClientProperty, meterRegistry);
+        downstreamTransports.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        downstreamTransports.close();
+        servers.forEach(StubHttpServer::close);
+    }
+
+    @Test
+    void slowInstanceReceivesFewerCalls() throws IOException {
+        StubHttpServer fast = register(Duration.ZERO);
+        StubHttpServer slow = register(Duration.ofMillis(50));
+        DownstreamTransport transport = downstreamTransports.forService(SERVICE_NAME);
+
+        for (int i = 0; i < 40; i++) {
+            assertEquals("ok", transport.get(FIND_CUSTOMER, String.class, i));
+        }
+
+        assertEquals(40, fast.getRequests() + slow.getRequests());
+        assertTrue(fast.getRequests() > slow.getRequests() * 3,
+                "fast=" + fast.getRequests() + ", slow=" + slow.getRequests());
+    }
+
+    @Test
+    void hedgedGetAnsweredByFastInstance() throws IOException {
+        serviceProperty.setHedgeDelay(Duration.ofMillis(30));
+        StubHttpServer slow = register(Duration.ofSeconds(1));
+        StubHttpServer fast = register(Duration.ZERO);
+        DownstreamTransport transport = downstreamTransports.forService(SERVICE_NAME);
+
+        for (int i = 0; i < 5; i++) {
+            long startedAt = System.nanoTime();
+            assertEquals("ok", transport.get(FIND_CUSTOMER, String.class, i));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 500);
+        }
+
+        // Экземпляр без замеров выбирается раньше измеренного, поэтому медленный экземпляр получил хотя бы один вызов
+        assertTrue(slow.getRequests() >= 1);
+        assertTrue(meterRegistry.counter("http.client.hedges", "service", SERVICE_NAME).count() >= 1);
+        assertTrue(fast.getRequests() >= 5);
+    }
+
+    @Test
+    void refreshPicksUpNewInstance() throws IOException {
+        StubHttpServer first = register(Duration.ZERO);
+        DownstreamTransport transport = downstreamTransports.forService(SERVICE_NAME);
+        transport.get(FIND_CUSTOMER, String.class, 1);
+
+        StubHttpServer second = register(Duration.ZERO);
+        assertEquals(1, transport.getInstances().size());
+
+        downstreamTransports.refreshInstances();
+        transport.get(FIND_CUSTOMER, String.class, 2);
+
+        assertEquals(2, transport.getInstances().size());
+        assertEquals(1, first.getRequests());
+        assertEquals(1, second.getRequests());                                  // новый экземпляр без замеров выбирается первым
+    }
+
+    @Test
+    void serviceRegisteredAfterStartup() throws IOException {
+        DownstreamTransport transport = downstreamTransports.forService(SERVICE_NAME);
+
+        assertThrows(ServiceUnavailableException.class, () -> transport.get(FIND_CUSTOMER, String.class, 1));
+
+        StubHttpServer server = register(Duration.ZERO);
+
+        assertEquals("ok", transport.get(FIND_CUSTOMER, String.class, 1));
+        assertEquals(1, server.getRequests());
+    }
+
+    private StubHttpServer register(Duration delay) throws IOException {
+        StubHttpServer server = new StubHttpServer(delay);
+        servers.add(server);
+        registered.add(server.toServiceInstance(SERVICE_NAME));
+        return server;
+    }
+}
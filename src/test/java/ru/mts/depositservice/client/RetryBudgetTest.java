@@ -0,0 +1,49 @@
+package ru.mts.depositservice.client;
+
+import org.junit.jupiter.api.Test;
+import ru.mts.depositservice.property.HttpClientProperty.RetryProperty;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryBudgetTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void retriesLimitedByShareOfRequests() {
+        RetryBudget retryBudget = new RetryBudget(property(0.25, 0), clock::get);
+
+        for (int i = 0; i < 8; i++) {
+            retryBudget.onRequest();
+        }
+
+        assertTrue(retryBudget.tryRetry());
+        assertTrue(retryBudget.tryRetry());
+        assertFalse(retryBudget.tryRetry());
+    }
+
+    @Test
+    void budgetRefilledOverTime() {
+        RetryBudget retryBudget = new RetryBudget(property(0, 2), clock::get);
+
+        assertTrue(retryBudget.tryRetry());
+        assertTrue(retryBudget.tryRetry());
+        assertFalse(retryBudget.tryRetry());
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        assertTrue(retryBudget.tryRetry());
+        assertTrue(retryBudget.tryRetry());
+        assertFalse(retryBudget.tryRetry());
+    }
+
+    private static RetryProperty property(double budgetRatio, int minRetriesPerSecond) {
+        RetryProperty property = new RetryProperty();
+        property.setBudgetRatio(budgetRatio);
+        property.setMinRetriesPerSecond(minRetriesPerSecond);
+        return property;
+    }
+}
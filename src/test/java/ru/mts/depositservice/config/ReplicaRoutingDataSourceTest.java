@@ -0,0 +1,137 @@
+package ru.mts.depositservice.config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import ru.mts.depositservice.property.ReplicaProperty;
+import ru.mts.depositservice.service.ReadYourWritesTracker;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Маршрутизация соединений между основной базой данных и репликой.
+ * <p>
+ * Вместо настоящей репликации используются две независимые базы, в каждой из которых записано ее назначение,
+ * поэтому по результату чтения видно, куда ушел запрос
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingDataSourceTest {
+
+    private static final String NODE = "SELECT name FROM node";
+
+    @Container
+    static final PostgreSQLContainer<?> PRIMARY = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+    @Container
+    static final PostgreSQLContainer<?> REPLICA = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static DataSource primaryDataSource;
+    private static DataSource replicaDataSource;
+
+    private ReplicaProperty replicaProperty;
+    private ReplicationLagMonitor lagMonitor;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+
+    @BeforeAll
+    static void createNodes() {
+        primaryDataSource = dataSource(PRIMARY);
+        replicaDataSource = dataSource(REPLICA);
+        new JdbcTemplate(primaryDataSource).execute("CREATE TABLE node AS SELECT 'primary' AS name");
+        new JdbcTemplate(replicaDataSource).execute("CREATE TABLE node AS SELECT 'replica' AS name");
+    }
+
+    @BeforeEach
+    void setUp() {
+        replicaProperty = new ReplicaProperty();
+        replicaProperty.setEnabled(true);
+        replicaProperty.setMaxLag(Duration.ofSeconds(5));
+        lagMonitor = new ReplicationLagMonitor(replicaDataSource, replicaProperty);
+        lagMonitor.check();
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(lagMonitor);
+        routingDataSource.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Target.PRIMARY, primaryDataSource,
+                ReplicaRoutingDataSource.Target.REPLICA, replicaDataSource
+        ));
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void readOnlyTransaction_readsFromReplica() {
+        assertTrue(lagMonitor.isReplicaUsable());
+        assertEquals("replica", readOnlyTransaction.execute(status -> node()));
+    }
+
+    @Test
+    void readWriteTransactionAndNoTransaction_goToPrimary() {
+        assertEquals("primary", readWriteTransaction.execute(status -> node()));
+        assertEquals("primary", node());
+    }
+
+    @Test
+    void replicaLagAboveLimit_readsFromPrimaryUntilReplicaCatchesUp() {
+        lagMonitor.record(Duration.ofMinutes(1));
+        assertEquals("primary", readOnlyTransaction.execute(status -> node()));
+
+        lagMonitor.record(null);                                            // реплика не ответила
+        assertEquals("primary", readOnlyTransaction.execute(status -> node()));
+
+        lagMonitor.record(Duration.ofSeconds(1));
+        assertEquals("replica", readOnlyTransaction.execute(status -> node()));
+    }
+
+    @Test
+    void onPrimary_overridesReadOnlyRouting() {
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(
+                () -> readOnlyTransaction.execute(status -> node())));
+        assertEquals("replica", readOnlyTransaction.execute(status -> node()));
+    }
+
+    @Test
+    void readYourWrites_readsRecentlyChangedCustomerFromPrimary() {
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(replicaProperty);
+        tracker.markWritten(1);
+
+        assertEquals("primary", tracker.read(1, () -> readOnlyTransaction.execute(status -> node())));
+        assertEquals("replica", tracker.read(2, () -> readOnlyTransaction.execute(status -> node())));
+    }
+
+    @Test
+    void readYourWrites_windowExpires() {
+        replicaProperty.setReadYourWritesWindow(Duration.ZERO);
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(replicaProperty);
+        tracker.markWritten(1);
+
+        assertEquals("replica", tracker.read(1, () -> readOnlyTransaction.execute(status -> node())));
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject(NODE, String.class);
+    }
+
+    private static DataSource dataSource(PostgreSQLContainer<?> postgres) {
+        return new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}
@@ -0,0 +1,91 @@
+package ru.mts.depositservice.config;
+
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.ResourceType;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mts.depositservice.property.SecondLevelCacheProperty;
+import ru.mts.depositservice.property.SecondLevelCacheProperty.RegionProperty;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecondLevelCacheConfigTest {
+
+    CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        SecondLevelCacheProperty cacheProperty = new SecondLevelCacheProperty();
+        cacheProperty.getRegions().put("customers", region(2, Duration.ofMinutes(10)));
+        cacheProperty.getRegions().put("request-statuses", region(100, null));
+
+        cacheManager = new SecondLevelCacheConfig().secondLevelCacheManager(cacheProperty);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    void secondLevelCacheManager_createsConfiguredRegionsOnly() {
+        assertNotNull(cacheManager.getCache("customers"));
+        assertNotNull(cacheManager.getCache("request-statuses"));
+        assertNull(cacheManager.getCache("bank-accounts"));
+    }
+
+    @Test
+    void secondLevelCacheManager_boundsRegionByMaxEntries() {
+        Cache<Object, Object> customers = cacheManager.getCache("customers");
+        CacheRuntimeConfiguration<?, ?> configuration = (CacheRuntimeConfiguration<?, ?>) customers
+                .getConfiguration(Eh107Configuration.class)
+                .unwrap(CacheRuntimeConfiguration.class);
+        assertEquals(2, configuration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize());
+
+        for (int i = 0; i < 10; i++) {
+            customers.put(i, "customer-" + i);
+        }
+        assertTrue(StreamSupport.stream(customers.spliterator(), false).count() <= 2);
+    }
+
+    @Test
+    void secondLevelCacheManager_createsSeparateManagerPerContext() {
+        SecondLevelCacheProperty cacheProperty = new SecondLevelCacheProperty();
+        cacheProperty.getRegions().put("customers", region(2, null));
+
+        try (CacheManager another = new SecondLevelCacheConfig().secondLevelCacheManager(cacheProperty)) {
+            assertNotSame(cacheManager, another);
+            assertNotNull(another.getCache("customers"));
+        }
+    }
+
+    @Test
+    void secondLevelCacheCustomizer_keepsHibernateStatisticsSetting() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.GENERATE_STATISTICS, "true");
+
+        new SecondLevelCacheConfig().secondLevelCacheCustomizer(cacheManager).customize(properties);
+
+        // статистика, из которой публикуются метрики Hibernate и регионов кэша, задается только в spring.jpa.properties
+        assertSame(cacheManager, properties.get(ConfigSettings.CACHE_MANAGER));
+        assertEquals("true", properties.get(AvailableSettings.GENERATE_STATISTICS));
+    }
+
+    private static RegionProperty region(long maxEntries, Duration ttl) {
+        RegionProperty region = new RegionProperty();
+        region.setMaxEntries(maxEntries);
+        region.setTtl(ttl);
+        return region;
+    }
+}
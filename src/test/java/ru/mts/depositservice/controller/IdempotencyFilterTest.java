@@ -0,0 +1,182 @@
+package ru.mts.depositservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.exception.IdempotencyKeyException;
+import ru.mts.depositservice.model.IdempotentResponse;
+import ru.mts.depositservice.property.IdempotencyProperty;
+import ru.mts.depositservice.service.IdempotencyService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"requestId\":1,\"confirmationCode\":\"1337\"}";
+
+    @Mock
+    IdempotencyService idempotencyService;
+
+    private IdempotencyFilter filter;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(idempotencyService, new IdempotencyProperty(), new ObjectMapper());
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void firstRequestIsExecutedAndStored() throws Exception {
+        when(idempotencyService.acquire(any(), anyString(), anyString())).thenReturn(Optional.empty());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/deposit/refill/confirm", "key-1"), response, chain(202, "{\"amount\":15000}"));
+
+        assertEquals(1, executions.get());
+        assertEquals(202, response.getStatus());
+        assertEquals("{\"amount\":15000}", response.getContentAsString());
+        verify(idempotencyService).complete(eq(ConfirmationOperationEnum.REFILL), eq("key-1"), argThat(stored ->
+                stored.getStatus() == 202
+                        && stored.getFingerprint().equals(IdempotencyService.fingerprint(BODY.getBytes()))
+                        && new String(stored.getBody()).equals("{\"amount\":15000}")));
+    }
+
+    @Test
+    void duplicateRequestIsReplayed() throws Exception {
+        when(idempotencyService.acquire(any(), anyString(), anyString())).thenReturn(Optional.of(new IdempotentResponse(
+                IdempotencyService.fingerprint(BODY.getBytes()), 201, MediaType.APPLICATION_JSON_VALUE, "{\"requestId\":1}".getBytes()
+        )));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/deposit/open/confirm", "key-1"), response, chain(201, "{}"));
+
+        assertEquals(0, executions.get());
+        assertEquals(201, response.getStatus());
+        assertEquals("true", response.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals("{\"requestId\":1}", response.getContentAsString());
+    }
+
+    @Test
+    void serverErrorIsNotStored() throws Exception {
+        when(idempotencyService.acquire(any(), anyString(), anyString())).thenReturn(Optional.empty());
+
+        filter.doFilter(request("/deposit/close/confirm", "key-1"), new MockHttpServletResponse(), chain(503, "{}"));
+
+        verify(idempotencyService).release(ConfirmationOperationEnum.CLOSE, "key-1");
+        verify(idempotencyService, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void responseIsSentWhenStoringFails() throws Exception {
+        when(idempotencyService.acquire(any(), anyString(), anyString())).thenReturn(Optional.empty());
+        doThrow(new IllegalStateException("database is down")).when(idempotencyService).complete(any(), any(), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/deposit/refill/confirm", "key-1"), response, chain(202, "{\"amount\":15000}"));
+
+        assertEquals(1, executions.get());
+        assertEquals(202, response.getStatus());
+        assertEquals("{\"amount\":15000}", response.getContentAsString());
+    }
+
+    @Test
+    void bodyIsReadWithReadListener() throws Exception {
+        when(idempotencyService.acquire(any(), anyString(), anyString())).thenReturn(Optional.empty());
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+        FilterChain asyncChain = (request, response) -> {
+            ServletInputStream input = request.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (input.isReady() && !input.isFinished()) {
+                        read.write(input.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    fail(throwable);
+                }
+            });
+        };
+
+        filter.doFilter(request("/deposit/refill/confirm", "key-1"), new MockHttpServletResponse(), asyncChain);
+
+        assertTrue(allDataRead.get());
+        assertEquals(BODY, read.toString());
+    }
+
+    @Test
+    void requestWithoutKeyIsNotTracked() throws Exception {
+        filter.doFilter(request("/deposit/close/confirm", null), new MockHttpServletResponse(), chain(204, ""));
+
+        assertEquals(1, executions.get());
+        verifyNoInteractions(idempotencyService);
+    }
+
+    @Test
+    void reusedKeyIsRejected() throws Exception {
+        when(idempotencyService.acquire(any(), anyString(), anyString())).thenThrow(
+                new IdempotencyKeyException(IdempotencyService.KEY_MISMATCH, "mismatch"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/deposit/close/confirm", "key-1"), response, chain(204, ""));
+
+        assertEquals(0, executions.get());
+        assertEquals(HttpServletResponse.SC_UNPROCESSABLE_ENTITY, response.getStatus());
+        assertTrue(response.getContentAsString().contains(IdempotencyService.KEY_MISMATCH));
+    }
+
+    private static MockHttpServletRequest request(String path, String key) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(BODY.getBytes());
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, key);
+        }
+        return request;
+    }
+
+    private FilterChain chain(int status, String body) {
+        return (request, response) -> {
+            executions.incrementAndGet();
+            assertEquals(BODY, new String(request.getInputStream().readAllBytes()));
+            ((HttpServletResponse) response).setStatus(status);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(body);
+        };
+    }
+}
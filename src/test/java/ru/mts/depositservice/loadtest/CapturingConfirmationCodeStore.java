@@ -0,0 +1,55 @@
+package ru.mts.depositservice.loadtest;
+
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.property.ConfirmationProperty;
+import ru.mts.depositservice.service.ConfirmationCodeStore;
+import ru.mts.depositservice.service.InMemoryConfirmationCodeStore;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Хранилище кодов подтверждения, через которое генератор нагрузки узнает выданные коды.
+ * <p>
+ * Коды хранятся и проверяются {@link InMemoryConfirmationCodeStore}; последний выданный код для заявки и
+ * операции дополнительно доступен через {@link #lastCode(Integer, ConfirmationOperationEnum)}
+ */
+public class CapturingConfirmationCodeStore implements ConfirmationCodeStore {
+
+    private final ConfirmationCodeStore delegate = new InMemoryConfirmationCodeStore(new ConfirmationProperty());
+    private final ConcurrentMap<CodeKey, String> issued = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(Integer requestId, ConfirmationOperationEnum operation, String code) {
+        delegate.save(requestId, operation, code);
+        issued.put(new CodeKey(requestId, operation), code);
+    }
+
+    @Override
+    public boolean verify(Integer requestId, ConfirmationOperationEnum operation, String code) {
+        boolean verified = delegate.verify(requestId, operation, code);
+        if (verified) {
+            issued.remove(new CodeKey(requestId, operation), code);
+        }
+        return verified;
+    }
+
+    @Override
+    public void removeExpired() {
+        delegate.removeExpired();
+    }
+
+    /**
+     * Возвращает последний выданный и еще не использованный код
+     *
+     * @param requestId Идентификатор заявки
+     * @param operation Подтверждаемая операция
+     * @return Код подтверждения или {@code null}
+     */
+    public String lastCode(Integer requestId, ConfirmationOperationEnum operation) {
+        return issued.get(new CodeKey(requestId, operation));
+    }
+
+    private record CodeKey(Integer requestId, ConfirmationOperationEnum operation) {
+    }
+}
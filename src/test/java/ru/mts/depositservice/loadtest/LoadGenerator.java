@@ -0,0 +1,391 @@
+package ru.mts.depositservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import ru.mts.depositservice.DepositServiceApplication;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.CloseDepositRequest;
+import ru.mts.depositservice.model.OpenDepositRequest;
+import ru.mts.depositservice.model.RefillDepositRequest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генератор нагрузки, проходящий сценарии клиента от начала до конца на запущенном в том же процессе сервисе.
+ * <p>
+ * Сервис работает с базой данных в контейнере Testcontainers, а {@code account-service} и
+ * {@code customer-service} заменены заглушками {@link StubAccountService} и {@link StubCustomerService},
+ * которые находятся через {@link StaticDiscoveryClient}. Коды подтверждения генератор получает из
+ * {@link CapturingConfirmationCodeStore}.
+ * <p>
+ * Сессии запускаются с постоянной частотой независимо от времени ответа сервиса (открытая модель нагрузки),
+ * поэтому замедление сервиса не снижает подаваемую нагрузку. Каждая сессия занимает свободного клиента и
+ * проходит шаги: заявка на открытие вклада, подтверждение, заявка на пополнение, подтверждение, заявка на
+ * закрытие, подтверждение и просмотр вкладов клиента. Если свободного клиента нет, сессия не запускается и
+ * учитывается как пропущенная. По завершении печатаются пропускная способность, ошибки и распределение
+ * времени ответа по каждому шагу.
+ * <p>
+ * Параметры задаются системными свойствами:
+ * <ul>
+ *   <li>{@code load.rate} - сессий в секунду, по умолчанию 20</li>
+ *   <li>{@code load.duration} - длительность подачи нагрузки, по умолчанию {@code PT1M}</li>
+ *   <li>{@code load.customers} - количество клиентов, по умолчанию 500</li>
+ *   <li>{@code load.latency}, {@code load.jitter} - задержка ответа заглушек и ее случайная добавка,
+ *   по умолчанию {@code PT0.005S} и {@code PT0.005S}</li>
+ *   <li>{@code load.error-rate} - доля ответов заглушек со статусом 503, по умолчанию 0</li>
+ * </ul>
+ * Запуск: {@code ./gradlew loadTest -Dload.rate=50 -Dload.duration=PT2M}
+ */
+public final class LoadGenerator {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000");
+    private static final BigDecimal OPEN_AMOUNT = BigDecimal.valueOf(10_000);
+    private static final BigDecimal REFILL_AMOUNT = BigDecimal.valueOf(1_000);
+
+    private static final String LAST_REQUEST = """
+            SELECT id_request
+            FROM requests
+            WHERE customer_id = ?
+            ORDER BY id_request DESC
+            LIMIT 1
+            """;
+
+    private static final String INSERT_BANK_ACCOUNT = """
+            INSERT INTO bank_accounts (num_bank_account, amount)
+            VALUES (?, 0)
+            RETURNING id_bank_account
+            """;
+
+    private static final String INSERT_CUSTOMER = """
+            INSERT INTO customers (phone_number, password, bank_account_id)
+            VALUES (?, ?, ?)
+            RETURNING id_customer
+            """;
+
+    private final Settings settings;
+    private final CapturingConfirmationCodeStore codes;
+    private final JdbcTemplate jdbcTemplate;
+    private final String baseUrl;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BlockingQueue<Integer> freeCustomers = new LinkedBlockingQueue<>();
+    private final Map<String, Timer> steps = new LinkedHashMap<>();
+    private final Timer sessions;
+    private final Counter dropped;
+
+    private LoadGenerator(Settings settings,
+                          CapturingConfirmationCodeStore codes,
+                          JdbcTemplate jdbcTemplate,
+                          int port) {
+        this.settings = settings;
+        this.codes = codes;
+        this.jdbcTemplate = jdbcTemplate;
+        this.baseUrl = "http://127.0.0.1:" + port;
+        for (String step : new String[]{"open", "open-confirm", "refill", "refill-confirm", "close", "close-confirm", "list"}) {
+            steps.put(step, timer("loadtest.step", step));
+        }
+        this.sessions = timer("loadtest.session", "session");
+        this.dropped = registry.counter("loadtest.sessions.dropped");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+             StubAccountService accountService = new StubAccountService(INITIAL_BALANCE);
+             StubCustomerService customerService = new StubCustomerService()) {
+            postgres.start();
+            for (StubServer stub : new StubServer[]{accountService, customerService}) {
+                stub.setLatency(settings.latency());
+                stub.setJitter(settings.jitter());
+                stub.setErrorRate(settings.errorRate());
+            }
+
+            StaticDiscoveryClient discoveryClient = new StaticDiscoveryClient()
+                    .register(accountService.toServiceInstance())
+                    .register(customerService.toServiceInstance());
+            CapturingConfirmationCodeStore codes = new CapturingConfirmationCodeStore();
+
+            SpringApplication application = new SpringApplication(DepositServiceApplication.class);
+            application.addInitializers(context -> {
+                context.getBeanFactory().registerSingleton("staticDiscoveryClient", discoveryClient);
+                context.getBeanFactory().registerSingleton("capturingConfirmationCodeStore", codes);
+            });
+
+            try (ConfigurableApplicationContext context = application.run(
+                    "--server.port=0",
+                    "--spring.datasource.url=" + postgres.getJdbcUrl() + "&reWriteBatchedInserts=true",
+                    "--spring.datasource.username=" + postgres.getUsername(),
+                    "--spring.datasource.password=" + postgres.getPassword(),
+                    "--spring.flyway.user=" + postgres.getUsername(),
+                    "--spring.flyway.password=" + postgres.getPassword(),
+                    "--spring.cloud.bootstrap.enabled=false",
+                    "--spring.cloud.config.enabled=false",
+                    "--eureka.client.enabled=false",
+                    "--app.confirmation.store=loadtest"
+            )) {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                LoadGenerator generator = new LoadGenerator(settings, codes, context.getBean(JdbcTemplate.class), port);
+                generator.seedCustomers(customerService);
+                Duration elapsed = generator.run();
+                generator.report(elapsed, accountService, customerService);
+            }
+        }
+    }
+
+    private void seedCustomers(StubCustomerService customerService) {
+        for (int i = 0; i < settings.customers(); i++) {
+            String phone = String.format("7%010d", 9_000_000_000L + i);
+            Integer bankAccountId = jdbcTemplate.queryForObject(INSERT_BANK_ACCOUNT, Integer.class,
+                    new BigDecimal("40817810000000000000").add(BigDecimal.valueOf(i)));
+            Integer customerId = jdbcTemplate.queryForObject(INSERT_CUSTOMER, Integer.class,
+                    phone, "load-test-" + i, bankAccountId);
+            customerService.register(customerId, phone, bankAccountId);
+            freeCustomers.add(customerId);
+        }
+    }
+
+    /**
+     * Подает нагрузку в течение {@code load.duration} и дожидается завершения начатых сессий
+     *
+     * @return Время от запуска первой сессии до завершения последней
+     */
+    private Duration run() throws InterruptedException {
+        ExecutorService workers = Executors.newCachedThreadPool();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        long intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / settings.rate()));
+
+        System.out.printf(Locale.ROOT, "Нагрузка: %.1f сессий/с в течение %s на %s%n",
+                settings.rate(), settings.duration(), baseUrl);
+        long start = System.nanoTime();
+        scheduler.scheduleAtFixedRate(() -> {
+            Integer customerId = freeCustomers.poll();
+            if (customerId == null) {
+                dropped.increment();
+                return;
+            }
+            workers.execute(() -> {
+                try {
+                    sessions.record(() -> runSession(customerId));
+                } finally {
+                    freeCustomers.add(customerId);
+                }
+            });
+        }, 0, intervalNanos, TimeUnit.NANOSECONDS);
+
+        Thread.sleep(settings.duration().toMillis());
+        scheduler.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            workers.shutdownNow();
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private void runSession(Integer customerId) {
+        OpenDepositRequest openRequest = OpenDepositRequest.builder()
+                .customerId(customerId)
+                .depositAmount(OPEN_AMOUNT)
+                .depositType(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS)
+                .duration(DepositDurationEnum.MONTH_6)
+                .isCapitalized(true)
+                .percentPaymentType(PercentPaymentTypeEnum.MONTHLY)
+                .build();
+        if (!call("open", post("/deposit/open", openRequest), 200)) {
+            return;
+        }
+
+        Integer requestId = jdbcTemplate.queryForObject(LAST_REQUEST, Integer.class, customerId);
+        openRequest.setRequestId(requestId);
+        openRequest.setConfirmationCode(codes.lastCode(requestId, ConfirmationOperationEnum.OPEN));
+        if (!call("open-confirm", post("/deposit/open/confirm", openRequest), 201)) {
+            return;
+        }
+
+        if (!call("refill", get("/deposit/refill?requestId=" + requestId), 200)) {
+            return;
+        }
+        RefillDepositRequest refillRequest = RefillDepositRequest.builder()
+                .requestId(requestId)
+                .depositAmount(REFILL_AMOUNT)
+                .confirmationCode(codes.lastCode(requestId, ConfirmationOperationEnum.REFILL))
+                .build();
+        if (!call("refill-confirm", post("/deposit/refill/confirm", refillRequest), 202)) {
+            return;
+        }
+
+        if (!call("close", get("/deposit/close?requestId=" + requestId), 200)) {
+            return;
+        }
+        CloseDepositRequest closeRequest = CloseDepositRequest.builder()
+                .requestId(requestId)
+                .customerId(customerId)
+                .confirmationCode(codes.lastCode(requestId, ConfirmationOperationEnum.CLOSE))
+                .build();
+        if (!call("close-confirm", post("/deposit/close/confirm", closeRequest), 204)) {
+            return;
+        }
+
+        call("list", get("/deposit/" + customerId), 302);
+    }
+
+    /**
+     * Выполняет шаг сценария и учитывает время его выполнения с тегом исхода
+     *
+     * @return {@code true}, если сервис ответил ожидаемым статусом
+     */
+    private boolean call(String step, HttpRequest request, int expectedStatus) {
+        long start = System.nanoTime();
+        String outcome;
+        try {
+            int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            outcome = status == expectedStatus ? "SUCCESS" : String.valueOf(status);
+        } catch (IOException e) {
+            outcome = e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "INTERRUPTED";
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        steps.get(step).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (!"SUCCESS".equals(outcome)) {
+            registry.counter("loadtest.errors", "step", step, "outcome", outcome).increment();
+            return false;
+        }
+        return true;
+    }
+
+    private HttpRequest post(String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(OBJECT_MAPPER.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private Timer timer(String name, String step) {
+        return Timer.builder(name)
+                .tag("step", step)
+                .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                .serviceLevelObjectives(
+                        Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25), Duration.ofMillis(50),
+                        Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1),
+                        Duration.ofMillis(2500), Duration.ofSeconds(5)
+                )
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(registry);
+    }
+
+    private void report(Duration elapsed, StubAccountService accountService, StubCustomerService customerService) {
+        double seconds = elapsed.toNanos() / 1e9;
+        System.out.printf(Locale.ROOT, "%nСессий завершено: %d за %.1f с (%.1f сессий/с), пропущено: %.0f%n",
+                sessions.count(), seconds, sessions.count() / seconds, dropped.count());
+        System.out.printf(Locale.ROOT, "account-service: %d запросов, %d внедренных ошибок; "
+                        + "customer-service: %d запросов, %d внедренных ошибок%n",
+                accountService.getRequests(), accountService.getInjectedErrors(),
+                customerService.getRequests(), customerService.getInjectedErrors());
+
+        System.out.printf(Locale.ROOT, "%n%-15s %8s %8s %8s %9s %9s %9s %9s %9s %9s%n",
+                "шаг", "запросов", "req/s", "ошибок", "mean, ms", "p50, ms", "p90, ms", "p99, ms", "p99.9, ms", "max, ms");
+        steps.forEach((step, timer) -> printStep(step, timer, seconds));
+        printStep("session", sessions, seconds);
+
+        registry.find("loadtest.errors").counters().forEach(counter -> System.out.printf(Locale.ROOT,
+                "ошибки %s: %s - %.0f%n", counter.getId().getTag("step"), counter.getId().getTag("outcome"),
+                counter.count()));
+
+        System.out.println();
+        System.out.println("Распределение времени ответа (доля запросов не дольше границы):");
+        steps.forEach(LoadGenerator::printHistogram);
+        printHistogram("session", sessions);
+    }
+
+    private void printStep(String step, Timer timer, double seconds) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        double errors = registry.find("loadtest.errors").tag("step", step).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+        StringBuilder percentiles = new StringBuilder();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            percentiles.append(String.format(Locale.ROOT, " %9.1f", percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        System.out.printf(Locale.ROOT, "%-15s %8d %8.1f %8.0f %9.1f%s %9.1f%n",
+                step, snapshot.count(), snapshot.count() / seconds, errors,
+                snapshot.mean(TimeUnit.MILLISECONDS), percentiles, snapshot.max(TimeUnit.MILLISECONDS));
+    }
+
+    private static void printHistogram(String step, Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-15s", step));
+        for (CountAtBucket bucket : snapshot.histogramCounts()) {
+            double share = snapshot.count() == 0 ? 0 : bucket.count() * 100.0 / snapshot.count();
+            line.append(String.format(Locale.ROOT, " <=%.0fms %5.1f%%",
+                    bucket.bucket(TimeUnit.MILLISECONDS), share));
+        }
+        System.out.println(line);
+    }
+
+    private record Settings(double rate,
+                            Duration duration,
+                            int customers,
+                            Duration latency,
+                            Duration jitter,
+                            double errorRate) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Double.parseDouble(System.getProperty("load.rate", "20")),
+                    Duration.parse(System.getProperty("load.duration", "PT1M")),
+                    Integer.parseInt(System.getProperty("load.customers", "500")),
+                    Duration.parse(System.getProperty("load.latency", "PT0.005S")),
+                    Duration.parse(System.getProperty("load.jitter", "PT0.005S")),
+                    Double.parseDouble(System.getProperty("load.error-rate", "0"))
+            );
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.mts.depositservice.loadtest;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link DiscoveryClient} с фиксированным списком экземпляров вместо Eureka
+ */
+public class StaticDiscoveryClient implements DiscoveryClient {
+
+    private final Map<String, List<ServiceInstance>> instances = new ConcurrentHashMap<>();
+
+    public StaticDiscoveryClient register(ServiceInstance instance) {
+        instances.computeIfAbsent(instance.getServiceId(), serviceId -> new ArrayList<>()).add(instance);
+        return this;
+    }
+
+    @Override
+    public String description() {
+        return "Static discovery client for load tests";
+    }
+
+    @Override
+    public List<ServiceInstance> getInstances(String serviceId) {
+        return List.copyOf(instances.getOrDefault(serviceId, List.of()));
+    }
+
+    @Override
+    public List<String> getServices() {
+        return List.copyOf(instances.keySet());
+    }
+
+    @Override
+    public int getOrder() {
+        return HIGHEST_PRECEDENCE;
+    }
+}
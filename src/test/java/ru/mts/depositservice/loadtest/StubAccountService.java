@@ -0,0 +1,97 @@
+package ru.mts.depositservice.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.InfoResponse;
+import ru.mts.depositservice.model.UserRequest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Заглушка {@code account-service}: хранит балансы счетов в памяти.
+ * <p>
+ * Реализует {@code POST /account/check}, {@code GET /account/{id}}, {@code PATCH /account/withdraw},
+ * {@code PATCH /account/refill} и {@code POST /account/batch}. Счет, к которому еще не было обращений,
+ * получает баланс {@code initialBalance}. Повторно присланная операция пакета с тем же идентификатором
+ * не выполняется, а возвращает прежний результат
+ */
+public class StubAccountService extends StubServer {
+
+    private final BigDecimal initialBalance;
+    private final ConcurrentMap<Integer, BigDecimal> balances = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AccountOperationResult> processed = new ConcurrentHashMap<>();
+
+    public StubAccountService(BigDecimal initialBalance) throws IOException {
+        super("account-service");
+        this.initialBalance = initialBalance;
+    }
+
+    public BigDecimal getBalance(Integer accountId) {
+        return balances.getOrDefault(accountId, initialBalance);
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        if ("POST".equals(method) && path.equals("/account/check")) {
+            UserRequest request = readBody(exchange, UserRequest.class);
+            respond(exchange, 200, getBalance(request.getAccountId()).compareTo(request.getMoney()) >= 0);
+        } else if ("PATCH".equals(method) && path.equals("/account/withdraw")) {
+            UserRequest request = readBody(exchange, UserRequest.class);
+            if (!withdraw(request.getAccountId(), request.getMoney())) {
+                respond(exchange, 400, null);
+                return;
+            }
+            respond(exchange, 200, new InfoResponse(null, getBalance(request.getAccountId())));
+        } else if ("PATCH".equals(method) && path.equals("/account/refill")) {
+            UserRequest request = readBody(exchange, UserRequest.class);
+            refill(request.getAccountId(), request.getMoney());
+            respond(exchange, 200, new InfoResponse(null, getBalance(request.getAccountId())));
+        } else if ("POST".equals(method) && path.equals("/account/batch")) {
+            AccountOperation[] operations = readBody(exchange, AccountOperation[].class);
+            List<AccountOperationResult> results = new ArrayList<>(operations.length);
+            for (AccountOperation operation : operations) {
+                results.add(processed.computeIfAbsent(operation.getOperationId(), id -> execute(operation)));
+            }
+            respond(exchange, 200, results);
+        } else if ("GET".equals(method) && path.startsWith("/account/")) {
+            respond(exchange, 200, new InfoResponse(null, getBalance(pathId(exchange))));
+        } else {
+            respond(exchange, 404, null);
+        }
+    }
+
+    private AccountOperationResult execute(AccountOperation operation) {
+        boolean success = switch (operation.getType()) {
+            case CHECK -> getBalance(operation.getAccountId()).compareTo(operation.getMoney()) >= 0;
+            case WITHDRAW -> withdraw(operation.getAccountId(), operation.getMoney());
+            case REFILL -> {
+                refill(operation.getAccountId(), operation.getMoney());
+                yield true;
+            }
+        };
+        return new AccountOperationResult(operation.getOperationId(), success, success ? null : "Недостаточно средств");
+    }
+
+    private boolean withdraw(Integer accountId, BigDecimal money) {
+        boolean[] withdrawn = new boolean[1];
+        balances.compute(accountId, (id, balance) -> {
+            BigDecimal current = balance == null ? initialBalance : balance;
+            withdrawn[0] = current.compareTo(money) >= 0;
+            return withdrawn[0] ? current.subtract(money) : current;
+        });
+        return withdrawn[0];
+    }
+
+    private void refill(Integer accountId, BigDecimal money) {
+        balances.merge(accountId, initialBalance.add(money), (balance, ignored) -> balance.add(money));
+    }
+}
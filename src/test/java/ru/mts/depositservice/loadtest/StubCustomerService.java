@@ -0,0 +1,47 @@
+package ru.mts.depositservice.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import ru.mts.depositservice.entity.BankAccount;
+import ru.mts.depositservice.entity.Customer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Заглушка {@code customer-service}: отдает по {@code GET /customer/{id}} клиентов, зарегистрированных
+ * через {@link #register(Integer, String, Integer)}; на запрос незарегистрированного клиента отвечает 404
+ */
+public class StubCustomerService extends StubServer {
+
+    private final ConcurrentMap<Integer, Customer> customers = new ConcurrentHashMap<>();
+
+    public StubCustomerService() throws IOException {
+        super("customer-service");
+    }
+
+    /**
+     * Регистрирует клиента и его банковский счет
+     *
+     * @param customerId    Идентификатор клиента
+     * @param phone         Номер телефона клиента
+     * @param bankAccountId Идентификатор банковского счета клиента
+     */
+    public void register(Integer customerId, String phone, Integer bankAccountId) {
+        BankAccount bankAccount = new BankAccount(bankAccountId, BigDecimal.valueOf(bankAccountId), BigDecimal.ZERO);
+        customers.put(customerId, new Customer(customerId, phone, bankAccount));
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (!"GET".equals(exchange.getRequestMethod()) || !path.startsWith("/customer/")) {
+            respond(exchange, 404, null);
+            return;
+        }
+
+        Customer customer = customers.get(pathId(exchange));
+        respond(exchange, customer == null ? 404 : 200, customer);
+    }
+}
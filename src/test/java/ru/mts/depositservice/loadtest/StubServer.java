@@ -0,0 +1,136 @@
+package ru.mts.depositservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Встроенный HTTP-сервер, заменяющий внешний сервис при нагрузочном тестировании.
+ * <p>
+ * Перед каждым ответом выдерживается задержка {@code latency} со случайной добавкой до {@code jitter};
+ * с вероятностью {@code errorRate} вместо ответа возвращается 503. Параметры можно менять во время теста
+ */
+abstract class StubServer implements AutoCloseable {
+
+    protected static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String serviceName;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration jitter = Duration.ZERO;
+    private volatile double errorRate;
+
+    protected StubServer(String serviceName) throws IOException {
+        this.serviceName = serviceName;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::dispatch);
+        this.server.start();
+    }
+
+    /**
+     * Обрабатывает запрос после задержки и внедрения ошибок
+     *
+     * @param exchange Запрос
+     */
+    protected abstract void handle(HttpExchange exchange) throws IOException;
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void setJitter(Duration jitter) {
+        this.jitter = jitter;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.sum();
+    }
+
+    public ServiceInstance toServiceInstance() {
+        return new DefaultServiceInstance(
+                serviceName + "-" + server.getAddress().getPort(),
+                serviceName,
+                "127.0.0.1",
+                server.getAddress().getPort(),
+                false
+        );
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    protected static <T> T readBody(HttpExchange exchange, Class<T> type) throws IOException {
+        return OBJECT_MAPPER.readValue(exchange.getRequestBody(), type);
+    }
+
+    protected static void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = body == null ? new byte[0] : OBJECT_MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    /**
+     * Последний сегмент пути запроса как число, например идентификатор из {@code /customer/{id}}
+     */
+    protected static Integer pathId(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        return Integer.valueOf(path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (exchange) {
+            long delayNanos = latency.toNanos();
+            if (!jitter.isZero()) {
+                delayNanos += ThreadLocalRandom.current().nextLong(jitter.toNanos() + 1);
+            }
+            if (delayNanos > 0) {
+                Thread.sleep(Duration.ofNanos(delayNanos).toMillis(), (int) (delayNanos % 1_000_000));
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.increment();
+                respond(exchange, 503, null);
+                return;
+            }
+            handle(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            respond(exchange, 500, null);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
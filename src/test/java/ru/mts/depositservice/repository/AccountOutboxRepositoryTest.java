@@ -0,0 +1,170 @@
+package ru.mts.depositservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import ru.mts.depositservice.entity.Customer;
+import ru.mts.depositservice.entity.Deposit;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.model.OutboxMessage;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Захват, повтор и подтверждение отправки операций из outbox
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AccountOutboxRepositoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static JdbcTemplate jdbcTemplate;
+    private static AccountOutboxRepository outboxRepository;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("shardCount", "16"))
+                .load()
+                .migrate();
+
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        outboxRepository = new AccountOutboxRepository(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void clear() {
+        jdbcTemplate.update("DELETE FROM account_outbox");
+    }
+
+    @Test
+    void claim_hidesClaimedMessagesUntilLeaseExpires() {
+        outboxRepository.enqueue(AccountOperationTypeEnum.WITHDRAW, request(1, 10), new BigDecimal("5000"));
+        outboxRepository.enqueue(AccountOperationTypeEnum.REFILL, request(2, 20), new BigDecimal("70000"));
+
+        List<OutboxMessage> claimed = outboxRepository.claim(10, Duration.ofMinutes(1));
+
+        assertEquals(2, claimed.size());
+        assertEquals(AccountOperationTypeEnum.WITHDRAW, claimed.get(0).getType());
+        assertEquals(10, claimed.get(0).getCustomerId());
+        assertEquals(1, claimed.get(0).getAttempts());
+        assertTrue(outboxRepository.claim(10, Duration.ofMinutes(1)).isEmpty());
+
+        jdbcTemplate.update("UPDATE account_outbox SET next_attempt_at = now() - interval '1 second'");
+        List<OutboxMessage> reclaimed = outboxRepository.claim(10, Duration.ofMinutes(1));
+
+        assertEquals(2, reclaimed.size());
+        assertEquals(claimed.get(0).getOperationId(), reclaimed.get(0).getOperationId());
+        assertEquals(2, reclaimed.get(0).getAttempts());
+    }
+
+    @Test
+    void markSentAndFailed_removeMessagesFromDispatch() {
+        outboxRepository.enqueue(AccountOperationTypeEnum.REFILL, request(1, 10), new BigDecimal("100"));
+        outboxRepository.enqueue(AccountOperationTypeEnum.REFILL, request(2, 20), new BigDecimal("200"));
+        List<OutboxMessage> claimed = outboxRepository.claim(10, Duration.ZERO);
+
+        outboxRepository.markSent(List.of(claimed.get(0).getId()));
+        outboxRepository.markFailed(claimed.get(1).getId(), "declined");
+
+        assertTrue(outboxRepository.claim(10, Duration.ZERO).isEmpty());
+        assertEquals("SENT", status(claimed.get(0).getId()));
+        assertEquals("FAILED", status(claimed.get(1).getId()));
+    }
+
+    @Test
+    void retry_postponesMessage() {
+        outboxRepository.enqueue(AccountOperationTypeEnum.WITHDRAW, request(1, 10), new BigDecimal("100"));
+        OutboxMessage message = outboxRepository.claim(10, Duration.ZERO).get(0);
+
+        outboxRepository.retry(message.getId(), Duration.ofMinutes(1), "timeout");
+
+        assertTrue(outboxRepository.claim(10, Duration.ZERO).isEmpty());
+        assertEquals("PENDING", status(message.getId()));
+    }
+
+    @Test
+    void failAndRevertRefill_restoresDepositOnce() {
+        Integer depositId = insertDeposit();
+        Request request = request(1, 10);
+        request.setDeposit(new Deposit());
+        request.getDeposit().setId(depositId);
+        jdbcTemplate.update("UPDATE deposits SET deposit_amount = 15000, deposit_rate = 5.75 WHERE id_deposit = ?", depositId);
+        outboxRepository.enqueueDepositRefill(request, new BigDecimal("5000"), new BigDecimal("0.25"));
+        OutboxMessage message = outboxRepository.claim(10, Duration.ZERO).get(0);
+
+        assertTrue(outboxRepository.failAndRevertRefill(message.getId(), "declined"));
+        assertFalse(outboxRepository.failAndRevertRefill(message.getId(), "declined"));
+
+        assertEquals("FAILED", status(message.getId()));
+        assertEquals(0, new BigDecimal("10000").compareTo(jdbcTemplate.queryForObject(
+                "SELECT deposit_amount FROM deposits WHERE id_deposit = ?", BigDecimal.class, depositId)));
+        assertEquals(0, new BigDecimal("5.50").compareTo(jdbcTemplate.queryForObject(
+                "SELECT deposit_rate FROM deposits WHERE id_deposit = ?", BigDecimal.class, depositId)));
+    }
+
+    @Test
+    void pendingRefill_blocksCloseUntilWithdrawalDeclined() {
+        Integer depositId = insertDeposit();
+        Request request = request(1, 10);
+        request.setDeposit(new Deposit());
+        request.getDeposit().setId(depositId);
+        jdbcTemplate.update("UPDATE deposits SET deposit_amount = 15000, deposit_rate = 5.75 WHERE id_deposit = ?", depositId);
+        outboxRepository.enqueueDepositRefill(request, new BigDecimal("5000"), new BigDecimal("0.25"));
+
+        // пока списание не отправлено, вклад нельзя закрыть
+        assertTrue(outboxRepository.lockDepositAndCheckPendingRefill(depositId));
+
+        OutboxMessage message = outboxRepository.claim(10, Duration.ZERO).get(0);
+        assertTrue(outboxRepository.failAndRevertRefill(message.getId(), "declined"));
+
+        // после отклонения пополнение отменено, и вклад закрывается с исходной суммой
+        assertFalse(outboxRepository.lockDepositAndCheckPendingRefill(depositId));
+        assertEquals(0, new BigDecimal("10000").compareTo(jdbcTemplate.queryForObject(
+                "SELECT deposit_amount FROM deposits WHERE id_deposit = ?", BigDecimal.class, depositId)));
+    }
+
+    private static Integer insertDeposit() {
+        Integer accountId = jdbcTemplate.queryForObject(
+                "INSERT INTO bank_accounts (num_bank_account, amount) VALUES (95000000000000000001, 0) " +
+                        "RETURNING id_bank_account",
+                Integer.class
+        );
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO deposits (deposit_refill, deposit_withdraw, capitalization, deposit_amount, start_date, " +
+                        "end_date, deposit_rate, percent_payment_date, deposit_account_id, deposit_type_id, " +
+                        "type_percent_payment_id, percent_payment_account_id, deposit_refund_account_id, customer_id) " +
+                        "VALUES (true, true, true, 10000, current_date, current_date + 365, 5.5, NULL, ?, " +
+                        "(SELECT id_deposit_type FROM deposit_types WHERE deposit_type_name = 'DEPOSITS_AND_WITHDRAWALS'), " +
+                        "NULL, NULL, ?, 1) RETURNING id_deposit",
+                Integer.class,
+                accountId,
+                accountId
+        );
+    }
+
+    private static Request request(Integer requestId, Integer customerId) {
+        return new Request(requestId, null, null, new Customer(customerId, null, null), null, null, null);
+    }
+
+    private static String status(Long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM account_outbox WHERE id = ?", String.class, id);
+    }
+}
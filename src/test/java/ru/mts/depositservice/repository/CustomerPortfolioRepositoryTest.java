@@ -0,0 +1,241 @@
+package ru.mts.depositservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.DepositView;
+import ru.mts.depositservice.model.RejectedRequestView;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Каждый список сводки по вкладам должен читаться одним SQL-запросом независимо от количества вкладов и заявок
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CustomerPortfolioRepositoryTest {
+
+    private static final int CUSTOMER_ID = 1;
+    private static final int OTHER_CUSTOMER_ID = 2;
+    private static final int DEPOSITS = 5;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static JdbcTemplate jdbcTemplate;
+    private static int rejectedStatusId;
+
+    private CountingDataSource dataSource;
+    private CustomerPortfolioRepository portfolioRepository;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("shardCount", "16"))
+                .load()
+                .migrate();
+
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        rejectedStatusId = jdbcTemplate.queryForObject(
+                "SELECT id_request_status FROM request_statuses WHERE request_status_name = 'REJECTED'", Integer.class);
+        int approvedStatusId = jdbcTemplate.queryForObject(
+                "SELECT id_request_status FROM request_statuses WHERE request_status_name = 'APPROVED'", Integer.class);
+
+        for (int i = 0; i < DEPOSITS; i++) {
+            boolean monthly = i % 2 == 0;
+            Integer depositId = insertDeposit(CUSTOMER_ID, 100 + i, monthly);
+            insertRequest(CUSTOMER_ID, depositId, approvedStatusId);
+            insertRequest(CUSTOMER_ID, null, rejectedStatusId);
+        }
+        insertRequest(OTHER_CUSTOMER_ID, insertDeposit(OTHER_CUSTOMER_ID, 200, true), rejectedStatusId);
+    }
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new CountingDataSource(
+                new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        portfolioRepository = new CustomerPortfolioRepository(new JdbcTemplate(dataSource));
+    }
+
+    @Test
+    void findDeposits_singleStatement() {
+        List<DepositView> deposits = portfolioRepository.findDeposits(CUSTOMER_ID);
+
+        assertEquals(1, dataSource.getStatements());
+        assertEquals(DEPOSITS, deposits.size());
+
+        DepositView monthly = deposits.get(0);
+        assertEquals(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS, monthly.getDepositType());
+        assertEquals(PercentPaymentTypeEnum.MONTHLY, monthly.getPercentPaymentType());
+        assertEquals(new BigDecimal("90000000000000000100"), monthly.getDepositAccountNumber());
+        assertNotNull(monthly.getPercentPaymentAccountNumber());
+
+        DepositView endOfTerm = deposits.get(1);
+        assertNull(endOfTerm.getPercentPaymentType());
+        assertNull(endOfTerm.getPercentPaymentAccountNumber());
+        assertNull(endOfTerm.getPercentPaymentDate());
+    }
+
+    @Test
+    void findRejectedRequests_singleStatement() {
+        List<RejectedRequestView> rejectedRequests = portfolioRepository.findRejectedRequests(CUSTOMER_ID, rejectedStatusId);
+
+        assertEquals(1, dataSource.getStatements());
+        assertEquals(DEPOSITS, rejectedRequests.size());
+        rejectedRequests.forEach(request -> assertNull(request.getDepositId()));
+    }
+
+    @Test
+    void findDepositsPage_continuesAfterCursor() {
+        List<DepositView> all = portfolioRepository.findDeposits(CUSTOMER_ID);
+
+        List<DepositView> first = portfolioRepository.findDepositsPage(CUSTOMER_ID, 0, 2);
+        List<DepositView> second = portfolioRepository.findDepositsPage(CUSTOMER_ID, first.get(1).getId(), 2);
+        List<DepositView> last = portfolioRepository.findDepositsPage(CUSTOMER_ID, all.get(DEPOSITS - 1).getId(), 2);
+
+        assertEquals(all.subList(0, 2), first);
+        assertEquals(all.subList(2, 4), second);
+        assertTrue(last.isEmpty());
+    }
+
+    @Test
+    void findRejectedRequestsPage_continuesAfterCursor() {
+        List<RejectedRequestView> all = portfolioRepository.findRejectedRequests(CUSTOMER_ID, rejectedStatusId);
+
+        List<RejectedRequestView> first = portfolioRepository.findRejectedRequestsPage(CUSTOMER_ID, rejectedStatusId, 0, 3);
+        List<RejectedRequestView> second = portfolioRepository.findRejectedRequestsPage(
+                CUSTOMER_ID, rejectedStatusId, first.get(2).getId(), 3);
+
+        assertEquals(all.subList(0, 3), first);
+        assertEquals(all.subList(3, DEPOSITS), second);
+    }
+
+    @Test
+    void streamDeposits_readsAllRowsInOneStatement() throws SQLException {
+        List<DepositView> streamed = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);                                    // курсор Postgres работает только в транзакции
+            new CustomerPortfolioRepository(new JdbcTemplate(new SingleConnectionDataSource(connection, true)))
+                    .streamDeposits(CUSTOMER_ID, 2, streamed::add);
+            connection.commit();
+        }
+
+        assertEquals(1, dataSource.getStatements());
+        assertEquals(portfolioRepository.findDeposits(CUSTOMER_ID), streamed);
+    }
+
+    private static Integer insertDeposit(int customerId, int accountSuffix, boolean monthlyPayment) {
+        Integer depositAccountId = insertBankAccount("900000000000000" + String.format("%05d", accountSuffix));
+        Integer refundAccountId = insertBankAccount("910000000000000" + String.format("%05d", accountSuffix));
+        Integer percentAccountId = monthlyPayment
+                ? insertBankAccount("920000000000000" + String.format("%05d", accountSuffix))
+                : null;
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO deposits (deposit_refill, deposit_withdraw, capitalization, deposit_amount, start_date, " +
+                        "end_date, deposit_rate, percent_payment_date, deposit_account_id, deposit_type_id, " +
+                        "type_percent_payment_id, percent_payment_account_id, deposit_refund_account_id, customer_id) " +
+                        "VALUES (true, true, false, 10000, current_date, current_date + 90, 5.5, ?, ?, " +
+                        "(SELECT id_deposit_type FROM deposit_types WHERE deposit_type_name = 'DEPOSITS_AND_WITHDRAWALS'), " +
+                        "(SELECT id_type_percent_payment FROM types_percent_payment WHERE type_percent_payment_period = ?), " +
+                        "?, ?, ?) RETURNING id_deposit",
+                Integer.class,
+                monthlyPayment ? Date.valueOf(LocalDate.now().plusMonths(1)) : null,
+                depositAccountId,
+                monthlyPayment ? "MONTHLY" : null,
+                percentAccountId,
+                refundAccountId,
+                customerId
+        );
+    }
+
+    private static Integer insertBankAccount(String number) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO bank_accounts (num_bank_account, amount) VALUES (?, 0) RETURNING id_bank_account",
+                Integer.class,
+                new BigDecimal(number)
+        );
+    }
+
+    private static void insertRequest(int customerId, Integer depositId, int statusId) {
+        Integer requestId = jdbcTemplate.queryForObject(
+                "INSERT INTO requests (request_date, deposit_amount, customer_id, deposit_id) " +
+                        "VALUES (current_date, 10000, ?, ?) RETURNING id_request",
+                Integer.class,
+                customerId,
+                depositId
+        );
+        jdbcTemplate.update(
+                "INSERT INTO current_request_status (request_id, request_status_id, change_datetime) VALUES (?, ?, now())",
+                requestId,
+                statusId
+        );
+        jdbcTemplate.update(
+                "UPDATE requests SET current_status_id = ?, current_status_changed_at = now() WHERE id_request = ?",
+                statusId,
+                requestId
+        );
+    }
+
+    /**
+     * Источник соединений, подсчитывающий подготовленные SQL-запросы
+     */
+    private static class CountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger statements = new AtomicInteger();
+
+        CountingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        int getStatements() {
+            return statements.get();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("prepareStatement")
+                                || method.getName().equals("createStatement")
+                                || method.getName().equals("prepareCall")) {
+                            statements.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+            );
+        }
+    }
+}
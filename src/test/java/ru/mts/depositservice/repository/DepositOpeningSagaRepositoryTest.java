@@ -0,0 +1,157 @@
+package ru.mts.depositservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositOpeningStateEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.DepositOpeningSaga;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.mts.depositservice.enums.DepositOpeningStateEnum.*;
+
+/**
+ * Переходы между состояниями открытия вклада и захват прерванных открытий для восстановления
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DepositOpeningSagaRepositoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static JdbcTemplate jdbcTemplate;
+    private static DepositOpeningSagaRepository sagaRepository;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("shardCount", "16"))
+                .load()
+                .migrate();
+
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        sagaRepository = new DepositOpeningSagaRepository(jdbcTemplate);
+    }
+
+    @Test
+    void transition_onlyFromExpectedState() {
+        Integer requestId = insertSaga();
+
+        assertTrue(sagaRepository.transition(requestId, CONFIRMED, WITHDRAWING, null));
+        assertFalse(sagaRepository.transition(requestId, CONFIRMED, REJECTED, null));
+        assertTrue(sagaRepository.transition(requestId, WITHDRAWING, WITHDRAWN, null));
+        assertTrue(sagaRepository.complete(requestId, null));
+        assertFalse(sagaRepository.complete(requestId, null));
+
+        DepositOpeningSaga saga = sagaRepository.findByRequestId(requestId).orElseThrow();
+        assertEquals(COMPLETED, saga.getState());
+        assertEquals(DepositDurationEnum.YEAR, saga.getDuration());
+        assertEquals(PercentPaymentTypeEnum.MONTHLY, saga.getPercentPaymentType());
+        assertEquals(0, new BigDecimal("50000").compareTo(saga.getAmount()));
+    }
+
+    @Test
+    void claimStale_claimsUnfinishedOnlyOncePerPeriod() {
+        Integer withdrawn = insertSaga();
+        sagaRepository.transition(withdrawn, CONFIRMED, WITHDRAWING, null);
+        sagaRepository.transition(withdrawn, WITHDRAWING, WITHDRAWN, null);
+        Integer rejected = insertSaga();
+        sagaRepository.transition(rejected, CONFIRMED, REJECTED, null);
+        jdbcTemplate.update("UPDATE deposit_opening_sagas SET updated_at = now() - interval '1 hour'");
+
+        List<DepositOpeningSaga> claimed = sagaRepository.claimStale(Duration.ofMinutes(5), 20, 100);
+
+        assertTrue(claimed.stream().anyMatch(saga -> saga.getRequestId().equals(withdrawn) && saga.getAttempts() == 1));
+        assertTrue(claimed.stream().noneMatch(saga -> saga.getRequestId().equals(rejected)));
+        assertTrue(sagaRepository.claimStale(Duration.ofMinutes(5), 20, 100).stream()
+                .noneMatch(saga -> saga.getRequestId().equals(withdrawn)));
+    }
+
+    @Test
+    void claimStale_skipsSagasOutOfAttempts() {
+        Integer withdrawing = insertSaga();
+        sagaRepository.transition(withdrawing, CONFIRMED, WITHDRAWING, null);
+        jdbcTemplate.update("UPDATE deposit_opening_sagas SET attempts = 3, updated_at = now() - interval '1 hour' " +
+                "WHERE request_id = ?", withdrawing);
+
+        assertTrue(sagaRepository.claimStale(Duration.ofMinutes(5), 3, 100).stream()
+                .noneMatch(saga -> saga.getRequestId().equals(withdrawing)));
+        assertTrue(sagaRepository.claimStale(Duration.ofMinutes(5), 4, 100).stream()
+                .anyMatch(saga -> saga.getRequestId().equals(withdrawing) && saga.getAttempts() == 4));
+    }
+
+    @Test
+    void batchOperations_applyOnlyFromExpectedState() {
+        Integer first = insertRequest();
+        Integer second = insertRequest();
+        sagaRepository.insertAll(List.of(saga(first, WITHDRAWING), saga(second, WITHDRAWING)));
+
+        assertEquals(1, sagaRepository.transitionAll(List.of(first), WITHDRAWING, WITHDRAWN, null));
+        assertEquals(1, sagaRepository.transitionAll(List.of(first, second), WITHDRAWING, REJECTED, "declined"));
+        assertEquals(1, sagaRepository.completeAll(Map.of(first, 11, second, 12)));
+
+        assertEquals(COMPLETED, sagaRepository.findByRequestId(first).orElseThrow().getState());
+        assertEquals(11, sagaRepository.findByRequestId(first).orElseThrow().getDepositId());
+        DepositOpeningSaga rejected = sagaRepository.findByRequestId(second).orElseThrow();
+        assertEquals(REJECTED, rejected.getState());
+        assertEquals("declined", rejected.getLastError());
+        assertNull(rejected.getDepositId());
+    }
+
+    @Test
+    void clientItemIds_findSagasOfPreviousAttempt() {
+        Integer first = insertRequest();
+        Integer second = insertRequest();
+        sagaRepository.insertAll(List.of(saga(first, WITHDRAWING), saga(second, REJECTED)));
+        sagaRepository.insertClientItemIds(Map.of("partner:key-1:0", first, "partner:key-1:1", second));
+
+        Map<String, DepositOpeningSaga> found = sagaRepository.findByClientItemIds(
+                List.of("partner:key-1:0", "partner:key-1:1", "partner:key-1:2"));
+
+        assertEquals(2, found.size());
+        assertEquals(first, found.get("partner:key-1:0").getRequestId());
+        assertEquals(REJECTED, found.get("partner:key-1:1").getState());
+
+        // повтор пачки не может связать тот же вклад клиента со второй заявкой
+        Integer duplicate = insertRequest();
+        sagaRepository.insert(saga(duplicate, WITHDRAWING));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> sagaRepository.insertClientItemIds(Map.of("partner:key-1:0", duplicate)));
+    }
+
+    private static Integer insertSaga() {
+        Integer requestId = insertRequest();
+        sagaRepository.insert(saga(requestId, CONFIRMED));
+        return requestId;
+    }
+
+    private static Integer insertRequest() {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO requests (request_date, deposit_amount, customer_id) " +
+                        "VALUES (current_date, 50000, 1) RETURNING id_request",
+                Integer.class
+        );
+    }
+
+    private static DepositOpeningSaga saga(Integer requestId, DepositOpeningStateEnum state) {
+        return new DepositOpeningSaga(requestId, 1, state, DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS,
+                DepositDurationEnum.YEAR, false, PercentPaymentTypeEnum.MONTHLY, new BigDecimal("50000"), null, 0, null);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.mts.depositservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import ru.mts.depositservice.model.IdempotentResponse;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.mts.depositservice.enums.ConfirmationOperationEnum.CLOSE;
+import static ru.mts.depositservice.enums.ConfirmationOperationEnum.REFILL;
+
+/**
+ * Закрепление ключей идемпотентности и хранение ответов
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class IdempotencyKeyRepositoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static JdbcTemplate jdbcTemplate;
+    private static IdempotencyKeyRepository keyRepository;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("shardCount", "16"))
+                .load()
+                .migrate();
+
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        keyRepository = new IdempotencyKeyRepository(jdbcTemplate);
+    }
+
+    @Test
+    void tryAcquire_onlyOnceUntilLeaseExpires() {
+        assertTrue(keyRepository.tryAcquire("acquire", CLOSE, "hash", Duration.ofMinutes(1), Duration.ofHours(1)));
+        assertFalse(keyRepository.tryAcquire("acquire", CLOSE, "hash", Duration.ofMinutes(1), Duration.ofHours(1)));
+        assertTrue(keyRepository.tryAcquire("acquire", REFILL, "hash", Duration.ofMinutes(1), Duration.ofHours(1)));
+
+        jdbcTemplate.update("UPDATE idempotency_keys SET locked_until = now() - interval '1 second' " +
+                "WHERE idempotency_key = 'acquire'");
+
+        assertTrue(keyRepository.tryAcquire("acquire", CLOSE, "hash", Duration.ofMinutes(1), Duration.ofHours(1)));
+    }
+
+    @Test
+    void complete_storesResponseThatCannotBeTakenOver() {
+        keyRepository.tryAcquire("complete", CLOSE, "hash", Duration.ZERO, Duration.ofHours(1));
+        assertFalse(keyRepository.find("complete", CLOSE).orElseThrow().isCompleted());
+
+        keyRepository.complete("complete", CLOSE, new IdempotentResponse("hash", 204, "application/json", new byte[]{1, 2}));
+
+        IdempotentResponse stored = keyRepository.find("complete", CLOSE).orElseThrow();
+        assertEquals(204, stored.getStatus());
+        assertArrayEquals(new byte[]{1, 2}, stored.getBody());
+        assertFalse(keyRepository.tryAcquire("complete", CLOSE, "hash", Duration.ZERO, Duration.ofHours(1)));
+    }
+
+    @Test
+    void releaseAndExpiry_allowKeyToBeReused() {
+        keyRepository.tryAcquire("release", CLOSE, "hash", Duration.ofMinutes(1), Duration.ofHours(1));
+        keyRepository.release("release", CLOSE);
+        assertTrue(keyRepository.find("release", CLOSE).isEmpty());
+
+        keyRepository.tryAcquire("expired", CLOSE, "hash", Duration.ZERO, Duration.ofHours(1));
+        keyRepository.complete("expired", CLOSE, new IdempotentResponse("hash", 204, null, null));
+        jdbcTemplate.update("UPDATE idempotency_keys SET expires_at = now() - interval '1 second' " +
+                "WHERE idempotency_key = 'expired'");
+        keyRepository.removeExpired();
+
+        assertTrue(keyRepository.find("expired", CLOSE).isEmpty());
+    }
+}
@@ -0,0 +1,217 @@
+package ru.mts.depositservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import ru.mts.depositservice.model.MaturedDeposit;
+import ru.mts.depositservice.model.MaturingDeposit;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Закрытие вкладов, срок которых закончился, на реальной базе данных
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MaturedDepositRepositoryTest {
+
+    private static final int CUSTOMER_ID = 1;
+    private static final LocalDate CLOSE_DATE = LocalDate.of(2024, 6, 1);
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static JdbcTemplate jdbcTemplate;
+    private static int accountSuffix;
+
+    private MaturedDepositRepository maturedRepository;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("shardCount", "16"))
+                .load()
+                .migrate();
+
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM account_outbox");
+        jdbcTemplate.update("DELETE FROM matured_deposits");
+        jdbcTemplate.update("DELETE FROM deposits");
+
+        maturedRepository = new MaturedDepositRepository(jdbcTemplate);
+    }
+
+    @Test
+    void findMaturedDeposits_pagesMaturedDepositsOfShard() {
+        Integer first = insertDeposit(CLOSE_DATE.minusDays(10), null);
+        Integer second = insertDeposit(CLOSE_DATE.minusDays(1), null);
+        insertDeposit(CLOSE_DATE, null);                                          // срок заканчивается сегодня
+        insertDeposit(CLOSE_DATE.minusDays(1), CLOSE_DATE.minusDays(1));          // проценты еще не выплачены
+
+        List<MaturingDeposit> firstPage = maturedRepository.findMaturedDeposits(CLOSE_DATE, 0, 1, null, null, 1);
+        assertEquals(List.of(new MaturingDeposit(first, CLOSE_DATE.minusDays(10))), firstPage);
+        List<MaturingDeposit> secondPage = maturedRepository.findMaturedDeposits(
+                CLOSE_DATE, 0, 1, CLOSE_DATE.minusDays(10), first, 1);
+        assertEquals(List.of(new MaturingDeposit(second, CLOSE_DATE.minusDays(1))), secondPage);
+        assertTrue(maturedRepository.findMaturedDeposits(CLOSE_DATE, 0, 1, CLOSE_DATE.minusDays(1), second, 1)
+                .isEmpty());
+
+        List<Integer> shard = maturedRepository.findMaturedDeposits(CLOSE_DATE, first % 2, 2, null, null, 10)
+                .stream()
+                .map(MaturingDeposit::getDepositId)
+                .toList();
+        assertEquals(Stream.of(first, second).filter(depositId -> depositId % 2 == first % 2).toList(), shard);
+    }
+
+    @Test
+    void shardIndexes_matchConfiguredShardCount() {
+        List<String> definitions = jdbcTemplate.queryForList(
+                "SELECT indexdef FROM pg_indexes WHERE indexname IN " +
+                        "('deposits_shard_percent_payment_date_idx', 'deposits_shard_end_date_idx', " +
+                        "'matured_deposits_shard_pending_idx')",
+                String.class);
+
+        // условие запросов mod(id_deposit, 16) = ? совпадает с выражением индексов
+        assertEquals(3, definitions.size());
+        assertTrue(definitions.stream().allMatch(definition -> definition.contains("mod(id_deposit, 16)")));
+    }
+
+    @Test
+    void archive_movesDepositAndItsRequest() {
+        Integer depositId = insertDeposit(CLOSE_DATE.minusDays(1), null);
+        insertRequest(depositId);
+
+        List<MaturedDeposit> archived = maturedRepository.archive(List.of(depositId), CLOSE_DATE);
+
+        assertEquals(1, archived.size());
+        MaturedDeposit deposit = archived.get(0);
+        assertEquals(depositId, deposit.getDepositId());
+        assertEquals(CUSTOMER_ID, deposit.getCustomerId());
+        assertEquals(0, new BigDecimal("10000").compareTo(deposit.getDepositAmount()));
+        assertNotNull(deposit.getRefundAccountId());
+
+        assertEquals(0, count("SELECT count(*) FROM deposits WHERE id_deposit = ?", depositId));
+        assertEquals(0, count("SELECT count(*) FROM requests WHERE deposit_id = ?", depositId));
+        assertEquals(1, count("SELECT count(*) FROM matured_deposits WHERE id_deposit = ? AND refund_status = 'PENDING'",
+                depositId));
+
+        // повторный перенос того же вклада ничего не возвращает
+        assertTrue(maturedRepository.archive(List.of(depositId), CLOSE_DATE).isEmpty());
+    }
+
+    @Test
+    void archive_skipsDepositsWithUnpaidInterest() {
+        Integer depositId = insertDeposit(CLOSE_DATE.minusDays(1), CLOSE_DATE.minusDays(1));
+
+        assertTrue(maturedRepository.archive(List.of(depositId), CLOSE_DATE).isEmpty());
+        assertEquals(1, count("SELECT count(*) FROM deposits WHERE id_deposit = ?", depositId));
+    }
+
+    @Test
+    void archive_skipsDepositsWithPendingRefill() {
+        Integer depositId = insertDeposit(CLOSE_DATE.minusDays(1), null);
+        jdbcTemplate.update(
+                "INSERT INTO account_outbox (operation_id, operation_type, request_id, customer_id, amount, status, " +
+                        "next_attempt_at, created_at, deposit_id, deposit_rate_delta) " +
+                        "VALUES (gen_random_uuid()::text, 'WITHDRAW', 1, ?, 5000, 'PENDING', now(), now(), ?, 0)",
+                CUSTOMER_ID,
+                depositId
+        );
+
+        assertTrue(maturedRepository.archive(List.of(depositId), CLOSE_DATE).isEmpty());
+
+        jdbcTemplate.update("UPDATE account_outbox SET status = 'SENT' WHERE deposit_id = ?", depositId);
+        assertEquals(1, maturedRepository.archive(List.of(depositId), CLOSE_DATE).size());
+    }
+
+    @Test
+    void pendingRefunds_untilMarked() {
+        Integer refunded = insertDeposit(CLOSE_DATE.minusDays(1), null);
+        Integer failed = insertDeposit(CLOSE_DATE.minusDays(1), null);
+        Integer pending = insertDeposit(CLOSE_DATE.minusDays(1), null);
+        maturedRepository.archive(List.of(refunded, failed, pending), CLOSE_DATE);
+
+        List<MaturedDeposit> first = maturedRepository.findPendingRefunds(0, 1, 0, 2);
+        assertEquals(List.of(refunded, failed), first.stream().map(MaturedDeposit::getDepositId).toList());
+
+        maturedRepository.markRefunded(List.of(refunded));
+        maturedRepository.markFailed(failed, "Account is closed");
+        maturedRepository.recordError(pending, "timeout");
+
+        List<MaturedDeposit> left = maturedRepository.findPendingRefunds(0, 1, 0, 2);
+        assertEquals(List.of(pending), left.stream().map(MaturedDeposit::getDepositId).toList());
+        assertEquals("REFUNDED", status(refunded));
+        assertEquals("FAILED", status(failed));
+        assertEquals("PENDING", status(pending));
+
+        // повторная отметка не меняет окончательный статус
+        maturedRepository.markRefunded(List.of(failed));
+        assertEquals("FAILED", status(failed));
+    }
+
+    private static String status(Integer depositId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT refund_status FROM matured_deposits WHERE id_deposit = ?", String.class, depositId);
+    }
+
+    private static int count(String sql, Integer depositId) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, depositId);
+    }
+
+    private static Integer insertDeposit(LocalDate endDate, LocalDate percentPaymentDate) {
+        accountSuffix++;
+        Integer depositAccountId = insertBankAccount("930000000000000" + String.format("%05d", accountSuffix));
+        Integer refundAccountId = insertBankAccount("940000000000000" + String.format("%05d", accountSuffix));
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO deposits (deposit_refill, deposit_withdraw, capitalization, deposit_amount, start_date, " +
+                        "end_date, deposit_rate, percent_payment_date, deposit_account_id, deposit_type_id, " +
+                        "type_percent_payment_id, percent_payment_account_id, deposit_refund_account_id, customer_id) " +
+                        "VALUES (true, true, false, 10000, ?, ?, 5.5, ?, ?, " +
+                        "(SELECT id_deposit_type FROM deposit_types WHERE deposit_type_name = 'DEPOSITS_AND_WITHDRAWALS'), " +
+                        "NULL, NULL, ?, ?) RETURNING id_deposit",
+                Integer.class,
+                Date.valueOf(endDate.minusMonths(3)),
+                Date.valueOf(endDate),
+                percentPaymentDate == null ? null : Date.valueOf(percentPaymentDate),
+                depositAccountId,
+                refundAccountId,
+                CUSTOMER_ID
+        );
+    }
+
+    private static Integer insertBankAccount(String number) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO bank_accounts (num_bank_account, amount) VALUES (?, 0) RETURNING id_bank_account",
+                Integer.class,
+                new BigDecimal(number)
+        );
+    }
+
+    private static void insertRequest(Integer depositId) {
+        jdbcTemplate.update(
+                "INSERT INTO requests (request_date, deposit_amount, customer_id, deposit_id) VALUES (current_date, 10000, ?, ?)",
+                CUSTOMER_ID,
+                depositId
+        );
+    }
+}
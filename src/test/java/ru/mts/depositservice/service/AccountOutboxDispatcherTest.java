@@ -0,0 +1,152 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.OutboxMessage;
+import ru.mts.depositservice.property.OutboxProperty;
+import ru.mts.depositservice.repository.AccountOutboxRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AccountOutboxDispatcherTest {
+
+    @Mock
+    AccountOutboxRepository outboxRepository;
+    @Mock
+    AccountClient accountClient;
+
+    private OutboxProperty outboxProperty;
+    private AccountOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        outboxProperty = new OutboxProperty();
+        outboxProperty.setMaxAttempts(3);
+        dispatcher = new AccountOutboxDispatcher(outboxRepository, accountClient, outboxProperty);
+
+        when(accountClient.findAccountId(anyInt())).thenAnswer(invocation -> 100 + (Integer) invocation.getArgument(0));
+    }
+
+    @Test
+    void dispatchBatch_sendsClaimedMessagesInOneBatch() {
+        when(outboxRepository.claim(anyInt(), any())).thenReturn(List.of(message(1L, 1, 1), message(2L, 2, 1)));
+        when(accountClient.isBatchingEnabled()).thenReturn(true);
+        when(accountClient.executeOperations(any())).thenReturn(List.of(
+                new AccountOperationResult("op-1", true, null),
+                new AccountOperationResult("op-2", true, null)
+        ));
+
+        assertEquals(2, dispatcher.dispatchBatch());
+
+        verify(accountClient).executeOperations(List.of(
+                new AccountOperation("op-1", AccountOperationTypeEnum.REFILL, 101, BigDecimal.TEN),
+                new AccountOperation("op-2", AccountOperationTypeEnum.REFILL, 102, BigDecimal.TEN)
+        ));
+        verify(outboxRepository).markSent(List.of(1L, 2L));
+        verify(outboxRepository, never()).retry(any(), any(), any());
+    }
+
+    @Test
+    void dispatchBatch_declinedOperationIsFailed() {
+        when(outboxRepository.claim(anyInt(), any())).thenReturn(List.of(message(1L, 1, 1), message(2L, 2, 1)));
+        when(accountClient.isBatchingEnabled()).thenReturn(true);
+        when(accountClient.executeOperations(any())).thenReturn(List.of(
+                new AccountOperationResult("op-1", true, null),
+                new AccountOperationResult("op-2", false, "Недостаточно средств")
+        ));
+
+        dispatcher.dispatchBatch();
+
+        verify(outboxRepository).markSent(List.of(1L));
+        verify(outboxRepository).markFailed(2L, "Недостаточно средств");
+    }
+
+    @Test
+    void dispatchBatch_declinedRefillWithdrawalRevertsDeposit() {
+        OutboxMessage withdrawal = new OutboxMessage(1L, "op-1", AccountOperationTypeEnum.WITHDRAW, 1, 1,
+                BigDecimal.TEN, 1);
+        when(outboxRepository.claim(anyInt(), any())).thenReturn(List.of(withdrawal));
+        when(accountClient.isBatchingEnabled()).thenReturn(false);
+        when(accountClient.executeOperation(any())).thenReturn(new AccountOperationResult("op-1", false, "Недостаточно средств"));
+        when(outboxRepository.failAndRevertRefill(1L, "Недостаточно средств")).thenReturn(true);
+
+        dispatcher.dispatchBatch();
+
+        verify(outboxRepository).failAndRevertRefill(1L, "Недостаточно средств");
+        verify(outboxRepository, never()).markFailed(any(), any());
+        verify(outboxRepository, never()).markSent(any());
+    }
+
+    @Test
+    void dispatchBatch_unknownOutcomeIsRetriedWithBackoff() {
+        when(outboxRepository.claim(anyInt(), any())).thenReturn(List.of(message(1L, 1, 2)));
+        when(accountClient.isBatchingEnabled()).thenReturn(false);
+        when(accountClient.executeOperation(any()))
+                .thenThrow(new ServiceUnavailableException("SERVICE_UNAVAILABLE", "timeout"));
+
+        dispatcher.dispatchBatch();
+
+        verify(outboxRepository).retry(eq(1L), eq(Duration.ofSeconds(2)), anyString());
+        verify(outboxRepository, never()).markSent(any());
+        verify(outboxRepository, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void dispatchBatch_lastAttemptIsFailed() {
+        when(outboxRepository.claim(anyInt(), any())).thenReturn(List.of(message(1L, 1, 3)));
+        when(accountClient.isBatchingEnabled()).thenReturn(false);
+        when(accountClient.executeOperation(any()))
+                .thenThrow(new ServiceUnavailableException("SERVICE_UNAVAILABLE", "timeout"));
+
+        dispatcher.dispatchBatch();
+
+        verify(outboxRepository).markFailed(1L, "timeout");
+        verify(outboxRepository, never()).retry(any(), any(), any());
+    }
+
+    @Test
+    void dispatchBatch_emptyClaimSendsNothing() {
+        when(outboxRepository.claim(anyInt(), any())).thenReturn(List.of());
+
+        assertEquals(0, dispatcher.dispatchBatch());
+
+        verifyNoInteractions(accountClient);
+    }
+
+    @Test
+    void backoff_isCappedByMaxBackoff() {
+        outboxProperty.setInitialBackoff(Duration.ofSeconds(1));
+        outboxProperty.setMaxBackoff(Duration.ofSeconds(10));
+
+        assertEquals(Duration.ofSeconds(1), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(8), dispatcher.backoff(4));
+        assertEquals(Duration.ofSeconds(10), dispatcher.backoff(5));
+        assertEquals(Duration.ofSeconds(10), dispatcher.backoff(100));
+    }
+
+    private static OutboxMessage message(Long id, Integer customerId, int attempts) {
+        return new OutboxMessage(id, "op-" + id, AccountOperationTypeEnum.REFILL, id.intValue(), customerId,
+                BigDecimal.TEN, attempts);
+    }
+}
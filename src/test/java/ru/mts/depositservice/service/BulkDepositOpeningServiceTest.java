@@ -0,0 +1,401 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.client.AccountOperationBatcher;
+import ru.mts.depositservice.client.CustomerClient;
+import ru.mts.depositservice.entity.BankAccount;
+import ru.mts.depositservice.entity.Customer;
+import ru.mts.depositservice.entity.Deposit;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.enums.BulkOpeningStatusEnum;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositOpeningStateEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.exception.ChannelNotAuthorizedException;
+import ru.mts.depositservice.exception.CustomException;
+import ru.mts.depositservice.exception.IdempotencyKeyException;
+import ru.mts.depositservice.exception.MinDepositAmountException;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.BulkOpeningResponse;
+import ru.mts.depositservice.model.DepositOpeningSaga;
+import ru.mts.depositservice.model.OpenDepositRequest;
+import ru.mts.depositservice.property.BulkOpeningProperty;
+import ru.mts.depositservice.property.IdempotencyProperty;
+import ru.mts.depositservice.property.ReplicaProperty;
+import ru.mts.depositservice.repository.DepositOpeningSagaRepository;
+import ru.mts.depositservice.repository.DepositRepository;
+import ru.mts.depositservice.repository.RequestRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static ru.mts.depositservice.enums.DepositOpeningStateEnum.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BulkDepositOpeningServiceTest {
+
+    private static final BigDecimal AMOUNT = BigDecimal.valueOf(50_000);
+    private static final BigDecimal RATE = new BigDecimal("7.5");
+    private static final String CHANNEL_TOKEN = "partner-token";
+    private static final String KEY = "batch-1";
+
+    @Mock
+    DepositService depositService;
+    @Mock
+    AccountClient accountClient;
+    @Mock
+    CustomerClient customerClient;
+    @Mock
+    RequestRepository requestRepository;
+    @Mock
+    DepositRepository depositRepository;
+    @Mock
+    RequestStatusService requestStatusService;
+    @Mock
+    ReferenceDataRegistry referenceDataRegistry;
+    @Mock
+    DepositOpeningSagaRepository sagaRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Mock
+    AccountOperationBatcher operationBatcher;
+
+    private final Map<Integer, Request> requests = new ConcurrentHashMap<>();
+    private final Set<Integer> declinedAccounts = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> poorAccounts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger ids = new AtomicInteger();
+    private BulkOpeningProperty bulkProperty;
+    private BulkDepositOpeningService bulkOpeningService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        bulkProperty = new BulkOpeningProperty();
+        bulkProperty.setAccountBatchSize(2);
+        bulkProperty.setChannels(Map.of("partner", CHANNEL_TOKEN));
+
+        doThrow(new MinDepositAmountException("MIN_AMOUNT_VIOLATION", "Минимальная сумма для открытия вклада - 10.000"))
+                .when(depositService).validateMinimumDepositAmount(argThat(amount -> amount.compareTo(AMOUNT) < 0));
+        when(depositService.buildDeposit(any(), any(), any())).thenAnswer(invocation -> {
+            Deposit deposit = new Deposit();
+            deposit.setDepositAmount(invocation.getArgument(2));
+            deposit.setDepositRate(RATE);
+            return deposit;
+        });
+        when(customerClient.findCustomer(any())).thenAnswer(invocation -> {
+            Integer customerId = invocation.getArgument(0);
+            return new Customer(customerId, "89170000000", new BankAccount(customerId * 10, BigDecimal.ONE, AMOUNT));
+        });
+        when(referenceDataRegistry.getRequestStatus(any()))
+                .thenAnswer(invocation -> new RequestStatus(null, invocation.getArgument(0)));
+        when(requestStatusService.createRequests(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Request> created = invocation.getArgument(0);
+            created.forEach(request -> {
+                request.setId(ids.incrementAndGet());
+                requests.put(request.getId(), request);
+            });
+            return created;
+        });
+        when(requestRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Request> found = new ArrayList<>();
+            ((Iterable<Integer>) invocation.getArgument(0)).forEach(id -> found.add(requests.get(id)));
+            return found;
+        });
+        when(depositRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Deposit> deposits = invocation.getArgument(0);
+            deposits.forEach(deposit -> deposit.setId(ids.incrementAndGet()));
+            return deposits;
+        });
+        when(sagaRepository.completeAll(anyMap()))
+                .thenAnswer(invocation -> ((Map<Integer, Integer>) invocation.getArgument(0)).size());
+        when(accountClient.executeOperations(anyList())).thenAnswer(invocation -> {
+            List<AccountOperation> operations = invocation.getArgument(0);
+            return operations.stream()
+                    .map(operation -> new AccountOperationResult(
+                            operation.getOperationId(),
+                            !(operation.getType() == AccountOperationTypeEnum.CHECK
+                                    ? poorAccounts
+                                    : declinedAccounts).contains(operation.getAccountId()),
+                            "Недостаточно средств"
+                    ))
+                    .toList();
+        });
+
+        bulkOpeningService = new BulkDepositOpeningService(
+                depositService,
+                accountClient,
+                customerClient,
+                requestRepository,
+                depositRepository,
+                requestStatusService,
+                referenceDataRegistry,
+                sagaRepository,
+                new TransactionTemplate(transactionManager),
+                new ReadYourWritesTracker(new ReplicaProperty()),
+                bulkProperty,
+                new IdempotencyProperty()
+        );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void openDeposits_validatesAllAndResolvesEachCustomerOnce() {
+        OpenDepositRequest missingTerms = openRequest(1);
+        missingTerms.setDuration(null);
+
+        BulkOpeningResponse response = bulkOpeningService.openDeposits(CHANNEL_TOKEN, KEY, List.of(
+                openRequest(1),
+                openRequest(1),
+                openRequest(2),
+                withAmount(openRequest(2), BigDecimal.valueOf(5_000)),
+                missingTerms
+        ));
+
+        assertEquals(3, response.getOpened());
+        assertEquals(2, response.getInvalid());
+        assertEquals(BulkOpeningStatusEnum.OPENED, response.getResults().get(0).getStatus());
+        assertEquals(RATE, response.getResults().get(2).getPercentageRate());
+        assertNotNull(response.getResults().get(2).getDepositId());
+        assertEquals("MIN_AMOUNT_VIOLATION", response.getResults().get(3).getErrorCode());
+        assertEquals("INVALID_REQUEST", response.getResults().get(4).getErrorCode());
+        assertNull(response.getResults().get(4).getRequestId());
+
+        verify(customerClient, times(1)).findCustomer(1);
+        verify(customerClient, times(1)).findCustomer(2);
+
+        // Проверка и списание для трех вкладов уходят пакетами по два
+        ArgumentCaptor<List<AccountOperation>> operations = ArgumentCaptor.forClass(List.class);
+        verify(accountClient, times(4)).executeOperations(operations.capture());
+        List<AccountOperation> withdrawals = operations.getAllValues().stream()
+                .flatMap(List::stream)
+                .filter(operation -> operation.getType() == AccountOperationTypeEnum.WITHDRAW)
+                .toList();
+        assertEquals(3, withdrawals.size());
+        assertTrue(withdrawals.stream().allMatch(operation -> operation.getOperationId().startsWith("deposit-opening-")));
+
+        ArgumentCaptor<List<DepositOpeningSaga>> sagas = ArgumentCaptor.forClass(List.class);
+        verify(sagaRepository).insertAll(sagas.capture());
+        assertTrue(sagas.getValue().stream().allMatch(saga -> saga.getState() == WITHDRAWING));
+        verify(sagaRepository).transitionAll(anyList(), eq(WITHDRAWING), eq(WITHDRAWN), isNull());
+        verify(depositRepository, times(1)).saveAll(anyList());
+        assertTrue(requests.values().stream().allMatch(request -> request.getDeposit() != null));
+    }
+
+    @Test
+    void openDeposits_rejectsWhenCheckFailsOrWithdrawalDeclined() {
+        poorAccounts.add(10);
+        declinedAccounts.add(20);
+
+        BulkOpeningResponse response = bulkOpeningService.openDeposits(
+                CHANNEL_TOKEN, KEY, List.of(openRequest(1), openRequest(2), openRequest(3)));
+
+        assertEquals(1, response.getOpened());
+        assertEquals(2, response.getRejected());
+        assertEquals(BulkOpeningStatusEnum.REJECTED, response.getResults().get(0).getStatus());
+        assertNotNull(response.getResults().get(0).getRequestId());          // отклоненная заявка сохраняется
+        assertEquals(BulkOpeningStatusEnum.REJECTED, response.getResults().get(1).getStatus());
+        assertEquals(BulkOpeningStatusEnum.OPENED, response.getResults().get(2).getStatus());
+
+        Integer declinedRequestId = response.getResults().get(1).getRequestId();
+        verify(sagaRepository).transitionAll(eq(List.of(declinedRequestId)), eq(WITHDRAWING), eq(REJECTED), any());
+        verify(requestStatusService).changeCurrentRequestStatuses(eq(List.of(requests.get(declinedRequestId))), any());
+        verify(depositService, times(1)).buildDeposit(any(), any(), any());
+    }
+
+    @Test
+    void openDeposits_leavesOpeningForReconciliationWhenWithdrawalOutcomeUnknown() {
+        when(accountClient.executeOperations(argThat(operations ->
+                operations != null && operations.get(0).getType() == AccountOperationTypeEnum.WITHDRAW)))
+                .thenThrow(new ServiceUnavailableException("SERVICE_UNAVAILABLE", "account-service недоступен"));
+
+        BulkOpeningResponse response = bulkOpeningService.openDeposits(CHANNEL_TOKEN, KEY, List.of(openRequest(1)));
+
+        assertEquals(1, response.getFailed());
+        assertEquals("SERVICE_UNAVAILABLE", response.getResults().get(0).getErrorCode());
+        Integer requestId = response.getResults().get(0).getRequestId();
+        verify(sagaRepository).recordError(requestId, "account-service недоступен");
+        verify(sagaRepository, never()).transitionAll(eq(List.of(requestId)), any(), any(), any());
+        verify(depositRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void openDeposits_compensatesWhenDepositsNotCreated() {
+        when(sagaRepository.completeAll(anyMap())).thenReturn(0);
+
+        BulkOpeningResponse response = bulkOpeningService.openDeposits(CHANNEL_TOKEN, KEY, List.of(openRequest(1)));
+
+        assertEquals(1, response.getFailed());
+        verify(sagaRepository).transitionAll(
+                eq(List.of(response.getResults().get(0).getRequestId())), eq(WITHDRAWN), eq(COMPENSATING), any());
+    }
+
+    @Test
+    void openDeposits_sendsOperationsOneByOneWhenBatchingDisabled() {
+        // Настоящий AccountClient: при выключенной пакетной отправке POST /account/batch не вызывается
+        when(operationBatcher.isEnabled()).thenReturn(false);
+        AccountClient unbatchedClient = spy(new AccountClient(null, null, null, operationBatcher));
+        doAnswer(invocation -> new AccountOperationResult(
+                invocation.<AccountOperation>getArgument(0).getOperationId(), true, null))
+                .when(unbatchedClient).executeOperation(any());
+        BulkDepositOpeningService unbatchedService = new BulkDepositOpeningService(
+                depositService,
+                unbatchedClient,
+                customerClient,
+                requestRepository,
+                depositRepository,
+                requestStatusService,
+                referenceDataRegistry,
+                sagaRepository,
+                new TransactionTemplate(transactionManager),
+                new ReadYourWritesTracker(new ReplicaProperty()),
+                bulkProperty,
+                new IdempotencyProperty()
+        );
+
+        BulkOpeningResponse response = unbatchedService.openDeposits(
+                CHANNEL_TOKEN, KEY, List.of(openRequest(1), openRequest(2), openRequest(3)));
+
+        assertEquals(3, response.getOpened());
+        verify(unbatchedClient, times(3)).executeOperation(argThat(operation ->
+                operation.getType() == AccountOperationTypeEnum.CHECK));
+        verify(unbatchedClient, times(3)).executeOperation(argThat(operation ->
+                operation.getType() == AccountOperationTypeEnum.WITHDRAW
+                        && operation.getOperationId().startsWith("deposit-opening-")));
+        verify(operationBatcher, never()).executeAll(anyList());
+    }
+
+    @Test
+    void openDeposits_replaysItemsOpenedWithSameKey() {
+        Deposit opened = new Deposit();
+        opened.setId(77);
+        opened.setDepositRate(RATE);
+        when(depositRepository.findAllById(List.of(77))).thenReturn(List.of(opened));
+        when(sagaRepository.findByClientItemIds(List.of("partner:batch-1:0", "partner:batch-1:1", "partner:batch-1:2")))
+                .thenReturn(Map.of(
+                        "partner:batch-1:0", saga(5, 1, COMPLETED, 77),
+                        "partner:batch-1:1", saga(6, 2, WITHDRAWING, null)
+                ));
+
+        BulkOpeningResponse response = bulkOpeningService.openDeposits(
+                CHANNEL_TOKEN, KEY, List.of(openRequest(1), openRequest(2), openRequest(3)));
+
+        assertEquals(2, response.getOpened());
+        assertEquals(1, response.getFailed());
+        assertEquals(5, response.getResults().get(0).getRequestId());
+        assertEquals(77, response.getResults().get(0).getDepositId());
+        assertEquals(RATE, response.getResults().get(0).getPercentageRate());
+        assertEquals("OPENING_IN_PROGRESS", response.getResults().get(1).getErrorCode());
+        assertEquals(BulkOpeningStatusEnum.OPENED, response.getResults().get(2).getStatus());
+
+        // Заявки и операции со счетами создаются только для вклада, которого не было в предыдущей попытке
+        verify(customerClient, never()).findCustomer(1);
+        verify(customerClient, never()).findCustomer(2);
+        verify(accountClient, times(2)).executeOperations(argThat(operations ->
+                operations.size() == 1 && operations.get(0).getAccountId() == 30));
+        verify(sagaRepository).insertClientItemIds(Map.of("partner:batch-1:2", response.getResults().get(2).getRequestId()));
+    }
+
+    @Test
+    void openDeposits_rejectsKeyReusedForAnotherDeposit() {
+        when(sagaRepository.findByClientItemIds(anyList()))
+                .thenReturn(Map.of("partner:batch-1:0", saga(5, 2, COMPLETED, 77)));
+
+        BulkOpeningResponse response = bulkOpeningService.openDeposits(CHANNEL_TOKEN, KEY, List.of(openRequest(1)));
+
+        assertEquals(1, response.getInvalid());
+        assertEquals("IDEMPOTENCY_KEY_REUSED", response.getResults().get(0).getErrorCode());
+        verifyNoInteractions(accountClient);
+    }
+
+    @Test
+    void openDeposits_rejectsUnauthorizedChannel() {
+        assertThrows(ChannelNotAuthorizedException.class,
+                () -> bulkOpeningService.openDeposits("other-token", KEY, List.of(openRequest(1))));
+        assertThrows(ChannelNotAuthorizedException.class,
+                () -> bulkOpeningService.openDeposits(null, KEY, List.of(openRequest(1))));
+
+        bulkProperty.setChannels(Map.of());
+        assertThrows(ChannelNotAuthorizedException.class,
+                () -> bulkOpeningService.openDeposits(CHANNEL_TOKEN, KEY, List.of(openRequest(1))));
+
+        verifyNoInteractions(customerClient, accountClient, sagaRepository);
+    }
+
+    @Test
+    void openDeposits_requiresIdempotencyKey() {
+        IdempotencyKeyException e = assertThrows(IdempotencyKeyException.class,
+                () -> bulkOpeningService.openDeposits(CHANNEL_TOKEN, null, List.of(openRequest(1))));
+
+        assertEquals("INVALID_IDEMPOTENCY_KEY", e.getCode());
+        assertThrows(IdempotencyKeyException.class,
+                () -> bulkOpeningService.openDeposits(CHANNEL_TOKEN, " ", List.of(openRequest(1))));
+        verifyNoInteractions(customerClient, accountClient, sagaRepository);
+    }
+
+    @Test
+    void openDeposits_rejectsTooLargeBatch() {
+        bulkProperty.setMaxItems(1);
+
+        CustomException e = assertThrows(CustomException.class,
+                () -> bulkOpeningService.openDeposits(CHANNEL_TOKEN, KEY, List.of(openRequest(1), openRequest(2))));
+
+        assertEquals("BULK_LIMIT_EXCEEDED", e.getCode());
+        verifyNoInteractions(customerClient, accountClient);
+    }
+
+    @Test
+    void openDeposits_emptyBatch() {
+        BulkOpeningResponse response = bulkOpeningService.openDeposits(CHANNEL_TOKEN, KEY, Collections.emptyList());
+
+        assertTrue(response.getResults().isEmpty());
+        verifyNoInteractions(accountClient, sagaRepository);
+    }
+
+    private static OpenDepositRequest openRequest(Integer customerId) {
+        OpenDepositRequest openRequest = new OpenDepositRequest();
+        openRequest.setCustomerId(customerId);
+        openRequest.setDepositAmount(AMOUNT);
+        openRequest.setDepositType(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS);
+        openRequest.setDuration(DepositDurationEnum.YEAR);
+        openRequest.setIsCapitalized(true);
+        return openRequest;
+    }
+
+    private static DepositOpeningSaga saga(Integer requestId, Integer customerId, DepositOpeningStateEnum state,
+                                           Integer depositId) {
+        return new DepositOpeningSaga(requestId, customerId, state, DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS,
+                DepositDurationEnum.YEAR, true, null, AMOUNT, depositId, 0, null);
+    }
+
+    private static OpenDepositRequest withAmount(OpenDepositRequest openRequest, BigDecimal amount) {
+        openRequest.setDepositAmount(amount);
+        return openRequest;
+    }
+}
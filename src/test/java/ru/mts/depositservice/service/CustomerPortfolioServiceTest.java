@@ -0,0 +1,125 @@
+package ru.mts.depositservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.model.PortfolioPage;
+import ru.mts.depositservice.model.RejectedRequestView;
+import ru.mts.depositservice.property.PortfolioProperty;
+import ru.mts.depositservice.property.ReplicaProperty;
+import ru.mts.depositservice.repository.CustomerPortfolioRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CustomerPortfolioServiceTest {
+
+    private static final Integer CUSTOMER_ID = 1;
+    private static final Integer REJECTED_STATUS_ID = 4;
+
+    @Mock
+    CustomerPortfolioRepository portfolioRepository;
+    @Mock
+    ReferenceDataRegistry referenceDataRegistry;
+
+    private PortfolioProperty portfolioProperty;
+    private CustomerPortfolioService portfolioService;
+
+    @BeforeEach
+    void setUp() {
+        portfolioProperty = new PortfolioProperty();
+        portfolioProperty.setPageSize(2);
+        portfolioProperty.setMaxPageSize(3);
+        portfolioProperty.setStreamFetchSize(50);
+
+        when(referenceDataRegistry.getRequestStatus(RequestStatusEnum.REJECTED))
+                .thenReturn(new RequestStatus(REJECTED_STATUS_ID, RequestStatusEnum.REJECTED));
+
+        portfolioService = new CustomerPortfolioService(
+                portfolioRepository,
+                referenceDataRegistry,
+                portfolioProperty,
+                new ObjectMapper().registerModule(new JavaTimeModule()),
+                new ReadYourWritesTracker(new ReplicaProperty())
+        );
+    }
+
+    @Test
+    void findRejectedRequestsPage_moreRows_returnsCursor() {
+        when(portfolioRepository.findRejectedRequestsPage(CUSTOMER_ID, REJECTED_STATUS_ID, 0, 3))
+                .thenReturn(requests(1, 3));
+
+        PortfolioPage<RejectedRequestView> page = portfolioService.findRejectedRequestsPage(CUSTOMER_ID, null, null);
+
+        assertEquals(requests(1, 2), page.getItems());
+        assertEquals(2, page.getNextAfterId());
+    }
+
+    @Test
+    void findRejectedRequestsPage_lastPage_noCursor() {
+        when(portfolioRepository.findRejectedRequestsPage(CUSTOMER_ID, REJECTED_STATUS_ID, 2, 3))
+                .thenReturn(requests(3, 1));
+
+        PortfolioPage<RejectedRequestView> page = portfolioService.findRejectedRequestsPage(CUSTOMER_ID, 2, null);
+
+        assertEquals(requests(3, 1), page.getItems());
+        assertNull(page.getNextAfterId());
+    }
+
+    @Test
+    void findDepositsPage_limitAboveMaximum_clamped() {
+        portfolioService.findDepositsPage(CUSTOMER_ID, 10, 1000);
+        portfolioService.findDepositsPage(CUSTOMER_ID, 10, 0);
+
+        verify(portfolioRepository).findDepositsPage(CUSTOMER_ID, 10, 4);
+        verify(portfolioRepository).findDepositsPage(CUSTOMER_ID, 10, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamRejectedRequests_writesOneObjectPerLine() {
+        doAnswer(invocation -> {
+            Consumer<RejectedRequestView> consumer = invocation.getArgument(3);
+            requests(1, 3).forEach(consumer);
+            return null;
+        }).when(portfolioRepository).streamRejectedRequests(eq(CUSTOMER_ID), eq(REJECTED_STATUS_ID), anyInt(), any(Consumer.class));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        portfolioService.streamRejectedRequests(CUSTOMER_ID, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].startsWith("{\"id\":" + (i + 1) + ","), lines[i]);
+        }
+        assertTrue(output.toString(StandardCharsets.UTF_8).endsWith("}\n"));
+        verify(portfolioRepository).streamRejectedRequests(eq(CUSTOMER_ID), eq(REJECTED_STATUS_ID), eq(50), any(Consumer.class));
+    }
+
+    private static List<RejectedRequestView> requests(int firstId, int count) {
+        return IntStream.range(firstId, firstId + count)
+                .mapToObj(id -> new RejectedRequestView(id, LocalDate.of(2024, 1, 1), BigDecimal.TEN, null))
+                .toList();
+    }
+}
@@ -0,0 +1,263 @@
+package ru.mts.depositservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.client.AccountOperationBatcher;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.MaturedDeposit;
+import ru.mts.depositservice.model.MaturingDeposit;
+import ru.mts.depositservice.model.MaturityRunStats;
+import ru.mts.depositservice.property.MaturityProperty;
+import ru.mts.depositservice.repository.MaturedDepositRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DepositMaturityServiceTest {
+
+    private static final LocalDate CLOSE_DATE = LocalDate.of(2024, 6, 1);
+    private static final int SHARD = 1;
+    private static final int SHARD_COUNT = 4;
+
+    @Mock
+    MaturedDepositRepository maturedRepository;
+    @Mock
+    AccountClient accountClient;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Mock
+    ShardLeaseManager shardLeaseManager;
+    @Mock
+    AccountOperationBatcher operationBatcher;
+
+    private MaturityProperty maturityProperty;
+    private SimpleMeterRegistry meterRegistry;
+    private DepositMaturityService maturityService;
+
+    @BeforeEach
+    void setUp() {
+        maturityProperty = new MaturityProperty();
+        maturityProperty.setChunkSize(2);
+        maturityProperty.setRefundBatchSize(2);
+
+        meterRegistry = new SimpleMeterRegistry();
+        maturityService = new DepositMaturityService(
+                maturedRepository,
+                accountClient,
+                maturityProperty,
+                new TransactionTemplate(transactionManager),
+                shardLeaseManager,
+                meterRegistry
+        );
+        maturityService.init();
+
+        when(shardLeaseManager.getShardCount()).thenReturn(SHARD_COUNT);
+        doAnswer(invocation -> {
+            invocation.<IntConsumer>getArgument(0).accept(SHARD);
+            return null;
+        }).when(shardLeaseManager).runOnOwnedShards(any());
+        when(maturedRepository.findPendingRefunds(anyInt(), anyInt(), anyInt(), anyInt())).thenReturn(List.of());
+    }
+
+    @Test
+    void closeMatured_archivesChunksAndRefunds() {
+        streamDeposits(1, 2, 3);
+        when(maturedRepository.archive(List.of(1, 2), CLOSE_DATE)).thenReturn(List.of(matured(1), matured(2)));
+        when(maturedRepository.archive(List.of(3), CLOSE_DATE)).thenReturn(List.of(matured(3)));
+        when(accountClient.executeOperations(anyList())).thenAnswer(invocation -> succeed(invocation.getArgument(0)));
+
+        MaturityRunStats stats = maturityService.closeMatured(CLOSE_DATE);
+
+        assertEquals(3, stats.getClosed());
+        assertEquals(3, stats.getRefunded());
+        assertEquals(2, stats.getChunks());
+        assertEquals(new BigDecimal("60000"), stats.getRefundedAmount());
+
+        verify(accountClient).executeOperations(List.of(refill(1), refill(2)));
+        verify(accountClient).executeOperations(List.of(refill(3)));
+        verify(maturedRepository).markRefunded(List.of(1, 2));
+        verify(maturedRepository).markRefunded(List.of(3));
+
+        assertSame(stats, maturityService.getLastRunStats());
+        assertEquals(3, meterRegistry.get("deposit.maturity.closed").counter().count());
+        assertEquals(3, meterRegistry.get("deposit.maturity.progress").gauge().value());
+    }
+
+    @Test
+    void closeMatured_refundsAfterEachPageQuery() {
+        streamDeposits(1, 2, 3);
+        when(maturedRepository.archive(List.of(1, 2), CLOSE_DATE)).thenReturn(List.of(matured(1), matured(2)));
+        when(maturedRepository.archive(List.of(3), CLOSE_DATE)).thenReturn(List.of(matured(3)));
+        when(accountClient.executeOperations(anyList())).thenAnswer(invocation -> succeed(invocation.getArgument(0)));
+
+        maturityService.closeMatured(CLOSE_DATE);
+
+        // страница читается отдельным запросом, возврат выполняется после него, а не внутри чтения
+        var inOrder = inOrder(maturedRepository, accountClient);
+        inOrder.verify(maturedRepository).findMaturedDeposits(eq(CLOSE_DATE), eq(SHARD), eq(SHARD_COUNT), isNull(),
+                isNull(), eq(2));
+        inOrder.verify(accountClient).executeOperations(List.of(refill(1), refill(2)));
+        inOrder.verify(maturedRepository).findMaturedDeposits(CLOSE_DATE, SHARD, SHARD_COUNT,
+                CLOSE_DATE.minusDays(1), 2, 2);
+        inOrder.verify(accountClient).executeOperations(List.of(refill(3)));
+        inOrder.verify(maturedRepository).findMaturedDeposits(CLOSE_DATE, SHARD, SHARD_COUNT,
+                CLOSE_DATE.minusDays(1), 3, 2);
+    }
+
+    @Test
+    void closeMatured_skipsDepositsClosedConcurrently() {
+        streamDeposits(1, 2);
+        when(maturedRepository.archive(List.of(1, 2), CLOSE_DATE)).thenReturn(List.of(matured(2)));
+        when(accountClient.executeOperations(anyList())).thenAnswer(invocation -> succeed(invocation.getArgument(0)));
+
+        MaturityRunStats stats = maturityService.closeMatured(CLOSE_DATE);
+
+        assertEquals(1, stats.getClosed());
+        verify(accountClient).executeOperations(List.of(refill(2)));
+        verify(maturedRepository).markRefunded(List.of(2));
+    }
+
+    @Test
+    void closeMatured_marksDeclinedRefundsFailed() {
+        streamDeposits(1, 2);
+        when(maturedRepository.archive(List.of(1, 2), CLOSE_DATE)).thenReturn(List.of(matured(1), matured(2)));
+        when(accountClient.executeOperations(anyList())).thenReturn(List.of(
+                new AccountOperationResult("deposit-maturity-1", true, null),
+                new AccountOperationResult("deposit-maturity-2", false, "Account is closed")
+        ));
+
+        MaturityRunStats stats = maturityService.closeMatured(CLOSE_DATE);
+
+        assertEquals(1, stats.getRefunded());
+        assertEquals(1, stats.getFailed());
+        verify(maturedRepository).markRefunded(List.of(1));
+        verify(maturedRepository).markFailed(2, "Account is closed");
+    }
+
+    @Test
+    void closeMatured_keepsRefundsPendingWhenAccountServiceUnavailable() {
+        streamDeposits(1);
+        when(maturedRepository.archive(List.of(1), CLOSE_DATE)).thenReturn(List.of(matured(1)));
+        when(accountClient.executeOperations(anyList()))
+                .thenThrow(new ServiceUnavailableException("SERVICE_UNAVAILABLE", "timeout"));
+
+        MaturityRunStats stats = maturityService.closeMatured(CLOSE_DATE);
+
+        assertEquals(1, stats.getClosed());
+        assertEquals(0, stats.getRefunded());
+        assertEquals(1, stats.getDeferred());
+        verify(maturedRepository).recordError(1, "timeout");
+        verify(maturedRepository, never()).markRefunded(anyList());
+        verify(maturedRepository, never()).markFailed(anyInt(), any());
+    }
+
+    @Test
+    void closeMatured_retriesPendingRefundsBeforeClosing() {
+        streamDeposits();
+        when(maturedRepository.findPendingRefunds(SHARD, SHARD_COUNT, 0, 2)).thenReturn(List.of(matured(4), matured(5)));
+        when(maturedRepository.findPendingRefunds(SHARD, SHARD_COUNT, 5, 2)).thenReturn(List.of());
+        when(accountClient.executeOperations(anyList())).thenAnswer(invocation -> succeed(invocation.getArgument(0)));
+
+        MaturityRunStats stats = maturityService.closeMatured(CLOSE_DATE);
+
+        assertEquals(0, stats.getClosed());
+        assertEquals(2, stats.getRefunded());
+        verify(accountClient).executeOperations(List.of(refill(4), refill(5)));
+        verify(maturedRepository).markRefunded(List.of(4, 5));
+        verify(maturedRepository, never()).archive(anyList(), any());
+    }
+
+    @Test
+    void closeMatured_refundsOneByOneWhenBatchingDisabled() {
+        // Настоящий AccountClient: при выключенной пакетной отправке POST /account/batch не вызывается
+        when(operationBatcher.isEnabled()).thenReturn(false);
+        AccountClient unbatchedClient = spy(new AccountClient(null, null, null, operationBatcher));
+        doAnswer(invocation -> new AccountOperationResult(
+                invocation.<AccountOperation>getArgument(0).getOperationId(), true, null))
+                .when(unbatchedClient).executeOperation(any());
+        DepositMaturityService unbatchedService = new DepositMaturityService(
+                maturedRepository,
+                unbatchedClient,
+                maturityProperty,
+                new TransactionTemplate(transactionManager),
+                shardLeaseManager,
+                meterRegistry
+        );
+        unbatchedService.init();
+
+        streamDeposits(1, 2);
+        when(maturedRepository.archive(List.of(1, 2), CLOSE_DATE)).thenReturn(List.of(matured(1), matured(2)));
+
+        MaturityRunStats stats = unbatchedService.closeMatured(CLOSE_DATE);
+
+        assertEquals(2, stats.getRefunded());
+        assertEquals(0, stats.getDeferred());
+        verify(unbatchedClient).executeOperation(refill(1));
+        verify(unbatchedClient).executeOperation(refill(2));
+        verify(operationBatcher, never()).executeAll(anyList());
+        verify(maturedRepository).markRefunded(List.of(1, 2));
+    }
+
+    /**
+     * Отдает вклады страницами по размеру части; все вклады заканчиваются в один день
+     */
+    private void streamDeposits(int... depositIds) {
+        LocalDate endDate = CLOSE_DATE.minusDays(1);
+        List<MaturingDeposit> deposits = Arrays.stream(depositIds)
+                .mapToObj(depositId -> new MaturingDeposit(depositId, endDate))
+                .toList();
+        int chunkSize = maturityProperty.getChunkSize();
+        when(maturedRepository.findMaturedDeposits(eq(CLOSE_DATE), eq(SHARD), eq(SHARD_COUNT), isNull(), isNull(),
+                eq(chunkSize))).thenReturn(deposits.subList(0, Math.min(chunkSize, deposits.size())));
+        for (int from = chunkSize; from <= deposits.size(); from += chunkSize) {
+            when(maturedRepository.findMaturedDeposits(CLOSE_DATE, SHARD, SHARD_COUNT, endDate,
+                    deposits.get(from - 1).getDepositId(), chunkSize))
+                    .thenReturn(new ArrayList<>(deposits.subList(from, Math.min(from + chunkSize, deposits.size()))));
+        }
+    }
+
+    private static List<AccountOperationResult> succeed(List<AccountOperation> operations) {
+        return operations.stream()
+                .map(operation -> new AccountOperationResult(operation.getOperationId(), true, null))
+                .toList();
+    }
+
+    private static MaturedDeposit matured(int depositId) {
+        return new MaturedDeposit(depositId, 10, new BigDecimal("20000"), 100 + depositId);
+    }
+
+    private static AccountOperation refill(int depositId) {
+        return new AccountOperation(
+                "deposit-maturity-" + depositId,
+                AccountOperationTypeEnum.REFILL,
+                100 + depositId,
+                new BigDecimal("20000")
+        );
+    }
+}
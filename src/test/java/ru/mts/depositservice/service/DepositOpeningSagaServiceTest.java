@@ -0,0 +1,263 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.client.CustomerClient;
+import ru.mts.depositservice.entity.BankAccount;
+import ru.mts.depositservice.entity.Customer;
+import ru.mts.depositservice.entity.Deposit;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositOpeningStateEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.exception.CustomException;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.DepositOpeningSaga;
+import ru.mts.depositservice.model.OpenDepositRequest;
+import ru.mts.depositservice.property.DepositOpeningProperty;
+import ru.mts.depositservice.repository.DepositOpeningSagaRepository;
+import ru.mts.depositservice.repository.RequestRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static ru.mts.depositservice.enums.DepositOpeningStateEnum.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DepositOpeningSagaServiceTest {
+
+    private static final Integer REQUEST_ID = 1;
+    private static final Integer CUSTOMER_ID = 2;
+    private static final Integer ACCOUNT_ID = 20;
+    private static final BigDecimal AMOUNT = BigDecimal.valueOf(50_000);
+
+    @Mock
+    DepositOpeningSagaRepository sagaRepository;
+    @Mock
+    DepositService depositService;
+    @Mock
+    AccountClient accountClient;
+    @Mock
+    CustomerClient customerClient;
+    @Mock
+    RequestRepository requestRepository;
+    @Mock
+    RequestStatusService requestStatusService;
+    @Mock
+    ReferenceDataRegistry referenceDataRegistry;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private Request request;
+    private OpenDepositRequest openRequest;
+    private Customer customer;
+    private DepositOpeningSagaService openingSaga;
+
+    @BeforeEach
+    void setUp() {
+        request = new Request();
+        request.setId(REQUEST_ID);
+        request.setAmount(AMOUNT);
+
+        openRequest = new OpenDepositRequest();
+        openRequest.setRequestId(REQUEST_ID);
+        openRequest.setCustomerId(CUSTOMER_ID);
+        openRequest.setDepositAmount(AMOUNT);
+        openRequest.setDepositType(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS);
+        openRequest.setDuration(DepositDurationEnum.YEAR);
+        openRequest.setIsCapitalized(true);
+
+        customer = new Customer();
+        customer.setId(CUSTOMER_ID);
+        customer.setBankAccount(new BankAccount(ACCOUNT_ID, BigDecimal.ONE, AMOUNT));
+
+        when(customerClient.findCustomer(CUSTOMER_ID)).thenReturn(customer);
+        when(requestRepository.findById(REQUEST_ID)).thenReturn(Optional.of(request));
+        when(referenceDataRegistry.getRequestStatus(any()))
+                .thenAnswer(invocation -> new RequestStatus(null, invocation.getArgument(0)));
+        when(sagaRepository.transition(anyInt(), any(), any(), any())).thenReturn(true);
+        when(sagaRepository.complete(anyInt(), any())).thenReturn(true);
+        when(accountClient.executeOperation(any())).thenAnswer(invocation ->
+                new AccountOperationResult(invocation.<AccountOperation>getArgument(0).getOperationId(), true, null));
+
+        openingSaga = new DepositOpeningSagaService(
+                sagaRepository,
+                depositService,
+                accountClient,
+                customerClient,
+                requestRepository,
+                requestStatusService,
+                referenceDataRegistry,
+                new TransactionTemplate(transactionManager),
+                new DepositOpeningProperty()
+        );
+    }
+
+    @Test
+    void open_withdrawsAndCreatesDepositInSeparateTransactions() {
+        Deposit deposit = new Deposit();
+        deposit.setId(10);
+        when(depositService.createDeposit(openRequest, customer)).thenReturn(deposit);
+
+        assertSame(deposit, openingSaga.open(request, openRequest));
+
+        var inOrder = inOrder(sagaRepository, accountClient, depositService);
+        inOrder.verify(sagaRepository).transition(REQUEST_ID, CONFIRMED, WITHDRAWING, null);
+        inOrder.verify(accountClient).executeOperation(withdrawal(REQUEST_ID));
+        inOrder.verify(sagaRepository).transition(REQUEST_ID, WITHDRAWING, WITHDRAWN, null);
+        inOrder.verify(depositService).createDeposit(openRequest, customer);
+        inOrder.verify(sagaRepository).complete(REQUEST_ID, 10);
+        verify(transactionManager, times(2)).commit(any());
+        verify(accountClient, never()).executeOperation(refund(REQUEST_ID));
+    }
+
+    @Test
+    void open_depositNotCreated_refundsAndRejects() {
+        when(depositService.createDeposit(openRequest, customer)).thenThrow(new IllegalStateException("db down"));
+
+        assertThrows(IllegalStateException.class, () -> openingSaga.open(request, openRequest));
+
+        verify(transactionManager).rollback(any());
+        verify(sagaRepository).transition(REQUEST_ID, WITHDRAWN, COMPENSATING, "db down");
+        verify(accountClient).executeOperation(refund(REQUEST_ID));
+        verify(sagaRepository).transition(REQUEST_ID, COMPENSATING, COMPENSATED, null);
+        verify(requestStatusService).changeCurrentRequestStatus(eq(request),
+                eq(new RequestStatus(null, RequestStatusEnum.REJECTED)));
+    }
+
+    @Test
+    void open_refundFails_leftForRecovery() {
+        when(depositService.createDeposit(openRequest, customer)).thenThrow(new IllegalStateException("db down"));
+        doThrow(new ServiceUnavailableException("SERVICE_UNAVAILABLE", "account-service"))
+                .when(accountClient).executeOperation(refund(REQUEST_ID));
+
+        assertThrows(IllegalStateException.class, () -> openingSaga.open(request, openRequest));
+
+        verify(sagaRepository).recordError(REQUEST_ID, "account-service");
+        verify(sagaRepository, never()).transition(REQUEST_ID, COMPENSATING, COMPENSATED, null);
+    }
+
+    @Test
+    void open_withdrawalDeclined_rejectsWithoutRefund() {
+        when(accountClient.executeOperation(withdrawal(REQUEST_ID)))
+                .thenReturn(new AccountOperationResult("deposit-opening-1", false, "Недостаточно средств"));
+
+        assertThrows(CustomException.class, () -> openingSaga.open(request, openRequest));
+
+        verify(sagaRepository).transition(REQUEST_ID, WITHDRAWING, REJECTED, "Недостаточно средств");
+        verify(accountClient, never()).executeOperation(refund(REQUEST_ID));
+        verifyNoInteractions(depositService);
+    }
+
+    @Test
+    void open_withdrawalOutcomeUnknown_keepsWithdrawingState() {
+        doThrow(new ServiceUnavailableException("SERVICE_UNAVAILABLE", "timeout"))
+                .when(accountClient).executeOperation(withdrawal(REQUEST_ID));
+
+        assertThrows(ServiceUnavailableException.class, () -> openingSaga.open(request, openRequest));
+
+        verify(sagaRepository).recordError(REQUEST_ID, "timeout");
+        verify(sagaRepository, never()).transition(eq(REQUEST_ID), eq(WITHDRAWING), any(), any());
+        verify(accountClient, never()).executeOperation(refund(REQUEST_ID));
+    }
+
+    @Test
+    void recover_completesWithdrawnAndRetriesRefund() {
+        Deposit deposit = new Deposit();
+        deposit.setId(11);
+        when(depositService.createDeposit(any(), eq(customer))).thenReturn(deposit);
+        when(sagaRepository.claimStale(any(), anyInt(), anyInt())).thenReturn(List.of(
+                saga(REQUEST_ID, WITHDRAWN),
+                saga(3, COMPENSATING)
+        ));
+        when(requestRepository.findById(3)).thenReturn(Optional.of(new Request()));
+
+        openingSaga.recover();
+
+        verify(sagaRepository).complete(REQUEST_ID, 11);
+        verify(accountClient).executeOperation(refund(3));
+        verify(sagaRepository).transition(3, COMPENSATING, COMPENSATED, null);
+    }
+
+    @Test
+    void recover_resendsInterruptedWithdrawalWithSameOperationId() {
+        Deposit deposit = new Deposit();
+        deposit.setId(12);
+        when(depositService.createDeposit(any(), eq(customer))).thenReturn(deposit);
+        when(sagaRepository.claimStale(any(), anyInt(), anyInt())).thenReturn(List.of(saga(REQUEST_ID, WITHDRAWING)));
+
+        openingSaga.recover();
+
+        var inOrder = inOrder(sagaRepository, accountClient);
+        inOrder.verify(accountClient).executeOperation(withdrawal(REQUEST_ID));
+        inOrder.verify(sagaRepository).transition(REQUEST_ID, WITHDRAWING, WITHDRAWN, null);
+        inOrder.verify(sagaRepository).complete(REQUEST_ID, 12);
+    }
+
+    @Test
+    void recover_interruptedWithdrawalDeclined_rejects() {
+        when(sagaRepository.claimStale(any(), anyInt(), anyInt())).thenReturn(List.of(saga(REQUEST_ID, WITHDRAWING)));
+        when(accountClient.executeOperation(withdrawal(REQUEST_ID)))
+                .thenReturn(new AccountOperationResult("deposit-opening-1", false, "Недостаточно средств"));
+
+        openingSaga.recover();
+
+        verify(sagaRepository).transition(REQUEST_ID, WITHDRAWING, REJECTED, "Недостаточно средств");
+        verify(requestStatusService).changeCurrentRequestStatus(eq(request),
+                eq(new RequestStatus(null, RequestStatusEnum.REJECTED)));
+        verifyNoInteractions(depositService);
+    }
+
+    @Test
+    void recover_refundDeclined_keepsCompensating() {
+        when(sagaRepository.claimStale(any(), anyInt(), anyInt())).thenReturn(List.of(saga(3, COMPENSATING)));
+        when(accountClient.executeOperation(refund(3)))
+                .thenReturn(new AccountOperationResult("deposit-opening-refund-3", false, "Счет заблокирован"));
+
+        openingSaga.recover();
+
+        verify(sagaRepository).recordError(3, "Счет заблокирован");
+        verify(sagaRepository, never()).transition(3, COMPENSATING, COMPENSATED, null);
+    }
+
+    @Test
+    void recover_claimsOnlySagasBelowAttemptLimit() {
+        openingSaga.recover();
+
+        verify(sagaRepository).claimStale(any(), eq(new DepositOpeningProperty().getMaxRecoveryAttempts()), anyInt());
+    }
+
+    private static AccountOperation withdrawal(Integer requestId) {
+        return new AccountOperation("deposit-opening-" + requestId, AccountOperationTypeEnum.WITHDRAW, ACCOUNT_ID, AMOUNT);
+    }
+
+    private static AccountOperation refund(Integer requestId) {
+        return new AccountOperation("deposit-opening-refund-" + requestId, AccountOperationTypeEnum.REFILL, ACCOUNT_ID,
+                AMOUNT);
+    }
+
+    private static DepositOpeningSaga saga(Integer requestId, DepositOpeningStateEnum state) {
+        return new DepositOpeningSaga(requestId, CUSTOMER_ID, state, DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS,
+                DepositDurationEnum.YEAR, true, null, AMOUNT, null, 1, null);
+    }
+}
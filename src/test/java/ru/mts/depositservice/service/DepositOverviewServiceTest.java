@@ -0,0 +1,115 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.exception.ServiceUnavailableException;
+import ru.mts.depositservice.model.DepositAccountResponse;
+import ru.mts.depositservice.model.DepositView;
+import ru.mts.depositservice.model.RejectedRequestView;
+import ru.mts.depositservice.property.FanOutProperty;
+import ru.mts.depositservice.property.ReplicaProperty;
+import ru.mts.depositservice.repository.CustomerPortfolioRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DepositOverviewServiceTest {
+
+    private static final Integer CUSTOMER_ID = 1;
+    private static final Integer REJECTED_STATUS_ID = 4;
+
+    @Mock
+    CustomerPortfolioRepository portfolioRepository;
+    @Mock
+    ReferenceDataRegistry referenceDataRegistry;
+
+    private ExecutorService fanOutExecutor;
+    private FanOutProperty fanOutProperty;
+    private DepositOverviewService depositOverviewService;
+
+    @BeforeEach
+    void setUp() {
+        fanOutExecutor = Executors.newFixedThreadPool(2);
+        fanOutProperty = new FanOutProperty();
+        fanOutProperty.setDeadline(Duration.ofSeconds(2));
+
+        when(referenceDataRegistry.getRequestStatus(RequestStatusEnum.REJECTED))
+                .thenReturn(new RequestStatus(REJECTED_STATUS_ID, RequestStatusEnum.REJECTED));
+
+        depositOverviewService = new DepositOverviewService(portfolioRepository, referenceDataRegistry, fanOutExecutor, fanOutProperty,
+                new ReadYourWritesTracker(new ReplicaProperty()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    @Test
+    void findDepositsAndRejectedRequests_runsPartsConcurrently() {
+        // Каждая часть ждет начала другой: при последовательном выполнении обе не успели бы к сроку
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(portfolioRepository.findDeposits(CUSTOMER_ID)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            bothStarted.await(1, TimeUnit.SECONDS);
+            return List.of(new DepositView());
+        });
+        when(portfolioRepository.findRejectedRequests(CUSTOMER_ID, REJECTED_STATUS_ID)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            bothStarted.await(1, TimeUnit.SECONDS);
+            return List.of(new RejectedRequestView());
+        });
+
+        DepositAccountResponse response = depositOverviewService.findDepositsAndRejectedRequests(CUSTOMER_ID);
+
+        assertEquals(0, bothStarted.getCount());
+        assertEquals(1, response.getDepositList().size());
+        assertEquals(1, response.getRejectedRequests().size());
+        assertTrue(response.getUnavailableParts().isEmpty());
+    }
+
+    @Test
+    void findDepositsAndRejectedRequests_returnsPartialResultAfterDeadline() {
+        fanOutProperty.setDeadline(Duration.ofMillis(200));
+        when(portfolioRepository.findDeposits(CUSTOMER_ID)).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return List.of(new DepositView());
+        });
+        when(portfolioRepository.findRejectedRequests(CUSTOMER_ID, REJECTED_STATUS_ID)).thenReturn(List.of(new RejectedRequestView()));
+
+        long startedAt = System.nanoTime();
+        DepositAccountResponse response = depositOverviewService.findDepositsAndRejectedRequests(CUSTOMER_ID);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 2_000);
+        assertTrue(response.getDepositList().isEmpty());
+        assertEquals(1, response.getRejectedRequests().size());
+        assertEquals(List.of(DepositOverviewService.DEPOSIT_LIST), response.getUnavailableParts());
+    }
+
+    @Test
+    void findDepositsAndRejectedRequests_failsWhenPartialResultsDisabled() {
+        fanOutProperty.setPartialResults(false);
+        when(portfolioRepository.findDeposits(CUSTOMER_ID)).thenReturn(List.of(new DepositView()));
+        when(portfolioRepository.findRejectedRequests(CUSTOMER_ID, REJECTED_STATUS_ID)).thenThrow(new IllegalStateException("db is down"));
+
+        assertThrows(ServiceUnavailableException.class,
+                () -> depositOverviewService.findDepositsAndRejectedRequests(CUSTOMER_ID));
+    }
+}
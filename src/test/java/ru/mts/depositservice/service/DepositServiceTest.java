@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
@@ -20,9 +21,8 @@ import ru.mts.depositservice.exception.RefillDepositException;
 import ru.mts.depositservice.model.OpenDepositRequest;
 import ru.mts.depositservice.model.RefillDepositRequest;
 import ru.mts.depositservice.property.DepositProperty;
+import ru.mts.depositservice.repository.AccountOutboxRepository;
 import ru.mts.depositservice.repository.DepositRepository;
-import ru.mts.depositservice.repository.DepositTypesRepository;
-import ru.mts.depositservice.repository.PercentPaymentTypesRepository;
 import ru.mts.depositservice.repository.RequestRepository;
 
 import java.math.BigDecimal;
@@ -46,13 +46,13 @@ class DepositServiceTest {
     @Mock
     CustomerClient customerClient;
     @Mock
-    DepositProperty depositProperty;
-    @Mock
     RequestRepository requestRepository;
     @Mock
-    DepositTypesRepository depositTypesRepository;
+    AccountOutboxRepository outboxRepository;
     @Mock
-    PercentPaymentTypesRepository percentPaymentTypesRepository;
+    ReferenceDataRegistry referenceDataRegistry;
+    @Spy
+    InterestRateQuoteEngine quoteEngine = new InterestRateQuoteEngine(depositProperty(new BigDecimal("5")));
 
     @InjectMocks
     DepositService depositService;
@@ -63,8 +63,6 @@ class DepositServiceTest {
 
     @BeforeEach
     void setUp() {
-        doReturn(new BigDecimal("5")).when(depositProperty).getBaseRate();
-
         refillRequest = new RefillDepositRequest();
         refillRequest.setRequestId(1);
         refillRequest.setDepositAmount(BigDecimal.valueOf(5000));
@@ -86,8 +84,8 @@ class DepositServiceTest {
         request.setDepositType(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS);
         request.setIsCapitalized(true);
 
-        when(depositTypesRepository.findDepositTypesByTypeName(any())).thenReturn(Optional.of(new DepositTypes()));
-        when(percentPaymentTypesRepository.findTypesPercentPaymentByTypeName(any())).thenReturn(Optional.of(new TypesPercentPayment()));
+        when(referenceDataRegistry.getDepositType(any())).thenReturn(new DepositTypes());
+        when(referenceDataRegistry.getPercentPaymentType(any())).thenReturn(new TypesPercentPayment());
 
         BigDecimal result = depositService.calculateInterestRate(request);
 
@@ -112,7 +110,7 @@ class DepositServiceTest {
     }
 
     @Test
-    void openDeposit() {
+    void createDeposit_doesNotCallOtherServices() {
         OpenDepositRequest openDepositRequest = new OpenDepositRequest();
         openDepositRequest.setRequestId(1);
         openDepositRequest.setCustomerId(1);
@@ -130,16 +128,18 @@ class DepositServiceTest {
         customer.setBankAccount(new BankAccount());
 
         when(requestRepository.findById(anyInt())).thenReturn(Optional.of(request));
-        when(customerClient.findCustomer(anyInt())).thenReturn(customer);
-        when(depositTypesRepository.findDepositTypesByTypeName(any())).thenReturn(Optional.of(new DepositTypes(1, DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS)));
-        when(percentPaymentTypesRepository.findTypesPercentPaymentByTypeName(any())).thenReturn(Optional.of(new TypesPercentPayment(1, PercentPaymentTypeEnum.MONTHLY)));
+        when(referenceDataRegistry.getDepositType(any())).thenReturn(new DepositTypes(1, DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS));
+        when(referenceDataRegistry.getPercentPaymentType(any())).thenReturn(new TypesPercentPayment(1, PercentPaymentTypeEnum.MONTHLY));
         when(depositRepository.save(any(Deposit.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        depositService.openDeposit(openDepositRequest);
+        Deposit created = depositService.createDeposit(openDepositRequest, customer);
 
-        verify(accountClient).withdrawMoneyFromAccount(openDepositRequest);
+        assertSame(customer, created.getCustomer());
+        assertEquals(BigDecimal.valueOf(100_000), created.getDepositAmount());
+        assertSame(created, request.getDeposit());
         verify(depositRepository).save(any(Deposit.class));
         verify(requestRepository).save(any(Request.class));
+        verifyNoInteractions(accountClient, customerClient, outboxRepository);
     }
 
     @Test
@@ -152,6 +152,13 @@ class DepositServiceTest {
 
         assertNotNull(result);
         assertEquals(result.getDepositAmount(), BigDecimal.valueOf(15_000));
+        BigDecimal refilledRate = BigDecimal.valueOf(5.11)
+                .add(BigDecimal.valueOf(quoteEngine.amountAdjustment(BigDecimal.valueOf(15_000))))
+                .setScale(2, RoundingMode.HALF_UP);
+        assertEquals(refilledRate, result.getDepositRate());
+        verify(outboxRepository).enqueueDepositRefill(request, BigDecimal.valueOf(5000),
+                refilledRate.subtract(BigDecimal.valueOf(5.11)));
+        verifyNoInteractions(accountClient);
     }
 
     @Test
@@ -173,6 +180,7 @@ class DepositServiceTest {
         when(requestRepository.findById(any())).thenReturn(Optional.of(request));
 
         Exception exception = assertThrows(RefillDepositException.class, () -> depositService.refillDeposit(refillRequest));
+        verifyNoInteractions(outboxRepository);
 
         String expectedMessage = "Условия вашего вклада не подразумевают его пополнение!";
         String actualMessage = exception.getMessage();
@@ -183,12 +191,18 @@ class DepositServiceTest {
     @Test
     void findOpenedDeposits() {
         Integer customerId = 1;
-        when(customerClient.findCustomer(customerId)).thenReturn(new Customer());
-        when(depositRepository.findDepositsByCustomer(any(Customer.class))).thenReturn(List.of(new Deposit()));
+        when(depositRepository.findDepositsByCustomerId(customerId)).thenReturn(List.of(new Deposit()));
 
         List<Deposit> deposits = depositService.findOpenedDeposits(customerId);
 
         assertNotNull(deposits);
         assertFalse(deposits.isEmpty());
+        verifyNoInteractions(customerClient);
+    }
+
+    private static DepositProperty depositProperty(BigDecimal baseRate) {
+        DepositProperty depositProperty = new DepositProperty();
+        depositProperty.setBaseRate(baseRate);
+        return depositProperty;
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.exception.IdempotencyKeyException;
+import ru.mts.depositservice.model.IdempotentResponse;
+import ru.mts.depositservice.property.IdempotencyProperty;
+import ru.mts.depositservice.repository.IdempotencyKeyRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyServiceTest {
+
+    private static final ConfirmationOperationEnum OPERATION = ConfirmationOperationEnum.CLOSE;
+    private static final String KEY = "key-1";
+    private static final String FINGERPRINT = IdempotencyService.fingerprint("{\"requestId\":1}".getBytes());
+
+    @Mock
+    IdempotencyKeyRepository keyRepository;
+
+    private IdempotencyProperty idempotencyProperty;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyProperty = new IdempotencyProperty();
+        idempotencyProperty.setWaitTimeout(Duration.ofSeconds(2));
+        idempotencyProperty.setPollInterval(Duration.ofMillis(10));
+        idempotencyService = new IdempotencyService(keyRepository, idempotencyProperty);
+    }
+
+    @Test
+    void acquire_firstRequestIsExecuted() {
+        when(keyRepository.tryAcquire(eq(KEY), eq(OPERATION), eq(FINGERPRINT), any(), any())).thenReturn(true);
+
+        assertTrue(idempotencyService.acquire(OPERATION, KEY, FINGERPRINT).isEmpty());
+    }
+
+    @Test
+    void acquire_completedRequestIsReplayedFromMemory() {
+        when(keyRepository.tryAcquire(anyString(), any(), anyString(), any(), any())).thenReturn(true);
+        idempotencyService.acquire(OPERATION, KEY, FINGERPRINT);
+        IdempotentResponse response = response(FINGERPRINT);
+        idempotencyService.complete(OPERATION, KEY, response);
+
+        assertSame(response, idempotencyService.acquire(OPERATION, KEY, FINGERPRINT).orElseThrow());
+        assertSame(response, idempotencyService.acquire(OPERATION, KEY, FINGERPRINT).orElseThrow());
+
+        verify(keyRepository).complete(KEY, OPERATION, response);
+        verify(keyRepository, times(1)).tryAcquire(anyString(), any(), anyString(), any(), any());
+    }
+
+    @Test
+    void acquire_requestCompletedByAnotherInstanceIsReplayedFromDatabase() {
+        IdempotentResponse response = response(FINGERPRINT);
+        when(keyRepository.tryAcquire(anyString(), any(), anyString(), any(), any())).thenReturn(false);
+        when(keyRepository.find(KEY, OPERATION)).thenReturn(Optional.of(response));
+
+        assertSame(response, idempotencyService.acquire(OPERATION, KEY, FINGERPRINT).orElseThrow());
+    }
+
+    @Test
+    void acquire_duplicateWaitsForRunningRequest() throws Exception {
+        when(keyRepository.tryAcquire(anyString(), any(), anyString(), any(), any())).thenReturn(true);
+        idempotencyService.acquire(OPERATION, KEY, FINGERPRINT);
+
+        CompletableFuture<Optional<IdempotentResponse>> duplicate =
+                CompletableFuture.supplyAsync(() -> idempotencyService.acquire(OPERATION, KEY, FINGERPRINT));
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone());
+
+        IdempotentResponse response = response(FINGERPRINT);
+        idempotencyService.complete(OPERATION, KEY, response);
+
+        assertSame(response, duplicate.get(1, TimeUnit.SECONDS).orElseThrow());
+    }
+
+    @Test
+    void acquire_requestRunningOnAnotherInstanceTimesOut() {
+        idempotencyProperty.setWaitTimeout(Duration.ofMillis(50));
+        when(keyRepository.tryAcquire(anyString(), any(), anyString(), any(), any())).thenReturn(false);
+        when(keyRepository.find(KEY, OPERATION))
+                .thenReturn(Optional.of(new IdempotentResponse(FINGERPRINT, null, null, null)));
+
+        IdempotencyKeyException exception = assertThrows(IdempotencyKeyException.class,
+                () -> idempotencyService.acquire(OPERATION, KEY, FINGERPRINT));
+
+        assertEquals(IdempotencyService.KEY_IN_PROGRESS, exception.getCode());
+    }
+
+    @Test
+    void acquire_sameKeyWithDifferentBodyIsRejected() {
+        when(keyRepository.tryAcquire(anyString(), any(), anyString(), any(), any())).thenReturn(true);
+        idempotencyService.acquire(OPERATION, KEY, FINGERPRINT);
+        idempotencyService.complete(OPERATION, KEY, response(FINGERPRINT));
+
+        IdempotencyKeyException exception = assertThrows(IdempotencyKeyException.class,
+                () -> idempotencyService.acquire(OPERATION, KEY, IdempotencyService.fingerprint("{}".getBytes())));
+
+        assertEquals(IdempotencyService.KEY_MISMATCH, exception.getCode());
+    }
+
+    @Test
+    void release_allowsRequestToBeExecutedAgain() {
+        when(keyRepository.tryAcquire(anyString(), any(), anyString(), any(), any())).thenReturn(true);
+        idempotencyService.acquire(OPERATION, KEY, FINGERPRINT);
+
+        idempotencyService.release(OPERATION, KEY);
+
+        assertTrue(idempotencyService.acquire(OPERATION, KEY, FINGERPRINT).isEmpty());
+        verify(keyRepository).release(KEY, OPERATION);
+    }
+
+    private static IdempotentResponse response(String fingerprint) {
+        return new IdempotentResponse(fingerprint, 204, null, new byte[0]);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
+import ru.mts.depositservice.property.ConfirmationProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryConfirmationCodeStoreTest {
+
+    private ConfirmationProperty confirmationProperty;
+    private InMemoryConfirmationCodeStore confirmationCodeStore;
+
+    @BeforeEach
+    void setUp() {
+        confirmationProperty = new ConfirmationProperty();
+        confirmationProperty.setTtl(Duration.ofMinutes(5));
+        confirmationProperty.setMaxAttempts(3);
+        confirmationProperty.setMaxEntries(100);
+
+        confirmationCodeStore = new InMemoryConfirmationCodeStore(confirmationProperty);
+    }
+
+    @Test
+    void verify_codeIsSingleUse() {
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.OPEN, "1337");
+
+        assertTrue(confirmationCodeStore.verify(1, ConfirmationOperationEnum.OPEN, "1337"));
+        assertFalse(confirmationCodeStore.verify(1, ConfirmationOperationEnum.OPEN, "1337"));
+    }
+
+    @Test
+    void verify_concurrentMatchesSucceedOnce() throws Exception {
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.OPEN, "1337");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return confirmationCodeStore.verify(1, ConfirmationOperationEnum.OPEN, "1337");
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                succeeded += result.get() ? 1 : 0;
+            }
+            assertEquals(1, succeeded);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void verify_codesOfDifferentRequestsDoNotOverwriteEachOther() {
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.OPEN, "1111");
+        confirmationCodeStore.save(2, ConfirmationOperationEnum.OPEN, "2222");
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.CLOSE, "3333");
+
+        assertFalse(confirmationCodeStore.verify(1, ConfirmationOperationEnum.OPEN, "2222"));
+        assertTrue(confirmationCodeStore.verify(1, ConfirmationOperationEnum.OPEN, "1111"));
+        assertTrue(confirmationCodeStore.verify(2, ConfirmationOperationEnum.OPEN, "2222"));
+        assertTrue(confirmationCodeStore.verify(1, ConfirmationOperationEnum.CLOSE, "3333"));
+    }
+
+    @Test
+    void verify_attemptsAreLimited() {
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.REFILL, "1337");
+
+        assertFalse(confirmationCodeStore.verify(1, ConfirmationOperationEnum.REFILL, "0000"));
+        assertFalse(confirmationCodeStore.verify(1, ConfirmationOperationEnum.REFILL, "0001"));
+        assertFalse(confirmationCodeStore.verify(1, ConfirmationOperationEnum.REFILL, "0002"));
+
+        assertFalse(confirmationCodeStore.verify(1, ConfirmationOperationEnum.REFILL, "1337"));
+        assertEquals(0, confirmationCodeStore.size());
+    }
+
+    @Test
+    void verify_expiredCodeRejected() {
+        confirmationProperty.setTtl(Duration.ZERO);
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.OPEN, "1337");
+
+        assertFalse(confirmationCodeStore.verify(1, ConfirmationOperationEnum.OPEN, "1337"));
+    }
+
+    @Test
+    void save_sizeIsBounded() {
+        confirmationProperty.setMaxEntries(2);
+
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.OPEN, "1111");
+        confirmationCodeStore.save(2, ConfirmationOperationEnum.OPEN, "2222");
+        confirmationCodeStore.save(3, ConfirmationOperationEnum.OPEN, "3333");
+
+        assertEquals(2, confirmationCodeStore.size());
+        assertTrue(confirmationCodeStore.verify(3, ConfirmationOperationEnum.OPEN, "3333"));
+    }
+
+    @Test
+    void save_evictsOldestCode() {
+        confirmationProperty.setMaxEntries(2);
+
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.OPEN, "1111");
+        confirmationCodeStore.save(2, ConfirmationOperationEnum.OPEN, "2222");
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.OPEN, "1112");     // повторно выданный код становится новым
+        confirmationCodeStore.save(3, ConfirmationOperationEnum.OPEN, "3333");
+
+        assertEquals(2, confirmationCodeStore.size());
+        assertFalse(confirmationCodeStore.verify(2, ConfirmationOperationEnum.OPEN, "2222"));
+        assertTrue(confirmationCodeStore.verify(1, ConfirmationOperationEnum.OPEN, "1112"));
+        assertTrue(confirmationCodeStore.verify(3, ConfirmationOperationEnum.OPEN, "3333"));
+    }
+
+    @Test
+    void removeExpired_removesOnlyExpiredCodes() {
+        confirmationProperty.setTtl(Duration.ZERO);
+        confirmationCodeStore.save(1, ConfirmationOperationEnum.OPEN, "1111");
+        confirmationProperty.setTtl(Duration.ofMinutes(5));
+        confirmationCodeStore.save(2, ConfirmationOperationEnum.OPEN, "2222");
+
+        confirmationCodeStore.removeExpired();
+
+        assertEquals(1, confirmationCodeStore.size());
+        assertTrue(confirmationCodeStore.verify(2, ConfirmationOperationEnum.OPEN, "2222"));
+    }
+
+    @Test
+    void save_boundedUnderConcurrentIssue() throws Exception {
+        confirmationProperty.setMaxEntries(50);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int offset = thread * 1_000;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        confirmationCodeStore.save(offset + i, ConfirmationOperationEnum.OPEN, "1111");
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(confirmationCodeStore.size() <= 50);
+    }
+}
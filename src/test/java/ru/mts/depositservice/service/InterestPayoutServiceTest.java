@@ -0,0 +1,243 @@
+package ru.mts.depositservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.model.AccountOperation;
+import ru.mts.depositservice.model.AccountOperationResult;
+import ru.mts.depositservice.model.InterestPayout;
+import ru.mts.depositservice.model.PayoutCheckpoint;
+import ru.mts.depositservice.model.PayoutRunStats;
+import ru.mts.depositservice.property.PayoutProperty;
+import ru.mts.depositservice.repository.InterestPayoutRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class InterestPayoutServiceTest {
+
+    private static final LocalDate PAYOUT_DATE = LocalDate.of(2024, 3, 31);
+    private static final int SHARD = 1;
+    private static final int SHARD_COUNT = 4;
+
+    @Mock
+    InterestPayoutRepository payoutRepository;
+    @Mock
+    AccountClient accountClient;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Mock
+    ShardLeaseManager shardLeaseManager;
+
+    private PayoutProperty payoutProperty;
+    private SimpleMeterRegistry meterRegistry;
+    private InterestPayoutService payoutService;
+
+    @BeforeEach
+    void setUp() {
+        payoutProperty = new PayoutProperty();
+        payoutProperty.setChunkSize(2);
+        payoutProperty.setTransferBatchSize(1);
+
+        meterRegistry = new SimpleMeterRegistry();
+        payoutService = new InterestPayoutService(
+                payoutRepository,
+                accountClient,
+                payoutProperty,
+                new TransactionTemplate(transactionManager),
+                shardLeaseManager,
+                meterRegistry
+        );
+        payoutService.init();
+
+        when(shardLeaseManager.getShardCount()).thenReturn(SHARD_COUNT);
+        doAnswer(invocation -> {
+            invocation.<IntConsumer>getArgument(0).accept(SHARD);
+            return null;
+        }).when(shardLeaseManager).runOnOwnedShards(any());
+        when(payoutRepository.findCheckpoint(eq(PAYOUT_DATE), anyInt())).thenReturn(Optional.empty());
+        when(accountClient.executeOperations(anyList())).thenAnswer(invocation -> succeed(invocation.getArgument(0)));
+    }
+
+    @Test
+    void payInterest_processesAllChunksAndCompletes() {
+        InterestPayout first = monthly(1, "120000", "6.00");
+        InterestPayout second = monthly(2, "10000", "5.00");
+        InterestPayout third = endOfTerm(3);
+
+        when(payoutRepository.findDuePayouts(eq(PAYOUT_DATE), eq(SHARD), eq(SHARD_COUNT), isNull(), isNull(), eq(2)))
+                .thenReturn(List.of(first, second));
+        when(payoutRepository.findDuePayouts(PAYOUT_DATE, SHARD, SHARD_COUNT, PAYOUT_DATE, 2, 2))
+                .thenReturn(List.of(third));
+        when(payoutRepository.findDuePayouts(PAYOUT_DATE, SHARD, SHARD_COUNT, PAYOUT_DATE, 3, 2))
+                .thenReturn(List.of());
+
+        PayoutRunStats stats = payoutService.payInterest(PAYOUT_DATE);
+
+        assertEquals(3, stats.getProcessed());
+        assertEquals(2, stats.getChunks());
+        assertEquals(new BigDecimal("1141.67"), stats.getPaidAmount());
+
+        // по одному переводу в пачке, идентификатор перевода строится по вкладу и дате выплаты
+        verify(accountClient).executeOperations(List.of(transfer(1, "600.00")));
+        verify(accountClient).executeOperations(List.of(transfer(2, "41.67")));
+        verify(accountClient).executeOperations(List.of(transfer(3, "500.00")));
+
+        verify(payoutRepository).movePaymentDates(List.of(first, second),
+                List.of(LocalDate.of(2024, 4, 30), LocalDate.of(2024, 4, 30)));
+        verify(payoutRepository).movePaymentDates(List.of(third), Arrays.asList((LocalDate) null));
+
+        ArgumentCaptor<PayoutCheckpoint> checkpoint = ArgumentCaptor.forClass(PayoutCheckpoint.class);
+        verify(payoutRepository, times(3)).saveCheckpoint(checkpoint.capture());
+        PayoutCheckpoint finalCheckpoint = checkpoint.getValue();
+        assertTrue(finalCheckpoint.isCompleted());
+        assertEquals(SHARD, finalCheckpoint.getShard());
+        assertEquals(3, finalCheckpoint.getLastDepositId());
+        assertEquals(3, finalCheckpoint.getProcessed());
+
+        assertSame(stats, payoutService.getLastRunStats());
+        assertEquals(3, payoutService.getProcessedTotal());
+        assertEquals(2, payoutService.getChunksTotal());
+        assertEquals(3, meterRegistry.get("deposit.payout.processed").functionCounter().count());
+        assertEquals(2, meterRegistry.get("deposit.payout.chunks").functionCounter().count());
+        assertEquals(3, meterRegistry.get("deposit.payout.last-run.processed").gauge().value());
+        assertEquals(1141.67, meterRegistry.get("deposit.payout.last-run.paid").gauge().value(), 0.001);
+    }
+
+    @Test
+    void payInterest_parksDeclinedTransferAndCommitsPage() {
+        InterestPayout first = monthly(1, "120000", "6.00");
+        InterestPayout second = monthly(2, "10000", "5.00");
+        when(payoutRepository.findDuePayouts(eq(PAYOUT_DATE), eq(SHARD), eq(SHARD_COUNT), isNull(), isNull(), eq(2)))
+                .thenReturn(List.of(first, second));
+        when(payoutRepository.findDuePayouts(PAYOUT_DATE, SHARD, SHARD_COUNT, PAYOUT_DATE, 2, 2))
+                .thenReturn(List.of());
+        when(accountClient.executeOperations(List.of(transfer(1, "600.00"))))
+                .thenReturn(List.of(new AccountOperationResult(operationId(1), false, "Счет закрыт")));
+
+        PayoutRunStats stats = payoutService.payInterest(PAYOUT_DATE);
+
+        assertEquals(2, stats.getProcessed());
+        assertEquals(new BigDecimal("41.67"), stats.getPaidAmount());
+        verify(accountClient).executeOperations(List.of(transfer(2, "41.67")));
+        // дата выплаты переносится по всей странице, отклоненный перевод сохраняется для разбора
+        verify(payoutRepository).movePaymentDates(List.of(first, second),
+                List.of(LocalDate.of(2024, 4, 30), LocalDate.of(2024, 4, 30)));
+        verify(payoutRepository).saveDeclined(first, new BigDecimal("600.00"), "Счет закрыт");
+        verify(payoutRepository, never()).saveDeclined(eq(second), any(), any());
+        assertEquals(1, meterRegistry.get("deposit.payout.declined").functionCounter().count());
+    }
+
+    @Test
+    void payInterest_resumesFromCheckpoint() {
+        PayoutCheckpoint checkpoint = new PayoutCheckpoint(PAYOUT_DATE, SHARD, PAYOUT_DATE, 2, 2, new BigDecimal("641.67"), false);
+        when(payoutRepository.findCheckpoint(PAYOUT_DATE, SHARD)).thenReturn(Optional.of(checkpoint));
+        when(payoutRepository.findDuePayouts(PAYOUT_DATE, SHARD, SHARD_COUNT, PAYOUT_DATE, 2, 2))
+                .thenReturn(List.of(endOfTerm(3)));
+        when(payoutRepository.findDuePayouts(PAYOUT_DATE, SHARD, SHARD_COUNT, PAYOUT_DATE, 3, 2))
+                .thenReturn(List.of());
+
+        PayoutRunStats stats = payoutService.payInterest(PAYOUT_DATE);
+
+        assertEquals(1, stats.getProcessed());
+        assertEquals(new BigDecimal("500.00"), stats.getPaidAmount());
+        assertEquals(new BigDecimal("1141.67"), checkpoint.getPaidAmount());
+        verify(payoutRepository, never()).findDuePayouts(any(), anyInt(), anyInt(), isNull(), isNull(), anyInt());
+    }
+
+    @Test
+    void payInterest_skipsCompletedDate() {
+        PayoutCheckpoint checkpoint = new PayoutCheckpoint(PAYOUT_DATE, SHARD, PAYOUT_DATE, 3, 3, BigDecimal.TEN, true);
+        when(payoutRepository.findCheckpoint(PAYOUT_DATE, SHARD)).thenReturn(Optional.of(checkpoint));
+
+        PayoutRunStats stats = payoutService.payInterest(PAYOUT_DATE);
+
+        assertEquals(0, stats.getProcessed());
+        verify(payoutRepository, never()).findDuePayouts(any(), anyInt(), anyInt(), any(), any(), anyInt());
+        verifyNoInteractions(accountClient);
+    }
+
+    @Test
+    void nextPaymentDate_keepsDayOfStartDate() {
+        InterestPayout payout = monthly(1, "10000", "5.00");
+        payout.setStartDate(LocalDate.of(2024, 1, 31));
+        payout.setEndDate(LocalDate.of(2024, 7, 31));
+        payout.setPercentPaymentDate(LocalDate.of(2024, 2, 29));
+
+        assertEquals(LocalDate.of(2024, 3, 31), InterestPayoutService.nextPaymentDate(payout));
+    }
+
+    @Test
+    void nextPaymentDate_lastMonthlyPayment() {
+        InterestPayout payout = monthly(1, "10000", "5.00");
+        payout.setPercentPaymentDate(payout.getEndDate());
+
+        assertNull(InterestPayoutService.nextPaymentDate(payout));
+    }
+
+    private static List<AccountOperationResult> succeed(List<AccountOperation> operations) {
+        return operations.stream()
+                .map(operation -> new AccountOperationResult(operation.getOperationId(), true, null))
+                .toList();
+    }
+
+    private static AccountOperation transfer(int depositId, String interest) {
+        return new AccountOperation(operationId(depositId), AccountOperationTypeEnum.REFILL, 100 + depositId,
+                new BigDecimal(interest));
+    }
+
+    private static String operationId(int depositId) {
+        return "interest-payout-" + depositId + "-" + PAYOUT_DATE;
+    }
+
+    private static InterestPayout monthly(int depositId, String amount, String rate) {
+        return new InterestPayout(
+                depositId,
+                new BigDecimal(amount),
+                new BigDecimal(rate),
+                LocalDate.of(2023, 12, 31),
+                LocalDate.of(2024, 12, 31),
+                PAYOUT_DATE,
+                PercentPaymentTypeEnum.MONTHLY,
+                100 + depositId
+        );
+    }
+
+    private static InterestPayout endOfTerm(int depositId) {
+        return new InterestPayout(
+                depositId,
+                new BigDecimal("20000"),
+                new BigDecimal("5.00"),
+                LocalDate.of(2023, 9, 30),
+                PAYOUT_DATE,
+                PAYOUT_DATE,
+                PercentPaymentTypeEnum.END_OF_TERM,
+                100 + depositId
+        );
+    }
+}
@@ -0,0 +1,160 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.Test;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.model.RateCard;
+import ru.mts.depositservice.model.RateCardEntry;
+import ru.mts.depositservice.property.DepositProperty;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterestRateQuoteEngineTest {
+
+    private static final List<BigDecimal> AMOUNTS = List.of(
+            new BigDecimal("0"),
+            new BigDecimal("10000"),
+            new BigDecimal("99999.99"),
+            new BigDecimal("100000"),
+            new BigDecimal("100000.00"),
+            new BigDecimal("150000.50"),
+            new BigDecimal("199999.999"),
+            new BigDecimal("200000"),
+            new BigDecimal("399999.99"),
+            new BigDecimal("400000"),
+            new BigDecimal("1000000"),
+            new BigDecimal("1E+5"),
+            new BigDecimal("4E+5"),
+            new BigDecimal("-150000"),
+            new BigDecimal("214748364800000"),
+            new BigDecimal("429496729700000")
+    );
+
+    @Test
+    void quote_matchesLegacyCalculationBitForBit() {
+        for (String baseRate : List.of("5", "5.00", "3.75", "0")) {
+            DepositProperty depositProperty = depositProperty(new BigDecimal(baseRate));
+            InterestRateQuoteEngine quoteEngine = new InterestRateQuoteEngine(depositProperty);
+
+            for (DepositTypeEnum depositType : DepositTypeEnum.values()) {
+                for (DepositDurationEnum duration : DepositDurationEnum.values()) {
+                    for (BigDecimal amount : AMOUNTS) {
+                        for (boolean isCapitalized : new boolean[]{false, true}) {
+                            BigDecimal expected = legacyRate(depositProperty.getBaseRate(), depositType, duration, amount, isCapitalized);
+                            BigDecimal actual = quoteEngine.quote(depositType, duration, amount, isCapitalized);
+
+                            // equals сравнивает и значение, и масштаб
+                            assertEquals(expected, actual, depositType + " " + duration + " " + amount + " " + isCapitalized);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void quote_returnsCachedInstance() {
+        InterestRateQuoteEngine quoteEngine = new InterestRateQuoteEngine(depositProperty(new BigDecimal("5")));
+
+        BigDecimal first = quoteEngine.quote(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS, DepositDurationEnum.YEAR, new BigDecimal("150000"), true);
+        BigDecimal second = quoteEngine.quote(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS, DepositDurationEnum.YEAR, new BigDecimal("160000"), true);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void quote_followsBaseRateChange() {
+        DepositProperty depositProperty = depositProperty(new BigDecimal("5"));
+        InterestRateQuoteEngine quoteEngine = new InterestRateQuoteEngine(depositProperty);
+
+        depositProperty.setBaseRate(new BigDecimal("6"));
+
+        assertEquals(new BigDecimal("6.15"),
+                quoteEngine.quote(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS, DepositDurationEnum.YEAR, new BigDecimal("10000"), false));
+    }
+
+    @Test
+    void rateCard_matchesQuoteAtRangeBounds() {
+        InterestRateQuoteEngine quoteEngine = new InterestRateQuoteEngine(depositProperty(new BigDecimal("3.75")));
+        BigDecimal cent = new BigDecimal("0.01");
+
+        RateCard rateCard = quoteEngine.rateCard();
+
+        assertEquals(DepositTypeEnum.values().length * DepositDurationEnum.values().length * 2 * 4, rateCard.getRates().size());
+        for (RateCardEntry entry : rateCard.getRates()) {
+            for (BigDecimal amount : List.of(entry.getAmountFrom(), entry.getAmountTo().subtract(cent))) {
+                assertEquals(
+                        quoteEngine.quote(entry.getDepositType(), entry.getDuration(), amount, entry.getIsCapitalized()),
+                        entry.getPercentageRate(),
+                        entry + " " + amount
+                );
+            }
+        }
+        assertSame(rateCard, quoteEngine.rateCard());
+    }
+
+    @Test
+    void rateCard_versionFollowsBaseRate() {
+        DepositProperty depositProperty = depositProperty(new BigDecimal("5"));
+        InterestRateQuoteEngine quoteEngine = new InterestRateQuoteEngine(depositProperty);
+        String version = quoteEngine.rateCard().getVersion();
+
+        depositProperty.setBaseRate(new BigDecimal("6"));
+
+        RateCard rateCard = quoteEngine.rateCard();
+        assertNotEquals(version, rateCard.getVersion());
+        assertEquals(new BigDecimal("6"), rateCard.getBaseRate());
+    }
+
+    @Test
+    void amountAdjustment_matchesLegacyCalculation() {
+        InterestRateQuoteEngine quoteEngine = new InterestRateQuoteEngine(depositProperty(new BigDecimal("5")));
+
+        for (BigDecimal amount : AMOUNTS) {
+            assertEquals(legacyAmountAdjustment(amount), quoteEngine.amountAdjustment(amount), amount.toString());
+        }
+    }
+
+    private static DepositProperty depositProperty(BigDecimal baseRate) {
+        DepositProperty depositProperty = new DepositProperty();
+        depositProperty.setBaseRate(baseRate);
+        return depositProperty;
+    }
+
+    // Прежний расчёт из DepositService.calculateInterestRate - эталон для сравнения
+
+    private static BigDecimal legacyRate(BigDecimal baseRate,
+                                         DepositTypeEnum depositType,
+                                         DepositDurationEnum duration,
+                                         BigDecimal amount,
+                                         boolean isCapitalized) {
+        double rateAdjustment = 0;
+        rateAdjustment += switch (depositType) {
+            case DEPOSITS_AND_WITHDRAWALS -> 0.05;
+            case DEPOSITS_AND_NO_WITHDRAWALS -> 0.10;
+            case NO_DEPOSITS_AND_WITHDRAWALS -> 0.20;
+        };
+        rateAdjustment += switch (duration) {
+            case MONTH_6 -> 0.05;
+            case YEAR -> 0.10;
+            default -> 0;
+        };
+        rateAdjustment += legacyAmountAdjustment(amount);
+        rateAdjustment += isCapitalized ? 0.01 : 0;
+        return baseRate.add(BigDecimal.valueOf(rateAdjustment)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static double legacyAmountAdjustment(BigDecimal depositAmount) {
+        int count = depositAmount.divide(BigDecimal.valueOf(100_000), RoundingMode.DOWN).intValue();
+        if (count == 1) {
+            return 0.25;
+        } else if (count >= 4) {
+            return 0.4;
+        }
+        return 0;
+    }
+}
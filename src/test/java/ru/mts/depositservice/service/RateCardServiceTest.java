@@ -0,0 +1,94 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mts.depositservice.enums.DepositDurationEnum;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.exception.CustomException;
+import ru.mts.depositservice.model.OpenDepositRequest;
+import ru.mts.depositservice.property.DepositProperty;
+import ru.mts.depositservice.property.RateCardProperty;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateCardServiceTest {
+
+    private RateCardProperty rateCardProperty;
+    private RateCardService rateCardService;
+
+    @BeforeEach
+    void setUp() {
+        DepositProperty depositProperty = new DepositProperty();
+        depositProperty.setBaseRate(new BigDecimal("5"));
+
+        rateCardProperty = new RateCardProperty();
+        rateCardProperty.setMaxAge(Duration.ofMinutes(10));
+        rateCardProperty.setMaxQuotes(3);
+
+        rateCardService = new RateCardService(new InterestRateQuoteEngine(depositProperty), rateCardProperty);
+    }
+
+    @Test
+    void quote_returnsRatesInRequestOrder() {
+        List<BigDecimal> rates = rateCardService.quote(List.of(
+                request(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS, DepositDurationEnum.YEAR, "10000", false),
+                request(DepositTypeEnum.NO_DEPOSITS_AND_WITHDRAWALS, DepositDurationEnum.MONTH_3, "150000", true),
+                request(DepositTypeEnum.DEPOSITS_AND_NO_WITHDRAWALS, DepositDurationEnum.MONTH_6, "500000", false)
+        ));
+
+        assertEquals(List.of(new BigDecimal("5.15"), new BigDecimal("5.46"), new BigDecimal("5.55")), rates);
+    }
+
+    @Test
+    void quote_rejectsTooManyRequests() {
+        List<OpenDepositRequest> requests = Collections.nCopies(4,
+                request(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS, DepositDurationEnum.YEAR, "10000", false));
+
+        CustomException e = assertThrows(CustomException.class, () -> rateCardService.quote(requests));
+        assertEquals("QUOTE_LIMIT_EXCEEDED", e.getCode());
+    }
+
+    @Test
+    void quote_rejectsIncompleteRequest() {
+        List<OpenDepositRequest> requests = Arrays.asList(
+                request(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS, DepositDurationEnum.YEAR, "10000", false),
+                request(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS, null, "10000", false)
+        );
+
+        CustomException e = assertThrows(CustomException.class, () -> rateCardService.quote(requests));
+        assertEquals("INVALID_REQUEST", e.getCode());
+        assertTrue(e.getMessage().startsWith("Запрос 1"));
+    }
+
+    @Test
+    void quote_rejectsNonPositiveAmount() {
+        List<OpenDepositRequest> requests = List.of(
+                request(DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS, DepositDurationEnum.YEAR, "-1", false));
+
+        CustomException e = assertThrows(CustomException.class, () -> rateCardService.quote(requests));
+        assertEquals("INVALID_REQUEST", e.getCode());
+    }
+
+    @Test
+    void getCacheControl_publicWithMaxAge() {
+        assertEquals("max-age=600, public", rateCardService.getCacheControl().getHeaderValue());
+    }
+
+    private static OpenDepositRequest request(DepositTypeEnum depositType,
+                                              DepositDurationEnum duration,
+                                              String amount,
+                                              boolean isCapitalized) {
+        OpenDepositRequest request = new OpenDepositRequest();
+        request.setDepositType(depositType);
+        request.setDuration(duration);
+        request.setDepositAmount(new BigDecimal(amount));
+        request.setIsCapitalized(isCapitalized);
+        return request;
+    }
+}
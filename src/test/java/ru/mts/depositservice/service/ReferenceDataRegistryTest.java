@@ -0,0 +1,80 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.mts.depositservice.entity.DepositTypes;
+import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.entity.TypesPercentPayment;
+import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.enums.PercentPaymentTypeEnum;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.repository.DepositTypesRepository;
+import ru.mts.depositservice.repository.PercentPaymentTypesRepository;
+import ru.mts.depositservice.repository.RequestStatusRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReferenceDataRegistryTest {
+
+    @Mock
+    RequestStatusRepository requestStatusRepository;
+    @Mock
+    DepositTypesRepository depositTypesRepository;
+    @Mock
+    PercentPaymentTypesRepository percentPaymentTypesRepository;
+
+    @InjectMocks
+    ReferenceDataRegistry referenceDataRegistry;
+
+    @BeforeEach
+    void setUp() {
+        when(requestStatusRepository.findAll()).thenReturn(List.of(
+                new RequestStatus(1, RequestStatusEnum.CONFIRMING),
+                new RequestStatus(2, RequestStatusEnum.CONFIRMED),
+                new RequestStatus(3, RequestStatusEnum.APPROVED),
+                new RequestStatus(4, RequestStatusEnum.REJECTED)
+        ));
+        when(depositTypesRepository.findAll()).thenReturn(List.of(
+                new DepositTypes(1, DepositTypeEnum.DEPOSITS_AND_WITHDRAWALS),
+                new DepositTypes(2, DepositTypeEnum.DEPOSITS_AND_NO_WITHDRAWALS),
+                new DepositTypes(3, DepositTypeEnum.NO_DEPOSITS_AND_WITHDRAWALS)
+        ));
+        when(percentPaymentTypesRepository.findAll()).thenReturn(List.of(
+                new TypesPercentPayment(1, PercentPaymentTypeEnum.MONTHLY),
+                new TypesPercentPayment(2, PercentPaymentTypeEnum.END_OF_TERM)
+        ));
+    }
+
+    @Test
+    void reload_lookupsServedFromMemory() {
+        referenceDataRegistry.reload();
+
+        assertEquals(4, referenceDataRegistry.getRequestStatus(RequestStatusEnum.REJECTED).getId());
+        assertEquals(2, referenceDataRegistry.getDepositType(DepositTypeEnum.DEPOSITS_AND_NO_WITHDRAWALS).getId());
+        assertEquals(2, referenceDataRegistry.getPercentPaymentType(PercentPaymentTypeEnum.END_OF_TERM).getId());
+        assertEquals(1, referenceDataRegistry.getRequestStatus(RequestStatusEnum.CONFIRMING).getId());
+
+        verify(requestStatusRepository, times(1)).findAll();
+        verifyNoMoreInteractions(requestStatusRepository, depositTypesRepository, percentPaymentTypesRepository);
+    }
+
+    @Test
+    void reload_missingReferenceRowFails() {
+        when(percentPaymentTypesRepository.findAll()).thenReturn(List.of(
+                new TypesPercentPayment(1, PercentPaymentTypeEnum.MONTHLY)
+        ));
+
+        assertThrows(IllegalStateException.class, () -> referenceDataRegistry.reload());
+    }
+}
@@ -2,24 +2,32 @@ package ru.mts.depositservice.service;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.mts.depositservice.client.AccountClient;
+import ru.mts.depositservice.entity.Customer;
 import ru.mts.depositservice.entity.Deposit;
 import ru.mts.depositservice.entity.DepositTypes;
 import ru.mts.depositservice.entity.Request;
 import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.AccountOperationTypeEnum;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
 import ru.mts.depositservice.enums.DepositTypeEnum;
+import ru.mts.depositservice.exception.CustomException;
 import ru.mts.depositservice.exception.DepositNotFoundException;
 import ru.mts.depositservice.exception.InvalidConfirmationCodeException;
 import ru.mts.depositservice.exception.RequestNotFoundException;
 import ru.mts.depositservice.model.*;
+import ru.mts.depositservice.repository.AccountOutboxRepository;
 import ru.mts.depositservice.repository.DepositRepository;
 import ru.mts.depositservice.repository.RequestRepository;
-import ru.mts.depositservice.repository.RequestStatusRepository;
 
 import java.math.BigDecimal;
 import java.util.Date;
@@ -28,6 +36,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 
@@ -46,9 +55,17 @@ class RequestConfirmationServiceTest {
     @Mock
     RequestStatusService requestStatusService;
     @Mock
-    RequestStatusRepository requestStatusRepository;
+    ReferenceDataRegistry referenceDataRegistry;
     @Mock
     SmsConfirmationServiceImpl smsConfirmationService;
+    @Mock
+    DepositOpeningSagaService openingSaga;
+    @Spy
+    TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    @Mock
+    AccountOutboxRepository outboxRepository;
+    @Mock
+    ReadYourWritesTracker readYourWritesTracker;
 
     @InjectMocks
     private RequestConfirmationService requestConfirmationService;
@@ -66,17 +83,59 @@ class RequestConfirmationServiceTest {
         request.setAmount(BigDecimal.valueOf(10000));
 
         given(requestRepository.findById(any())).willReturn(Optional.of(request));
-        given(requestStatusRepository.findRequestStatusByStatusName(any())).willReturn(new RequestStatus());
-        given(smsConfirmationService.getOpenConfirmationCode()).willReturn("1337");
+        given(referenceDataRegistry.getRequestStatus(any())).willReturn(new RequestStatus());
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.OPEN), eq("1337"))).willReturn(true);
         given(accountClient.checkEnoughMoney(any())).willReturn(true);
 
         RequestResponse result = requestConfirmationService.confirmOpenRequest(openRequest);
 
-        verify(requestStatusService, times(2)).changeCurrentRequestStatus(any(), any());
-        verify(depositService).openDeposit(any());
+        verify(requestStatusService).changeCurrentRequestStatus(any(), any());
+        verify(openingSaga).start(request, openRequest);
+        verify(openingSaga).open(request, openRequest);
         assertThat(result).isNotNull();
     }
 
+    @Test
+    void confirmOpenRequest_insufficientFunds() {
+        OpenDepositRequest openRequest = new OpenDepositRequest();
+        openRequest.setRequestId(1);
+        openRequest.setConfirmationCode("1337");
+        openRequest.setCustomerId(1);
+
+        Request request = new Request();
+        request.setId(1);
+        request.setAmount(BigDecimal.valueOf(10000));
+
+        given(requestRepository.findById(any())).willReturn(Optional.of(request));
+        given(referenceDataRegistry.getRequestStatus(any())).willReturn(new RequestStatus());
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.OPEN), eq("1337"))).willReturn(true);
+        given(accountClient.checkEnoughMoney(any())).willReturn(false);
+        given(accountClient.getAccountMoney(1)).willReturn(BigDecimal.valueOf(500));
+
+        RejectedRequestResponse result = (RejectedRequestResponse) requestConfirmationService.confirmOpenRequest(openRequest);
+
+        verify(openingSaga).reject(request);
+        verify(openingSaga, never()).open(any(), any());
+        assertThat(result.getAmount()).isEqualTo(BigDecimal.valueOf(500));
+    }
+
+    @Test
+    void confirmOpenRequest_invalidConfirmationCode() {
+        OpenDepositRequest openRequest = new OpenDepositRequest();
+        openRequest.setRequestId(1);
+        openRequest.setConfirmationCode("wrongCode");
+
+        Request request = new Request();
+        request.setId(1);
+        request.setAmount(BigDecimal.valueOf(10000));
+
+        given(requestRepository.findById(any())).willReturn(Optional.of(request));
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.OPEN), eq("1337"))).willReturn(true);
+
+        assertThrows(InvalidConfirmationCodeException.class, () -> requestConfirmationService.confirmOpenRequest(openRequest));
+        verifyNoInteractions(openingSaga, accountClient);
+    }
+
     @Test
     void confirmOpenRequest_requestNotFound() {
         OpenDepositRequest openRequest = new OpenDepositRequest();
@@ -90,8 +149,8 @@ class RequestConfirmationServiceTest {
         request.setAmount(BigDecimal.valueOf(10000));
 
         given(requestRepository.findById(any())).willReturn(Optional.empty());
-        given(requestStatusRepository.findRequestStatusByStatusName(any())).willReturn(new RequestStatus());
-        given(smsConfirmationService.getOpenConfirmationCode()).willReturn("1337");
+        given(referenceDataRegistry.getRequestStatus(any())).willReturn(new RequestStatus());
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.OPEN), eq("1337"))).willReturn(true);
         given(accountClient.checkEnoughMoney(any())).willReturn(true);
 
         assertThrows(RequestNotFoundException.class, () -> requestConfirmationService.confirmOpenRequest(openRequest));
@@ -106,8 +165,9 @@ class RequestConfirmationServiceTest {
         Deposit deposit = new Deposit();
         deposit.setDepositAmount(BigDecimal.valueOf(10_000));
         deposit.setDepositType(new DepositTypes(1, DepositTypeEnum.DEPOSITS_AND_NO_WITHDRAWALS));
+        deposit.setCustomer(new Customer(5, null, null));
 
-        given(smsConfirmationService.getRefillConfirmationCode()).willReturn("1337");
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.REFILL), eq("1337"))).willReturn(true);
         given(accountClient.checkEnoughMoney(refillRequest)).willReturn(true);
         given(depositService.refillDeposit(refillRequest)).willReturn(deposit);
         given(requestRepository.findById(anyInt())).willReturn(Optional.of(new Request()));
@@ -115,6 +175,7 @@ class RequestConfirmationServiceTest {
         RequestResponse result = requestConfirmationService.confirmRefillDeposit(refillRequest);
 
         verify(depositService).refillDeposit(refillRequest);
+        verify(readYourWritesTracker).markWritten(5);
         assertThat(result).isNotNull();
         assertThat(result.getRequestDate()).isNotNull();
         assertThat(result.getAmount()).isEqualTo(refillRequest.getDepositAmount());
@@ -126,7 +187,7 @@ class RequestConfirmationServiceTest {
         refillRequest.setConfirmationCode("1337");
         refillRequest.setDepositAmount(BigDecimal.valueOf(5000));
 
-        given(smsConfirmationService.getRefillConfirmationCode()).willReturn("1337");
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.REFILL), eq("1337"))).willReturn(true);
         given(accountClient.checkEnoughMoney(refillRequest)).willReturn(false);
 
         RejectedRefillResponse result = (RejectedRefillResponse) requestConfirmationService.confirmRefillDeposit(refillRequest);
@@ -144,20 +205,51 @@ class RequestConfirmationServiceTest {
         closeRequest.setConfirmationCode("1337");
         closeRequest.setRequestId(1);
 
-        given(smsConfirmationService.getCloseConfirmationCode()).willReturn("1337");
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.CLOSE), eq("1337"))).willReturn(true);
         given(requestRepository.findById(closeRequest.getRequestId())).willReturn(Optional.of(new Request()));
-        given(requestRepository.findById(anyInt())).willReturn(Optional.of(new Request(
+        Deposit deposit = new Deposit();
+        deposit.setDepositAmount(BigDecimal.valueOf(10_000));
+        Request request = new Request(
                 1,
                 new Date(),
                 BigDecimal.valueOf(10_000),
+                new Customer(5, null, null),
+                deposit,
                 null,
-                new Deposit()
-        )));
+                null
+        );
+        given(requestRepository.findById(anyInt())).willReturn(Optional.of(request));
 
         requestConfirmationService.confirmCloseDeposit(closeRequest);
 
-        verify(accountClient).refillAccount(any());
-        verify(depositRepository).delete(any(Deposit.class));
+        InOrder inOrder = inOrder(outboxRepository, depositRepository);
+        inOrder.verify(outboxRepository).enqueue(AccountOperationTypeEnum.REFILL, request, BigDecimal.valueOf(10_000));
+        inOrder.verify(depositRepository).delete(deposit);
+        verify(readYourWritesTracker).markWritten(5);
+        verify(accountClient, never()).refillAccount(any());
+    }
+
+    @Test
+    void confirmCloseDeposit_refusedWhileRefillPending() {
+        CloseDepositRequest closeRequest = new CloseDepositRequest();
+        closeRequest.setConfirmationCode("1337");
+        closeRequest.setRequestId(1);
+
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.CLOSE), eq("1337"))).willReturn(true);
+        Deposit deposit = new Deposit();
+        deposit.setId(7);
+        deposit.setDepositAmount(BigDecimal.valueOf(15_000));
+        Request request = new Request(1, new Date(), BigDecimal.valueOf(10_000), new Customer(5, null, null), deposit,
+                null, null);
+        given(requestRepository.findById(1)).willReturn(Optional.of(request));
+        given(outboxRepository.lockDepositAndCheckPendingRefill(7)).willReturn(true);
+
+        CustomException e = assertThrows(CustomException.class,
+                () -> requestConfirmationService.confirmCloseDeposit(closeRequest));
+
+        assertThat(e.getCode()).isEqualTo("REFILL_IN_PROGRESS");
+        verify(outboxRepository, never()).enqueue(any(), any(), any());
+        verify(depositRepository, never()).delete(any());
     }
 
     @Test
@@ -166,7 +258,7 @@ class RequestConfirmationServiceTest {
         closeRequest.setConfirmationCode("wrongCode");
         closeRequest.setRequestId(1);
 
-        given(smsConfirmationService.getCloseConfirmationCode()).willReturn("1337");
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.CLOSE), eq("1337"))).willReturn(true);
 
         assertThrows(InvalidConfirmationCodeException.class, () -> requestConfirmationService.confirmCloseDeposit(closeRequest));
     }
@@ -177,7 +269,7 @@ class RequestConfirmationServiceTest {
         closeRequest.setConfirmationCode("1337");
         closeRequest.setRequestId(1);
 
-        given(smsConfirmationService.getCloseConfirmationCode()).willReturn("1337");
+        given(smsConfirmationService.checkConfirmationCode(any(), eq(ConfirmationOperationEnum.CLOSE), eq("1337"))).willReturn(true);
         given(requestRepository.findById(closeRequest.getRequestId())).willReturn(Optional.empty());
 
         assertThrows(DepositNotFoundException.class, () -> requestConfirmationService.confirmCloseDeposit(closeRequest));
@@ -9,10 +9,10 @@ import ru.mts.depositservice.client.CustomerClient;
 import ru.mts.depositservice.entity.Customer;
 import ru.mts.depositservice.entity.Request;
 import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.ConfirmationOperationEnum;
 import ru.mts.depositservice.enums.RequestStatusEnum;
 import ru.mts.depositservice.model.OpenDepositRequest;
 import ru.mts.depositservice.repository.RequestRepository;
-import ru.mts.depositservice.repository.RequestStatusRepository;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -33,7 +33,7 @@ class RequestServiceTest {
     @Mock
     RequestRepository requestRepository;
     @Mock
-    RequestStatusRepository requestStatusRepository;
+    ReferenceDataRegistry referenceDataRegistry;
     @Mock
     SmsConfirmationServiceImpl smsConfirmationService;
     @Mock
@@ -54,30 +54,35 @@ class RequestServiceTest {
 
         RequestStatus confirmingStatus = new RequestStatus();
         confirmingStatus.setStatusName(RequestStatusEnum.CONFIRMING);
-        when(requestStatusRepository.findRequestStatusByStatusName(any())).thenReturn(confirmingStatus);
+        when(referenceDataRegistry.getRequestStatus(any())).thenReturn(confirmingStatus);
 
         doNothing().when(depositService).validateMinimumDepositAmount(any());
+        when(requestRepository.save(any())).thenAnswer(invocation -> {
+            Request saved = invocation.getArgument(0);
+            saved.setId(1);
+            return saved;
+        });
 
         requestService.openRequest(request);
 
         verify(depositService, times(1)).validateMinimumDepositAmount(any());
-        verify(smsConfirmationService, times(1)).generateVerificationCode();
+        verify(smsConfirmationService, times(1)).sendConfirmationCode(1, ConfirmationOperationEnum.OPEN);
         verify(requestRepository, times(1)).save(any());
         verify(requestStatusService, times(1)).changeCurrentRequestStatus(any(), any());
     }
 
     @Test
     void refillRequest() {
-        requestService.refillRequest();
+        requestService.refillRequest(1);
 
-        verify(smsConfirmationService, times(1)).generateVerificationCode();
+        verify(smsConfirmationService, times(1)).sendConfirmationCode(1, ConfirmationOperationEnum.REFILL);
     }
 
     @Test
     void closeRequest() {
-        requestService.closeRequest();
+        requestService.closeRequest(1);
 
-        verify(smsConfirmationService, times(1)).generateVerificationCode();
+        verify(smsConfirmationService, times(1)).sendConfirmationCode(1, ConfirmationOperationEnum.CLOSE);
     }
 
     @Test
@@ -87,16 +92,18 @@ class RequestServiceTest {
         Customer customer = new Customer(1, "phoneNumber", null);
 
         List<Request> rejectedRequests = Arrays.asList(
-                new Request(1, new Date(), BigDecimal.valueOf(10000), customer, null),
-                new Request(2, new Date(), BigDecimal.valueOf(10000), customer, null)
+                new Request(1, new Date(), BigDecimal.valueOf(10000), customer, null, 4, null),
+                new Request(2, new Date(), BigDecimal.valueOf(10000), customer, null, 4, null)
         );
 
-        when(requestRepository.findRequestsByCustomerId(eq(customerId))).thenReturn(rejectedRequests);
+        when(referenceDataRegistry.getRequestStatus(RequestStatusEnum.REJECTED))
+                .thenReturn(new RequestStatus(4, RequestStatusEnum.REJECTED));
+        when(requestRepository.findRequestsByCustomerIdAndStatusId(eq(customerId), eq(4))).thenReturn(rejectedRequests);
 
         List<Request> result = requestService.findRejectedRequests(customerId);
 
         assertEquals(rejectedRequests, result);
 
-        verify(requestRepository).findRequestsByCustomerId(eq(customerId));
+        verify(requestRepository).findRequestsByCustomerIdAndStatusId(eq(customerId), eq(4));
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package ru.mts.depositservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.mts.depositservice.entity.CurrentRequestStatus;
+import ru.mts.depositservice.entity.Request;
+import ru.mts.depositservice.entity.RequestStatus;
+import ru.mts.depositservice.enums.RequestStatusEnum;
+import ru.mts.depositservice.repository.CurrentRequestStatusRepository;
+import ru.mts.depositservice.repository.RequestRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RequestStatusServiceTest {
+
+    @Mock
+    CurrentRequestStatusRepository currentRequestStatusRepository;
+    @Mock
+    RequestRepository requestRepository;
+    @InjectMocks
+    RequestStatusService requestStatusService;
+
+    @Test
+    void changeCurrentRequestStatus_writesHistoryAndCurrentStatus() {
+        Request request = new Request();
+        request.setId(7);
+        RequestStatus rejected = new RequestStatus(4, RequestStatusEnum.REJECTED);
+
+        requestStatusService.changeCurrentRequestStatus(request, rejected);
+
+        ArgumentCaptor<CurrentRequestStatus> history = ArgumentCaptor.forClass(CurrentRequestStatus.class);
+        InOrder inOrder = inOrder(currentRequestStatusRepository, requestRepository);
+        inOrder.verify(currentRequestStatusRepository).save(history.capture());
+        inOrder.verify(requestRepository).save(request);
+
+        assertEquals(7, history.getValue().getId().getRequestId());
+        assertEquals(4, history.getValue().getId().getRequestStatusId());
+        assertEquals(4, request.getCurrentStatusId());
+        assertEquals(history.getValue().getUpdateTime(), request.getCurrentStatusChangedAt());
+        assertTrue(history.getValue().isNew());                         // сохраняется через persist без чтения
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createRequests_setsLastStatusBeforeInsertAndWritesWholeHistory() {
+        Request request = new Request();
+        RequestStatus confirmed = new RequestStatus(2, RequestStatusEnum.CONFIRMED);
+        RequestStatus approved = new RequestStatus(3, RequestStatusEnum.APPROVED);
+        when(requestRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Request> requests = invocation.getArgument(0);
+            assertEquals(3, requests.get(0).getCurrentStatusId());      // статус задан до вставки
+            requests.get(0).setId(9);
+            return requests;
+        });
+
+        requestStatusService.createRequests(List.of(request), List.of(confirmed, approved));
+
+        ArgumentCaptor<List<CurrentRequestStatus>> history = ArgumentCaptor.forClass(List.class);
+        verify(currentRequestStatusRepository).saveAll(history.capture());
+        verify(requestRepository, never()).save(any());
+        assertEquals(List.of(2, 3), history.getValue().stream()
+                .map(record -> record.getId().getRequestStatusId())
+                .toList());
+        assertTrue(history.getValue().stream().allMatch(record -> record.getId().getRequestId() == 9));
+    }
+}
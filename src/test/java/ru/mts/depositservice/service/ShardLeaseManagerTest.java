@@ -0,0 +1,145 @@
+package ru.mts.depositservice.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import ru.mts.depositservice.property.ShardingProperty;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Каждый экземпляр сервиса представлен отдельным контекстом приложения с собственным подключением к общей базе
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ShardLeaseManagerTest {
+
+    private static final int SHARD_COUNT = 8;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private final List<AnnotationConfigApplicationContext> nodes = new ArrayList<>();
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .placeholders(Map.of("shardCount", "16"))
+                .load()
+                .migrate();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(AnnotationConfigApplicationContext::close);
+        nodes.clear();
+    }
+
+    @Test
+    void heartbeat_splitsShardsBetweenNodesWithoutOverlap() {
+        ShardLeaseManager first = startNode();
+        ShardLeaseManager second = startNode();
+        ShardLeaseManager third = startNode();
+
+        heartbeat(3, first, second, third);
+
+        Set<Integer> all = new HashSet<>();
+        for (ShardLeaseManager node : List.of(first, second, third)) {
+            assertTrue(node.getOwnedShards().size() <= 3, node.getOwnedShards().toString());
+            for (Integer shard : node.getOwnedShards()) {
+                assertTrue(all.add(shard), "Шард " + shard + " арендован дважды");
+            }
+        }
+        assertEquals(allShards(), all);
+    }
+
+    @Test
+    void heartbeat_takesOverShardsOfStoppedNode() {
+        ShardLeaseManager first = startNode();
+        ShardLeaseManager second = startNode();
+        heartbeat(3, first, second);
+        assertEquals(4, first.getOwnedShards().size());
+
+        nodes.remove(1).close();
+        heartbeat(1, first);
+
+        assertEquals(allShards(), first.getOwnedShards());
+    }
+
+    @Test
+    void runOnOwnedShards_visitsOnlyOwnedShards() {
+        ShardLeaseManager first = startNode();
+        ShardLeaseManager second = startNode();
+        heartbeat(3, first, second);
+
+        List<Integer> visited = new ArrayList<>();
+        first.runOnOwnedShards(visited::add);
+
+        assertEquals(new ArrayList<>(first.getOwnedShards()), visited);
+        assertTrue(visited.stream().noneMatch(second.getOwnedShards()::contains));
+    }
+
+    @Test
+    void runOnOwnedShards_continuesAfterFailedShard() {
+        ShardLeaseManager node = startNode();
+        heartbeat(1, node);
+        Integer failing = node.getOwnedShards().iterator().next();
+
+        List<Integer> visited = new ArrayList<>();
+        node.runOnOwnedShards(shard -> {
+            visited.add(shard);
+            if (shard.equals(failing)) {
+                throw new IllegalStateException("shard " + shard);
+            }
+        });
+
+        assertEquals(new ArrayList<>(node.getOwnedShards()), visited);
+    }
+
+    private ShardLeaseManager startNode() {
+        ShardingProperty shardingProperty = new ShardingProperty();
+        shardingProperty.setShardCount(SHARD_COUNT);
+
+        DataSourceProperties dataSourceProperties = new DataSourceProperties();
+        dataSourceProperties.setUrl(POSTGRES.getJdbcUrl());
+        dataSourceProperties.setUsername(POSTGRES.getUsername());
+        dataSourceProperties.setPassword(POSTGRES.getPassword());
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(DataSourceProperties.class, () -> dataSourceProperties);
+        context.registerBean(ShardingProperty.class, () -> shardingProperty);
+        context.registerBean(ShardLeaseManager.class);
+        context.refresh();
+
+        nodes.add(context);
+        return context.getBean(ShardLeaseManager.class);
+    }
+
+    private static void heartbeat(int rounds, ShardLeaseManager... nodes) {
+        for (int i = 0; i < rounds; i++) {
+            for (ShardLeaseManager node : nodes) {
+                node.heartbeat();
+            }
+        }
+    }
+
+    private static Set<Integer> allShards() {
+        return IntStream.range(0, SHARD_COUNT).boxed().collect(Collectors.toSet());
+    }
+}